@@ -6,20 +6,33 @@
  */
 package org.example.springproject.configuration;
 
-import com.google.gson.Gson;
-import org.eclipse.paho.client.mqttv3.MqttCallback;
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttException;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.example.springproject.dto.RoomDTO;
 import org.example.springproject.dto.SensorDTO;
 import org.example.springproject.dto.UserDTO;
 import org.example.springproject.entity.*;
 import org.example.springproject.service.*;
-import org.example.springproject.util.AlertManager;
+import org.example.springproject.util.AlertRule;
+import org.example.springproject.util.AlertRuleSet;
+import org.example.springproject.util.AlertStateTracker;
+import org.example.springproject.util.AlertWriteBuffer;
+import org.example.springproject.util.AlertWindowStore;
+import org.example.springproject.util.CompositeAlertRule;
+import org.example.springproject.util.CustomAlertRuleIndex;
+import org.example.springproject.util.LiveUpdatePublisher;
+import org.example.springproject.util.NotificationDispatcher;
+import org.example.springproject.util.PayloadDecoder;
+import org.example.springproject.util.PartitionedExecutor;
+import org.example.springproject.util.RoomContext;
+import org.example.springproject.util.RoomContextCache;
+import org.example.springproject.util.RoomLiveState;
+import org.example.springproject.util.RoomLiveStateTable;
+import org.example.springproject.util.ReadingRollupBuffer;
+import org.example.springproject.util.SensorDataWriteBuffer;
+import org.example.springproject.util.SensorReading;
 import org.example.springproject.util.SensorMapper;
-import org.example.springproject.util.UserMapper;
+import org.example.springproject.util.WindowAggregation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.annotation.ServiceActivator;
@@ -32,6 +45,7 @@ import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessagingException;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -49,45 +63,98 @@ public class MqttConfig {
     private final String brokerUrl = "tcp://broker.emqx.io:1883";
 
     /**
-     * topicDht22, topicMq5, topicEsp32x1, topicEsp32x2 are the MQTT topics to which the client will subscribe.
+     * The MQTT topic filters the client subscribes to.
+     * They must cover the topic patterns of the routes returned by the MqttRouteService.
      */
-    private final String topicDht22= "sensor/dht22/data";
-    private final String topicMq5 = "sensor/mq5/data";
-    private final String topicEsp32x1 = "sensor/esp32x1/data";
-    private final String topicEsp32x2 = "sensor/esp32x2/data";
+    @Value("${mqtt.subscriptions}")
+    private String[] subscriptions;
 
     /**
-     * Autowired services for handling sensor data, room management, alerts, custom alerts, user management and Twilio service.
+     * The reading reused by each ingest worker to decode the payloads, so decoding a message doesn't allocate a new one.
+     */
+    private static final ThreadLocal<SensorReading> SENSOR_READING = ThreadLocal.withInitial(SensorReading::new);
+
+    /**
+     * The number of worker threads processing incoming messages.
+     * A value lower than 1 means one worker per available processor.
+     */
+    @Value("${mqtt.ingest.workers}")
+    private int ingestWorkers;
+
+    /**
+     * The maximum number of messages waiting to be processed by each worker.
+     */
+    @Value("${mqtt.ingest.queue-capacity}")
+    private int ingestQueueCapacity;
+
+    /**
+     * What happens when the queue of a worker is full: BLOCK the MQTT client, DROP_NEWEST or DROP_OLDEST message.
+     */
+    @Value("${mqtt.ingest.overflow-policy}")
+    private PartitionedExecutor.OverflowPolicy ingestOverflowPolicy;
+
+    /**
+     * Autowired services for handling sensor data, room management, alerts, user management, the notification dispatcher, the index of the custom alerts and the system thresholds.
      * These services are injected into the MqttConfig class to be used for processing sensor data and sending alerts.
      */
     @Autowired
     private final SensorService sensorService;
     private final RoomService roomService;
-    private final AlertService alertService;
-    private final CustomAlertService customAlertService;
-    private final AlertManager alertManager;
+    private final AlertWriteBuffer alertWriteBuffer;
+    private final CustomAlertRuleIndex customAlertRuleIndex;
+    private final AlertStateTracker alertStateTracker;
+    private final AlertWindowStore alertWindowStore;
+    private final RoomLiveStateTable roomLiveStateTable;
+    private final SystemThresholdService systemThresholdService;
+    private final NotificationDispatcher notificationDispatcher;
     private final UserService userService;
-    private final TwilioService twilioService;
+    private final SensorDataWriteBuffer sensorDataWriteBuffer;
+    private final ReadingRollupBuffer readingRollupBuffer;
+    private final LiveUpdatePublisher liveUpdatePublisher;
+    private final RoomContextCache roomContextCache;
+    private final MqttRouteService mqttRouteService;
+    private final Map<String, PayloadDecoder> payloadDecoders;
 
     /**
      * Constructor for MqttConfig class.
      * Initializes the MqttConfig with the required services.
      * @param sensorService the service for handling sensor data
      * @param roomService the service for managing rooms
-     * @param alertService the service for handling alerts
-     * @param customAlertService the service for handling custom alerts
-     * @param alertManager the service for managing alerts and sending notifications
+     * @param alertWriteBuffer the buffer saving the alerts and their notifications in micro-batches
+     * @param customAlertRuleIndex the in-memory index of the compiled custom alerts
+     * @param alertStateTracker the tracker suppressing the alerts of an incident that was already notified
+     * @param alertWindowStore the store keeping the windows of the avg, min, max, rate and count custom alerts
+     * @param roomLiveStateTable the table of the latest readings of every room, evaluated by the composite custom alerts
+     * @param systemThresholdService the service providing the system thresholds of every sensor type and room
+     * @param notificationDispatcher the dispatcher delivering the email, SMS and call of the alerts in the background
      * @param userService the service for managing users
-     * @param twilioService the service for handling Twilio SMS and calls
+     * @param sensorDataWriteBuffer the buffer saving the sensor data in micro-batches
+     * @param readingRollupBuffer the buffer maintaining the 1-minute, 1-hour and 1-day rollups of the sensor data
+     * @param liveUpdatePublisher the publisher pushing the readings to the dashboard over STOMP
+     * @param roomContextCache the cache of the room contexts used by the alert checks
+     * @param mqttRouteService the service resolving the sensors and rooms targeted by a topic
+     * @param payloadDecoders the decoders of the device payloads, selected by the name referenced by the routes
      */
-    public MqttConfig(SensorService sensorService, RoomService roomService, AlertService alertService, CustomAlertService customAlertService, AlertManager alertManager, UserService userService, TwilioService twilioService) {
+    public MqttConfig(SensorService sensorService, RoomService roomService, AlertWriteBuffer alertWriteBuffer, CustomAlertRuleIndex customAlertRuleIndex, AlertStateTracker alertStateTracker, AlertWindowStore alertWindowStore, RoomLiveStateTable roomLiveStateTable, SystemThresholdService systemThresholdService, NotificationDispatcher notificationDispatcher, UserService userService, SensorDataWriteBuffer sensorDataWriteBuffer, ReadingRollupBuffer readingRollupBuffer, LiveUpdatePublisher liveUpdatePublisher, RoomContextCache roomContextCache, MqttRouteService mqttRouteService, List<PayloadDecoder> payloadDecoders) {
         this.sensorService = sensorService;
         this.roomService = roomService;
-        this.alertService = alertService;
-        this.customAlertService = customAlertService;
-        this.alertManager = alertManager;
+        this.alertWriteBuffer = alertWriteBuffer;
+        this.customAlertRuleIndex = customAlertRuleIndex;
+        this.alertStateTracker = alertStateTracker;
+        this.alertWindowStore = alertWindowStore;
+        this.roomLiveStateTable = roomLiveStateTable;
+        this.systemThresholdService = systemThresholdService;
+        this.notificationDispatcher = notificationDispatcher;
         this.userService = userService;
-        this.twilioService = twilioService;
+        this.sensorDataWriteBuffer = sensorDataWriteBuffer;
+        this.readingRollupBuffer = readingRollupBuffer;
+        this.liveUpdatePublisher = liveUpdatePublisher;
+        this.roomContextCache = roomContextCache;
+        this.mqttRouteService = mqttRouteService;
+        this.payloadDecoders = new HashMap<>();
+        for (PayloadDecoder payloadDecoder : payloadDecoders) {
+            this.payloadDecoders.put(payloadDecoder.getName(), payloadDecoder);
+        }
     }
 
     /**
@@ -102,39 +169,15 @@ public class MqttConfig {
     }
 
     /**
-     * mqttClient method creates an MqttClient bean that connects to the MQTT broker.
-     * It sets up a callback to handle incoming messages, connection loss, and message delivery completion.
-     * It also subscribes to the specified MQTT topics.
+     * mqttIngestExecutor method creates the bounded, partitioned executor that processes the incoming MQTT messages.
+     * The handler only hands the messages over to this executor, so the MQTT client thread is never blocked by the processing of a message.
      * This method is annotated with @Bean, which indicates that it will be registered as a bean in the Spring application context.
-     * @return an MqttClient that is connected to the broker and subscribed to the specified topics.
-     * @throws Exception if there is an error during the creation or connection of the MQTT client.
+     * @return a PartitionedExecutor with the configured number of workers, queue capacity and overflow policy.
      */
     @Bean
-    public MqttClient mqttClient() throws Exception {
-        MqttClient client = new MqttClient(brokerUrl, "Robicu03");
-        client.setCallback(new MqttCallback() {
-            @Override
-            public void messageArrived(String topic, MqttMessage message) {
-                System.out.println("Message received on topic " + topic + ": " + new String(message.getPayload()));
-            }
-
-            @Override
-            public void connectionLost(Throwable cause) {
-                System.out.println("MQTT connection lost: " + cause.getMessage());
-            }
-
-            @Override
-            public void deliveryComplete(org.eclipse.paho.client.mqttv3.IMqttDeliveryToken token) {
-                try {
-                    System.out.println("Message delivery complete: " + token.getMessage());
-                } catch (MqttException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        });
-        client.connect();
-        client.subscribe(topicDht22);
-        return client;
+    public PartitionedExecutor mqttIngestExecutor() {
+        int workers = ingestWorkers > 0 ? ingestWorkers : Runtime.getRuntime().availableProcessors();
+        return new PartitionedExecutor("mqtt-ingest", workers, ingestQueueCapacity, ingestOverflowPolicy);
     }
 
     /**
@@ -146,206 +189,133 @@ public class MqttConfig {
     @Bean
     public MqttPahoMessageDrivenChannelAdapter inbound() {
         MqttPahoMessageDrivenChannelAdapter adapter =
-                new MqttPahoMessageDrivenChannelAdapter(brokerUrl, "testClient", topicDht22, topicMq5,topicEsp32x1,topicEsp32x2);
+                new MqttPahoMessageDrivenChannelAdapter(brokerUrl, "testClient", subscriptions);
         adapter.setCompletionTimeout(5000);
-        adapter.setConverter(new DefaultPahoMessageConverter());
+        // The payloads are handed to the decoders as raw bytes, so they are never copied into a String
+        DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+        converter.setPayloadAsBytes(true);
+        adapter.setConverter(converter);
         adapter.setQos(1);
         adapter.setOutputChannel(mqttInputChannel());
         return adapter;
     }
 
     /**
-     * alertDHT22 method checks the sensor data for DHT22 sensors and triggers alerts based on temperature and humidity system threshold.
-     * It processes the sensor data, checks for high or low temperature and humidity levels, and sends alerts if the system thresholds are exceeded.
-     * It also saves the alert to the database and sends an email notification to the user associated with the room.
-     * It also sends an SMS and makes a call to the user using Twilio service.
-     * @param roomId the ID of the room where the sensor is located
-     * @param sensorDTO the SensorDTO object containing sensor data
+     * raiseAlert method hands an alert over to the write buffer together with its email, SMS and call, which are queued for delivery once they are stored.
+     * The alerts raised by the same message, or by the messages received in the same window, are saved in a single batch;
+     * the notifications of an alert are always stored in the same write as the alert, so a crash can't lose them: they are replayed on startup.
+     * @param roomContext the context of the room, holding the owner and their phone number
+     * @param sensorDTO the SensorDTO object of the sensor that raised the alert
+     * @param alert the alert to be saved
      */
-    private void alertDHT22(String roomId, SensorDTO sensorDTO) {
-        List<Details> detailsList = sensorDTO.getDetails();
-        UserDTO userDTO = userService.getUserByRoomId(roomId);
-        User userFromDTO = UserMapper.toEntity(userDTO);
-        Sensor sensorFromDTO = SensorMapper.toEntity(sensorDTO);
-        RoomDTO roomDTO = roomService.getRoomById(roomId);
-
-        for(Details details : detailsList) {
-            Map<String, Float> data = details.getData();
-            if (data.containsKey("temperature")) {
-                float temperature = data.get("temperature");
-                if (temperature > 50) {
-                    Alert alert = new Alert(roomId,sensorDTO.getId(),details.getTimestamp(),sensorDTO.getSensorType(),data,"Temperature in room: " + roomDTO.getName() + " is too high " + temperature + " °C");
-                    alertService.saveAlert(alert);
-                    alertManager.sendEmail(userFromDTO,alert,sensorFromDTO);
-                    notifyUser(userDTO, alert, sensorFromDTO);
-                }
-                if (temperature < -15) {
-                    Alert alert = new Alert(roomId,sensorDTO.getId(),details.getTimestamp(),sensorDTO.getSensorType(),data,"Temperature in room: " + roomDTO.getName() + " is too low: " + temperature + " °C");
-                    alertService.saveAlert(alert);
-                    alertManager.sendEmail(userFromDTO,alert,sensorFromDTO);
-                    notifyUser(userDTO, alert, sensorFromDTO);
-                }
-            }
-            if (data.containsKey("humidity")) {
-                float humidity = data.get("humidity");
-                if (humidity > 95) {
-                    Alert alert = new Alert(roomId,sensorDTO.getId(),details.getTimestamp(),sensorDTO.getSensorType(),data,"Humidity in room: "+ roomDTO.getName() + " is too high: " + humidity + " %");
-                    alertService.saveAlert(alert);
-                    alertManager.sendEmail(userFromDTO,alert,sensorFromDTO);
-                    notifyUser(userDTO, alert, sensorFromDTO);
-                }
-                if (humidity < 10) {
-                    Alert alert = new Alert(roomId,sensorDTO.getId(),details.getTimestamp(),sensorDTO.getSensorType(),data,"Humidity in room: " + roomDTO.getName() + " is too low: " + humidity + " %");
-                    alertService.saveAlert(alert);
-                    alertManager.sendEmail(userFromDTO,alert,sensorFromDTO);
-                    notifyUser(userDTO, alert, sensorFromDTO);
-                }
-            }
-        }
+    private void raiseAlert(RoomContext roomContext, SensorDTO sensorDTO, Alert alert) {
+        List<Notification> notifications = notificationDispatcher.compose(roomContext, alert, SensorMapper.toEntity(sensorDTO));
+        alertWriteBuffer.add(alert, notifications);
     }
 
     /**
-     * alertMq5 method checks the sensor data for MQ5 sensors and triggers alerts based on gas levels.
-     * It processes the sensor data, checks for high gas levels, and sends alerts if the system threshold is exceeded.
-     * It also saves the alert to the database and sends an email notification to the user associated with the room.
-     * It also sends an SMS and makes a call to the user using Twilio service.
-     * @param roomId the ID of the room where the sensor is located
+     * checkAlerts method checks the sensor data against the system thresholds of the sensor type and the custom alerts of the sensor.
+     * Both kinds of rules are held in memory, grouped by parameter, so every channel of a reading is visited once and looked up in both sets.
+     * Every channel is also recorded in the live state of the room, and only the composite custom alerts referencing it are evaluated again.
+     * An alert is triggered for every rule that is met, unless the alertStateTracker suppresses it because the incident was already notified.
+     * The alert is saved to the database in a micro-batch with its email, SMS and call, which are then queued for the user associated with the room, so the ingest never waits for them.
+     * @param roomContext the context of the room where the sensor is located
      * @param sensorDTO the SensorDTO object containing sensor data
      */
-    private void alertMq5(String roomId, SensorDTO sensorDTO) {
-        List<Details> detailsList = sensorDTO.getDetails();
-        UserDTO userDTO = userService.getUserByRoomId(roomId);
-        User userFromDTO = UserMapper.toEntity(userDTO);
-        Sensor sensorFromDTO = SensorMapper.toEntity(sensorDTO);
-        RoomDTO roomDTO = roomService.getRoomById(roomId);
+    private void checkAlerts(RoomContext roomContext, SensorDTO sensorDTO) {
+        AlertRuleSet systemRules = systemThresholdService.getRules(sensorDTO.getSensorType(), roomContext.getRoomId());
+        AlertRuleSet customRules = customAlertRuleIndex.getRules(sensorDTO.getId());
+        RoomLiveState liveState = roomLiveStateTable.getRoom(roomContext.getRoomId());
 
-        for(Details details : detailsList) {
-            Map<String, Float> data = details.getData();
-            if (data.containsKey("gas")) {
-                float gasLevel = data.get("gas");
-
-                if (gasLevel > 700) {
-                    Alert alert = new Alert(roomId,sensorDTO.getId(),details.getTimestamp(),sensorDTO.getSensorType(),data,"Gas level in room: " + roomDTO.getName() + " is too high: " + gasLevel);
-                    alertService.saveAlert(alert);
-                    alertManager.sendEmail(userFromDTO,alert,sensorFromDTO);
-                    notifyUser(userDTO, alert, sensorFromDTO);
+        for(Details detail: sensorDTO.getDetails()) {
+            long timestamp = detail.getTimestamp() != null ? detail.getTimestamp().getSeconds() : System.currentTimeMillis() / 1000;
+            for (Map.Entry<String, Float> channel : detail.getData().entrySet()) {
+                if (channel.getValue() == null || channel.getValue().isNaN()) {
+                    continue;
                 }
+                float value = channel.getValue();
+                liveState.update(sensorDTO.getId(), channel.getKey(), timestamp, value);
+                raiseAlerts(roomContext, sensorDTO, detail, timestamp, systemRules.getRules(channel.getKey()), value);
+                raiseAlerts(roomContext, sensorDTO, detail, timestamp, customRules.getRules(channel.getKey()), value);
+                raiseCompositeAlerts(roomContext, sensorDTO, detail, timestamp, liveState, customAlertRuleIndex.getCompositeRules(sensorDTO.getId(), channel.getKey()));
             }
         }
     }
 
     /**
-     * alertMq2 method checks the sensor data for MQ2 sensors and triggers alerts based on gas levels.
-     * It processes the sensor data, checks for high gas levels, and sends alerts if the system threshold is exceeded.
-     * It also saves the alert to the database and sends an email notification to the user associated with the room.
-     * @param roomId the ID of the room where the sensor is located
+     * raiseAlerts method feeds the value of a channel to the rules watching it and raises an alert for every rule the alertStateTracker lets through.
+     * A windowed rule compares the aggregation of its window instead of the value, and is skipped while the aggregation is not defined yet.
+     * @param roomContext the context of the room where the sensor is located
      * @param sensorDTO the SensorDTO object containing sensor data
+     * @param detail the reading the value belongs to
+     * @param timestamp the timestamp of the reading in seconds since the epoch
+     * @param rules the rules watching the channel, or null if there are none
+     * @param value the value of the channel
      */
-    private void alertMq2(String roomId, SensorDTO sensorDTO) {
-        List<Details> detailsList = sensorDTO.getDetails();
-        UserDTO userDTO = userService.getUserByRoomId(roomId);
-        User userFromDTO = UserMapper.toEntity(userDTO);
-        Sensor sensorFromDTO = SensorMapper.toEntity(sensorDTO);
-        RoomDTO roomDTO = roomService.getRoomById(roomId);
-
-        for(Details details : detailsList) {
-            Map<String, Float> data = details.getData();
-            if (data.containsKey("gas")) {
-                float gasLevel = data.get("gas");
-
-                if(gasLevel > 800){
-                    Alert alert = new Alert(roomId,sensorDTO.getId(),details.getTimestamp(),sensorDTO.getSensorType(),data,"Smoke or gas level in room: "+ roomDTO.getName() + " is too high: " + gasLevel);
-                    alertService.saveAlert(alert);
-                    alertManager.sendEmail(userFromDTO,alert,sensorFromDTO);
-                    notifyUser(userDTO, alert, sensorFromDTO);
+    private void raiseAlerts(RoomContext roomContext, SensorDTO sensorDTO, Details detail, long timestamp, AlertRule[] rules, float value) {
+        if (rules == null) {
+            return;
+        }
+        for (AlertRule rule : rules) {
+            float observed = value;
+            if (rule.isWindowed()) {
+                observed = alertWindowStore.add(sensorDTO.getId(), rule, timestamp, value);
+                if (Float.isNaN(observed)) {
+                    continue;
                 }
-
             }
-        }
-    }
-
-    /**
-     * notifyUser method sends an SMS and makes a call to the user associated with the room when an alert is triggered.
-     * @param userDTO the UserDTO object containing user information
-     * @param alert the Alert object containing alert information
-     * @param sensor the Sensor object containing sensor information
-     * @throws RuntimeException if there is an error while trying to contact the user
-     */
-    private void notifyUser(UserDTO userDTO, Alert alert, Sensor sensor) throws RuntimeException {
-        try {
-            // Get user's phone number
-            String userPhoneNumber = userService.getUserPhoneNumber(userDTO.getId());
-
-            // Skip if no phone number exists
-            if (userPhoneNumber == null || userPhoneNumber.trim().isEmpty()) {
-                return;
+            if (alertStateTracker.shouldRaise(sensorDTO.getId(), rule, observed)) {
+                // The count of a count rule means nothing to the user, so its message shows the reading that completed it
+                float reported = rule.getAggregation() == WindowAggregation.COUNT ? value : observed;
+                raiseAlert(roomContext, sensorDTO, new Alert(roomContext.getRoomId(),sensorDTO.getId(),detail.getTimestamp(),sensorDTO.getSensorType(),detail.getData(),rule.formatMessage(roomContext.getRoomName(), reported)));
             }
-
-            // Message the user
-            RoomDTO roomDTO = roomService.getRoomById(alert.getRoomId());
-            String message = "Hello, " + userDTO.getName() + "\n\n" + "The sensor type is: " + sensor.getSensorType() + "\n\n"+ "The room is called: "+ roomDTO.getName()+"\n\n" + "Alert: " + alert.getMessage();
-            twilioService.sendSms(userPhoneNumber,message);
-
-            // Call the user
-            twilioService.makeCall(userPhoneNumber);
-        } catch (Exception e) {
-            throw new RuntimeException("Couldn't contact the user!" + e);
         }
     }
 
     /**
-     * checkCustomAlerts method checks for custom alerts based on sensor data.
-     * It retrieves all custom alerts associated with the sensor, evaluates the conditions for each alert, and triggers an alert if the condition is met.
-     * It saves the custom alert to the database and sends an email notification to the user associated with the room.
-     * It also sends an SMS and makes a call to the user using Twilio service.
-     * @param roomId the ID of the room where the sensor is located
+     * raiseCompositeAlerts method re-evaluates the composite rules referencing a channel that just changed, against the live state of the room,
+     * and raises an alert for every rule the alertStateTracker lets through.
+     * @param roomContext the context of the room where the sensor is located
      * @param sensorDTO the SensorDTO object containing sensor data
-     * @throws Exception if there is an error while processing custom alerts
+     * @param detail the reading that changed the channel
+     * @param timestamp the timestamp of the reading in seconds since the epoch
+     * @param liveState the live state of the room
+     * @param rules the composite rules referencing the channel, or null if there are none
      */
-    private void checkCustomAlerts(String roomId, SensorDTO sensorDTO) throws Exception {
-        List<CustomAlert> customAlerts = customAlertService.getAllCustomAlertsBySensorId(sensorDTO.getId());
-        UserDTO userDTO = userService.getUserByRoomId(roomId);
-        User userFromDTO = UserMapper.toEntity(userDTO);
-        Sensor sensorFromDTO = SensorMapper.toEntity(sensorDTO);
-
-        for(Details detail: sensorDTO.getDetails()) {
-            Map<String, Float> data = detail.getData();
-            for (CustomAlert customAlert : customAlerts) {
-                Float value = data.get(customAlert.getParameter());
-                if (value != null) {
-                    if (evaluateCondition(value, customAlert.getCondition(), customAlert.getThreshold())) {
-                        Alert alert = new Alert(roomId,sensorDTO.getId(),detail.getTimestamp(),sensorDTO.getSensorType(),data,customAlert.getMessage());
-                        alertService.saveAlert(alert);
-                        alertManager.sendEmail(userFromDTO,alert,sensorFromDTO);
-                        notifyUser(userDTO, alert, sensorFromDTO);
-                    }
-                }
+    private void raiseCompositeAlerts(RoomContext roomContext, SensorDTO sensorDTO, Details detail, long timestamp, RoomLiveState liveState, CompositeAlertRule[] rules) {
+        if (rules == null) {
+            return;
+        }
+        for (CompositeAlertRule rule : rules) {
+            if (!rule.getRoomId().equals(roomContext.getRoomId())) {
+                // The sensor was moved to another room, so the rule can't see it anymore
+                continue;
+            }
+            if (alertStateTracker.shouldRaise(roomContext.getRoomId(), rule, liveState, timestamp)) {
+                raiseAlert(roomContext, sensorDTO, new Alert(roomContext.getRoomId(),sensorDTO.getId(),detail.getTimestamp(),sensorDTO.getSensorType(),detail.getData(),rule.formatMessage(roomContext.getRoomName(), liveState)));
             }
         }
     }
 
     /**
-     * evaluateCondition method evaluates a condition based on the value, condition string, and threshold.
-     * @param value the value to be evaluated
-     * @param condition the condition string (">", "<", ">=", "<=", "==")
-     * @param threshold the threshold value to compare against
-     * @return true if the condition is met, false otherwise
+     * loadRoomContext method reads the room, its owner and the owner's phone number from the database.
+     * It is used by the roomContextCache when the context of a room isn't cached or has expired.
+     * @param roomId the ID of the room
+     * @return the context of the room
+     * @throws RuntimeException if the room or its owner can't be retrieved
      */
-    private boolean evaluateCondition(float value, String condition, float threshold) {
-        return switch (condition) {
-            case ">" -> value > threshold;
-            case "<" -> value < threshold;
-            case ">=" -> value >= threshold;
-            case "<=" -> value <= threshold;
-            case "==" -> value == threshold;
-            default -> false;
-        };
+    private RoomContext loadRoomContext(String roomId) throws RuntimeException {
+        RoomDTO roomDTO = roomService.getRoomById(roomId);
+        UserDTO owner = userService.getUserByRoomId(roomId);
+        String ownerPhoneNumber = userService.getUserPhoneNumber(owner.getId());
+        return new RoomContext(roomId, roomDTO.getName(), owner, ownerPhoneNumber);
     }
 
     /**
      * processDataForRoom method processes the sensor data for a specific room.
-     * It checks the sensor type and calls the appropriate alert method based on the sensor type.
-     * It also saves the sensor data and updates the room with the sensor data.
+     * It resolves the context of the room and checks the sensor data against the system thresholds and the custom alerts.
+     * It pushes the readings to the dashboards displaying the room, and hands the sensor data over to the write buffer,
+     * which saves it and updates the room in micro-batches, and to the rollup buffer, which aggregates it for the history queries.
      * @param sensorDTO the SensorDTO object containing sensor data
      * @param roomId the ID of the room where the sensor is located
      * @throws Exception if there is an error while processing the data for the room
@@ -356,206 +326,106 @@ public class MqttConfig {
             System.out.println("Sensor is not active, skipping processing for room: " + roomId);
             return;
         }
-        if(sensorDTO.getSensorType().equals("DHT22")){
-            alertDHT22(roomId, sensorDTO);
-        }
 
-        if(sensorDTO.getSensorType().equals("MQ5")){
-            alertMq5(roomId, sensorDTO);
-        }
+        // Resolve the room and its owner once for all the checks below
+        RoomContext roomContext = roomContextCache.get(roomId, this::loadRoomContext);
+
+        checkAlerts(roomContext, sensorDTO);
+
+        // The dashboards get the reading right away instead of polling for it
+        liveUpdatePublisher.publishReadings(roomId, sensorDTO);
 
-        if(sensorDTO.getSensorType().equals("MQ2")){
-            alertMq2(roomId, sensorDTO);
+        // The reading is written together with the others received in the same window
+        sensorDataWriteBuffer.add(roomId, sensorDTO);
+
+        // The rollups are updated as the readings arrive, so the history queries don't scan the readings
+        readingRollupBuffer.add(sensorDTO);
+    }
+
+    /**
+     * processMessage method processes an incoming MQTT message.
+     * It looks up the routes of the topic the message was received on, decodes the payload with the decoder of each route,
+     * and calls the processDataForRoom method for every sensor targeted by the routes.
+     * @param topic the topic the message was received on
+     * @param payload the raw payload of the message containing the sensor data
+     */
+    private void processMessage(String topic, byte[] payload) {
+        List<MqttRoute> routes = mqttRouteService.getRoutesForTopic(topic);
+        if (routes.isEmpty()) {
+            System.out.println("No MQTT route for topic " + topic + ", skipping message");
+            return;
         }
 
-        checkCustomAlerts(roomId, sensorDTO);
+        // Every ingest worker reuses its own reading, refilled by the decoder for every message
+        SensorReading reading = SENSOR_READING.get();
 
-        try{
-            sensorService.saveSensorData(sensorDTO);
-            roomService.updateRoomWithSensorData(roomId, sensorDTO);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to proccess data for room: " + roomId + e);
+        for (MqttRoute route : routes) {
+            PayloadDecoder payloadDecoder = payloadDecoders.get(route.getDecoder());
+            if (payloadDecoder == null) {
+                System.err.println("Unknown decoder " + route.getDecoder() + " for topic pattern " + route.getTopicPattern());
+                continue;
+            }
+
+            try {
+                payloadDecoder.decode(payload, reading);
+            } catch (IOException e) {
+                System.err.println("Couldn't decode message on topic " + topic + ": " + e.getMessage());
+                continue;
+            }
+            if (!reading.hasTimestamp()) {
+                System.err.println("Message on topic " + topic + " has no timestamp, skipping message");
+                continue;
+            }
+
+            for (MqttRouteTarget target : route.getTargets()) {
+                // Create a map to hold the readings of the fields the sensor reads from the payload
+                Map<String, Float> sensorData = new HashMap<>();
+                for (Map.Entry<String, String> field : target.getFields().entrySet()) {
+                    int index = reading.indexOf(field.getKey());
+                    if (index >= 0) {
+                        sensorData.put(field.getValue(), reading.valueAt(index));
+                    }
+                }
+                if (sensorData.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    SensorDTO sensorDTO = sensorService.getSensorMetadata(target.getSensorId());
+                    sensorDTO.setDetails(List.of(new Details(reading.getTimestamp(), sensorData)));
+                    processDataForRoom(sensorDTO, target.getRoomId());
+                } catch (Exception e) {
+                    // A failing sensor doesn't prevent the other sensors of the message from being processed
+                    System.err.println("Couldn't process data for sensor " + target.getSensorId() + ": " + e.getMessage());
+                }
+            }
         }
     }
 
     /**
-     * handler method creates a MessageHandler bean that processes incoming MQTT messages.
-     * It extracts the payload and topic from the message, processes the sensor data based on the topic and calls the processDataForRoom method.
+     * handler method creates a MessageHandler bean that receives incoming MQTT messages.
+     * It hands every message over to the mqttIngestExecutor, partitioned by the topic it was received on.
+     * Every sensor is fed by a single topic, so the readings of a sensor are processed in order while different topics are processed in parallel.
      * This method is annotated with @ServiceActivator, which indicates that it will be used to handle messages from the mqttInputChannel.
-     * @return a MessageHandler that processes incoming MQTT messages and triggers alerts based on sensor data.
+     * @return a MessageHandler that dispatches incoming MQTT messages to the ingest workers.
      */
     @Bean
     @ServiceActivator(inputChannel = "mqttInputChannel")
     public MessageHandler handler() {
+        PartitionedExecutor ingestExecutor = mqttIngestExecutor();
         return new MessageHandler() {
 
             /**
-             * handleMessage method processes the incoming message.
-             * It extracts the payload and topic from the message, processes the sensor data based on the topic.
-             * It checks the topic and processes the sensor data accordingly, triggering alerts if necessary.
+             * handleMessage method dispatches the incoming message to the ingest workers.
+             * Depending on the overflow policy, it waits for room in the queue of the selected worker or drops a message when it is full.
              * @param message the incoming message containing the sensor data
-             * @throws MessagingException if there is an error while processing the message
+             * @throws MessagingException if there is an error while dispatching the message
              */
             @Override
             public void handleMessage(Message<?> message) throws MessagingException {
-                String payload = (String) message.getPayload();
-                System.out.println("Processed message: " + payload);
                 String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC).toString();
-
-                // Define room IDs for processing sensor data
-                String primaryRoomId = "1RdkB5aniSqVc1GayEVr";
-                String esp32x1RoomId = "9JFObYv8R4mCtkYtac77";
-                String esp32x2RoomId = "jmwXMITpjvJSSK1egu4O";
-
-                if (topic.equals(topicDht22)) {
-                    // Create a Gson instance to parse JSON data
-                    Gson gson = new Gson();
-
-                    // Parse the JSON payload into a Map
-                    // Suppress unchecked warnings for type casting because we know for sure the payload is a Map<String, Object>
-                    // It is Map<String, Object> because the payload is a JSON string that contains sensor data
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> data = gson.fromJson(payload,Map.class);
-
-                    // Extract temperature, humidity, and timestamp from the parsed data
-                    float temperature = ((Number) data.get("temperature")).floatValue();
-                    float humidity = ((Number) data.get("humidity")).floatValue();
-                    long timestamp = ((Number) data.get("timestamp")).longValue();
-
-                    // Create a map to hold sensor data
-                    Map<String,Float> sensorData = new HashMap<>();
-                    sensorData.put("temperature",temperature);
-                    sensorData.put("humidity",humidity);
-                    Details details = new Details(timestamp,sensorData);
-
-                    // Define the sensor ID for DHT22 sensor
-                    String dhtSensorId ="HGNX6Kp9FiSTSclNwHHN";
-
-                    // Create a SensorDTO object with the sensor ID, type, and details
-                    SensorDTO dht22SensorDTO = sensorService.getSensorById(dhtSensorId);
-                    dht22SensorDTO.setDetails(List.of(details));
-
-                    try {
-                        // Process the sensor data for the primary room
-                        processDataForRoom(dht22SensorDTO,primaryRoomId);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Couldn't process data for DHT22 sensor: " + e);
-                    }
-                }
-
-                if(topic.equals(topicMq5)){
-                    // Create a Gson instance to parse JSON data
-                    Gson gson = new Gson();
-
-                    // Parse the JSON payload into a Map
-                    // Suppress unchecked warnings for type casting because we know for sure the payload is a Map<String, Object>
-                    // It is Map<String, Object> because the payload is a JSON string that contains sensor data
-                    @SuppressWarnings("unchecked")
-                    Map<String,Object> data = gson.fromJson(payload,Map.class);
-                    int gasLevel = ((Number) data.get("gasLevel")).intValue();
-                    long timestamp = ((Number) data.get("timestamp")).longValue();
-
-                    // Create a map to hold sensor data
-                    Map<String,Float> mq5Data = new HashMap<>();
-                    mq5Data.put("gas", (float) gasLevel);
-                    Details details = new Details(timestamp,mq5Data);
-
-                    // Define the sensor ID for MQ5 sensor
-                    String mq5SensorId ="nv0MubTXWBrjHZpQlZxl";
-
-                    // Create a SensorDTO object with the sensor ID, type, and details
-                    SensorDTO mq5SensorDTO = sensorService.getSensorById(mq5SensorId);
-                    mq5SensorDTO.setDetails(List.of(details));
-
-                    try {
-                        // Process the sensor data for the primary room
-                        processDataForRoom(mq5SensorDTO,primaryRoomId);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Couldn't process data for MQ5 sensor: " + e);
-                    }
-                }
-
-                if(topic.equals(topicEsp32x1)){
-                    // Create a Gson instance to parse JSON data
-                    Gson gson = new Gson();
-
-                    // Parse the JSON payload into a Map
-                    // Suppress unchecked warnings for type casting because we know for sure the payload is a Map<String, Object>
-                    // It is Map<String, Object> because the payload is a JSON string that contains sensor data
-                    @SuppressWarnings("unchecked")
-                    Map<String,Object> data = gson.fromJson(payload,Map.class);
-                    int mq2Value = ((Number) data.get("mq2")).intValue();
-                    int mq5Value = ((Number) data.get("mq5")).intValue();
-                    long timestamp = Long.parseLong((String) data.get("timestamp"));
-                    Map<String,Float> esp32x1Mq2Data = new HashMap<>();
-                    Map<String,Float> esp32x1Mq5Data = new HashMap<>();
-
-                    // Create a map to hold MQ2 sensor data
-                    esp32x1Mq2Data.put("mq2Value", (float) mq2Value);
-                    Details detailsMq2 = new Details(timestamp,esp32x1Mq2Data);
-
-                    // Create a map to hold MQ5 sensor data
-                    esp32x1Mq5Data.put("gas", (float) mq5Value);
-                    Details detailsMq5 = new Details(timestamp,esp32x1Mq5Data);
-
-                    // Define sensor IDs for MQ2 and MQ5 sensors
-                    String esp32x1Mq2SensorId = "EblfbGBn7wrJi9Zqtb0S";
-                    String esp32x1Mq5SensorId = "ok7tYDjTHI5OLUUcRm8q";
-
-                    // Create SensorDTO objects for MQ2 and MQ5 sensors
-                    SensorDTO esp32x1Mq2SensorDTO = sensorService.getSensorById(esp32x1Mq2SensorId);
-                    esp32x1Mq2SensorDTO.setDetails(List.of(detailsMq2));
-                    SensorDTO esp32x1Mq5SensorDTO = sensorService.getSensorById(esp32x1Mq5SensorId);
-                    esp32x1Mq5SensorDTO.setDetails(List.of(detailsMq5));
-
-                    try {
-                        // Process the sensor data for Esp32x1 sensors
-                        processDataForRoom(esp32x1Mq2SensorDTO,esp32x1RoomId);
-                        processDataForRoom(esp32x1Mq5SensorDTO,esp32x1RoomId);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Couldn't process data for Esp32x1 sensors: " + e);
-                    }
-                }
-
-                if(topic.equals(topicEsp32x2)){
-                    // Create a Gson instance to parse JSON data
-                    Gson gson = new Gson();
-
-                    // Parse the JSON payload into a Map
-                    // Suppress unchecked warnings for type casting because we know for sure the payload is a Map<String, Object>
-                    // It is Map<String, Object> because the payload is a JSON string that contains sensor data
-                    @SuppressWarnings("unchecked")
-                    Map<String,Object> data = gson.fromJson(payload,Map.class);
-                    int mq2Value = ((Number) data.get("mq2Value")).intValue();
-                    float temperature = ((Number) data.get("temperature")).floatValue();
-                    float humidity = ((Number) data.get("humidity")).floatValue();
-                    long timestamp = Long.parseLong((String) data.get("timestamp"));
-
-                    // Create a map to hold MQ2 sensor.
-                    Map<String,Float> esp32x2Mq2Data = new HashMap<>();
-                    esp32x2Mq2Data.put("mq2Value", (float) mq2Value);
-                    Details detailsMq2 = new Details(timestamp,esp32x2Mq2Data);
-                    String mq2SensorId = "bS85GgrlLs9ikiNG0EXU";
-                    SensorDTO esp32x2Mq2SensorDTO = sensorService.getSensorById(mq2SensorId);
-                    esp32x2Mq2SensorDTO.setDetails(List.of(detailsMq2));
-
-                    // Create a map to hold DHT22 sensor data
-                    Map<String,Float> esp32x2Dht22Data = new HashMap<>();
-                    esp32x2Dht22Data.put("temperature", temperature);
-                    esp32x2Dht22Data.put("humidity", humidity);
-                    Details detailsDht22 = new Details(timestamp,esp32x2Dht22Data);
-                    String dhtSensorId = "OpjcAjYNdCkMgEb2CV0T";
-                    SensorDTO esp32x2Dht22SensorDTO = sensorService.getSensorById(dhtSensorId);
-                    esp32x2Dht22SensorDTO.setDetails(List.of(detailsDht22));
-
-                    try {
-                        // Process the sensor data for Esp32x2 sensors
-                        processDataForRoom(esp32x2Mq2SensorDTO,esp32x2RoomId);
-                        processDataForRoom(esp32x2Dht22SensorDTO,esp32x2RoomId);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Couldn't process data for Esp32x2 sensors: " + e);
-                    }
-                }
+                byte[] payload = (byte[]) message.getPayload();
+                ingestExecutor.execute(topic, () -> processMessage(topic, payload));
             }
         };
     }
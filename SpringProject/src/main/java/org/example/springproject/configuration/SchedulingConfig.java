@@ -0,0 +1,43 @@
+/**
+ * SchedulingConfig.java
+ * Configuration class for setting up the scheduler running the @Scheduled methods.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * SchedulingConfig class is responsible for configuring the scheduler of the periodic flushes, replays and heartbeats.
+ * The STOMP broker declares a scheduler of its own, which stops Spring Boot from creating the default one,
+ * so the scheduler is declared explicitly under the "taskScheduler" name that @EnableScheduling looks for.
+ * It is marked as a Spring configuration class with the @Configuration annotation so that the Spring container can recognize it.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    /**
+     * The number of threads of the scheduler.
+     * @Value annotation is used to inject the value from application properties.
+     */
+    @Value("${scheduling.pool-size}")
+    private int poolSize;
+
+    /**
+     * Creates the TaskScheduler bean running the @Scheduled methods.
+     * Every task gets a thread, so a flush waiting on a slow Firestore write doesn't delay the others.
+     * It is annotated with @Bean so that it can be managed by the Spring container.
+     * @return ThreadPoolTaskScheduler instance with the configured number of threads.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduler-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        return scheduler;
+    }
+}
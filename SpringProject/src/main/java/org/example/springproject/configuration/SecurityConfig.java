@@ -66,6 +66,9 @@ public class SecurityConfig {
         // Allow specific headers
         configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
 
+        // Expose the cursor of the next page of alerts to the client
+        configuration.setExposedHeaders(List.of("X-Next-Cursor"));
+
         // Allow credentials to be included in requests
         configuration.setAllowCredentials(true);
 
@@ -96,7 +99,7 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/auth/**", "/oauth2/**", "/error", "/user/**", "/home/**", "/room/**", "/sensor/**", "/alerts/**","/custom-alert/**","/api/**").permitAll()
+                        .requestMatchers("/auth/**", "/oauth2/**", "/error", "/user/**", "/home/**", "/room/**", "/sensor/**", "/alerts/**","/custom-alert/**","/api/**","/ws/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(new JwtAuthFilter(jwtService,userService), UsernamePasswordAuthenticationFilter.class)
@@ -0,0 +1,57 @@
+/**
+ * WebSocketConfig.java
+ * Configuration class for the STOMP over WebSocket endpoint pushing live updates to the dashboard.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+/**
+ * WebSocketConfig class is responsible for configuring the STOMP message broker.
+ * The clients connect to the "/ws" endpoint and subscribe to the topics of the rooms they display:
+ * "/topic/rooms/{roomId}/readings" receives the readings of the sensors of the room as they are ingested,
+ * and "/topic/rooms/{roomId}/alerts" receives the alerts of the room as they are saved.
+ * It is marked as a Spring configuration class with the @Configuration annotation so that the Spring container can recognize it.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    /**
+     * The interval, in milliseconds, of the heartbeats exchanged with the clients, so dead connections are detected.
+     */
+    private static final long HEARTBEAT_MILLIS = 10000;
+
+    /**
+     * Registers the "/ws" endpoint the clients connect to.
+     * It allows the same origin as the REST API.
+     * @param registry the registry of the STOMP endpoints
+     */
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws").setAllowedOrigins("http://localhost:4200");
+    }
+
+    /**
+     * Configures an in-memory broker for the "/topic" destinations, with heartbeats, and the "/app" prefix of the application destinations.
+     * @param registry the registry of the message broker
+     */
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+        heartbeatScheduler.initialize();
+
+        registry.enableSimpleBroker("/topic")
+                .setHeartbeatValue(new long[]{HEARTBEAT_MILLIS, HEARTBEAT_MILLIS})
+                .setTaskScheduler(heartbeatScheduler);
+        registry.setApplicationDestinationPrefixes("/app");
+    }
+}
@@ -11,10 +11,15 @@ import org.example.springproject.exception.CreationException;
 import org.example.springproject.exception.EmptyResultException;
 import org.example.springproject.exception.ObjectNotFound;
 import org.example.springproject.service.AlertService;
+import org.example.springproject.util.AlertStreamHub;
+import org.example.springproject.util.LiveUpdatePublisher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -31,14 +36,37 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:4200")
 public class AlertController {
 
+    /**
+     * The name of the response header holding the cursor of the next page of alerts.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * The maximum number of alerts of a page, so a page stays cheap whatever size is requested.
+     */
+    public static final int MAX_PAGE_SIZE = 200;
+
     /**
      * The AlertService is injected to handle business logic related to alerts.
      */
     @Autowired
     private AlertService alertService;
 
+    /**
+     * The LiveUpdatePublisher is injected to push the created alerts to the dashboards.
+     */
+    @Autowired
+    private LiveUpdatePublisher liveUpdatePublisher;
+
+    /**
+     * The AlertStreamHub is injected to stream the alerts of the rooms as Server-Sent Events.
+     */
+    @Autowired
+    private AlertStreamHub alertStreamHub;
+
     /**
      * This method handles POST requests to create a new alert.
+     * The created alert is also pushed to the dashboards displaying its room.
      * @param alert the Alert object to be created
      * @return ResponseEntity containing the created AlertDTO object
      * @throws CreationException if the creation of the alert fails
@@ -50,25 +78,55 @@ public class AlertController {
         if(alertDTO == null) {
             throw new CreationException("Failed to create alert because it's null!");
         }
+        liveUpdatePublisher.publishAlert(alertDTO);
 
         return new ResponseEntity<>(alertDTO, HttpStatus.CREATED);
     }
 
     /**
-     * This method handles GET requests to retrieve alerts by room ID.
+     * This method handles GET requests to stream the alerts of a room as Server-Sent Events.
+     * The stream only carries the alerts created after it's opened; a client reconnecting with the Last-Event-ID header
+     * first gets the alerts it missed, or a reset event if it has to reload the alerts of the room.
+     * @param roomId the ID of the room whose alerts are streamed
+     * @param lastEventId the ID of the last alert the client received, sent by the browser when it reconnects
+     * @return the SseEmitter of the stream
+     */
+    @GetMapping(path = "/{roomId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(@PathVariable("roomId") String roomId,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return alertStreamHub.subscribe(roomId, lastEventId);
+    }
+
+    /**
+     * This method handles GET requests to retrieve a page of the alerts of a room, newest first.
+     * When the page is full, the X-Next-Cursor header holds the cursor of the next page.
      * @param roomId the ID of the room for which to retrieve alerts
+     * @param cursor the cursor of the page, taken from the X-Next-Cursor header of the previous page, or none for the first page
+     * @param size the maximum number of alerts of the page, capped at MAX_PAGE_SIZE
      * @return ResponseEntity containing a list of AlertDTO objects
+     * @throws ObjectNotFound if the cursor is not an alert of the room
      * @throws EmptyResultException if no alerts are found for the specified room ID
      */
     @GetMapping("/{roomId}")
-    public ResponseEntity<List<AlertDTO>> getAlerts(@PathVariable("roomId") String roomId) throws EmptyResultException {
-        List<AlertDTO> alertDTOs = alertService.getAlerts(roomId);
+    public ResponseEntity<List<AlertDTO>> getAlerts(@PathVariable("roomId") String roomId,
+                                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                                    @RequestParam(value = "size", defaultValue = "50") int size) throws ObjectNotFound, EmptyResultException {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<AlertDTO> alertDTOs = alertService.getAlerts(roomId, cursor, pageSize);
 
-        if(alertDTOs == null || alertDTOs.isEmpty()) {
+        if(alertDTOs == null) {
+            throw new ObjectNotFound("No alert found for cursor: " + cursor);
+        }
+        if(alertDTOs.isEmpty()) {
             throw new EmptyResultException("No alerts found for room with ID: " + roomId);
         }
 
-        return new ResponseEntity<>(alertDTOs, HttpStatus.OK);
+        HttpHeaders headers = new HttpHeaders();
+        if(alertDTOs.size() == pageSize) {
+            headers.set(NEXT_CURSOR_HEADER, alertDTOs.get(alertDTOs.size() - 1).getAlertId());
+        }
+
+        return new ResponseEntity<>(alertDTOs, headers, HttpStatus.OK);
     }
 
     /**
@@ -96,4 +154,21 @@ public class AlertController {
 
         return new ResponseEntity<>(alertDTOList, HttpStatus.OK);
     }
+
+    /**
+     * This method handles POST requests to acknowledge an alert, which stops the escalation of the alert to SMS and calls.
+     * @param alertId the ID of the alert to be acknowledged
+     * @return ResponseEntity containing the acknowledged AlertDTO object
+     * @throws ObjectNotFound if the alert doesn't exist
+     */
+    @PostMapping("/{alertId}/acknowledge")
+    public ResponseEntity<AlertDTO> acknowledgeAlert(@PathVariable("alertId") String alertId) throws ObjectNotFound {
+        AlertDTO alertDTO = alertService.acknowledgeAlert(alertId);
+
+        if(alertDTO == null) {
+            throw new ObjectNotFound("Alert with ID: " + alertId + " was not found!");
+        }
+
+        return new ResponseEntity<>(alertDTO, HttpStatus.OK);
+    }
 }
@@ -5,13 +5,17 @@
  */
 package org.example.springproject.controller;
 
+import org.example.springproject.dto.ReadingBucketDTO;
 import org.example.springproject.dto.SensorDTO;
 import org.example.springproject.entity.Details;
 import org.example.springproject.entity.Sensor;
 import org.example.springproject.exception.CreationException;
 import org.example.springproject.exception.EmptyResultException;
 import org.example.springproject.exception.ObjectNotFound;
+import org.example.springproject.service.ReadingRollupService;
 import org.example.springproject.service.SensorService;
+import org.example.springproject.util.ReadingRollup;
+import org.example.springproject.util.ReadingSeries;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -34,12 +38,33 @@ import java.util.Map;
 @CrossOrigin(origins = "http://localhost:4200")
 public class SensorController {
 
+    /**
+     * The number of seconds in a day.
+     */
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /**
+     * The maximum number of buckets of a day, so the aggregated data stays bounded by the width of a chart.
+     */
+    public static final int MAX_BUCKETS_PER_DAY = 1440;
+
+    /**
+     * The maximum number of rollups returned by a history query.
+     */
+    public static final int MAX_ROLLUPS = 2000;
+
     /**
      * The SensorService is injected to handle business logic related to sensors.
      */
     @Autowired
     private SensorService sensorService;
 
+    /**
+     * The ReadingRollupService is injected to query the rollups of the readings.
+     */
+    @Autowired
+    private ReadingRollupService readingRollupService;
+
     /**
      * This method handles GET requests to retrieve a sensor by its ID.
      * @param sensorId the ID of the sensor to retrieve
@@ -140,7 +165,8 @@ public class SensorController {
             return ResponseEntity.badRequest().build();
         }
 
-        SensorDTO sensorDTO = sensorService.getSensorById(sensorId);
+        // Only the existence of the sensor is checked, so its readings don't need to be loaded
+        SensorDTO sensorDTO = sensorService.getSensorMetadata(sensorId);
 
         if(sensorDTO == null) {
             throw new ObjectNotFound("Sensor with ID " + sensorId + " not found!");
@@ -149,9 +175,70 @@ public class SensorController {
         LocalDate localDate = LocalDate.parse(date);
         Date selectedDate = Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
 
-        List<Details> details = sensorService.getSensorDataByDate(sensorId, selectedDate);
+        ReadingSeries readings = sensorService.getSensorDataByDate(sensorId, selectedDate);
+
+        return new ResponseEntity<>(readings.toDetailsList(), HttpStatus.OK);
+    }
+
+    /**
+     * This method handles GET requests to retrieve the sensor data of a specific date aggregated into time buckets.
+     * Every bucket holds the minimum, maximum, average and count of every channel, so a chart gets one point per bucket
+     * instead of every reading. The resolution is raised if needed, so a day never has more than MAX_BUCKETS_PER_DAY buckets.
+     * @param sensorId the ID of the sensor for which to retrieve data
+     * @param date the date for which to retrieve data, in "yyyy-MM-dd" format
+     * @param resolution the width of a bucket in seconds
+     * @return ResponseEntity containing the buckets holding readings, in chronological order
+     * @throws ObjectNotFound if the sensor with the specified ID is not found
+     */
+    @GetMapping("/{sensorId}/data/{date}/buckets")
+    public ResponseEntity<List<ReadingBucketDTO>> getSensorDataBuckets(@PathVariable String sensorId, @PathVariable String date,
+                                                                       @RequestParam(value = "resolution", defaultValue = "300") long resolution) throws ObjectNotFound {
+        if (!date.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SensorDTO sensorDTO = sensorService.getSensorMetadata(sensorId);
+
+        if(sensorDTO == null) {
+            throw new ObjectNotFound("Sensor with ID " + sensorId + " not found!");
+        }
+
+        long resolutionSeconds = Math.min(Math.max(resolution, SECONDS_PER_DAY / MAX_BUCKETS_PER_DAY), SECONDS_PER_DAY);
+        LocalDate localDate = LocalDate.parse(date);
+        Date selectedDate = Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+        return new ResponseEntity<>(sensorService.getSensorDataBuckets(sensorId, selectedDate, resolutionSeconds), HttpStatus.OK);
+    }
+
+    /**
+     * This method handles GET requests to retrieve the history of a sensor over a period from the rollups of its readings.
+     * Every rollup holds the minimum, maximum, average and count of every channel over a minute, an hour or a day,
+     * so a query over weeks or months reads one document per bucket instead of every reading.
+     * @param sensorId the ID of the sensor for which to retrieve data
+     * @param resolution the resolution of the rollups, "1m", "1h" or "1d"
+     * @param from the first day of the period, in "yyyy-MM-dd" format
+     * @param to the last day of the period, in "yyyy-MM-dd" format
+     * @return ResponseEntity containing at most MAX_ROLLUPS buckets holding readings, in chronological order
+     * @throws ObjectNotFound if the sensor with the specified ID is not found
+     */
+    @GetMapping("/{sensorId}/rollups/{resolution}")
+    public ResponseEntity<List<ReadingBucketDTO>> getSensorRollups(@PathVariable String sensorId, @PathVariable String resolution,
+                                                                   @RequestParam String from, @RequestParam String to) throws ObjectNotFound {
+        ReadingRollup.Resolution rollupResolution = ReadingRollup.Resolution.fromLabel(resolution);
+        if (rollupResolution == null || !from.matches("\\d{4}-\\d{2}-\\d{2}") || !to.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SensorDTO sensorDTO = sensorService.getSensorMetadata(sensorId);
+
+        if(sensorDTO == null) {
+            throw new ObjectNotFound("Sensor with ID " + sensorId + " not found!");
+        }
+
+        Date fromDate = Date.from(LocalDate.parse(from).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date toDate = Date.from(LocalDate.parse(to).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
 
-        return new ResponseEntity<>(details, HttpStatus.OK);
+        return new ResponseEntity<>(readingRollupService.getRollups(sensorId, rollupResolution, fromDate, toDate, MAX_ROLLUPS), HttpStatus.OK);
     }
 
     /**
@@ -162,13 +249,13 @@ public class SensorController {
      */
     @GetMapping("/last/details/{sensorId}")
     public ResponseEntity<Details> getLastSensorDetails(@PathVariable String sensorId) throws EmptyResultException {
-        Details details = sensorService.getLastDetailForSensor(sensorId);
+        ReadingSeries lastReading = sensorService.getLastDetailForSensor(sensorId);
 
-        if(details == null){
+        if(lastReading == null){
             throw new EmptyResultException("No details yet for sensor: " + sensorId);
         }
 
-        return new ResponseEntity<>(details, HttpStatus.OK);
+        return new ResponseEntity<>(lastReading.toDetails(0), HttpStatus.OK);
     }
 
     /**
@@ -50,6 +50,11 @@ public class AlertDTO {
      */
     private String message;
 
+    /**
+     * Whether the alert was acknowledged by the owner of the room.
+     */
+    private boolean acknowledged;
+
     /**
      * Default constructor for AlertDTO.
      * Initializes a new instance of the AlertDTO class.
@@ -190,6 +195,22 @@ public class AlertDTO {
         this.message = message;
     }
 
+    /**
+     * Checks whether the alert was acknowledged by the owner of the room.
+     * @return True if the alert was acknowledged, false otherwise.
+     */
+    public boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    /**
+     * Sets whether the alert was acknowledged by the owner of the room.
+     * @param acknowledged True if the alert was acknowledged, false otherwise.
+     */
+    public void setAcknowledged(boolean acknowledged) {
+        this.acknowledged = acknowledged;
+    }
+
     /**
      * Returns a string representation of the AlertDTO object.
      * @return A string representation of the AlertDTO object.
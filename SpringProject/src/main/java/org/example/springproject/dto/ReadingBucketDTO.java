@@ -0,0 +1,206 @@
+/**
+ * ReadingBucketDTO.java
+ * This class represents a Data Transfer Object (DTO) for the aggregated readings of a sensor over a time bucket.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.dto;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Map;
+
+/**
+ * ReadingBucketDTO holds the minimum, maximum, average and count of every channel of the readings of a time bucket,
+ * so a chart gets one point per bucket instead of every reading.
+ */
+public class ReadingBucketDTO {
+
+    /**
+     * The start of the bucket.
+     */
+    private Timestamp timestamp;
+
+    /**
+     * The number of readings in the bucket.
+     */
+    private int count;
+
+    /**
+     * The statistics of every channel of the readings in the bucket, keyed by channel name.
+     */
+    private Map<String, ChannelStats> channels;
+
+    /**
+     * Default constructor for ReadingBucketDTO.
+     */
+    public ReadingBucketDTO() {}
+
+    /**
+     * Parameterized constructor for ReadingBucketDTO.
+     * @param timestamp The start of the bucket.
+     * @param count The number of readings in the bucket.
+     * @param channels The statistics of every channel, keyed by channel name.
+     */
+    public ReadingBucketDTO(Timestamp timestamp, int count, Map<String, ChannelStats> channels) {
+        this.timestamp = timestamp;
+        this.count = count;
+        this.channels = channels;
+    }
+
+    /**
+     * Gets the start of the bucket.
+     * @return the start of the bucket.
+     */
+    public Timestamp getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Sets the start of the bucket.
+     * @param timestamp the start of the bucket to set.
+     */
+    public void setTimestamp(Timestamp timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Gets the number of readings in the bucket.
+     * @return the number of readings.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Sets the number of readings in the bucket.
+     * @param count the number of readings to set.
+     */
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * Gets the statistics of every channel.
+     * @return the statistics, keyed by channel name.
+     */
+    public Map<String, ChannelStats> getChannels() {
+        return channels;
+    }
+
+    /**
+     * Sets the statistics of every channel.
+     * @param channels the statistics to set, keyed by channel name.
+     */
+    public void setChannels(Map<String, ChannelStats> channels) {
+        this.channels = channels;
+    }
+
+    /**
+     * ChannelStats holds the minimum, maximum, average and count of the values of a channel in a bucket.
+     */
+    public static class ChannelStats {
+
+        /**
+         * The minimum value of the channel.
+         */
+        private float min;
+
+        /**
+         * The maximum value of the channel.
+         */
+        private float max;
+
+        /**
+         * The average value of the channel.
+         */
+        private float avg;
+
+        /**
+         * The number of readings having the channel.
+         */
+        private int count;
+
+        /**
+         * Default constructor for ChannelStats.
+         */
+        public ChannelStats() {}
+
+        /**
+         * Parameterized constructor for ChannelStats.
+         * @param min The minimum value of the channel.
+         * @param max The maximum value of the channel.
+         * @param avg The average value of the channel.
+         * @param count The number of readings having the channel.
+         */
+        public ChannelStats(float min, float max, float avg, int count) {
+            this.min = min;
+            this.max = max;
+            this.avg = avg;
+            this.count = count;
+        }
+
+        /**
+         * Gets the minimum value of the channel.
+         * @return the minimum value.
+         */
+        public float getMin() {
+            return min;
+        }
+
+        /**
+         * Sets the minimum value of the channel.
+         * @param min the minimum value to set.
+         */
+        public void setMin(float min) {
+            this.min = min;
+        }
+
+        /**
+         * Gets the maximum value of the channel.
+         * @return the maximum value.
+         */
+        public float getMax() {
+            return max;
+        }
+
+        /**
+         * Sets the maximum value of the channel.
+         * @param max the maximum value to set.
+         */
+        public void setMax(float max) {
+            this.max = max;
+        }
+
+        /**
+         * Gets the average value of the channel.
+         * @return the average value.
+         */
+        public float getAvg() {
+            return avg;
+        }
+
+        /**
+         * Sets the average value of the channel.
+         * @param avg the average value to set.
+         */
+        public void setAvg(float avg) {
+            this.avg = avg;
+        }
+
+        /**
+         * Gets the number of readings having the channel.
+         * @return the number of readings.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Sets the number of readings having the channel.
+         * @param count the number of readings to set.
+         */
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
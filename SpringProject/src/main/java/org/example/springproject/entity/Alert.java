@@ -6,6 +6,7 @@
 package org.example.springproject.entity;
 
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.DocumentId;
 
 import java.util.Map;
 
@@ -14,6 +15,13 @@ import java.util.Map;
  */
 public class Alert {
 
+    /**
+     * The ID of the document of the alert, given once when the alert is first saved and kept for its retries.
+     * It is filled from the document ID when the alert is read, and never written as a field.
+     */
+    @DocumentId
+    private String alertId;
+
     /**
      * The ID of the room where the alert was generated.
      */
@@ -44,6 +52,16 @@ public class Alert {
      */
     private String message;
 
+    /**
+     * Whether the owner of the room acknowledged the alert, which stops its escalation.
+     */
+    private boolean acknowledged;
+
+    /**
+     * The timestamp when the alert was acknowledged, or null if it was not.
+     */
+    private Timestamp acknowledgedAt;
+
     /**
      * Default constructor for the Alert class.
      * Initializes an empty alert.
@@ -68,6 +86,22 @@ public class Alert {
         this.message = message;
     }
 
+    /**
+     * Gets the alert ID.
+     * @return The ID of the document of the alert, or null if it was never saved.
+     */
+    public String getAlertId() {
+        return alertId;
+    }
+
+    /**
+     * Sets the alert ID.
+     * @param alertId The ID of the document of the alert.
+     */
+    public void setAlertId(String alertId) {
+        this.alertId = alertId;
+    }
+
     /**
      * Gets the room ID.
      * @return The ID of the room.
@@ -164,6 +198,38 @@ public class Alert {
         this.message = message;
     }
 
+    /**
+     * Checks whether the alert was acknowledged.
+     * @return True if the alert was acknowledged, false otherwise.
+     */
+    public boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    /**
+     * Sets whether the alert was acknowledged.
+     * @param acknowledged True if the alert was acknowledged, false otherwise.
+     */
+    public void setAcknowledged(boolean acknowledged) {
+        this.acknowledged = acknowledged;
+    }
+
+    /**
+     * Gets the timestamp when the alert was acknowledged.
+     * @return The timestamp, or null if the alert was not acknowledged.
+     */
+    public Timestamp getAcknowledgedAt() {
+        return acknowledgedAt;
+    }
+
+    /**
+     * Sets the timestamp when the alert was acknowledged.
+     * @param acknowledgedAt The timestamp when the alert was acknowledged.
+     */
+    public void setAcknowledgedAt(Timestamp acknowledgedAt) {
+        this.acknowledgedAt = acknowledgedAt;
+    }
+
     /**
      * Returns a string representation of the Alert object.
      * @return A string containing the details of the alert.
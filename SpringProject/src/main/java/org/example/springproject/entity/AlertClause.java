@@ -0,0 +1,116 @@
+/**
+ * AlertClause.java
+ * This class represents a clause of a composite custom alert, stored inside the custom_alerts collection in the Firestore.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.entity;
+
+/**
+ * Represents one condition of a composite custom alert, on a channel of one of the sensors of the room,
+ * for example "the temperature of sensor X is greater than 40".
+ */
+public class AlertClause {
+
+    /**
+     * The ID of the sensor the clause watches.
+     */
+    private String sensorId;
+
+    /**
+     * The parameter of the readings the clause watches (temperature, humidity etc.).
+     */
+    private String parameter;
+
+    /**
+     * The condition the latest reading is compared with (">", "<", ">=", "<=", "==").
+     */
+    private String condition;
+
+    /**
+     * The threshold the latest reading is compared against.
+     */
+    private float threshold;
+
+    /**
+     * Default constructor for AlertClause.
+     */
+    public AlertClause(){}
+
+    /**
+     * Constructs an AlertClause with the specified sensor, parameter, condition and threshold.
+     * @param sensorId The ID of the sensor the clause watches.
+     * @param parameter The parameter of the readings the clause watches.
+     * @param condition The condition the latest reading is compared with.
+     * @param threshold The threshold the latest reading is compared against.
+     */
+    public AlertClause(String sensorId, String parameter, String condition, float threshold){
+        this.sensorId = sensorId;
+        this.parameter = parameter;
+        this.condition = condition;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Gets the ID of the sensor the clause watches.
+     * @return The ID of the sensor.
+     */
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    /**
+     * Sets the ID of the sensor the clause watches.
+     * @param sensorId The ID of the sensor.
+     */
+    public void setSensorId(String sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    /**
+     * Gets the parameter of the readings the clause watches.
+     * @return The parameter.
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Sets the parameter of the readings the clause watches.
+     * @param parameter The parameter.
+     */
+    public void setParameter(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * Gets the condition the latest reading is compared with.
+     * @return The condition.
+     */
+    public String getCondition() {
+        return condition;
+    }
+
+    /**
+     * Sets the condition the latest reading is compared with.
+     * @param condition The condition.
+     */
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * Gets the threshold the latest reading is compared against.
+     * @return The threshold.
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the threshold the latest reading is compared against.
+     * @param threshold The threshold.
+     */
+    public void setThreshold(float threshold) {
+        this.threshold = threshold;
+    }
+}
@@ -5,6 +5,8 @@
  */
 package org.example.springproject.entity;
 
+import java.util.List;
+
 /**
  * CustomAlert class represents an alert with additional user-specific parameters.
  */
@@ -30,6 +32,43 @@ public class CustomAlert extends Alert {
      */
     private float threshold;
 
+    /**
+     * The aggregation of the readings compared against the threshold ("value", "avg", "min", "max", "rate", "count").
+     * Null or "value" compares every reading on its own.
+     */
+    private String aggregation;
+
+    /**
+     * The length, in seconds, of the window the avg, min, max and rate aggregations are computed over.
+     */
+    private int windowSeconds;
+
+    /**
+     * The number M of latest readings the count aggregation looks at.
+     */
+    private int windowSamples;
+
+    /**
+     * The number N of readings out of the last M that must meet the condition for the count aggregation to raise an alert.
+     */
+    private int requiredSamples;
+
+    /**
+     * The clauses of a composite alert, each watching a channel of a sensor of the room.
+     * A custom alert with clauses ignores its own sensor, parameter, condition and threshold.
+     */
+    private List<AlertClause> conditions;
+
+    /**
+     * How the clauses of a composite alert are combined ("AND", "OR"). Null means "AND".
+     */
+    private String combinator;
+
+    /**
+     * The maximum age, in seconds, of the readings the clauses of a composite alert are evaluated on, or 0 for no limit.
+     */
+    private int withinSeconds;
+
     /**
      * Default constructor for CustomAlert.
      * It initializes a new instance of the CustomAlert class.
@@ -118,6 +157,118 @@ public class CustomAlert extends Alert {
         this.threshold = threshold;
     }
 
+    /**
+     * Get the aggregation of the readings compared against the threshold.
+     * @return The aggregation, or null if every reading is compared on its own.
+     */
+    public String getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * Set the aggregation of the readings compared against the threshold.
+     * @param aggregation The aggregation ("value", "avg", "min", "max", "rate", "count").
+     */
+    public void setAggregation(String aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    /**
+     * Get the length of the window of the avg, min, max and rate aggregations.
+     * @return The length of the window in seconds.
+     */
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * Set the length of the window of the avg, min, max and rate aggregations.
+     * @param windowSeconds The length of the window in seconds.
+     */
+    public void setWindowSeconds(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    /**
+     * Get the number of latest readings the count aggregation looks at.
+     * @return The number M of readings.
+     */
+    public int getWindowSamples() {
+        return windowSamples;
+    }
+
+    /**
+     * Set the number of latest readings the count aggregation looks at.
+     * @param windowSamples The number M of readings.
+     */
+    public void setWindowSamples(int windowSamples) {
+        this.windowSamples = windowSamples;
+    }
+
+    /**
+     * Get the number of readings that must meet the condition for the count aggregation to raise an alert.
+     * @return The number N of readings.
+     */
+    public int getRequiredSamples() {
+        return requiredSamples;
+    }
+
+    /**
+     * Set the number of readings that must meet the condition for the count aggregation to raise an alert.
+     * @param requiredSamples The number N of readings.
+     */
+    public void setRequiredSamples(int requiredSamples) {
+        this.requiredSamples = requiredSamples;
+    }
+
+    /**
+     * Get the clauses of a composite alert.
+     * @return The clauses, or null if the alert watches a single channel.
+     */
+    public List<AlertClause> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Set the clauses of a composite alert.
+     * @param conditions The clauses, each watching a channel of a sensor of the room.
+     */
+    public void setConditions(List<AlertClause> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * Get how the clauses of a composite alert are combined.
+     * @return The combinator ("AND", "OR").
+     */
+    public String getCombinator() {
+        return combinator;
+    }
+
+    /**
+     * Set how the clauses of a composite alert are combined.
+     * @param combinator The combinator ("AND", "OR").
+     */
+    public void setCombinator(String combinator) {
+        this.combinator = combinator;
+    }
+
+    /**
+     * Get the maximum age of the readings the clauses of a composite alert are evaluated on.
+     * @return The maximum age in seconds, or 0 for no limit.
+     */
+    public int getWithinSeconds() {
+        return withinSeconds;
+    }
+
+    /**
+     * Set the maximum age of the readings the clauses of a composite alert are evaluated on.
+     * @param withinSeconds The maximum age in seconds, or 0 for no limit.
+     */
+    public void setWithinSeconds(int withinSeconds) {
+        this.withinSeconds = withinSeconds;
+    }
+
     /**
      * Method to return a string representation of the CustomAlert object.
      * @return A string representation of the CustomAlert object.
@@ -129,6 +280,13 @@ public class CustomAlert extends Alert {
                 ", parameter='" + parameter + '\'' +
                 ", condition='" + condition + '\'' +
                 ", threshold=" + threshold +
+                ", aggregation='" + aggregation + '\'' +
+                ", windowSeconds=" + windowSeconds +
+                ", windowSamples=" + windowSamples +
+                ", requiredSamples=" + requiredSamples +
+                ", conditions=" + conditions +
+                ", combinator='" + combinator + '\'' +
+                ", withinSeconds=" + withinSeconds +
                 ", roomId='" + getRoomId() + '\'' +
                 ", sensorId='" + getSensorId() + '\'' +
                 ", timestamp=" + getTimestamp() +
@@ -0,0 +1,99 @@
+/**
+ * MqttRoute.java
+ * This class represents the mqtt_routes collection in the Firestore.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.entity;
+
+import java.util.List;
+
+/**
+ * Represents a route of the MQTT pipeline: the topics it matches, how their payload is decoded and the sensors it feeds.
+ */
+public class MqttRoute {
+
+    /**
+     * The name of the decoder reading flat JSON payloads, whose fields are numbers or numeric strings.
+     */
+    public static final String JSON_DECODER = "json";
+
+    /**
+     * The topic, or topic filter with the MQTT wildcards "+" and "#", matched by the route.
+     */
+    private String topicPattern;
+
+    /**
+     * The name of the decoder used to read the payload of the messages.
+     */
+    private String decoder;
+
+    /**
+     * The sensors fed by the messages of the route.
+     */
+    private List<MqttRouteTarget> targets;
+
+    /**
+     * Default constructor for MqttRoute.
+     */
+    public MqttRoute(){}
+
+    /**
+     * Constructs an MqttRoute with the specified topic pattern, decoder and targets.
+     * @param topicPattern The topic, or topic filter, matched by the route.
+     * @param decoder The name of the decoder used to read the payload.
+     * @param targets The sensors fed by the messages of the route.
+     */
+    public MqttRoute(String topicPattern, String decoder, List<MqttRouteTarget> targets){
+        this.topicPattern = topicPattern;
+        this.decoder = decoder;
+        this.targets = targets;
+    }
+
+    /**
+     * Gets the topic pattern matched by the route.
+     * @return The topic or topic filter.
+     */
+    public String getTopicPattern() {
+        return topicPattern;
+    }
+
+    /**
+     * Sets the topic pattern matched by the route.
+     * @param topicPattern The topic or topic filter.
+     */
+    public void setTopicPattern(String topicPattern) {
+        this.topicPattern = topicPattern;
+    }
+
+    /**
+     * Gets the name of the decoder used to read the payload.
+     * @return The name of the decoder.
+     */
+    public String getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Sets the name of the decoder used to read the payload.
+     * @param decoder The name of the decoder.
+     */
+    public void setDecoder(String decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * Gets the sensors fed by the route.
+     * @return The list of targets.
+     */
+    public List<MqttRouteTarget> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Sets the sensors fed by the route.
+     * @param targets The list of targets.
+     */
+    public void setTargets(List<MqttRouteTarget> targets) {
+        this.targets = targets;
+    }
+}
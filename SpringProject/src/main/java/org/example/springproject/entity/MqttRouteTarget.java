@@ -0,0 +1,96 @@
+/**
+ * MqttRouteTarget.java
+ * This class represents a target of an MQTT route, stored inside the mqtt_routes collection in the Firestore.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.entity;
+
+import java.util.Map;
+
+/**
+ * Represents a sensor fed by an MQTT route, together with the room it belongs to
+ * and the payload fields it reads.
+ */
+public class MqttRouteTarget {
+
+    /**
+     * The ID of the sensor receiving the reading.
+     */
+    private String sensorId;
+
+    /**
+     * The ID of the room the sensor belongs to.
+     */
+    private String roomId;
+
+    /**
+     * The payload fields read by the sensor, mapped to the keys stored in its readings.
+     * For example, the field "gasLevel" of the payload is stored as "gas".
+     */
+    private Map<String, String> fields;
+
+    /**
+     * Default constructor for MqttRouteTarget.
+     */
+    public MqttRouteTarget(){}
+
+    /**
+     * Constructs an MqttRouteTarget with the specified sensor ID, room ID and fields.
+     * @param sensorId The ID of the sensor receiving the reading.
+     * @param roomId The ID of the room the sensor belongs to.
+     * @param fields The payload fields read by the sensor, mapped to the keys stored in its readings.
+     */
+    public MqttRouteTarget(String sensorId, String roomId, Map<String, String> fields){
+        this.sensorId = sensorId;
+        this.roomId = roomId;
+        this.fields = fields;
+    }
+
+    /**
+     * Gets the ID of the sensor receiving the reading.
+     * @return The ID of the sensor.
+     */
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    /**
+     * Sets the ID of the sensor receiving the reading.
+     * @param sensorId The ID of the sensor.
+     */
+    public void setSensorId(String sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    /**
+     * Gets the ID of the room the sensor belongs to.
+     * @return The ID of the room.
+     */
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /**
+     * Sets the ID of the room the sensor belongs to.
+     * @param roomId The ID of the room.
+     */
+    public void setRoomId(String roomId) {
+        this.roomId = roomId;
+    }
+
+    /**
+     * Gets the payload fields read by the sensor.
+     * @return The payload fields mapped to the keys stored in the readings.
+     */
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Sets the payload fields read by the sensor.
+     * @param fields The payload fields mapped to the keys stored in the readings.
+     */
+    public void setFields(Map<String, String> fields) {
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,352 @@
+/**
+ * Notification.java
+ * This class represents the notification_outbox collection in the Firestore.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.entity;
+
+/**
+ * Represents an email, an SMS or a call to be delivered to the owner of a room when an alert is raised.
+ * Notifications are stored in the same batch as their alert and kept until they are delivered,
+ * so a notification is never lost if the application stops before delivering it.
+ * The ID of a notification is the ID of its alert followed by its channel, so it is also its idempotency key.
+ */
+public class Notification {
+
+    /**
+     * Channel defines how a notification is delivered.
+     */
+    public enum Channel {
+        /**
+         * An email sent through the configured mail server.
+         */
+        EMAIL,
+
+        /**
+         * An SMS sent through Twilio.
+         */
+        SMS,
+
+        /**
+         * A call made through Twilio.
+         */
+        CALL
+    }
+
+    /**
+     * State defines where a notification is in its delivery.
+     */
+    public enum State {
+        /**
+         * The notification is waiting to be delivered, for the first time or after a failed attempt.
+         */
+        PENDING,
+
+        /**
+         * The notification was delivered.
+         */
+        DELIVERED,
+
+        /**
+         * The notification was given up after the maximum number of attempts.
+         */
+        FAILED,
+
+        /**
+         * The notification was an escalation of an alert acknowledged before it was sent.
+         */
+        CANCELLED,
+
+        /**
+         * The notification was not sent because its recipient reached the rate limit of its channel.
+         */
+        SUPPRESSED
+    }
+
+    /**
+     * The ID of the notification: the ID of its alert followed by its channel.
+     */
+    private String id;
+
+    /**
+     * The ID of the alert the notification belongs to.
+     */
+    private String alertId;
+
+    /**
+     * The channel the notification is delivered through.
+     */
+    private Channel channel;
+
+    /**
+     * The email address or the phone number the notification is delivered to.
+     */
+    private String recipient;
+
+    /**
+     * The body of the email or SMS, or null for a call.
+     */
+    private String body;
+
+    /**
+     * The delivery state of the notification.
+     */
+    private State state = State.PENDING;
+
+    /**
+     * The number of delivery attempts made so far.
+     */
+    private int attempts;
+
+    /**
+     * The time of the next delivery attempt, in milliseconds since the epoch.
+     */
+    private long nextAttemptAt;
+
+    /**
+     * The time the notification is escalated at if its alert is not acknowledged, in milliseconds since the epoch, or 0 to send it right away.
+     */
+    private long escalateAt;
+
+    /**
+     * The time from which the notification can be delivered: the later of its escalation time and its next attempt time,
+     * in milliseconds since the epoch. The outbox replay only reads the notifications that are due.
+     */
+    private long dueAt;
+
+    /**
+     * The time the notification was delivered, given up, cancelled or suppressed, in milliseconds since the epoch,
+     * or 0 while it is pending. The settled notifications are deleted from the outbox once the retention elapsed.
+     */
+    private long settledAt;
+
+    /**
+     * The error of the last failed attempt, or null if there was none.
+     */
+    private String lastError;
+
+    /**
+     * Default constructor for Notification.
+     */
+    public Notification(){}
+
+    /**
+     * Constructs a pending Notification.
+     * @param channel The channel the notification is delivered through.
+     * @param recipient The email address or the phone number the notification is delivered to.
+     * @param body The body of the email or SMS, or null for a call.
+     */
+    public Notification(Channel channel, String recipient, String body){
+        this.channel = channel;
+        this.recipient = recipient;
+        this.body = body;
+    }
+
+    /**
+     * Gets the ID of the notification.
+     * @return The ID of the notification.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the ID of the notification.
+     * @param id The ID of the notification.
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID of the alert the notification belongs to.
+     * @return The ID of the alert.
+     */
+    public String getAlertId() {
+        return alertId;
+    }
+
+    /**
+     * Sets the ID of the alert the notification belongs to.
+     * @param alertId The ID of the alert.
+     */
+    public void setAlertId(String alertId) {
+        this.alertId = alertId;
+    }
+
+    /**
+     * Gets the channel the notification is delivered through.
+     * @return The channel.
+     */
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Sets the channel the notification is delivered through.
+     * @param channel The channel.
+     */
+    public void setChannel(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Gets the email address or the phone number the notification is delivered to.
+     * @return The recipient.
+     */
+    public String getRecipient() {
+        return recipient;
+    }
+
+    /**
+     * Sets the email address or the phone number the notification is delivered to.
+     * @param recipient The recipient.
+     */
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    /**
+     * Gets the body of the email or SMS.
+     * @return The body, or null for a call.
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Sets the body of the email or SMS.
+     * @param body The body, or null for a call.
+     */
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    /**
+     * Gets the delivery state of the notification.
+     * @return The state.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Sets the delivery state of the notification.
+     * @param state The state.
+     */
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    /**
+     * Gets the number of delivery attempts made so far.
+     * @return The number of attempts.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Sets the number of delivery attempts made so far.
+     * @param attempts The number of attempts.
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Gets the time of the next delivery attempt.
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    /**
+     * Sets the time of the next delivery attempt.
+     * @param nextAttemptAt The time in milliseconds since the epoch.
+     */
+    public void setNextAttemptAt(long nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+        this.dueAt = Math.max(dueAt, nextAttemptAt);
+    }
+
+    /**
+     * Gets the time the notification is escalated at if its alert is not acknowledged.
+     * @return The time in milliseconds since the epoch, or 0 if the notification is sent right away.
+     */
+    public long getEscalateAt() {
+        return escalateAt;
+    }
+
+    /**
+     * Sets the time the notification is escalated at if its alert is not acknowledged.
+     * @param escalateAt The time in milliseconds since the epoch, or 0 to send the notification right away.
+     */
+    public void setEscalateAt(long escalateAt) {
+        this.escalateAt = escalateAt;
+        this.dueAt = Math.max(dueAt, escalateAt);
+    }
+
+    /**
+     * Gets the time from which the notification can be delivered.
+     * @return The later of the escalation time and the next attempt time, in milliseconds since the epoch.
+     */
+    public long getDueAt() {
+        return dueAt;
+    }
+
+    /**
+     * Sets the time from which the notification can be delivered.
+     * It is also raised by the escalation time and the next attempt time when they are set.
+     * @param dueAt The time in milliseconds since the epoch.
+     */
+    public void setDueAt(long dueAt) {
+        this.dueAt = dueAt;
+    }
+
+    /**
+     * Gets the time the notification was settled.
+     * @return The time in milliseconds since the epoch, or 0 while the notification is pending.
+     */
+    public long getSettledAt() {
+        return settledAt;
+    }
+
+    /**
+     * Sets the time the notification was settled.
+     * @param settledAt The time in milliseconds since the epoch.
+     */
+    public void setSettledAt(long settledAt) {
+        this.settledAt = settledAt;
+    }
+
+    /**
+     * Gets the error of the last failed attempt.
+     * @return The error, or null if there was none.
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Sets the error of the last failed attempt.
+     * @param lastError The error.
+     */
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    /**
+     * Method to return a string representation of the Notification object, used for logging.
+     * @return The ID, the channel and the recipient of the notification.
+     */
+    @Override
+    public String toString() {
+        return "Notification{" +
+                "id='" + id + '\'' +
+                ", channel=" + channel +
+                ", recipient='" + recipient + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * SystemThreshold.java
+ * This class represents the system_thresholds collection in the Firestore.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.entity;
+
+/**
+ * Represents a built-in limit checked for every sensor of a type, such as the maximum temperature of a DHT22 sensor.
+ * A threshold without a room applies to every room; a threshold with a room overrides, for that room only,
+ * the threshold with the same sensor type and name.
+ */
+public class SystemThreshold {
+
+    /**
+     * The name of the threshold, unique per sensor type (e.g. temperature-too-high).
+     */
+    private String name;
+
+    /**
+     * The type of the sensors the threshold applies to (e.g. DHT22).
+     */
+    private String sensorType;
+
+    /**
+     * The ID of the room the threshold is overridden for, or null if it applies to every room.
+     */
+    private String roomId;
+
+    /**
+     * The parameter of the readings the threshold applies to (temperature, humidity etc.).
+     */
+    private String parameter;
+
+    /**
+     * The condition that triggers the alert (">", "<", ">=", "<=", "==").
+     */
+    private String condition;
+
+    /**
+     * The threshold value that triggers the alert.
+     */
+    private float threshold;
+
+    /**
+     * The message of the alert, in which {room} and {value} are replaced by the name of the room and the value of the reading.
+     */
+    private String message;
+
+    /**
+     * Whether the threshold is checked. A room can disable a threshold by overriding it with a disabled one.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Default constructor for SystemThreshold.
+     */
+    public SystemThreshold(){}
+
+    /**
+     * Constructs a SystemThreshold applying to every room.
+     * @param name The name of the threshold.
+     * @param sensorType The type of the sensors the threshold applies to.
+     * @param parameter The parameter of the readings the threshold applies to.
+     * @param condition The condition that triggers the alert.
+     * @param threshold The threshold value that triggers the alert.
+     * @param message The message of the alert.
+     */
+    public SystemThreshold(String name, String sensorType, String parameter, String condition, float threshold, String message){
+        this.name = name;
+        this.sensorType = sensorType;
+        this.parameter = parameter;
+        this.condition = condition;
+        this.threshold = threshold;
+        this.message = message;
+    }
+
+    /**
+     * Gets the name of the threshold.
+     * @return The name of the threshold.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the threshold.
+     * @param name The name of the threshold.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the type of the sensors the threshold applies to.
+     * @return The sensor type.
+     */
+    public String getSensorType() {
+        return sensorType;
+    }
+
+    /**
+     * Sets the type of the sensors the threshold applies to.
+     * @param sensorType The sensor type.
+     */
+    public void setSensorType(String sensorType) {
+        this.sensorType = sensorType;
+    }
+
+    /**
+     * Gets the ID of the room the threshold is overridden for.
+     * @return The ID of the room, or null if the threshold applies to every room.
+     */
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /**
+     * Sets the ID of the room the threshold is overridden for.
+     * @param roomId The ID of the room, or null if the threshold applies to every room.
+     */
+    public void setRoomId(String roomId) {
+        this.roomId = roomId;
+    }
+
+    /**
+     * Gets the parameter of the readings the threshold applies to.
+     * @return The parameter.
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Sets the parameter of the readings the threshold applies to.
+     * @param parameter The parameter.
+     */
+    public void setParameter(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * Gets the condition that triggers the alert.
+     * @return The condition.
+     */
+    public String getCondition() {
+        return condition;
+    }
+
+    /**
+     * Sets the condition that triggers the alert.
+     * @param condition The condition.
+     */
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * Gets the threshold value that triggers the alert.
+     * @return The threshold value.
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the threshold value that triggers the alert.
+     * @param threshold The threshold value.
+     */
+    public void setThreshold(float threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Gets the message of the alert.
+     * @return The message, with the {room} and {value} placeholders.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Sets the message of the alert.
+     * @param message The message, with the {room} and {value} placeholders.
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Checks whether the threshold is checked.
+     * @return true if the threshold is enabled, false otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether the threshold is checked.
+     * @param enabled true to enable the threshold, false to disable it.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
@@ -7,9 +7,11 @@ package org.example.springproject.service;
 
 import org.example.springproject.dto.AlertDTO;
 import org.example.springproject.entity.Alert;
+import org.example.springproject.entity.Notification;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * AlertService provides methods to manage alerts, including saving new alerts and retrieving existing ones.
@@ -24,11 +26,32 @@ public interface AlertService {
     AlertDTO saveAlert(Alert alert);
 
     /**
-     * Retrieves all alerts for a specific room.
+     * Saves a new alert together with its notifications, in a single atomic write,
+     * so an alert is never stored without the notifications that still have to be delivered.
+     * The ID of every notification is set to the ID of the alert followed by its channel.
+     * @param alert the alert to be saved
+     * @param notifications the notifications of the alert
+     * @return the saved AlertDTO object
+     */
+    AlertDTO saveAlert(Alert alert, List<Notification> notifications);
+
+    /**
+     * Saves several alerts and their notifications with as few batched writes as possible.
+     * An alert is always written in the same batch as its notifications.
+     * An alert keeps the ID it was given by its first save, and saving it again skips it if it is already stored.
+     * @param notificationsByAlert the notifications of every alert, in the order the alerts are saved
+     * @return the alerts written by this call, in the same order
+     */
+    List<AlertDTO> saveAlerts(Map<Alert, List<Notification>> notificationsByAlert);
+
+    /**
+     * Retrieves a page of the alerts of a specific room, newest first.
      * @param roomId the ID of the room for which to retrieve alerts
-     * @return a list of AlertDTO objects associated with the specified room
+     * @param cursor the ID of the last alert of the previous page, or null for the first page
+     * @param pageSize the maximum number of alerts of the page
+     * @return a list of AlertDTO objects associated with the specified room, or null if the cursor is not an alert of the room
      */
-    List<AlertDTO> getAlerts(String roomId);
+    List<AlertDTO> getAlerts(String roomId, String cursor, int pageSize);
 
     /**
      * Retrieves all alerts for a specific room on a given date.
@@ -38,5 +61,20 @@ public interface AlertService {
      */
     List<AlertDTO> getAlertsByRoomAndDate(String roomId, Date selectedDate);
 
+    /**
+     * Retrieves the alerts of a room raised after a given alert, so a client that missed them can catch up.
+     * @param roomId the ID of the room
+     * @param alertId the ID of the last alert the client received
+     * @return the alerts raised after the given one, oldest first, or null if the given alert doesn't exist in the room
+     */
+    List<AlertDTO> getAlertsAfter(String roomId, String alertId);
+
+    /**
+     * Acknowledges an alert, cancelling the escalations of the alert that were not sent yet.
+     * @param alertId the ID of the alert to be acknowledged
+     * @return the acknowledged alert, or null if it doesn't exist
+     */
+    AlertDTO acknowledgeAlert(String alertId);
+
     void removeAllAlertsBySensorId(String sensorId) throws RuntimeException;
 }
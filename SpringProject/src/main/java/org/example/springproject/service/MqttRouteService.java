@@ -0,0 +1,29 @@
+/**
+ * MqttRouteService.java
+ * This interface defines the contract for resolving the routes of the incoming MQTT messages.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service;
+
+import org.example.springproject.entity.MqttRoute;
+
+import java.util.List;
+
+/**
+ * MqttRouteService provides the routing table mapping MQTT topics to payload decoders and sensor/room targets.
+ */
+public interface MqttRouteService {
+
+    /**
+     * Retrieves all the configured routes.
+     * @return a list of MqttRoute objects
+     */
+    List<MqttRoute> getRoutes();
+
+    /**
+     * Retrieves the routes matching a topic, including the routes whose pattern uses MQTT wildcards.
+     * @param topic the topic a message was received on
+     * @return a list of MqttRoute objects matching the topic, empty if no route matches
+     */
+    List<MqttRoute> getRoutesForTopic(String topic);
+}
@@ -0,0 +1,64 @@
+/**
+ * NotificationOutboxService.java
+ * This interface defines the contract for tracking the delivery of the notifications stored in the outbox.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service;
+
+import org.example.springproject.entity.Notification;
+
+import java.util.List;
+
+/**
+ * NotificationOutboxService keeps the delivery state of the notifications of the alerts,
+ * so the notifications that were not delivered can be replayed after a restart.
+ * The notifications themselves are stored together with their alert by the AlertService.
+ */
+public interface NotificationOutboxService {
+
+    /**
+     * Retrieves the pending notifications whose escalation time and next attempt time passed, ordered by their due time and ID.
+     * Passing the last notification of a page as the cursor of the next call reads the following page.
+     * @param now the current time in milliseconds since the epoch
+     * @param after the last notification read by the previous call, or null to start with the earliest due notification
+     * @param limit the maximum number of notifications to retrieve
+     * @return a list of due notifications
+     */
+    List<Notification> getDueNotifications(long now, Notification after, int limit);
+
+    /**
+     * Records that a notification was delivered, so it is not replayed.
+     * @param notification the delivered notification
+     */
+    void markDelivered(Notification notification);
+
+    /**
+     * Records a failed delivery attempt of a notification that will be retried.
+     * @param notification the notification, with its attempts, next attempt time and last error updated
+     */
+    void markAttemptFailed(Notification notification);
+
+    /**
+     * Records that a notification was given up after the maximum number of attempts.
+     * @param notification the notification, with its attempts and last error updated
+     */
+    void markFailed(Notification notification);
+
+    /**
+     * Records that a notification was not sent because its recipient reached the rate limit of its channel.
+     * @param notification the suppressed notification
+     */
+    void markSuppressed(Notification notification);
+
+    /**
+     * Checks whether a notification is still waiting to be delivered, or was cancelled because its alert was acknowledged.
+     * @param notificationId the ID of the notification
+     * @return true if the notification is pending, false otherwise
+     */
+    boolean isPending(String notificationId);
+
+    /**
+     * Deletes the notifications that were delivered, given up, cancelled or suppressed longer than the retention ago.
+     */
+    void purgeSettledNotifications();
+}
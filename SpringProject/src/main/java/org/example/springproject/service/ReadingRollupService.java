@@ -0,0 +1,38 @@
+/**
+ * ReadingRollupService.java
+ * This interface defines the contract for storing and querying the pre-aggregated readings of the sensors.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service;
+
+import org.example.springproject.dto.ReadingBucketDTO;
+import org.example.springproject.util.ReadingRollup;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * ReadingRollupService keeps the rollups of the readings of every sensor at the resolutions of ReadingRollup,
+ * so the queries over weeks or months read one document per bucket instead of every reading.
+ */
+public interface ReadingRollupService {
+
+    /**
+     * Merges the rollups of the readings received since the last save into the stored rollups of their buckets.
+     * The rollups are saved by several transactions when there are many of them, so a failure may leave the first ones saved.
+     * @param rollups the rollups of the new readings, at most one per bucket
+     * @return the rollups that were not saved, from the first transaction that failed on, or an empty list if all were saved
+     */
+    List<ReadingRollup> saveRollups(List<ReadingRollup> rollups);
+
+    /**
+     * Retrieves the rollups of a sensor over a period.
+     * @param sensorId the ID of the sensor
+     * @param resolution the resolution of the rollups
+     * @param from the start of the period, inclusive
+     * @param to the end of the period, exclusive
+     * @param limit the maximum number of rollups to retrieve
+     * @return the buckets of the period holding readings, in chronological order
+     */
+    List<ReadingBucketDTO> getRollups(String sensorId, ReadingRollup.Resolution resolution, Date from, Date to, int limit);
+}
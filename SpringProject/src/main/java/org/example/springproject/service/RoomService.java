@@ -10,6 +10,7 @@ import org.example.springproject.dto.SensorDTO;
 import org.example.springproject.entity.Room;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * RoomService interface provides methods to manage rooms, including adding, deleting, updating, and retrieving room information, as well as managing sensors associated with rooms.
@@ -88,6 +89,13 @@ public interface RoomService {
      */
     String updateRoomWithSensorData(String roomId, SensorDTO sensorDTO);
 
+    /**
+     * Updates several rooms with the latest reading of their sensors.
+     * @param sensorDataByRoom The sensor data grouped by the ID of the room the sensors belong to.
+     * @return A string representing the update time of the rooms, or null if there was nothing to update.
+     */
+    String updateRoomsWithSensorData(Map<String, List<SensorDTO>> sensorDataByRoom);
+
     /**
      * Assigns a room to a user with the option to select sensors.
      * @param roomId The ID of the room to be assigned.
@@ -5,9 +5,10 @@
  */
 package org.example.springproject.service;
 
+import org.example.springproject.dto.ReadingBucketDTO;
 import org.example.springproject.dto.SensorDTO;
-import org.example.springproject.entity.Details;
 import org.example.springproject.entity.Sensor;
+import org.example.springproject.util.ReadingSeries;
 
 import java.util.Date;
 import java.util.List;
@@ -46,12 +47,19 @@ public interface SensorService {
     List<SensorDTO> getSensors();
 
     /**
-     * Saves sensor data.
+     * Saves sensor data by appending the first reading of the given sensor to its stored readings.
      * @param sensorDTO The sensor data to be saved.
      * @return A string indicating the result of the save operation.
      */
     String saveSensorData(SensorDTO sensorDTO);
 
+    /**
+     * Saves the readings of several sensors with as few write batches as possible.
+     * @param sensorData The sensor data to be saved, every reading of every sensor is stored.
+     * @return A string indicating the result of the last committed batch, or null if there was nothing to save.
+     */
+    String saveSensorDataBatch(List<SensorDTO> sensorData);
+
     /**
      * Retrieves a sensor by its ID.
      * @param sensorId The ID of the sensor to be retrieved.
@@ -59,19 +67,36 @@ public interface SensorService {
      */
     SensorDTO getSensorById(String sensorId);
 
+    /**
+     * Retrieves the metadata of a sensor (type, port and active flag) by its ID, without its readings.
+     * The metadata is cached, so it is meant for hot paths such as the processing of incoming sensor data.
+     * @param sensorId The ID of the sensor.
+     * @return The sensor as a SensorDTO with an empty list of details.
+     */
+    SensorDTO getSensorMetadata(String sensorId);
+
     /**
      * Retrieves all sensor data for a specific sensor ID.
      * @param sensorId The ID of the sensor for which to retrieve data.
-     * @return A list of Details objects representing the sensor data.
+     * @return A series holding the sensor data, converted to Details objects by the REST layer.
+     */
+    ReadingSeries getSensorDataByDate(String sensorId, Date selectedDate);
+
+    /**
+     * Retrieves the sensor data of a specific date aggregated into time buckets.
+     * @param sensorId The ID of the sensor for which to retrieve data.
+     * @param selectedDate The date for which to retrieve data.
+     * @param resolutionSeconds The width of a bucket in seconds.
+     * @return The buckets holding readings, in chronological order, with the minimum, maximum, average and count of every channel.
      */
-    List<Details> getSensorDataByDate(String sensorId, Date selectedDate);
+    List<ReadingBucketDTO> getSensorDataBuckets(String sensorId, Date selectedDate, long resolutionSeconds);
 
     /**
      * Retrieves the last detail for a specific sensor ID.
      * @param sensorId The ID of the sensor for which to retrieve the last detail.
-     * @return The last Details object for the specified sensor ID.
+     * @return A single-reading series holding the last reading for the specified sensor ID, or null if there is none.
      */
-    Details getLastDetailForSensor(String sensorId);
+    ReadingSeries getLastDetailForSensor(String sensorId);
 
     /**
      * Clears all sensor details for a specific sensor ID.
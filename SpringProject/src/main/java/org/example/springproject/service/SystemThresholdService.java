@@ -0,0 +1,31 @@
+/**
+ * SystemThresholdService.java
+ * This interface defines the contract for resolving the system thresholds checked by the MQTT pipeline.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service;
+
+import org.example.springproject.entity.SystemThreshold;
+import org.example.springproject.util.AlertRuleSet;
+
+import java.util.List;
+
+/**
+ * SystemThresholdService provides the system thresholds of every sensor type, with the overrides of every room applied.
+ */
+public interface SystemThresholdService {
+
+    /**
+     * Retrieves all the system thresholds, including the room overrides.
+     * @return a list of SystemThreshold objects
+     */
+    List<SystemThreshold> getThresholds();
+
+    /**
+     * Retrieves the compiled system thresholds checked for a sensor type in a room.
+     * @param sensorType the type of the sensor
+     * @param roomId the ID of the room the sensor is located in
+     * @return the rules of the thresholds, or an empty set if the sensor type has none
+     */
+    AlertRuleSet getRules(String sensorType, String roomId);
+}
@@ -22,4 +22,19 @@ public interface TwilioService {
      * @param body the content of the SMS message
      */
     void sendSms(String toNumber, String body);
+
+    /**
+     * Makes a call to the specified phone number, without catching the failure.
+     * @param toNumber the phone number to call
+     * @throws RuntimeException if the call can't be made
+     */
+    void deliverCall(String toNumber);
+
+    /**
+     * Sends an SMS message to the specified phone number, without catching the failure.
+     * @param toNumber the phone number to which the SMS will be sent
+     * @param body the content of the SMS message
+     * @throws RuntimeException if the SMS can't be sent
+     */
+    void deliverSms(String toNumber, String body);
 }
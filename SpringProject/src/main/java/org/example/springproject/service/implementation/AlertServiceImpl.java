@@ -7,9 +7,11 @@
 package org.example.springproject.service.implementation;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 import org.example.springproject.dto.AlertDTO;
 import org.example.springproject.entity.Alert;
+import org.example.springproject.entity.Notification;
 import org.example.springproject.service.AlertService;
 import org.springframework.stereotype.Service;
 
@@ -31,6 +33,11 @@ public class AlertServiceImpl implements AlertService {
      */
     private static final String ALERT_COLLECTION = "alerts";
 
+    /**
+     * The maximum number of writes of a Firestore batch.
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
     /**
      * Constructor for AlertServiceImpl.
      * @param firestore The Firestore instance used to interact with the database.
@@ -57,17 +64,136 @@ public class AlertServiceImpl implements AlertService {
     }
 
     /**
-     * Retrieves all alerts from the Firestore database.
-     * @return A list of AlertDTO objects containing the details of all alerts.
+     * Saves an alert and its notifications to the Firestore database in a single batch.
+     * The notifications are created rather than set, so saving the same notification twice fails instead of resetting its delivery state.
+     * @param alert The alert to be saved.
+     * @param notifications The notifications of the alert.
+     * @return An AlertDTO object containing the details of the saved alert.
+     * @throws RuntimeException if there is an error while saving the alert.
+     */
+    @Override
+    public AlertDTO saveAlert(Alert alert, List<Notification> notifications) throws RuntimeException {
+        return saveAlerts(Map.of(alert, notifications)).get(0);
+    }
+
+    /**
+     * Saves several alerts and their notifications to the Firestore database with as few batches as possible.
+     * An alert and its notifications always go in the same batch, so a notification is never stored without its alert;
+     * a new batch is started when the next alert and its notifications would exceed the limit of writes of a batch.
+     * The batches are committed together and waited for at the end, so their round trips overlap.
+     * An alert is given its document ID the first time it is saved and keeps it, so saving it again after a failure
+     * writes the same documents. Some batches may have committed before a failure was reported, so the alerts saved again
+     * are first looked up, and the ones already stored are skipped: their notifications are already in the outbox.
+     * @param notificationsByAlert The notifications of every alert, in the order the alerts are saved.
+     * @return A list of AlertDTO objects containing the details of the alerts written by this call, in the same order.
+     * @throws RuntimeException if there is an error while saving the alerts.
+     */
+    @Override
+    public List<AlertDTO> saveAlerts(Map<Alert, List<Notification>> notificationsByAlert) throws RuntimeException {
+        try {
+            CollectionReference alerts = firestore.collection(ALERT_COLLECTION);
+            CollectionReference outbox = firestore.collection(NotificationOutboxServiceImpl.NOTIFICATION_OUTBOX_COLLECTION);
+            Set<String> storedAlertIds = getStoredAlertIds(alerts, notificationsByAlert.keySet());
+            List<AlertDTO> savedAlerts = new ArrayList<>(notificationsByAlert.size());
+            List<ApiFuture<List<WriteResult>>> commits = new ArrayList<>();
+
+            WriteBatch batch = firestore.batch();
+            int batchSize = 0;
+            for (Map.Entry<Alert, List<Notification>> entry : notificationsByAlert.entrySet()) {
+                Alert alert = entry.getKey();
+                if (alert.getAlertId() != null && storedAlertIds.contains(alert.getAlertId())) {
+                    continue;
+                }
+                List<Notification> notifications = entry.getValue() != null ? entry.getValue() : List.of();
+                if (batchSize > 0 && batchSize + 1 + notifications.size() > MAX_BATCH_SIZE) {
+                    commits.add(batch.commit());
+                    batch = firestore.batch();
+                    batchSize = 0;
+                }
+
+                DocumentReference alertRef;
+                if (alert.getAlertId() == null) {
+                    alertRef = alerts.document();
+                    alert.setAlertId(alertRef.getId());
+                } else {
+                    alertRef = alerts.document(alert.getAlertId());
+                }
+                batch.set(alertRef, alert);
+                for (Notification notification : notifications) {
+                    notification.setAlertId(alertRef.getId());
+                    notification.setId(alertRef.getId() + ":" + notification.getChannel());
+                    batch.create(outbox.document(notification.getId()), notification);
+                }
+                batchSize += 1 + notifications.size();
+                savedAlerts.add(new AlertDTO(alertRef.getId(),alert.getRoomId(),alert.getSensorId(),alert.getTimestamp(),alert.getSensorType(), alert.getData(),alert.getMessage()));
+            }
+            if (batchSize > 0) {
+                commits.add(batch.commit());
+            }
+
+            for (ApiFuture<List<WriteResult>> commit : commits) {
+                commit.get();
+            }
+            return savedAlerts;
+        } catch (Exception e) {
+            throw new RuntimeException("Error saving alerts: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Looks up which of the alerts saved again after a failure are already stored.
+     * Only the alerts that were given an ID by an earlier save are looked up, so saving new alerts costs no read.
+     * @param alerts The collection of the alerts.
+     * @param toSave The alerts about to be saved.
+     * @return The IDs of the alerts that are already stored.
+     * @throws Exception if there is an error while reading the alerts.
+     */
+    private Set<String> getStoredAlertIds(CollectionReference alerts, Collection<Alert> toSave) throws Exception {
+        List<DocumentReference> references = new ArrayList<>();
+        for (Alert alert : toSave) {
+            if (alert.getAlertId() != null) {
+                references.add(alerts.document(alert.getAlertId()));
+            }
+        }
+        if (references.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> storedAlertIds = new HashSet<>();
+        for (DocumentSnapshot document : firestore.getAll(references.toArray(new DocumentReference[0])).get()) {
+            if (document.exists()) {
+                storedAlertIds.add(document.getId());
+            }
+        }
+        return storedAlertIds;
+    }
+
+    /**
+     * Retrieves a page of the alerts of a specific room from the Firestore database, newest first.
+     * The page starts after the document of the cursor, so every page costs the reads of its own alerts only,
+     * however many alerts the room has. The query needs the composite index on roomId and descending timestamp.
+     * @param roomId The ID of the room for which alerts are to be retrieved.
+     * @param cursor The ID of the last alert of the previous page, or null for the first page.
+     * @param pageSize The maximum number of alerts of the page.
+     * @return A list of AlertDTO objects containing the details of the alerts of the page, or null if the cursor is not an alert of the room.
      * @throws RuntimeException if there is an error while retrieving the alerts.
      */
     @Override
-    public List<AlertDTO> getAlerts(String roomId) throws RuntimeException {
+    public List<AlertDTO> getAlerts(String roomId, String cursor, int pageSize) throws RuntimeException {
         try {
-            ApiFuture<QuerySnapshot> future = firestore.collection(ALERT_COLLECTION)
+            Query query = firestore.collection(ALERT_COLLECTION)
                     .whereEqualTo("roomId", roomId)
-                    .get();
-            return getAlertDTOS(future);
+                    .orderBy("timestamp", Query.Direction.DESCENDING)
+                    .limit(pageSize);
+
+            if (cursor != null && !cursor.isBlank()) {
+                DocumentSnapshot cursorDocument = firestore.collection(ALERT_COLLECTION).document(cursor).get().get();
+                if (!cursorDocument.exists() || !roomId.equals(cursorDocument.getString("roomId"))) {
+                    return null;
+                }
+                query = query.startAfter(cursorDocument);
+            }
+            return getAlertDTOS(query.get());
         } catch (Exception e) {
             throw new RuntimeException("Error retrieving alerts: " + e.getMessage(), e);
         }
@@ -104,6 +230,37 @@ public class AlertServiceImpl implements AlertService {
         }
     }
 
+    /**
+     * Retrieves the alerts of a room raised after a given alert from the Firestore database.
+     * The alerts with the same timestamp as the given one are included too, except the given one, so none is skipped;
+     * a client may receive some of them twice and tells them apart by their ID.
+     * @param roomId The ID of the room.
+     * @param alertId The ID of the last alert the client received.
+     * @return A list of AlertDTO objects raised after the given alert, oldest first, or null if the given alert doesn't exist in the room.
+     * @throws RuntimeException if there is an error while retrieving the alerts.
+     */
+    @Override
+    public List<AlertDTO> getAlertsAfter(String roomId, String alertId) throws RuntimeException {
+        try {
+            DocumentSnapshot document = firestore.collection(ALERT_COLLECTION).document(alertId).get().get();
+            Timestamp timestamp = document.exists() ? document.getTimestamp("timestamp") : null;
+            if (timestamp == null || !roomId.equals(document.getString("roomId"))) {
+                return null;
+            }
+
+            ApiFuture<QuerySnapshot> future = firestore.collection(ALERT_COLLECTION)
+                    .whereEqualTo("roomId", roomId)
+                    .whereGreaterThanOrEqualTo("timestamp", timestamp)
+                    .orderBy("timestamp")
+                    .get();
+            List<AlertDTO> alertDTOList = getAlertDTOS(future);
+            alertDTOList.removeIf(alertDTO -> alertId.equals(alertDTO.getAlertId()));
+            return alertDTOList;
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving alerts after alert " + alertId + ": " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get AlertDTOs from the ApiFuture<QuerySnapshot>.
      * This method processes the QuerySnapshot returned by Firestore and converts it into a list of AlertDTO objects.
@@ -132,6 +289,7 @@ public class AlertServiceImpl implements AlertService {
                     }
                 }
                 AlertDTO alertDTO = new AlertDTO(document.getId(), document.getString("roomId"), document.getString("sensorId"), document.getTimestamp("timestamp"), document.getString("sensorType"), sensorData, document.getString("message"));
+                alertDTO.setAcknowledged(Boolean.TRUE.equals(document.getBoolean("acknowledged")));
                 alertDTOList.add(alertDTO);
 
             }
@@ -142,6 +300,55 @@ public class AlertServiceImpl implements AlertService {
         }
     }
 
+    /**
+     * Acknowledges an alert in the Firestore database.
+     * The pending escalations of the alert are cancelled in the same batch, so the NotificationDispatcher doesn't send them.
+     * @param alertId The ID of the alert to be acknowledged.
+     * @return An AlertDTO object containing the details of the acknowledged alert, or null if the alert doesn't exist.
+     * @throws RuntimeException if there is an error while acknowledging the alert.
+     */
+    @Override
+    public AlertDTO acknowledgeAlert(String alertId) throws RuntimeException {
+        try {
+            DocumentReference alertRef = firestore.collection(ALERT_COLLECTION).document(alertId);
+            DocumentSnapshot document = alertRef.get().get();
+            if (!document.exists()) {
+                return null;
+            }
+            Alert alert = document.toObject(Alert.class);
+            if (alert == null) {
+                return null;
+            }
+
+            WriteBatch batch = firestore.batch();
+            if (!alert.isAcknowledged()) {
+                alert.setAcknowledged(true);
+                alert.setAcknowledgedAt(Timestamp.now());
+                batch.update(alertRef, "acknowledged", true, "acknowledgedAt", alert.getAcknowledgedAt());
+            }
+
+            List<QueryDocumentSnapshot> notifications = firestore.collection(NotificationOutboxServiceImpl.NOTIFICATION_OUTBOX_COLLECTION)
+                    .whereEqualTo("alertId", alertId)
+                    .whereEqualTo("state", Notification.State.PENDING.name())
+                    .get().get().getDocuments();
+            for (QueryDocumentSnapshot notification : notifications) {
+                Long escalateAt = notification.getLong("escalateAt");
+                if (escalateAt != null && escalateAt > 0) {
+                    batch.update(notification.getReference(),
+                            "state", Notification.State.CANCELLED.name(),
+                            "settledAt", System.currentTimeMillis());
+                }
+            }
+            batch.commit().get();
+
+            AlertDTO alertDTO = new AlertDTO(alertId, alert.getRoomId(), alert.getSensorId(), alert.getTimestamp(), alert.getSensorType(), alert.getData(), alert.getMessage());
+            alertDTO.setAcknowledged(true);
+            return alertDTO;
+        } catch (Exception e) {
+            throw new RuntimeException("Error acknowledging alert: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Removes all alerts associated with a specific sensor ID from the Firestore database.
      * @param sensorId The ID of the sensor for which alerts are to be removed.
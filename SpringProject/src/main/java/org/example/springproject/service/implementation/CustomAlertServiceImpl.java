@@ -8,13 +8,22 @@ package org.example.springproject.service.implementation;
 
 import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.example.springproject.dto.CustomAlertDTO;
 import org.example.springproject.entity.CustomAlert;
 import org.example.springproject.service.CustomAlertService;
+import org.example.springproject.util.AlertStateTracker;
+import org.example.springproject.util.AlertWindowStore;
 import org.example.springproject.util.CustomAlertMapper;
+import org.example.springproject.util.CustomAlertRuleIndex;
+import org.example.springproject.util.WindowAggregation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -34,12 +43,99 @@ public class CustomAlertServiceImpl implements CustomAlertService {
      */
     private static final String CUSTOM_ALERTS_COLLECTION = "custom_alerts";
 
+    /**
+     * The in-memory index of the compiled custom alerts evaluated by the MQTT pipeline, updated on every change.
+     */
+    private final CustomAlertRuleIndex customAlertRuleIndex;
+
+    /**
+     * The states of the alert rules, from which the state of a removed custom alert is evicted.
+     */
+    private final AlertStateTracker alertStateTracker;
+
+    /**
+     * The windows of the windowed alert rules, from which the windows of a removed custom alert are evicted.
+     */
+    private final AlertWindowStore alertWindowStore;
+
+    /**
+     * The maximum number of readings the window of a custom alert keeps, which bounds the readings a count custom alert looks at.
+     */
+    private final int maxWindowSamples;
+
+    /**
+     * The registration of the listener updating the rule index, removed when the application is shutting down.
+     */
+    private ListenerRegistration customAlertsListener;
+
+    /**
+     * Whether the listener has loaded all the custom alerts into the rule index, after which it only applies the changes.
+     * Only accessed by the listener, which receives the snapshots one at a time.
+     */
+    private boolean loaded;
+
     /**
      * Constructor for CustomAlertServiceImpl.
      * @param firestore The Firestore instance used to interact with the database.
+     * @param customAlertRuleIndex The index of the compiled custom alerts evaluated by the MQTT pipeline.
+     * @param alertStateTracker The states of the alert rules, evicted when a custom alert is removed.
+     * @param alertWindowStore The windows of the windowed alert rules, evicted when a custom alert is removed.
+     * @param maxWindowSamples The maximum number of readings the window of a custom alert keeps, injected from application properties.
      */
-    public CustomAlertServiceImpl(Firestore firestore) {
+    public CustomAlertServiceImpl(Firestore firestore, CustomAlertRuleIndex customAlertRuleIndex, AlertStateTracker alertStateTracker,
+                                  AlertWindowStore alertWindowStore, @Value("${alerts.window.max-samples}") int maxWindowSamples) {
         this.firestore = firestore;
+        this.customAlertRuleIndex = customAlertRuleIndex;
+        this.alertStateTracker = alertStateTracker;
+        this.alertWindowStore = alertWindowStore;
+        this.maxWindowSamples = maxWindowSamples;
+    }
+
+    /**
+     * Listens to the custom_alerts collection when the application starts, loading all the custom alerts into the rule index
+     * and then applying every change to it, including the ones not made through this service.
+     * If the listener fails, the current rules are kept and Firestore keeps retrying until the custom alerts are loaded.
+     */
+    @PostConstruct
+    public void listenForCustomAlertRules() {
+        customAlertsListener = firestore.collection(CUSTOM_ALERTS_COLLECTION).addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                System.err.println("Error while listening for custom alerts, keeping the current rules: " + error.getMessage());
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+
+            if (!loaded) {
+                Map<String, CustomAlert> customAlerts = new HashMap<>();
+                for (QueryDocumentSnapshot document : snapshot.getDocuments()) {
+                    customAlerts.put(document.getId(), document.toObject(CustomAlert.class));
+                }
+                customAlertRuleIndex.loadAll(customAlerts);
+                loaded = true;
+                System.out.println("Loaded " + customAlerts.size() + " custom alerts into the rule index");
+                return;
+            }
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                String alertId = change.getDocument().getId();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removeRule(alertId);
+                } else {
+                    customAlertRuleIndex.put(alertId, change.getDocument().toObject(CustomAlert.class));
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops listening to the custom_alerts collection.
+     */
+    @PreDestroy
+    public void stopListening() {
+        if (customAlertsListener != null) {
+            customAlertsListener.remove();
+        }
     }
 
     /**
@@ -51,11 +147,14 @@ public class CustomAlertServiceImpl implements CustomAlertService {
     @Override
     public CustomAlertDTO saveCustomAlert(CustomAlert customAlert) throws RuntimeException {
         try{
-            if(customAlert.getUserId() == null || customAlert.getRoomId() == null || customAlert.getSensorId() == null) {
+            boolean composite = customAlert.getConditions() != null && !customAlert.getConditions().isEmpty();
+            if(customAlert.getUserId() == null || customAlert.getRoomId() == null || (!composite && customAlert.getSensorId() == null)) {
                 throw new IllegalArgumentException("User ID, Room ID, and Sensor ID cannot be null");
             }
+            validateWindow(customAlert);
             DocumentReference customAlertRef = firestore.collection(CUSTOM_ALERTS_COLLECTION).document();
             customAlertRef.set(customAlert).get();
+            customAlertRuleIndex.put(customAlertRef.getId(), customAlert);
             return CustomAlertMapper.toDTO(customAlertRef.getId(),customAlert);
         }catch (Exception e){
             throw new RuntimeException("Error saving custom alert: " + e.getMessage());
@@ -165,6 +264,7 @@ public class CustomAlertServiceImpl implements CustomAlertService {
             }
 
             documentReference.delete().get();
+            removeRule(alertId);
             return CustomAlertMapper.toDTO(alertId,customAlert);
         } catch (Exception e) {
             throw new RuntimeException("Error deleting custom alert by ID: " + e.getMessage());
@@ -201,8 +301,17 @@ public class CustomAlertServiceImpl implements CustomAlertService {
             currentAlert.setParameter(updatedAlert.getParameter());
             currentAlert.setCondition(updatedAlert.getCondition());
             currentAlert.setThreshold(updatedAlert.getThreshold());
+            currentAlert.setAggregation(updatedAlert.getAggregation());
+            currentAlert.setWindowSeconds(updatedAlert.getWindowSeconds());
+            currentAlert.setWindowSamples(updatedAlert.getWindowSamples());
+            currentAlert.setRequiredSamples(updatedAlert.getRequiredSamples());
+            currentAlert.setConditions(updatedAlert.getConditions());
+            currentAlert.setCombinator(updatedAlert.getCombinator());
+            currentAlert.setWithinSeconds(updatedAlert.getWithinSeconds());
+            validateWindow(currentAlert);
 
             documentReference.set(currentAlert).get();
+            customAlertRuleIndex.put(alertId, currentAlert);
             return CustomAlertMapper.toDTO(alertId,currentAlert);
 
         } catch (Exception e) {
@@ -229,10 +338,48 @@ public class CustomAlertServiceImpl implements CustomAlertService {
             for(QueryDocumentSnapshot document : documents) {
                 String alertId = document.getId();
                 firestore.collection(CUSTOM_ALERTS_COLLECTION).document(alertId).delete().get();
+                removeRule(alertId);
             }
         }catch(Exception e){
             throw new RuntimeException("Error deleting custom alerts by room ID and user ID: " + e.getMessage());
         }
     }
 
+    /**
+     * Validates the aggregation and the window of a custom alert, so that it is not left out of the rule index and doesn't keep more readings than a window.
+     * @param customAlert The custom alert to be validated.
+     * @throws IllegalArgumentException if the aggregation is not supported, if an avg, min, max or rate custom alert has no window length,
+     * or if a count custom alert counts more readings than a window keeps, or more matching readings than it counts.
+     */
+    private void validateWindow(CustomAlert customAlert) throws IllegalArgumentException {
+        WindowAggregation aggregation = WindowAggregation.fromName(customAlert.getAggregation());
+        if (aggregation == null) {
+            throw new IllegalArgumentException("Unsupported aggregation: " + customAlert.getAggregation());
+        }
+        if (aggregation == WindowAggregation.VALUE) {
+            return;
+        }
+        if (aggregation != WindowAggregation.COUNT) {
+            if (customAlert.getWindowSeconds() <= 0) {
+                throw new IllegalArgumentException("Window seconds must be greater than 0 for the " + aggregation.getName() + " aggregation");
+            }
+            return;
+        }
+        if (customAlert.getWindowSamples() > maxWindowSamples) {
+            throw new IllegalArgumentException("Window samples cannot be greater than " + maxWindowSamples);
+        }
+        if (customAlert.getRequiredSamples() <= 0 || customAlert.getRequiredSamples() > customAlert.getWindowSamples()) {
+            throw new IllegalArgumentException("Required samples must be between 1 and the window samples");
+        }
+    }
+
+    /**
+     * Removes a custom alert from the rule index, and evicts the states and windows kept for it.
+     * @param alertId The ID of the removed custom alert.
+     */
+    private void removeRule(String alertId) {
+        customAlertRuleIndex.remove(alertId);
+        alertStateTracker.evict(alertId);
+        alertWindowStore.evict(alertId);
+    }
 }
@@ -0,0 +1,225 @@
+/**
+ * MqttRouteServiceImpl.java
+ * This file is part of the Spring Project.
+ * It is used to implement the MqttRouteService interface.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service.implementation;
+
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.springproject.entity.MqttRoute;
+import org.example.springproject.entity.MqttRouteTarget;
+import org.example.springproject.service.MqttRouteService;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MqttRouteServiceImpl is a service class that implements the MqttRouteService interface.
+ * It keeps the routing table of the MQTT pipeline in memory and reloads it whenever the mqtt_routes collection changes,
+ * so devices can be added without a code change or a redeploy.
+ * When the collection is empty, the default routes of the original devices are used.
+ */
+@Service
+public class MqttRouteServiceImpl implements MqttRouteService {
+
+    /**
+     * Firestore instance used to interact with the Firestore database.
+     */
+    private final Firestore firestore;
+
+    /**
+     * The name of the collection in Firestore where the MQTT routes are stored.
+     */
+    private static final String MQTT_ROUTES_COLLECTION = "mqtt_routes";
+
+    /**
+     * The maximum number of distinct topics whose matching routes are remembered.
+     */
+    private static final int MAX_RESOLVED_TOPICS = 10_000;
+
+    /**
+     * The current routing table, replaced as a whole when the routes are reloaded.
+     */
+    private volatile RoutingTable routingTable = new RoutingTable(defaultRoutes());
+
+    /**
+     * The registration of the listener reloading the routes, removed when the application is shutting down.
+     */
+    private ListenerRegistration routesListener;
+
+    /**
+     * Constructor for MqttRouteServiceImpl.
+     * @param firestore The Firestore instance used to interact with the database.
+     */
+    public MqttRouteServiceImpl(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Starts listening to the mqtt_routes collection.
+     * The listener is called with the current routes first and then on every change of the collection.
+     */
+    @PostConstruct
+    public void listenForRoutes() {
+        routesListener = firestore.collection(MQTT_ROUTES_COLLECTION).addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                System.err.println("Error while listening for MQTT routes, keeping the current routes: " + error.getMessage());
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+
+            List<MqttRoute> routes = snapshot.toObjects(MqttRoute.class);
+            if (routes.isEmpty()) {
+                System.out.println("No MQTT routes stored, using the default routes");
+                routes = defaultRoutes();
+            }
+            routingTable = new RoutingTable(routes);
+            System.out.println("Loaded " + routingTable.routes.size() + " MQTT routes");
+        });
+    }
+
+    /**
+     * Stops listening to the mqtt_routes collection.
+     */
+    @PreDestroy
+    public void stopListening() {
+        if (routesListener != null) {
+            routesListener.remove();
+        }
+    }
+
+    /**
+     * Retrieves all the configured routes.
+     * @return A list of MqttRoute objects.
+     */
+    @Override
+    public List<MqttRoute> getRoutes() {
+        return routingTable.routes;
+    }
+
+    /**
+     * Retrieves the routes matching a topic.
+     * The matching routes of a topic are computed once and then served with a single lookup.
+     * @param topic The topic a message was received on.
+     * @return A list of MqttRoute objects matching the topic, empty if no route matches.
+     */
+    @Override
+    public List<MqttRoute> getRoutesForTopic(String topic) {
+        return routingTable.resolve(topic);
+    }
+
+    /**
+     * Checks if a topic matches a topic pattern.
+     * The pattern may use the MQTT wildcards "+", matching exactly one level, and "#", matching all the remaining levels.
+     * @param topicPattern The topic pattern.
+     * @param topic The topic to be checked.
+     * @return true if the topic matches the pattern, false otherwise.
+     */
+    public static boolean topicMatches(String topicPattern, String topic) {
+        String[] patternLevels = topicPattern.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+
+        for (int i = 0; i < patternLevels.length; i++) {
+            if (patternLevels[i].equals("#")) {
+                return true;
+            }
+            if (i >= topicLevels.length) {
+                return false;
+            }
+            if (!patternLevels[i].equals("+") && !patternLevels[i].equals(topicLevels[i])) {
+                return false;
+            }
+        }
+        return patternLevels.length == topicLevels.length;
+    }
+
+    /**
+     * Creates the routes of the devices installed before the routes were stored in Firestore.
+     * @return The list of default routes.
+     */
+    private static List<MqttRoute> defaultRoutes() {
+        String primaryRoomId = "1RdkB5aniSqVc1GayEVr";
+        String esp32x1RoomId = "9JFObYv8R4mCtkYtac77";
+        String esp32x2RoomId = "jmwXMITpjvJSSK1egu4O";
+
+        return List.of(
+                new MqttRoute("sensor/dht22/data", MqttRoute.JSON_DECODER, List.of(
+                        new MqttRouteTarget("HGNX6Kp9FiSTSclNwHHN", primaryRoomId, Map.of("temperature", "temperature", "humidity", "humidity")))),
+                new MqttRoute("sensor/mq5/data", MqttRoute.JSON_DECODER, List.of(
+                        new MqttRouteTarget("nv0MubTXWBrjHZpQlZxl", primaryRoomId, Map.of("gasLevel", "gas")))),
+                new MqttRoute("sensor/esp32x1/data", MqttRoute.JSON_DECODER, List.of(
+                        new MqttRouteTarget("EblfbGBn7wrJi9Zqtb0S", esp32x1RoomId, Map.of("mq2", "mq2Value")),
+                        new MqttRouteTarget("ok7tYDjTHI5OLUUcRm8q", esp32x1RoomId, Map.of("mq5", "gas")))),
+                new MqttRoute("sensor/esp32x2/data", MqttRoute.JSON_DECODER, List.of(
+                        new MqttRouteTarget("bS85GgrlLs9ikiNG0EXU", esp32x2RoomId, Map.of("mq2Value", "mq2Value")),
+                        new MqttRouteTarget("OpjcAjYNdCkMgEb2CV0T", esp32x2RoomId, Map.of("temperature", "temperature", "humidity", "humidity"))))
+        );
+    }
+
+    /**
+     * RoutingTable is an immutable snapshot of the routes, with the matching routes of every topic seen so far.
+     */
+    private static class RoutingTable {
+
+        /**
+         * The valid routes of the table.
+         */
+        private final List<MqttRoute> routes;
+
+        /**
+         * The routes matching each topic seen so far.
+         */
+        private final Map<String, List<MqttRoute>> resolvedTopics = new ConcurrentHashMap<>();
+
+        /**
+         * Constructor for RoutingTable.
+         * Routes without a topic pattern, without targets or with incomplete targets are ignored.
+         * @param routes The routes of the table.
+         */
+        private RoutingTable(List<MqttRoute> routes) {
+            List<MqttRoute> validRoutes = new ArrayList<>();
+            for (MqttRoute route : routes) {
+                if (route.getTopicPattern() == null || route.getTargets() == null || route.getTargets().isEmpty()
+                        || route.getTargets().stream().anyMatch(target -> target.getSensorId() == null || target.getRoomId() == null || target.getFields() == null)) {
+                    System.err.println("Ignoring invalid MQTT route for topic pattern: " + route.getTopicPattern());
+                    continue;
+                }
+                validRoutes.add(route);
+            }
+            this.routes = Collections.unmodifiableList(validRoutes);
+        }
+
+        /**
+         * Gets the routes matching a topic, matching it against all the patterns only the first time the topic is seen.
+         * @param topic The topic a message was received on.
+         * @return The routes matching the topic.
+         */
+        private List<MqttRoute> resolve(String topic) {
+            List<MqttRoute> resolved = resolvedTopics.get(topic);
+            if (resolved != null) {
+                return resolved;
+            }
+
+            List<MqttRoute> matching = new ArrayList<>();
+            for (MqttRoute route : routes) {
+                if (topicMatches(route.getTopicPattern(), topic)) {
+                    matching.add(route);
+                }
+            }
+            resolved = List.copyOf(matching);
+
+            // Topics are chosen by the publishers, so the number of remembered topics is bounded
+            if (resolvedTopics.size() < MAX_RESOLVED_TOPICS) {
+                resolvedTopics.put(topic, resolved);
+            }
+            return resolved;
+        }
+    }
+}
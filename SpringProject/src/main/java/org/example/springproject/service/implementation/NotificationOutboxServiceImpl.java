@@ -0,0 +1,203 @@
+/**
+ * NotificationOutboxServiceImpl.java
+ * This file is part of the Spring Project.
+ * It is used to implement the NotificationOutboxService interface.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service.implementation;
+
+import com.google.cloud.firestore.*;
+import org.example.springproject.entity.Notification;
+import org.example.springproject.service.NotificationOutboxService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NotificationOutboxServiceImpl is a service class that implements the NotificationOutboxService interface.
+ * The delivery state is written by the workers of the NotificationDispatcher, and they wait for the write, so a replay never reads
+ * a notification as pending after it was delivered. If a write fails, the error is logged and the notification
+ * is simply delivered again by the next replay (at-least-once delivery).
+ * The replay reads the due notifications by the composite index on (state, dueAt), and the settled notifications
+ * are deleted once the retention elapsed, so the outbox only grows with the notifications still pending.
+ */
+@Service
+public class NotificationOutboxServiceImpl implements NotificationOutboxService {
+
+    /**
+     * Firestore instance used to interact with the Firestore database.
+     */
+    private final Firestore firestore;
+
+    /**
+     * The name of the collection in Firestore where the notifications are stored.
+     */
+    public static final String NOTIFICATION_OUTBOX_COLLECTION = "notification_outbox";
+
+    /**
+     * The maximum number of notifications deleted by one batch, the limit of the operations of a Firestore batch.
+     */
+    private static final int PURGE_BATCH_SIZE = 500;
+
+    /**
+     * The time a settled notification is kept in the outbox before it is deleted, in milliseconds.
+     */
+    private final long retentionMillis;
+
+    /**
+     * Constructor for NotificationOutboxServiceImpl.
+     * @param firestore The Firestore instance used to interact with the database.
+     * @param retentionMillis The time a settled notification is kept in the outbox before it is deleted, in milliseconds.
+     */
+    public NotificationOutboxServiceImpl(Firestore firestore,
+                                         @Value("${notifications.outbox.retention-ms}") long retentionMillis) {
+        this.firestore = firestore;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Retrieves the pending notifications that are due from the Firestore database, ordered by their due time and ID.
+     * @param now The current time in milliseconds since the epoch.
+     * @param after The last notification read by the previous call, or null to start with the earliest due notification.
+     * @param limit The maximum number of notifications to retrieve.
+     * @return A list of due notifications.
+     * @throws RuntimeException if there is an error while retrieving the notifications.
+     */
+    @Override
+    public List<Notification> getDueNotifications(long now, Notification after, int limit) throws RuntimeException {
+        try {
+            Query query = firestore.collection(NOTIFICATION_OUTBOX_COLLECTION)
+                    .whereEqualTo("state", Notification.State.PENDING.name())
+                    .whereLessThanOrEqualTo("dueAt", now)
+                    .orderBy("dueAt")
+                    .orderBy(FieldPath.documentId());
+            if (after != null) {
+                query = query.startAfter(after.getDueAt(), after.getId());
+            }
+            return query.limit(limit)
+                    .get()
+                    .get()
+                    .toObjects(Notification.class);
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving due notifications: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marks a notification as delivered in the Firestore database.
+     * @param notification The delivered notification.
+     */
+    @Override
+    public void markDelivered(Notification notification) {
+        update(notification, Map.of(
+                "state", Notification.State.DELIVERED.name(),
+                "attempts", notification.getAttempts(),
+                "settledAt", System.currentTimeMillis()));
+    }
+
+    /**
+     * Records a failed delivery attempt of a notification in the Firestore database.
+     * @param notification The notification, with its attempts, next attempt time and last error updated.
+     */
+    @Override
+    public void markAttemptFailed(Notification notification) {
+        update(notification, Map.of(
+                "attempts", notification.getAttempts(),
+                "nextAttemptAt", notification.getNextAttemptAt(),
+                "dueAt", notification.getDueAt(),
+                "lastError", String.valueOf(notification.getLastError())));
+    }
+
+    /**
+     * Marks a notification as failed in the Firestore database.
+     * @param notification The notification, with its attempts and last error updated.
+     */
+    @Override
+    public void markFailed(Notification notification) {
+        update(notification, Map.of(
+                "state", Notification.State.FAILED.name(),
+                "attempts", notification.getAttempts(),
+                "lastError", String.valueOf(notification.getLastError()),
+                "settledAt", System.currentTimeMillis()));
+    }
+
+    /**
+     * Marks a notification as suppressed by the rate limit in the Firestore database.
+     * @param notification The suppressed notification.
+     */
+    @Override
+    public void markSuppressed(Notification notification) {
+        update(notification, Map.of(
+                "state", Notification.State.SUPPRESSED.name(),
+                "settledAt", System.currentTimeMillis()));
+    }
+
+    /**
+     * Checks in the Firestore database whether a notification is still pending.
+     * If the state can't be read, the notification is considered pending, so an escalation is rather sent than lost.
+     * @param notificationId The ID of the notification.
+     * @return True if the notification is pending or its state can't be read, false otherwise.
+     */
+    @Override
+    public boolean isPending(String notificationId) {
+        try {
+            DocumentSnapshot document = firestore.collection(NOTIFICATION_OUTBOX_COLLECTION).document(notificationId).get().get();
+            return !document.exists() || Notification.State.PENDING.name().equals(document.getString("state"));
+        } catch (Exception e) {
+            System.err.println("Error reading the state of notification " + notificationId + ": " + e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Deletes the settled notifications whose retention elapsed from the Firestore database, by batches.
+     * This method is annotated with @Scheduled, so it is called periodically with the configured purge interval.
+     * If a batch fails, the error is logged and the remaining notifications are deleted by the next purge.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${notifications.outbox.purge-interval-ms}")
+    public void purgeSettledNotifications() {
+        long settledBefore = System.currentTimeMillis() - retentionMillis;
+        int purged = 0;
+        try {
+            List<QueryDocumentSnapshot> settled;
+            do {
+                settled = firestore.collection(NOTIFICATION_OUTBOX_COLLECTION)
+                        .whereGreaterThan("settledAt", 0L)
+                        .whereLessThan("settledAt", settledBefore)
+                        .limit(PURGE_BATCH_SIZE)
+                        .get()
+                        .get()
+                        .getDocuments();
+                if (settled.isEmpty()) {
+                    break;
+                }
+                WriteBatch batch = firestore.batch();
+                settled.forEach(document -> batch.delete(document.getReference()));
+                batch.commit().get();
+                purged += settled.size();
+            } while (settled.size() == PURGE_BATCH_SIZE);
+        } catch (Exception e) {
+            System.err.println("Error purging settled notifications: " + e.getMessage());
+        }
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " settled notifications from the outbox");
+        }
+    }
+
+    /**
+     * Updates the fields of a notification, logging the failure instead of throwing it.
+     * @param notification The notification to update.
+     * @param fields The fields to update.
+     */
+    private void update(Notification notification, Map<String, Object> fields) {
+        try {
+            firestore.collection(NOTIFICATION_OUTBOX_COLLECTION).document(notification.getId()).update(fields).get();
+        } catch (Exception e) {
+            System.err.println("Error updating the state of " + notification + ": " + e.getMessage());
+        }
+    }
+}
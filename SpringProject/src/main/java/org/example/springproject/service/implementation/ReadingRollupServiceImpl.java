@@ -0,0 +1,166 @@
+/**
+ * ReadingRollupServiceImpl.java
+ * This file is part of the Spring Project.
+ * It is used to implement the ReadingRollupService interface.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service.implementation;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import org.example.springproject.dto.ReadingBucketDTO;
+import org.example.springproject.service.ReadingRollupService;
+import org.example.springproject.util.ReadingRollup;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReadingRollupServiceImpl is a service class that implements the ReadingRollupService interface.
+ * The rollups are stored in a subcollection of the sensor per resolution, with the start of the bucket, in seconds
+ * since the epoch, as document ID. Firestore can't keep a minimum or a maximum with a field transform,
+ * so the new rollups are merged into the stored ones within a transaction, which keeps them exact when a save is retried.
+ */
+@Service
+public class ReadingRollupServiceImpl implements ReadingRollupService {
+
+    /**
+     * Firestore instance used to interact with the Firestore database.
+     */
+    private final Firestore firestore;
+
+    /**
+     * The name of the collection in Firestore where the sensors are stored.
+     */
+    private static final String SENSOR_COLLECTION = "sensors";
+
+    /**
+     * The maximum number of writes of a Firestore transaction.
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Constructor for ReadingRollupServiceImpl.
+     * @param firestore The Firestore instance used to interact with the database.
+     */
+    public ReadingRollupServiceImpl(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Merges the rollups of the new readings into the stored rollups of their buckets in the Firestore database.
+     * The rollups are merged by transactions of up to MAX_BATCH_SIZE buckets, which read the stored rollups and write the merged ones.
+     * The transactions already committed can't be rolled back, so when one fails the rollups it and the next ones hold are returned
+     * instead of throwing, for the caller to save them again without counting the committed ones twice.
+     * @param rollups The rollups of the new readings, at most one per bucket.
+     * @return The rollups that were not saved, from the first transaction that failed on, or an empty list if all were saved.
+     */
+    @Override
+    public List<ReadingRollup> saveRollups(List<ReadingRollup> rollups) {
+        for (int from = 0; from < rollups.size(); from += MAX_BATCH_SIZE) {
+            List<ReadingRollup> chunk = rollups.subList(from, Math.min(from + MAX_BATCH_SIZE, rollups.size()));
+            try {
+                DocumentReference[] references = new DocumentReference[chunk.size()];
+                for (int i = 0; i < chunk.size(); i++) {
+                    references[i] = reference(chunk.get(i));
+                }
+
+                firestore.runTransaction(transaction -> {
+                    List<DocumentSnapshot> documents = transaction.getAll(references).get();
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ReadingRollup rollup = chunk.get(i);
+                        // The stored rollup is merged into a new one, so the rollup of the readings is unchanged if the transaction is retried
+                        ReadingRollup merged = new ReadingRollup(rollup.getSensorId(), rollup.getResolution(), rollup.getStartSeconds());
+                        if (documents.get(i).exists()) {
+                            merged.merge(toRollup(rollup, documents.get(i)));
+                        }
+                        merged.merge(rollup);
+                        transaction.set(references[i], merged.toDocument());
+                    }
+                    return null;
+                }).get();
+            } catch (Exception e) {
+                System.err.println("Error saving reading rollups, " + from + " of " + rollups.size() + " saved: " + e.getMessage());
+                return new ArrayList<>(rollups.subList(from, rollups.size()));
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Retrieves the rollups of a sensor over a period from the Firestore database.
+     * @param sensorId The ID of the sensor.
+     * @param resolution The resolution of the rollups.
+     * @param from The start of the period, inclusive.
+     * @param to The end of the period, exclusive.
+     * @param limit The maximum number of rollups to retrieve.
+     * @return A list of ReadingBucketDTO objects, one per bucket of the period holding readings, in chronological order.
+     * @throws RuntimeException if there is an error while retrieving the rollups.
+     */
+    @Override
+    public List<ReadingBucketDTO> getRollups(String sensorId, ReadingRollup.Resolution resolution, Date from, Date to, int limit) throws RuntimeException {
+        try {
+            List<QueryDocumentSnapshot> documents = firestore.collection(SENSOR_COLLECTION)
+                    .document(sensorId)
+                    .collection(resolution.collection())
+                    .whereGreaterThanOrEqualTo("start", Timestamp.of(from))
+                    .whereLessThan("start", Timestamp.of(to))
+                    .orderBy("start")
+                    .limit(limit)
+                    .get()
+                    .get()
+                    .getDocuments();
+
+            List<ReadingBucketDTO> buckets = new ArrayList<>(documents.size());
+            for (QueryDocumentSnapshot document : documents) {
+                Timestamp start = document.getTimestamp("start");
+                if (start != null) {
+                    ReadingRollup rollup = toRollup(new ReadingRollup(sensorId, resolution, start.getSeconds()), document);
+                    buckets.add(rollup.toBucket());
+                }
+            }
+            return buckets;
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving reading rollups of sensor " + sensorId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the reference of the document of a rollup.
+     * @param rollup The rollup.
+     * @return The reference of its document.
+     */
+    private DocumentReference reference(ReadingRollup rollup) {
+        return firestore.collection(SENSOR_COLLECTION)
+                .document(rollup.getSensorId())
+                .collection(rollup.getResolution().collection())
+                .document(String.valueOf(rollup.getStartSeconds()));
+    }
+
+    /**
+     * Reads a stored rollup.
+     * @param bucket A rollup of the same bucket, giving its sensor, resolution and start.
+     * @param document The document of the stored rollup.
+     * @return The stored rollup.
+     */
+    private static ReadingRollup toRollup(ReadingRollup bucket, DocumentSnapshot document) {
+        ReadingRollup rollup = new ReadingRollup(bucket.getSensorId(), bucket.getResolution(), bucket.getStartSeconds());
+        Long count = document.getLong("count");
+        rollup.setCount(count != null ? count : 0);
+
+        Object channels = document.get("channels");
+        if (channels instanceof Map<?, ?> channelMap) {
+            for (Map.Entry<?, ?> entry : channelMap.entrySet()) {
+                if (entry.getValue() instanceof Map<?, ?> stats
+                        && stats.get("min") instanceof Number min && stats.get("max") instanceof Number max
+                        && stats.get("sum") instanceof Number sum && stats.get("count") instanceof Number channelCount) {
+                    rollup.setChannel(String.valueOf(entry.getKey()), min.floatValue(), max.floatValue(), sum.doubleValue(), channelCount.longValue());
+                }
+            }
+        }
+        return rollup;
+    }
+}
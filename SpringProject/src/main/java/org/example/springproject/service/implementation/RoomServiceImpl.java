@@ -14,6 +14,7 @@ import org.example.springproject.entity.Details;
 import org.example.springproject.entity.Room;
 import org.example.springproject.entity.Sensor;
 import org.example.springproject.service.RoomService;
+import org.example.springproject.util.RoomContextCache;
 import org.example.springproject.util.RoomMapper;
 import org.example.springproject.util.SensorMapper;
 import org.springframework.stereotype.Service;
@@ -57,14 +58,21 @@ public class RoomServiceImpl implements RoomService {
      */
     private final SensorServiceImpl sensorService;
 
+    /**
+     * Cache of the room contexts used by the MQTT pipeline, invalidated when a room changes.
+     */
+    private final RoomContextCache roomContextCache;
+
     /**
      * Constructor for RoomServiceImpl.
      * @param firestore Firestore instance used to interact with the Firestore database.
      * @param sensorService SensorServiceImpl instance used to interact with sensors.
+     * @param roomContextCache RoomContextCache instance caching the room contexts used by the MQTT pipeline.
      */
-    public RoomServiceImpl(Firestore firestore, SensorServiceImpl sensorService) {
+    public RoomServiceImpl(Firestore firestore, SensorServiceImpl sensorService, RoomContextCache roomContextCache) {
         this.firestore = firestore;
         this.sensorService = sensorService;
+        this.roomContextCache = roomContextCache;
     }
 
     /**
@@ -126,6 +134,7 @@ public class RoomServiceImpl implements RoomService {
             }
             Room room = roomSnapshot.toObject(Room.class);
             roomRef.delete().get();
+            roomContextCache.invalidate(id);
 
             assert room != null;
             @SuppressWarnings("unchecked")
@@ -157,6 +166,7 @@ public class RoomServiceImpl implements RoomService {
             assert currentRoom != null;
             currentRoom.setSensors(updatedRoom.getSensors());
             roomRef.set(currentRoom).get();
+            roomContextCache.invalidate(id);
             @SuppressWarnings("unchecked")
             List<Map<String, Object>> mapList = (List<Map<String, Object>>) roomSnapshot.get("sensors");
             return new RoomDTO(id,SensorMapper.toDTOListMap(mapList), currentRoom.getName(),currentRoom.getUserId());
@@ -378,20 +388,75 @@ public class RoomServiceImpl implements RoomService {
                 throw new RuntimeException("Failed to parse room data!");
             }
 
-            List<SensorDTO> sensorsDTO = roomDTO.getSensors();
+            applySensorData(roomDTO, sensorDTO);
+            WriteResult result = roomRef.set(roomDTO).get();
+            return result.getUpdateTime().toString();
+        }catch (Exception e){
+            throw new RuntimeException("Error while updating room with sensor data: " + e.getMessage(), e);
+        }
+    }
 
-            for (SensorDTO sensor : sensorsDTO) {
-                if (sensor.getId() != null && sensor.getId().equals(sensorDTO.getId())) {
-                    sensor.setDetails(List.of(sensorDTO.getDetails().get(0)));
+    /**
+     * Updates several rooms with the latest reading of their sensors.
+     * All the rooms are read with a single request and written back with a single write batch.
+     * @param sensorDataByRoom The sensor data grouped by the ID of the room the sensors belong to, in the order the readings were received.
+     * @return A string representing the update time of the rooms, or null if there was nothing to update.
+     * @throws RuntimeException if there is an error while updating the rooms with sensor data.
+     */
+    @Override
+    public String updateRoomsWithSensorData(Map<String, List<SensorDTO>> sensorDataByRoom) throws RuntimeException {
+        if (sensorDataByRoom.isEmpty()) {
+            return null;
+        }
+
+        try{
+            DocumentReference[] roomRefs = sensorDataByRoom.keySet().stream()
+                    .map(roomId -> firestore.collection(ROOM_COLLECTION).document(roomId))
+                    .toArray(DocumentReference[]::new);
+            List<DocumentSnapshot> roomSnapshots = firestore.getAll(roomRefs).get();
+
+            WriteBatch batch = firestore.batch();
+            boolean hasWrites = false;
+            for (DocumentSnapshot roomSnapshot : roomSnapshots) {
+                RoomDTO roomDTO = roomSnapshot.exists() ? roomSnapshot.toObject(RoomDTO.class) : null;
+                if (roomDTO == null) {
+                    System.err.println("Room with id: " + roomSnapshot.getId() + " doesn't exist, skipping its sensor data!");
+                    continue;
                 }
+
+                // The readings are in the order they were received, so the last one of every sensor wins
+                for (SensorDTO sensorDTO : sensorDataByRoom.get(roomSnapshot.getId())) {
+                    applySensorData(roomDTO, sensorDTO);
+                }
+                batch.set(roomSnapshot.getReference(), roomDTO);
+                hasWrites = true;
             }
 
-            roomDTO.setSensors(sensorsDTO);
-            WriteResult result = roomRef.set(roomDTO).get();
-            return result.getUpdateTime().toString();
+            if (!hasWrites) {
+                return null;
+            }
+            List<WriteResult> results = batch.commit().get();
+            return results.get(results.size() - 1).getUpdateTime().toString();
         }catch (Exception e){
-            throw new RuntimeException("Error while updating room with sensor data: " + e.getMessage(), e);
+            throw new RuntimeException("Error while updating rooms with sensor data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the details of a sensor of the room with the first reading of the given sensor data.
+     * @param roomDTO The room containing the sensor.
+     * @param sensorDTO The sensor data containing the new reading.
+     */
+    private static void applySensorData(RoomDTO roomDTO, SensorDTO sensorDTO) {
+        List<SensorDTO> sensorsDTO = roomDTO.getSensors();
+
+        for (SensorDTO sensor : sensorsDTO) {
+            if (sensor.getId() != null && sensor.getId().equals(sensorDTO.getId())) {
+                sensor.setDetails(List.of(sensorDTO.getDetails().get(0)));
+            }
         }
+
+        roomDTO.setSensors(sensorsDTO);
     }
 
     /**
@@ -437,6 +502,7 @@ public class RoomServiceImpl implements RoomService {
             // Update the room in Firestore
             DocumentReference roomRef = firestore.collection(ROOM_COLLECTION).document(roomId);
             roomRef.set(roomDTO).get();
+            roomContextCache.invalidate(roomId);
 
             return roomDTO;
         } catch (Exception e) {
@@ -467,6 +533,7 @@ public class RoomServiceImpl implements RoomService {
 
             room.setUserId("");
             roomRef.update("userId", "").get();
+            roomContextCache.invalidate(roomId);
 
             @SuppressWarnings("unchecked")
             List<Map<String,Object>> sensorsData = (List<Map<String, Object>>) snapshot.get("sensors");
@@ -8,17 +8,27 @@ package org.example.springproject.service.implementation;
 import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import org.example.springproject.dto.ReadingBucketDTO;
 import org.example.springproject.dto.RoomDTO;
 import org.example.springproject.dto.SensorDTO;
 import org.example.springproject.entity.Details;
 import org.example.springproject.entity.Sensor;
+import org.example.springproject.service.ReadingRollupService;
 import org.example.springproject.service.SensorService;
+import org.example.springproject.util.ReadingRollup;
+import org.example.springproject.util.ReadingSchema;
+import org.example.springproject.util.ReadingSeries;
 
 import org.springframework.stereotype.Service;
 
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * SensorServiceImpl is a service class that implements the SensorService interface.
@@ -32,6 +42,11 @@ public class SensorServiceImpl implements SensorService {
      */
     private final Firestore firestore;
 
+    /**
+     * ReadingRollupService used to read the rollups the buckets of a day are built from.
+     */
+    private final ReadingRollupService readingRollupService;
+
     /**
      * The name of the Firestore collection where sensors are stored.
      */
@@ -42,13 +57,60 @@ public class SensorServiceImpl implements SensorService {
      */
     private static final String ROOM_COLLECTION = "rooms";
 
+    /**
+     * The name of the subcollection, under each sensor document, where the sensor readings are stored.
+     * Every document of this subcollection holds the readings of one hour and is tagged with the day it belongs to.
+     */
+    private static final String READINGS_COLLECTION = "readingBuckets";
+
+    /**
+     * Formatter for the ID of an hourly readings bucket (e.g. 2025-06-01-14).
+     * Bucket IDs sort chronologically, so the newest bucket is the last one by document ID.
+     */
+    private static final DateTimeFormatter BUCKET_ID_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH").withZone(ZoneId.systemDefault());
+
+    /**
+     * Formatter for the day a readings bucket belongs to (e.g. 2025-06-01).
+     */
+    private static final DateTimeFormatter BUCKET_DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+
+    /**
+     * The maximum number of operations Firestore accepts in a single write batch.
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * In-memory table holding the newest reading of every sensor.
+     * It is updated on every saved reading, so Firestore is only read on a cold start.
+     * Every entry is a single-reading series, so the table doesn't hold a map and boxed values per sensor.
+     */
+    private final Map<String, ReadingSeries> lastDetails = new ConcurrentHashMap<>();
+
+    /**
+     * The only fields read from a sensor document when its metadata is loaded.
+     */
+    private static final FieldMask METADATA_FIELDS = FieldMask.of("sensorType", "port", "active");
+
+    /**
+     * In-memory table holding the metadata (type, port and active flag) of the sensors, without their readings.
+     * Entries are evicted whenever a sensor is updated, activated, deactivated or deleted.
+     */
+    private final Map<String, SensorDTO> sensorMetadata = new ConcurrentHashMap<>();
+
+    /**
+     * Counter incremented on every eviction from sensorMetadata, used to discard metadata loaded while a sensor was modified.
+     */
+    private final AtomicLong metadataEvictions = new AtomicLong();
+
     /**
      * Constructor for SensorServiceImpl.
      *
      * @param firestore Firestore instance used to interact with the database.
+     * @param readingRollupService ReadingRollupService used to read the rollups the buckets of a day are built from.
      */
-    public SensorServiceImpl(Firestore firestore) {
+    public SensorServiceImpl(Firestore firestore, ReadingRollupService readingRollupService) {
         this.firestore = firestore;
+        this.readingRollupService = readingRollupService;
     }
 
     /**
@@ -87,7 +149,10 @@ public class SensorServiceImpl implements SensorService {
             }
 
             Sensor sensor = deserializeSensor(sensorSnapshot);
+            deleteReadings(sensorRef);
             sensorRef.delete().get();
+            lastDetails.remove(id);
+            evictSensorMetadata(id);
             return new SensorDTO(id, sensor.getSensorType(), sensor.getPort(), sensor.getDetails(), sensor.isActive());
         } catch (Exception e) {
             throw new RuntimeException("Error while deleting the sensor: " + e.getMessage(), e);
@@ -138,6 +203,7 @@ public class SensorServiceImpl implements SensorService {
             }
 
             sensorRef.set(updatedSensor).get();
+            evictSensorMetadata(id);
             return new SensorDTO(id, updatedSensor.getSensorType(), updatedSensor.getPort(), updatedSensor.getDetails(), updatedSensor.isActive());
         } catch (Exception e) {
             throw new RuntimeException("Error while updating the sensor: " + e.getMessage(), e);
@@ -170,6 +236,8 @@ public class SensorServiceImpl implements SensorService {
 
     /**
      * Saves new sensor data to the Firestore database.
+     * The reading is appended to the bucket of the hour it was taken in, without reading the bucket first,
+     * so the cost of a write doesn't depend on how many readings the sensor already has.
      *
      * @param newSensorData The new sensor data to be saved.
      * @return A string indicating the update time of the saved sensor data.
@@ -178,36 +246,143 @@ public class SensorServiceImpl implements SensorService {
     @Override
     public String saveSensorData(SensorDTO newSensorData) throws RuntimeException {
         try {
-            DocumentReference docRef = firestore.collection(SENSOR_COLLECTION).document(newSensorData.getId());
+            Details details = newSensorData.getDetails().get(0);
+            Instant readingTime = details.getTimestamp().toDate().toInstant();
 
-            ApiFuture<DocumentSnapshot> future = docRef.get();
-            DocumentSnapshot documentSnapshot = future.get();
+            DocumentReference bucketRef = firestore.collection(SENSOR_COLLECTION)
+                    .document(newSensorData.getId())
+                    .collection(READINGS_COLLECTION)
+                    .document(BUCKET_ID_FORMATTER.format(readingTime));
 
-            List<Details> detailsList = new ArrayList<>();
+            Map<String, Object> bucketUpdate = new HashMap<>();
+            bucketUpdate.put("day", BUCKET_DAY_FORMATTER.format(readingTime));
+            bucketUpdate.put("readings", FieldValue.arrayUnion(toReadingMap(details)));
 
-            if (documentSnapshot.exists()) {
-                SensorDTO existingSensor = documentSnapshot.toObject(SensorDTO.class);
-                if (existingSensor != null && existingSensor.getDetails() != null) {
-                    detailsList = existingSensor.getDetails();
+            WriteResult result = bucketRef.set(bucketUpdate, SetOptions.merge()).get();
+            rememberLastDetail(newSensorData.getId(), newSensorData.getSensorType(), details);
+            return result.getUpdateTime().toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Error while saving sensor data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Saves the readings of several sensors to the Firestore database using write batches.
+     * The readings are grouped by the hourly bucket they belong to, so every bucket is written once per batch,
+     * and a burst of readings costs a single commit instead of one round trip per reading.
+     *
+     * @param sensorData The sensor data to be saved.
+     * @return A string indicating the update time of the last committed batch, or null if there was nothing to save.
+     * @throws RuntimeException If an error occurs while saving the sensor data.
+     */
+    @Override
+    public String saveSensorDataBatch(List<SensorDTO> sensorData) throws RuntimeException {
+        try {
+            Map<DocumentReference, String> bucketDays = new LinkedHashMap<>();
+            Map<DocumentReference, List<Object>> bucketReadings = new HashMap<>();
+
+            for (SensorDTO sensorDTO : sensorData) {
+                for (Details details : sensorDTO.getDetails()) {
+                    Instant readingTime = details.getTimestamp().toDate().toInstant();
+                    DocumentReference bucketRef = firestore.collection(SENSOR_COLLECTION)
+                            .document(sensorDTO.getId())
+                            .collection(READINGS_COLLECTION)
+                            .document(BUCKET_ID_FORMATTER.format(readingTime));
+
+                    bucketDays.putIfAbsent(bucketRef, BUCKET_DAY_FORMATTER.format(readingTime));
+                    bucketReadings.computeIfAbsent(bucketRef, ref -> new ArrayList<>()).add(toReadingMap(details));
                 }
             }
 
-            detailsList.add(newSensorData.getDetails().get(0));
-            SensorDTO updatedSensor = new SensorDTO(
-                    newSensorData.getId(),
-                    newSensorData.getSensorType(),
-                    newSensorData.getPort(),
-                    detailsList,
-                    newSensorData.isActive()
-            );
+            String updateTime = null;
+            WriteBatch batch = firestore.batch();
+            int batchSize = 0;
+            for (Map.Entry<DocumentReference, String> bucket : bucketDays.entrySet()) {
+                Map<String, Object> bucketUpdate = new HashMap<>();
+                bucketUpdate.put("day", bucket.getValue());
+                bucketUpdate.put("readings", FieldValue.arrayUnion(bucketReadings.get(bucket.getKey()).toArray()));
+                batch.set(bucket.getKey(), bucketUpdate, SetOptions.merge());
+
+                if (++batchSize == MAX_BATCH_SIZE) {
+                    updateTime = commitBatch(batch);
+                    batch = firestore.batch();
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                updateTime = commitBatch(batch);
+            }
 
-            WriteResult result = docRef.set(updatedSensor).get();
-            return result.getUpdateTime().toString();
+            for (SensorDTO sensorDTO : sensorData) {
+                for (Details details : sensorDTO.getDetails()) {
+                    rememberLastDetail(sensorDTO.getId(), sensorDTO.getSensorType(), details);
+                }
+            }
+            return updateTime;
         } catch (Exception e) {
-            throw new RuntimeException("Error while saving sensor data: " + e.getMessage(), e);
+            throw new RuntimeException("Error while saving sensor data batch: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Commits a write batch and waits for the result.
+     *
+     * @param batch The write batch to be committed.
+     * @return A string indicating the update time of the committed batch.
+     * @throws Exception If an error occurs while committing the batch.
+     */
+    private static String commitBatch(WriteBatch batch) throws Exception {
+        List<WriteResult> results = batch.commit().get();
+        return results.get(results.size() - 1).getUpdateTime().toString();
+    }
+
+    /**
+     * Stores a reading in the latest reading table, unless a newer reading of the same sensor is already there.
+     *
+     * @param sensorId   The ID of the sensor.
+     * @param sensorType The type of the sensor, used to pick the schema of the reading.
+     * @param details    The reading to be stored.
+     */
+    private void rememberLastDetail(String sensorId, String sensorType, Details details) {
+        rememberLastDetail(sensorId, ReadingSeries.of(ReadingSchema.forSensorType(sensorType), details));
+    }
+
+    /**
+     * Stores a single-reading series in the latest reading table, unless a newer reading of the same sensor is already there.
+     *
+     * @param sensorId The ID of the sensor.
+     * @param reading  The single-reading series to be stored.
+     */
+    private void rememberLastDetail(String sensorId, ReadingSeries reading) {
+        lastDetails.merge(sensorId, reading, (current, incoming) ->
+                incoming.getEpochMicros(0) >= current.getEpochMicros(0) ? incoming : current);
+    }
+
+    /**
+     * Gets the schema of the readings of a sensor from its cached metadata.
+     * If the metadata isn't cached, the empty schema is returned and the series is extended with the channels of the readings.
+     *
+     * @param sensorId The ID of the sensor.
+     * @return The schema of the sensor type.
+     */
+    private ReadingSchema getReadingSchema(String sensorId) {
+        SensorDTO metadata = sensorMetadata.get(sensorId);
+        return metadata != null ? ReadingSchema.forSensorType(metadata.getSensorType()) : ReadingSchema.EMPTY;
+    }
+
+    /**
+     * Converts a reading into the map stored in the readings array of a bucket.
+     *
+     * @param details The reading to be converted.
+     * @return A map containing the timestamp and the data of the reading.
+     */
+    private static Map<String, Object> toReadingMap(Details details) {
+        Map<String, Object> reading = new HashMap<>();
+        reading.put("timestamp", details.getTimestamp());
+        reading.put("data", details.getData());
+        return reading;
+    }
+
     /**
      * Retrieves a sensor by its ID from the Firestore database.
      *
@@ -236,6 +411,64 @@ public class SensorServiceImpl implements SensorService {
         }
     }
 
+    /**
+     * Retrieves the metadata of a sensor by its ID.
+     * The metadata is served from memory; on a miss only the type, port and active fields of the sensor document are read.
+     *
+     * @param sensorId The ID of the sensor.
+     * @return A SensorDTO containing the metadata of the sensor and an empty list of details.
+     * @throws RuntimeException If an error occurs while fetching the sensor or if the sensor doesn't exist.
+     */
+    @Override
+    public SensorDTO getSensorMetadata(String sensorId) throws RuntimeException {
+        SensorDTO cachedMetadata = sensorMetadata.get(sensorId);
+        if (cachedMetadata != null) {
+            return copyMetadata(cachedMetadata);
+        }
+
+        try {
+            long evictionsBeforeLoad = metadataEvictions.get();
+            DocumentSnapshot document = firestore.collection(SENSOR_COLLECTION).document(sensorId).get(METADATA_FIELDS).get();
+
+            if (!document.exists()) {
+                throw new RuntimeException("Sensor with id: " + sensorId + " doesn't exist!");
+            }
+
+            Long portLong = document.getLong("port");
+            SensorDTO metadata = new SensorDTO(sensorId, document.getString("sensorType"),
+                    portLong != null ? portLong.intValue() : 0, List.of(),
+                    Boolean.TRUE.equals(document.getBoolean("active")));
+
+            // Metadata read while the sensor was being modified may already be stale, so it is not cached
+            if (metadataEvictions.get() == evictionsBeforeLoad) {
+                sensorMetadata.put(sensorId, metadata);
+            }
+            return copyMetadata(metadata);
+        } catch (Exception e) {
+            throw new RuntimeException("Error while fetching sensor metadata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copies the cached metadata of a sensor, so callers can set the details of the returned object without affecting the cache.
+     *
+     * @param metadata The cached metadata.
+     * @return A new SensorDTO holding the same metadata and an empty list of details.
+     */
+    private static SensorDTO copyMetadata(SensorDTO metadata) {
+        return new SensorDTO(metadata.getId(), metadata.getSensorType(), metadata.getPort(), new ArrayList<>(), metadata.isActive());
+    }
+
+    /**
+     * Evicts the metadata of a sensor from memory after the sensor was modified.
+     *
+     * @param sensorId The ID of the modified sensor.
+     */
+    private void evictSensorMetadata(String sensorId) {
+        metadataEvictions.incrementAndGet();
+        sensorMetadata.remove(sensorId);
+    }
+
     /**
      * Checks the details list and deserializes it into a list of Details objects.
      *
@@ -280,85 +513,233 @@ public class SensorServiceImpl implements SensorService {
         }
     }
 
+    /**
+     * Appends the raw readings of a bucket to a series, skipping the readings without a timestamp.
+     * The values are copied straight from the Firestore maps, without building a Details object per reading.
+     *
+     * @param readings The raw readings of a bucket.
+     * @param series   The series to which the readings will be appended.
+     * @throws RuntimeException If an error occurs while processing the readings.
+     */
+    private static void appendReadings(List<Map<String, Object>> readings, ReadingSeries series) throws RuntimeException {
+        if (readings == null) {
+            return;
+        }
+        try {
+            for (Map<String, Object> reading : readings) {
+                Timestamp timestamp = (Timestamp) reading.get("timestamp");
+                if (timestamp == null) {
+                    continue;
+                }
+
+                int row = series.addRow(ReadingSeries.toEpochMicros(timestamp));
+                @SuppressWarnings("unchecked")
+                Map<String, Object> data = (Map<String, Object>) reading.get("data");
+                if (data != null) {
+                    for (Map.Entry<String, Object> entry : data.entrySet()) {
+                        series.set(row, entry.getKey(), ((Number) entry.getValue()).floatValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error processing readings: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Retrieves sensor data for a specific date.
+     * Only the hourly buckets of the selected day are read, so the cost doesn't depend on the length of the sensor history.
      *
      * @param sensorId     The ID of the sensor.
      * @param selectedDate The date for which to retrieve the sensor data.
-     * @return A list of Details objects containing the sensor data for the specified date.
+     * @return A series containing the sensor data for the specified date, sorted by timestamp.
      * @throws RuntimeException If an error occurs while fetching the sensor data.
      */
     @Override
-    public List<Details> getSensorDataByDate(String sensorId, Date selectedDate) throws RuntimeException {
+    public ReadingSeries getSensorDataByDate(String sensorId, Date selectedDate) throws RuntimeException {
         try {
-            DocumentReference docRef = firestore.collection(SENSOR_COLLECTION).document(sensorId);
-            DocumentSnapshot snapshot = docRef.get().get();
-
-            if (!snapshot.exists()) {
-                throw new RuntimeException("Sensor with id: " + sensorId + "doesn't exist!");
+            ApiFuture<QuerySnapshot> future = firestore.collection(SENSOR_COLLECTION)
+                    .document(sensorId)
+                    .collection(READINGS_COLLECTION)
+                    .whereEqualTo("day", BUCKET_DAY_FORMATTER.format(selectedDate.toInstant()))
+                    .get();
+
+            ReadingSeries series = new ReadingSeries(getReadingSchema(sensorId));
+            for (QueryDocumentSnapshot bucket : future.get().getDocuments()) {
+                appendReadings(getBucketReadings(bucket), series);
             }
 
-            SensorDTO sensorDTO = snapshot.toObject(SensorDTO.class);
+            series.sortByTimestamp();
+            return series;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch sensor data for date: " + selectedDate, e);
+        }
+    }
 
-            if (sensorDTO == null || sensorDTO.getDetails() == null) {
-                return new ArrayList<>();
+    /**
+     * Retrieves the sensor data of a specific date aggregated into time buckets, aligned on the start of the day,
+     * so the response holds one entry per bucket however often the sensor reports.
+     * The buckets are merged from the coarsest rollups whose width divides the resolution, so a resolution of an hour
+     * reads 24 documents and a resolution of a few minutes reads at most 1440. The readings of the day are only read
+     * for a resolution finer than a minute, or for a day without rollups, such as a day recorded before the rollups existed.
+     *
+     * @param sensorId          The ID of the sensor.
+     * @param selectedDate      The date for which to retrieve the sensor data.
+     * @param resolutionSeconds The width of a bucket in seconds.
+     * @return The buckets holding readings, in chronological order.
+     * @throws RuntimeException If an error occurs while fetching the sensor data.
+     */
+    @Override
+    public List<ReadingBucketDTO> getSensorDataBuckets(String sensorId, Date selectedDate, long resolutionSeconds) throws RuntimeException {
+        ReadingRollup.Resolution rollupResolution = getRollupResolution(selectedDate, resolutionSeconds);
+        if (rollupResolution != null) {
+            ZoneId zone = ZoneId.systemDefault();
+            Date nextDate = Date.from(LocalDate.ofInstant(selectedDate.toInstant(), zone).plusDays(1).atStartOfDay(zone).toInstant());
+            int maxRollups = (int) ((nextDate.getTime() - selectedDate.getTime()) / 1_000L / rollupResolution.getSeconds()) + 1;
+            List<ReadingBucketDTO> rollups = readingRollupService.getRollups(sensorId, rollupResolution, selectedDate, nextDate, maxRollups);
+            if (!rollups.isEmpty()) {
+                return mergeBuckets(rollups, selectedDate.getTime() / 1_000L, resolutionSeconds);
             }
+        }
+
+        ReadingSeries series = getSensorDataByDate(sensorId, selectedDate);
+        return series.toBuckets(selectedDate.getTime() * 1_000L, resolutionSeconds * 1_000_000L);
+    }
 
-            Calendar calSelected = Calendar.getInstance();
-            calSelected.setTime(selectedDate);
+    /**
+     * Chooses the coarsest rollups the buckets of a day can be merged from.
+     * The width of the rollups must divide the resolution, and the rollups must be aligned on the start of the day.
+     *
+     * @param selectedDate      The start of the day.
+     * @param resolutionSeconds The width of a bucket in seconds.
+     * @return The resolution of the rollups, or null if the buckets have to be computed from the readings.
+     */
+    private static ReadingRollup.Resolution getRollupResolution(Date selectedDate, long resolutionSeconds) {
+        long dayStartSeconds = selectedDate.getTime() / 1_000L;
+        ReadingRollup.Resolution[] resolutions = ReadingRollup.Resolution.values();
+        for (int i = resolutions.length - 1; i >= 0; i--) {
+            ReadingRollup.Resolution resolution = resolutions[i];
+            if (resolutionSeconds % resolution.getSeconds() == 0 && resolution.bucketStart(dayStartSeconds) == dayStartSeconds) {
+                return resolution;
+            }
+        }
+        return null;
+    }
 
-            Calendar calDetail = Calendar.getInstance();
+    /**
+     * Merges chronologically ordered rollups into buckets of a coarser resolution.
+     * The minimum and maximum of a channel are those of its rollups, and its average is weighted by the count of every rollup.
+     *
+     * @param rollups           The rollups, in chronological order.
+     * @param originSeconds     The start of the first bucket, in seconds since the epoch.
+     * @param resolutionSeconds The width of a bucket in seconds, a multiple of the width of the rollups.
+     * @return The buckets holding readings, in chronological order.
+     */
+    private static List<ReadingBucketDTO> mergeBuckets(List<ReadingBucketDTO> rollups, long originSeconds, long resolutionSeconds) {
+        List<ReadingBucketDTO> buckets = new ArrayList<>();
+        Map<String, ReadingBucketDTO.ChannelStats> channels = new HashMap<>();
+        Map<String, Double> sums = new HashMap<>();
+        long bucketStart = 0;
+        int count = 0;
+        for (ReadingBucketDTO rollup : rollups) {
+            long start = originSeconds + Math.floorDiv(rollup.getTimestamp().getSeconds() - originSeconds, resolutionSeconds) * resolutionSeconds;
+            if (count > 0 && start != bucketStart) {
+                buckets.add(toMergedBucket(bucketStart, count, channels, sums));
+                channels = new HashMap<>();
+                sums = new HashMap<>();
+                count = 0;
+            }
+            bucketStart = start;
+            count += rollup.getCount();
+
+            for (Map.Entry<String, ReadingBucketDTO.ChannelStats> entry : rollup.getChannels().entrySet()) {
+                ReadingBucketDTO.ChannelStats stats = entry.getValue();
+                ReadingBucketDTO.ChannelStats merged = channels.get(entry.getKey());
+                if (merged == null) {
+                    channels.put(entry.getKey(), new ReadingBucketDTO.ChannelStats(stats.getMin(), stats.getMax(), stats.getAvg(), stats.getCount()));
+                } else {
+                    merged.setMin(Math.min(merged.getMin(), stats.getMin()));
+                    merged.setMax(Math.max(merged.getMax(), stats.getMax()));
+                    merged.setCount(merged.getCount() + stats.getCount());
+                }
+                sums.merge(entry.getKey(), (double) stats.getAvg() * stats.getCount(), Double::sum);
+            }
+        }
+        if (count > 0) {
+            buckets.add(toMergedBucket(bucketStart, count, channels, sums));
+        }
+        return buckets;
+    }
 
-            return sensorDTO.getDetails().stream()
-                    .filter(detail -> {
-                        if (detail.getTimestamp() == null) {
-                            return false;
-                        }
-                        calDetail.setTimeInMillis(detail.getTimestamp().getSeconds() * 1000);
-                        return calSelected.get(Calendar.YEAR) == calDetail.get(Calendar.YEAR) &&
-                                calSelected.get(Calendar.MONTH) == calDetail.get(Calendar.MONTH) &&
-                                calSelected.get(Calendar.DAY_OF_MONTH) == calDetail.get(Calendar.DAY_OF_MONTH);
-                    })
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch sensor data for date: " + selectedDate, e);
+    /**
+     * Completes a bucket merged from rollups by computing the average of every channel.
+     *
+     * @param startSeconds The start of the bucket, in seconds since the epoch.
+     * @param count        The number of readings of the bucket.
+     * @param channels     The statistics of every channel, whose average is overwritten.
+     * @param sums         The sum of the values of every channel.
+     * @return The bucket.
+     */
+    private static ReadingBucketDTO toMergedBucket(long startSeconds, int count, Map<String, ReadingBucketDTO.ChannelStats> channels, Map<String, Double> sums) {
+        for (Map.Entry<String, ReadingBucketDTO.ChannelStats> entry : channels.entrySet()) {
+            ReadingBucketDTO.ChannelStats stats = entry.getValue();
+            stats.setAvg(stats.getCount() == 0 ? 0F : (float) (sums.get(entry.getKey()) / stats.getCount()));
         }
+        return new ReadingBucketDTO(Timestamp.ofTimeSecondsAndNanos(startSeconds, 0), count, channels);
     }
 
     /**
      * Retrieves the last detail for a specific sensor.
+     * The reading is served from the latest reading table; only on a cold start the newest hourly bucket of the sensor is read.
      *
      * @param sensorId The ID of the sensor.
-     * @return The last Details object for the specified sensor, or null if no details are found.
+     * @return A single-reading series holding the last reading of the specified sensor, or null if no readings are found.
      * @throws RuntimeException If an error occurs while fetching the last detail.
      */
     @Override
-    public Details getLastDetailForSensor(String sensorId) throws RuntimeException {
-        try {
-            DocumentReference docRef = firestore.collection(SENSOR_COLLECTION).document(sensorId);
-            DocumentSnapshot snapshot = docRef.get().get();
+    public ReadingSeries getLastDetailForSensor(String sensorId) throws RuntimeException {
+        ReadingSeries cachedDetail = lastDetails.get(sensorId);
+        if (cachedDetail != null) {
+            return cachedDetail;
+        }
 
-            if (!snapshot.exists()) {
-                throw new RuntimeException("Sensor with id: " + sensorId + " doesn't exist!");
+        try {
+            ApiFuture<QuerySnapshot> future = firestore.collection(SENSOR_COLLECTION)
+                    .document(sensorId)
+                    .collection(READINGS_COLLECTION)
+                    .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                    .limit(1)
+                    .get();
+
+            List<QueryDocumentSnapshot> buckets = future.get().getDocuments();
+            ReadingSeries series = new ReadingSeries(getReadingSchema(sensorId));
+            if (!buckets.isEmpty()) {
+                appendReadings(getBucketReadings(buckets.get(0)), series);
             }
 
-            SensorDTO sensorDTO = snapshot.toObject(SensorDTO.class);
-
-            if (sensorDTO == null || sensorDTO.getDetails() == null || sensorDTO.getDetails().isEmpty()) {
+            if (series.isEmpty()) {
                 System.out.println("No details found for sensor with id: " + sensorId);
                 return null;
             }
 
-            return sensorDTO.getDetails().stream()
-                    .filter(d -> d.getTimestamp() != null)
-                    .max(Comparator.comparing(d -> d.getTimestamp().getSeconds()))
-                    .orElse(null);
-
+            rememberLastDetail(sensorId, series.copyRow(series.indexOfLatest()));
+            return lastDetails.get(sensorId);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch last detail for sensor with id: " + sensorId, e);
         }
     }
 
+    /**
+     * Extracts the raw readings array from a readings bucket.
+     *
+     * @param bucket The snapshot of the readings bucket.
+     * @return The list of readings stored in the bucket, or null if the bucket has no readings.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> getBucketReadings(DocumentSnapshot bucket) {
+        return (List<Map<String, Object>>) bucket.get("readings");
+    }
+
     /**
      * Clears all sensor details for a specific sensor ID.
      * @param sensorId The ID of the sensor whose details are to be cleared.
@@ -374,6 +755,9 @@ public class SensorServiceImpl implements SensorService {
                 throw new RuntimeException("Sensor with id: " + sensorId + " doesn't exist!");
             }
 
+            deleteReadings(sensorRef);
+            lastDetails.remove(sensorId);
+
             Sensor sensor = sensorSnapshot.toObject(Sensor.class);
             if (sensor != null) {
                 sensor.setDetails(new ArrayList<>());
@@ -384,6 +768,40 @@ public class SensorServiceImpl implements SensorService {
         }
     }
 
+    /**
+     * Deletes every bucket from the readings subcollection of a sensor, and the rollups of its readings.
+     * @param sensorRef The reference of the sensor whose readings are to be deleted.
+     * @throws Exception If an error occurs while deleting the readings.
+     */
+    private void deleteReadings(DocumentReference sensorRef) throws Exception {
+        deleteCollection(sensorRef.collection(READINGS_COLLECTION));
+        for (ReadingRollup.Resolution resolution : ReadingRollup.Resolution.values()) {
+            deleteCollection(sensorRef.collection(resolution.collection()));
+        }
+    }
+
+    /**
+     * Deletes every document of a subcollection of a sensor.
+     * The documents are deleted in batches, so a long history doesn't need one round trip per document.
+     * @param collectionRef The reference of the subcollection.
+     * @throws Exception If an error occurs while deleting the documents.
+     */
+    private void deleteCollection(CollectionReference collectionRef) throws Exception {
+        List<QueryDocumentSnapshot> documents;
+        do {
+            documents = collectionRef.limit(MAX_BATCH_SIZE).get().get().getDocuments();
+            if (documents.isEmpty()) {
+                return;
+            }
+
+            WriteBatch batch = firestore.batch();
+            for (QueryDocumentSnapshot document : documents) {
+                batch.delete(document.getReference());
+            }
+            batch.commit().get();
+        } while (documents.size() == MAX_BATCH_SIZE);
+    }
+
     /**
      * Clears sensor details from a specific room.
      * @param roomId The ID of the room from which to clear sensor details.
@@ -430,6 +848,7 @@ public class SensorServiceImpl implements SensorService {
             for (String sensorId : sensorIds) {
                 DocumentReference docRef = firestore.collection(SENSOR_COLLECTION).document(sensorId);
                 docRef.update("active", true).get();
+                evictSensorMetadata(sensorId);
             }
 
             // Update also in ROOMS collection
@@ -474,6 +893,7 @@ public class SensorServiceImpl implements SensorService {
             for (String sensorId : sensorIds) {
                 DocumentReference docRef = firestore.collection(SENSOR_COLLECTION).document(sensorId);
                 docRef.update("active", false).get();
+                evictSensorMetadata(sensorId);
             }
 
             // Deactivate sensors in rooms
@@ -515,6 +935,7 @@ public class SensorServiceImpl implements SensorService {
         try {
             DocumentReference sensorRef = firestore.collection(SENSOR_COLLECTION).document(sensorId);
             sensorRef.update("active", status).get();
+            evictSensorMetadata(sensorId);
 
             // Update the status in the ROOMS collection as well
             // Only one room can have the sensor, so we can use a simple query
@@ -0,0 +1,210 @@
+/**
+ * SystemThresholdServiceImpl.java
+ * This file is part of the Spring Project.
+ * It is used to implement the SystemThresholdService interface.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.service.implementation;
+
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.springproject.entity.SystemThreshold;
+import org.example.springproject.service.SystemThresholdService;
+import org.example.springproject.util.AlertRule;
+import org.example.springproject.util.AlertRuleSet;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SystemThresholdServiceImpl is a service class that implements the SystemThresholdService interface.
+ * It keeps the system thresholds in memory and reloads them whenever the system_thresholds collection changes,
+ * so the limits can be tuned, globally or for a single room, without a redeploy.
+ * The default thresholds are always loaded first; a stored threshold with the same sensor type and name replaces its default.
+ */
+@Service
+public class SystemThresholdServiceImpl implements SystemThresholdService {
+
+    /**
+     * Firestore instance used to interact with the Firestore database.
+     */
+    private final Firestore firestore;
+
+    /**
+     * The name of the collection in Firestore where the system thresholds are stored.
+     */
+    private static final String SYSTEM_THRESHOLDS_COLLECTION = "system_thresholds";
+
+    /**
+     * The current thresholds, replaced as a whole when the thresholds are reloaded.
+     */
+    private volatile ThresholdTable thresholdTable = new ThresholdTable(List.of());
+
+    /**
+     * The registration of the listener reloading the thresholds, removed when the application is shutting down.
+     */
+    private ListenerRegistration thresholdsListener;
+
+    /**
+     * Constructor for SystemThresholdServiceImpl.
+     * @param firestore The Firestore instance used to interact with the database.
+     */
+    public SystemThresholdServiceImpl(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Starts listening to the system_thresholds collection.
+     * The listener is called with the current thresholds first and then on every change of the collection.
+     */
+    @PostConstruct
+    public void listenForThresholds() {
+        thresholdsListener = firestore.collection(SYSTEM_THRESHOLDS_COLLECTION).addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                System.err.println("Error while listening for system thresholds, keeping the current thresholds: " + error.getMessage());
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+
+            thresholdTable = new ThresholdTable(snapshot.toObjects(SystemThreshold.class));
+            System.out.println("Loaded " + thresholdTable.thresholds.size() + " system thresholds");
+        });
+    }
+
+    /**
+     * Stops listening to the system_thresholds collection.
+     */
+    @PreDestroy
+    public void stopListening() {
+        if (thresholdsListener != null) {
+            thresholdsListener.remove();
+        }
+    }
+
+    /**
+     * Retrieves all the system thresholds, including the room overrides.
+     * @return A list of SystemThreshold objects.
+     */
+    @Override
+    public List<SystemThreshold> getThresholds() {
+        return thresholdTable.thresholds;
+    }
+
+    /**
+     * Retrieves the compiled system thresholds checked for a sensor type in a room.
+     * The thresholds of a room and sensor type are resolved once and then served with two lookups.
+     * @param sensorType The type of the sensor.
+     * @param roomId The ID of the room the sensor is located in.
+     * @return The rules of the thresholds, or an empty set if the sensor type has none.
+     */
+    @Override
+    public AlertRuleSet getRules(String sensorType, String roomId) {
+        if (sensorType == null) {
+            return AlertRuleSet.EMPTY;
+        }
+        return thresholdTable.resolve(sensorType, roomId);
+    }
+
+    /**
+     * Creates the thresholds that were hardcoded in the MQTT pipeline before they were stored in Firestore.
+     * @return The list of default thresholds.
+     */
+    private static List<SystemThreshold> defaultThresholds() {
+        return List.of(
+                new SystemThreshold("temperature-too-high", "DHT22", "temperature", ">", 50, "Temperature in room: {room} is too high: {value} °C"),
+                new SystemThreshold("temperature-too-low", "DHT22", "temperature", "<", -15, "Temperature in room: {room} is too low: {value} °C"),
+                new SystemThreshold("humidity-too-high", "DHT22", "humidity", ">", 95, "Humidity in room: {room} is too high: {value} %"),
+                new SystemThreshold("humidity-too-low", "DHT22", "humidity", "<", 10, "Humidity in room: {room} is too low: {value} %"),
+                new SystemThreshold("gas-too-high", "MQ5", "gas", ">", 700, "Gas level in room: {room} is too high: {value}"),
+                new SystemThreshold("gas-too-high", "MQ2", "mq2Value", ">", 800, "Smoke or gas level in room: {room} is too high: {value}")
+        );
+    }
+
+    /**
+     * ThresholdTable is an immutable snapshot of the thresholds, with the rules of every room and sensor type resolved so far.
+     */
+    private static class ThresholdTable {
+
+        /**
+         * The thresholds of the table: the defaults merged with the stored global thresholds, followed by the room overrides.
+         */
+        private final List<SystemThreshold> thresholds;
+
+        /**
+         * The global thresholds, keyed by sensor type and then by name.
+         */
+        private final Map<String, Map<String, SystemThreshold>> globalThresholds = new HashMap<>();
+
+        /**
+         * The room overrides, keyed by room ID, then by sensor type and then by name.
+         */
+        private final Map<String, Map<String, Map<String, SystemThreshold>>> roomThresholds = new HashMap<>();
+
+        /**
+         * The rules resolved so far, keyed by room ID and then by sensor type.
+         */
+        private final Map<String, Map<String, AlertRuleSet>> resolvedRules = new ConcurrentHashMap<>();
+
+        /**
+         * Constructor for ThresholdTable.
+         * Thresholds without a name, sensor type, parameter or with an unsupported condition are ignored.
+         * @param storedThresholds The thresholds stored in Firestore.
+         */
+        private ThresholdTable(List<SystemThreshold> storedThresholds) {
+            List<SystemThreshold> allThresholds = new ArrayList<>(defaultThresholds());
+            allThresholds.addAll(storedThresholds);
+
+            for (SystemThreshold threshold : allThresholds) {
+                if (AlertRule.compile(threshold) == null) {
+                    System.err.println("Ignoring invalid system threshold: " + threshold.getSensorType() + "/" + threshold.getName());
+                    continue;
+                }
+
+                Map<String, Map<String, SystemThreshold>> byType = threshold.getRoomId() == null
+                        ? globalThresholds
+                        : roomThresholds.computeIfAbsent(threshold.getRoomId(), roomId -> new HashMap<>());
+                byType.computeIfAbsent(threshold.getSensorType(), sensorType -> new LinkedHashMap<>()).put(threshold.getName(), threshold);
+            }
+
+            List<SystemThreshold> merged = new ArrayList<>();
+            globalThresholds.values().forEach(byName -> merged.addAll(byName.values()));
+            roomThresholds.values().forEach(byType -> byType.values().forEach(byName -> merged.addAll(byName.values())));
+            this.thresholds = Collections.unmodifiableList(merged);
+        }
+
+        /**
+         * Gets the rules of a sensor type in a room, merging the overrides of the room only the first time they are requested.
+         * @param sensorType The type of the sensor.
+         * @param roomId The ID of the room, or null for the global thresholds only.
+         * @return The rules of the enabled thresholds.
+         */
+        private AlertRuleSet resolve(String sensorType, String roomId) {
+            String roomKey = roomId != null ? roomId : "";
+            Map<String, AlertRuleSet> roomRules = resolvedRules.computeIfAbsent(roomKey, key -> new ConcurrentHashMap<>());
+            AlertRuleSet resolved = roomRules.get(sensorType);
+            if (resolved != null) {
+                return resolved;
+            }
+
+            Map<String, SystemThreshold> effective = new LinkedHashMap<>(globalThresholds.getOrDefault(sensorType, Map.of()));
+            if (roomId != null) {
+                effective.putAll(roomThresholds.getOrDefault(roomId, Map.of()).getOrDefault(sensorType, Map.of()));
+            }
+
+            List<AlertRule> rules = new ArrayList<>();
+            for (SystemThreshold threshold : effective.values()) {
+                if (threshold.isEnabled()) {
+                    rules.add(AlertRule.compile(threshold));
+                }
+            }
+            resolved = AlertRuleSet.of(rules);
+            roomRules.put(sensorType, resolved);
+            return resolved;
+        }
+    }
+}
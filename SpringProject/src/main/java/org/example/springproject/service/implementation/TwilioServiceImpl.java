@@ -48,10 +48,7 @@ public class TwilioServiceImpl implements TwilioService {
     @Override
     public void makeCall(String toNumber) {
         try{
-            Call call = Call.creator(
-                    new PhoneNumber(toNumber),
-                    new PhoneNumber(phoneNumber),
-                    URI.create("http://demo.twilio.com/docs/voice.xml")).create();
+            deliverCall(toNumber);
         }catch (Exception e){
             System.err.println("Failed to make call: " + e.getMessage());
         }
@@ -65,13 +62,37 @@ public class TwilioServiceImpl implements TwilioService {
     @Override
     public void sendSms(String toNumber, String body){
         try{
-            Message message = Message.creator(
-                    new PhoneNumber(toNumber),
-                    new PhoneNumber(phoneNumber),
-                    body).create();
+            deliverSms(toNumber, body);
         }catch (Exception e){
             System.err.println("Failed to send SMS: " + e.getMessage());
         }
 
     }
+
+    /**
+     * Makes a call to the specified phone number using the Twilio API, letting the failure propagate.
+     * @param toNumber The phone number to call.
+     * @throws RuntimeException if Twilio rejects the call or can't be reached.
+     */
+    @Override
+    public void deliverCall(String toNumber) {
+        Call.creator(
+                new PhoneNumber(toNumber),
+                new PhoneNumber(phoneNumber),
+                URI.create("http://demo.twilio.com/docs/voice.xml")).create();
+    }
+
+    /**
+     * Sends an SMS to the specified phone number using the Twilio API, letting the failure propagate.
+     * @param toNumber The phone number to send the SMS to.
+     * @param body The body of the SMS message.
+     * @throws RuntimeException if Twilio rejects the SMS or can't be reached.
+     */
+    @Override
+    public void deliverSms(String toNumber, String body){
+        Message.creator(
+                new PhoneNumber(toNumber),
+                new PhoneNumber(phoneNumber),
+                body).create();
+    }
 }
@@ -12,6 +12,7 @@ import org.example.springproject.dto.UserDTO;
 import org.example.springproject.entity.User;
 import org.example.springproject.service.UserService;
 import org.example.springproject.util.EncryptionService;
+import org.example.springproject.util.RoomContextCache;
 import org.example.springproject.util.UserMapper;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -45,6 +46,11 @@ public class UserServiceImpl implements UserService {
      */
     private final EncryptionService encryptionService;
 
+    /**
+     * Cache of the room contexts used by the MQTT pipeline, invalidated when a user changes.
+     */
+    private final RoomContextCache roomContextCache;
+
     /**
      * The name of the Firestore collection for rooms.
      */
@@ -59,9 +65,11 @@ public class UserServiceImpl implements UserService {
      * Constructor for UserServiceImpl.
      * @param firestore The Firestore instance for database operations.
      * @param encryptionService The EncryptionService instance for phone number encryption.
+     * @param roomContextCache The cache of the room contexts used by the MQTT pipeline.
      */
-    public UserServiceImpl(Firestore firestore,EncryptionService encryptionService) {
+    public UserServiceImpl(Firestore firestore,EncryptionService encryptionService, RoomContextCache roomContextCache) {
         this.encryptionService = encryptionService;
+        this.roomContextCache = roomContextCache;
         this.passwordEncoder = new BCryptPasswordEncoder();
         this.firestore = firestore;
     }
@@ -142,6 +150,7 @@ public class UserServiceImpl implements UserService {
             User user = userSnapshot.toObject(User.class);
 
             userRef.delete().get();
+            roomContextCache.invalidateUser(id);
             assert user != null;
             return new UserDTO(id,user.getName(),user.getEmail());
         } catch (Exception e) {
@@ -179,6 +188,7 @@ public class UserServiceImpl implements UserService {
 
 
             userRef.set(currentUser).get();
+            roomContextCache.invalidateUser(id);
             return new UserDTO(id, currentUser.getName(), currentUser.getEmail());
         } catch (Exception e) {
             throw new RuntimeException("Error while updating the user: " + e.getMessage(), e);
@@ -343,6 +353,7 @@ public class UserServiceImpl implements UserService {
             String encryptedPhone = encryptionService.encrypt(phone);
             updates.put("phone", encryptedPhone);
             documentReference.update(updates);
+            roomContextCache.invalidateUser(userId);
         } catch (Exception e) {
             throw new RuntimeException("Error while updating the user's phone: " + e);
         }
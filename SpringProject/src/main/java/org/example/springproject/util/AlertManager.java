@@ -1,7 +1,7 @@
 /**
  * AlertManager.java
  * This class is responsible for managing alert notifications in the system.
- * It sends email notifications to users when an alert is triggered by a sensor.
+ * It composes and sends the email notifications of the alerts triggered by the sensors.
  * It uses Spring's MailSender to send emails and SimpleMailMessage as a template for the email content.
  * @author Ilea Robert-Ioan
  */
@@ -10,15 +10,20 @@ package org.example.springproject.util;
 import org.example.springproject.entity.Alert;
 import org.example.springproject.entity.Sensor;
 import org.example.springproject.entity.User;
-import org.example.springproject.service.RoomService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.MailSender;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * AlertManager is a component that handles sending alert emails to users.
+ * The emails are delivered by the NotificationDispatcher, which calls it from its own workers.
+ * The digests of several users are sent together, so they share a single SMTP connection.
  */
 @Component
 public class AlertManager {
@@ -32,22 +37,15 @@ public class AlertManager {
      */
     private SimpleMailMessage templateMessage;
 
-    /**
-     * The RoomService used to retrieve room information.
-     */
-    private final RoomService roomService;
-
     /**
      * Constructor for AlertManager.
      * @param mailSender the MailSender to use for sending emails
      * @param templateMessage the template message for alert emails
-     * @param roomService the RoomService to retrieve room information
      */
     @Autowired
-    public AlertManager(MailSender mailSender, SimpleMailMessage templateMessage, RoomService roomService) {
+    public AlertManager(MailSender mailSender, SimpleMailMessage templateMessage) {
         this.mailSender = mailSender;
         this.templateMessage = templateMessage;
-        this.roomService = roomService;
     }
 
     /**
@@ -67,32 +65,80 @@ public class AlertManager {
     }
 
     /**
-     * Sends an alert email to the user when a sensor detects an alert.
-     * @param user the User to whom the alert email will be sent
+     * Composes the alert email sent to the owner of the room when a sensor detects an alert.
+     * The room name and the owner are taken from the room context, so no lookup is needed to compose the email.
+     * @param roomContext the context of the room, holding the owner to whom the alert email will be sent
      * @param alert the Alert that triggered the email
      * @param sensor the Sensor that detected the alert
+     * @return the text of the email
+     */
+    public String composeEmail(RoomContext roomContext, Alert alert, Sensor sensor) {
+        User user = roomContext.getOwnerAsUser();
+        return "Dear " + user.getName() + ",\n\n" +
+                "The sensor **" + sensor.getSensorType() + "** in room **" + roomContext.getRoomName() + "**\n" +
+                "has detected an alert:\n\n" +
+                alert.getMessage() + "\n\n" +
+                "Please check the system as soon as possible.\n\n" +
+                "Best regards,\nRoom Monitoring System!";
+    }
+
+    /**
+     * Sends an alert email.
+     * Failures are not caught, so the NotificationDispatcher can retry the delivery.
+     * @param email the email address the alert email will be sent to
+     * @param text the text of the email
+     * @throws MailException if the email can't be sent
      */
-    public void sendEmail(User user, Alert alert, Sensor sensor) {
-        System.out.println("Sending alert email to: " + user.getEmail());
+    public void deliverEmail(String email, String text) throws MailException {
+        System.out.println("Sending alert email to: " + email);
 
         // Creating a thread-safe "copy" of the template message and then customize it
         SimpleMailMessage message = new SimpleMailMessage(this.templateMessage);
-        message.setTo(user.getEmail());
-        message.setText(
-                "Dear " + user.getName() + ",\n\n" +
-                        "The sensor **" + sensor.getSensorType() + "** in room **" + roomService.getRoomById(alert.getRoomId()).getName() + "**\n" +
-                        "has detected an alert:\n\n" +
-                        alert.getMessage() + "\n\n" +
-                        "Please check the system as soon as possible.\n\n" +
-                        "Best regards,\nRoom Monitoring System!"
-        );
+        message.setTo(email);
+        message.setText(text);
 
-        try {
-            this.mailSender.send(message);
-            System.out.println("@ Alert email sent! @");
+        this.mailSender.send(message);
+        System.out.println("@ Alert email sent! @");
+    }
+
+    /**
+     * Sends several alert emails in a single call to the MailSender, so they share one SMTP connection and one TLS handshake.
+     * A connection or authentication failure is not caught, so the NotificationDispatcher can retry all the emails;
+     * when only some of the emails are rejected, their recipients are returned instead.
+     * @param textByEmail the text of the email sent to every email address
+     * @return the error of every email address the email couldn't be sent to, empty if all the emails were sent
+     * @throws MailException if none of the emails can be sent
+     */
+    public Map<String, String> deliverEmails(Map<String, String> textByEmail) throws MailException {
+        System.out.println("Sending " + textByEmail.size() + " alert emails in one session");
+
+        SimpleMailMessage[] messages = new SimpleMailMessage[textByEmail.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : textByEmail.entrySet()) {
+            SimpleMailMessage message = new SimpleMailMessage(this.templateMessage);
+            message.setTo(entry.getKey());
+            message.setText(entry.getValue());
+            messages[i++] = message;
         }
-        catch (MailException ex) {
-            System.err.println(ex.getMessage());
+
+        try {
+            this.mailSender.send(messages);
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                throw e;
+            }
+            Map<String, String> failed = new HashMap<>();
+            e.getFailedMessages().forEach((message, error) -> {
+                if (message instanceof SimpleMailMessage simpleMessage && simpleMessage.getTo() != null) {
+                    failed.put(simpleMessage.getTo()[0], error.getMessage());
+                }
+            });
+            if (failed.isEmpty() || failed.size() == messages.length) {
+                throw e;
+            }
+            return failed;
         }
+        System.out.println("@ Alert emails sent! @");
+        return Map.of();
     }
 }
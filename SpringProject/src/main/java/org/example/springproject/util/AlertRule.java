@@ -0,0 +1,331 @@
+/**
+ * AlertRule.java
+ * This class is the compiled form of a custom alert or a system threshold, evaluated by the MQTT pipeline for every reading.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.example.springproject.entity.CustomAlert;
+import org.example.springproject.entity.SystemThreshold;
+
+/**
+ * AlertRule is an immutable alert condition whose operator was resolved into a ComparisonOperator.
+ * Custom alerts and system thresholds are both compiled into rules, so they are evaluated and de-duplicated the same way.
+ */
+public class AlertRule implements TrackedRule {
+
+    /**
+     * The placeholder replaced by the name of the room in the message of a rule.
+     */
+    public static final String ROOM_PLACEHOLDER = "{room}";
+
+    /**
+     * The placeholder replaced by the value of the reading in the message of a rule.
+     */
+    public static final String VALUE_PLACEHOLDER = "{value}";
+
+    /**
+     * The ID of the rule: the ID of the custom alert document, or "system:" followed by the sensor type and the name of the threshold.
+     */
+    private final String id;
+
+    /**
+     * The ID of the room the rule was defined for, or null if it applies to every room.
+     */
+    private final String roomId;
+
+    /**
+     * The ID of the sensor the rule watches, or null if it applies to every sensor of a type.
+     */
+    private final String sensorId;
+
+    /**
+     * The parameter of the readings the rule watches (temperature, humidity etc.).
+     */
+    private final String parameter;
+
+    /**
+     * The operator the readings are compared with.
+     */
+    private final ComparisonOperator operator;
+
+    /**
+     * The threshold the readings are compared against.
+     */
+    private final float threshold;
+
+    /**
+     * The message of the alerts raised by the rule, which may contain the room and value placeholders.
+     */
+    private final String message;
+
+    /**
+     * The aggregation of the readings compared against the threshold.
+     */
+    private final WindowAggregation aggregation;
+
+    /**
+     * The length, in seconds, of the window of the avg, min, max and rate aggregations.
+     */
+    private final int windowSeconds;
+
+    /**
+     * The number M of latest readings the count aggregation looks at.
+     */
+    private final int windowSamples;
+
+    /**
+     * The number N of readings out of the last M that must meet the condition for the count aggregation to raise an alert.
+     */
+    private final int requiredSamples;
+
+    /**
+     * Constructor for AlertRule.
+     * @param id the ID of the rule
+     * @param roomId the ID of the room the rule was defined for, or null if it applies to every room
+     * @param sensorId the ID of the sensor the rule watches, or null if it applies to every sensor of a type
+     * @param parameter the parameter of the readings the rule watches
+     * @param operator the operator the readings are compared with
+     * @param threshold the threshold the readings are compared against
+     * @param message the message of the alerts raised by the rule
+     */
+    public AlertRule(String id, String roomId, String sensorId, String parameter, ComparisonOperator operator, float threshold, String message) {
+        this(id, roomId, sensorId, parameter, operator, threshold, message, WindowAggregation.VALUE, 0, 0, 0);
+    }
+
+    /**
+     * Constructor for AlertRule comparing an aggregation of the readings against the threshold.
+     * @param id the ID of the rule
+     * @param roomId the ID of the room the rule was defined for, or null if it applies to every room
+     * @param sensorId the ID of the sensor the rule watches, or null if it applies to every sensor of a type
+     * @param parameter the parameter of the readings the rule watches
+     * @param operator the operator the readings are compared with
+     * @param threshold the threshold the readings are compared against
+     * @param message the message of the alerts raised by the rule
+     * @param aggregation the aggregation of the readings compared against the threshold
+     * @param windowSeconds the length, in seconds, of the window of the avg, min, max and rate aggregations
+     * @param windowSamples the number M of latest readings the count aggregation looks at
+     * @param requiredSamples the number N of readings out of the last M that must meet the condition for the count aggregation
+     */
+    public AlertRule(String id, String roomId, String sensorId, String parameter, ComparisonOperator operator, float threshold, String message,
+                     WindowAggregation aggregation, int windowSeconds, int windowSamples, int requiredSamples) {
+        this.id = id;
+        this.roomId = roomId;
+        this.sensorId = sensorId;
+        this.parameter = parameter;
+        this.operator = operator;
+        this.threshold = threshold;
+        this.message = message;
+        this.aggregation = aggregation;
+        this.windowSeconds = windowSeconds;
+        this.windowSamples = windowSamples;
+        this.requiredSamples = requiredSamples;
+    }
+
+    /**
+     * Compiles a custom alert into a rule.
+     * @param alertId the ID of the custom alert document
+     * @param customAlert the custom alert
+     * @return the compiled rule, or null if the custom alert has no sensor, no parameter, an unsupported condition or an invalid window
+     */
+    public static AlertRule compile(String alertId, CustomAlert customAlert) {
+        ComparisonOperator operator = ComparisonOperator.fromSymbol(customAlert.getCondition());
+        WindowAggregation aggregation = WindowAggregation.fromName(customAlert.getAggregation());
+        if (operator == null || aggregation == null || customAlert.getSensorId() == null || customAlert.getParameter() == null) {
+            return null;
+        }
+        if (aggregation == WindowAggregation.COUNT) {
+            if (customAlert.getRequiredSamples() <= 0 || customAlert.getWindowSamples() < customAlert.getRequiredSamples()) {
+                return null;
+            }
+        } else if (aggregation != WindowAggregation.VALUE && customAlert.getWindowSeconds() <= 0) {
+            return null;
+        }
+        return new AlertRule(alertId, customAlert.getRoomId(), customAlert.getSensorId(), customAlert.getParameter(),
+                operator, customAlert.getThreshold(), customAlert.getMessage(),
+                aggregation, customAlert.getWindowSeconds(), customAlert.getWindowSamples(), customAlert.getRequiredSamples());
+    }
+
+    /**
+     * Compiles a system threshold into a rule.
+     * @param systemThreshold the system threshold
+     * @return the compiled rule, or null if the threshold has no sensor type, no name, no parameter or an unsupported condition
+     */
+    public static AlertRule compile(SystemThreshold systemThreshold) {
+        ComparisonOperator operator = ComparisonOperator.fromSymbol(systemThreshold.getCondition());
+        if (operator == null || systemThreshold.getSensorType() == null || systemThreshold.getName() == null || systemThreshold.getParameter() == null) {
+            return null;
+        }
+        return new AlertRule("system:" + systemThreshold.getSensorType() + ":" + systemThreshold.getName(), systemThreshold.getRoomId(), null,
+                systemThreshold.getParameter(), operator, systemThreshold.getThreshold(), systemThreshold.getMessage());
+    }
+
+    /**
+     * Checks whether a reading, or the aggregation of the window if the rule is windowed, meets the condition of the rule.
+     * For the count aggregation, the value is the number of readings of the window that meet the condition.
+     * @param value the value of the parameter watched by the rule, or its aggregation
+     * @return true if an alert should be raised, false otherwise
+     */
+    public boolean matches(float value) {
+        if (aggregation == WindowAggregation.COUNT) {
+            return value >= requiredSamples;
+        }
+        return operator.test(value, threshold);
+    }
+
+    /**
+     * Checks whether a single reading meets the condition of the rule, regardless of the aggregation.
+     * @param value the value of the parameter watched by the rule
+     * @return true if the reading meets the condition, false otherwise
+     */
+    public boolean matchesSample(float value) {
+        return operator.test(value, threshold);
+    }
+
+    /**
+     * Checks whether a reading, or the aggregation of the window if the rule is windowed, allows an active alert of the rule to be cleared.
+     * The count aggregation is cleared as soon as fewer than N readings of the window meet the condition.
+     * The band is a fraction of the threshold, but never narrower than the minimum band, so a threshold at or near 0 still has one.
+     * @param value the value of the parameter watched by the rule, or its aggregation
+     * @param hysteresisRatio the fraction of the threshold the reading must move back past the threshold
+     * @param minBand the minimum distance, in the unit of the parameter, the reading must move back past the threshold
+     * @return true if the alert can be cleared, false otherwise
+     */
+    public boolean clears(float value, float hysteresisRatio, float minBand) {
+        if (aggregation == WindowAggregation.COUNT) {
+            return value < requiredSamples;
+        }
+        return operator.clears(value, threshold, Math.max(Math.abs(threshold) * hysteresisRatio, minBand));
+    }
+
+    /**
+     * Checks whether the readings are aggregated over a window before they are compared against the threshold.
+     * @return true if the rule needs a window, false if every reading is compared on its own
+     */
+    public boolean isWindowed() {
+        return aggregation != WindowAggregation.VALUE;
+    }
+
+    /**
+     * Checks whether another rule evaluates the readings exactly like this one, so the state kept for this rule stays valid for it.
+     * @param other the other rule
+     * @return true if the parameter, condition and window are the same, false otherwise
+     */
+    @Override
+    public boolean hasSameCondition(TrackedRule other) {
+        if (!(other instanceof AlertRule rule)) {
+            return false;
+        }
+        return parameter.equals(rule.parameter)
+                && operator == rule.operator
+                && threshold == rule.threshold
+                && aggregation == rule.aggregation
+                && windowSeconds == rule.windowSeconds
+                && windowSamples == rule.windowSamples
+                && requiredSamples == rule.requiredSamples;
+    }
+
+    /**
+     * Builds the message of an alert raised by the rule.
+     * It is only called when an alert is raised, so the placeholders cost nothing for the other readings.
+     * @param roomName the name of the room the reading comes from
+     * @param value the value of the reading
+     * @return the message with the placeholders replaced, or a generic message if the rule has none
+     */
+    public String formatMessage(String roomName, float value) {
+        if (message == null || message.isBlank()) {
+            String subject = isWindowed() && aggregation != WindowAggregation.COUNT ? aggregation.getName() + " of " + parameter : parameter;
+            return subject + " in room: " + roomName + " is " + operator.getSymbol() + " " + threshold + ": " + value;
+        }
+        return message.replace(ROOM_PLACEHOLDER, String.valueOf(roomName)).replace(VALUE_PLACEHOLDER, String.valueOf(value));
+    }
+
+    /**
+     * Gets the ID of the rule.
+     * @return the ID of the rule
+     */
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the ID of the room the rule was defined for.
+     * @return the ID of the room, or null if the rule applies to every room
+     */
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /**
+     * Gets the ID of the sensor the rule watches.
+     * @return the ID of the sensor, or null if the rule applies to every sensor of a type
+     */
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    /**
+     * Gets the parameter of the readings the rule watches.
+     * @return the parameter, for example "temperature"
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Gets the operator the readings are compared with.
+     * @return the operator
+     */
+    public ComparisonOperator getOperator() {
+        return operator;
+    }
+
+    /**
+     * Gets the threshold the readings are compared against.
+     * @return the threshold
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Gets the message of the alerts raised by the rule.
+     * @return the message, which may contain the room and value placeholders
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the aggregation of the readings compared against the threshold.
+     * @return the aggregation
+     */
+    public WindowAggregation getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * Gets the length of the window of the avg, min, max and rate aggregations.
+     * @return the length of the window in seconds
+     */
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * Gets the number of latest readings the count aggregation looks at.
+     * @return the number M of readings
+     */
+    public int getWindowSamples() {
+        return windowSamples;
+    }
+
+    /**
+     * Gets the number of readings that must meet the condition for the count aggregation to raise an alert.
+     * @return the number N of readings
+     */
+    public int getRequiredSamples() {
+        return requiredSamples;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * AlertRuleSet.java
+ * This class holds a set of alert rules grouped by the parameter they watch.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import java.util.*;
+
+/**
+ * AlertRuleSet is an immutable group of rules, looked up by parameter while the channels of a reading are walked.
+ * The rules of a parameter are kept in an array, so evaluating them doesn't allocate an iterator.
+ */
+public final class AlertRuleSet {
+
+    /**
+     * The set without any rule.
+     */
+    public static final AlertRuleSet EMPTY = new AlertRuleSet(Map.of());
+
+    /**
+     * The rules, keyed by the parameter they watch.
+     */
+    private final Map<String, AlertRule[]> rulesByParameter;
+
+    /**
+     * Constructor for AlertRuleSet.
+     * @param rulesByParameter the rules keyed by the parameter they watch
+     */
+    private AlertRuleSet(Map<String, AlertRule[]> rulesByParameter) {
+        this.rulesByParameter = rulesByParameter;
+    }
+
+    /**
+     * Creates a set from a collection of rules.
+     * @param rules the rules
+     * @return a set grouping the rules by parameter, or the empty set if there are no rules
+     */
+    public static AlertRuleSet of(Collection<AlertRule> rules) {
+        if (rules.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<String, List<AlertRule>> grouped = new HashMap<>();
+        for (AlertRule rule : rules) {
+            grouped.computeIfAbsent(rule.getParameter(), parameter -> new ArrayList<>()).add(rule);
+        }
+
+        Map<String, AlertRule[]> rulesByParameter = new HashMap<>();
+        for (Map.Entry<String, List<AlertRule>> entry : grouped.entrySet()) {
+            rulesByParameter.put(entry.getKey(), entry.getValue().toArray(new AlertRule[0]));
+        }
+        return new AlertRuleSet(rulesByParameter);
+    }
+
+    /**
+     * Gets the rules watching a parameter.
+     * @param parameter the parameter, for example "temperature"
+     * @return the rules watching the parameter, or null if there are none
+     */
+    public AlertRule[] getRules(String parameter) {
+        return rulesByParameter.get(parameter);
+    }
+
+    /**
+     * Checks whether the set contains no rules.
+     * @return true if the set is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return rulesByParameter.isEmpty();
+    }
+}
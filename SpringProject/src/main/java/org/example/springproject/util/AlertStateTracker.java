@@ -0,0 +1,245 @@
+/**
+ * AlertStateTracker.java
+ * This class keeps the state of every alert rule of every sensor, so an incident raises one alert instead of one per reading.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AlertStateTracker runs a small state machine per (sensor, rule), or per (room, rule) for the composite rules:
+ * an alert is raised when a reading first meets the rule, then stays active until the readings move back past
+ * the threshold by a hysteresis band. While it is active, further readings only raise a reminder once the reminder interval elapsed,
+ * and an incident starting again within the cool-down of the last notification is not raised at all.
+ * The time is taken from the server clock, so devices with a wrong clock don't break the windows.
+ */
+@Component
+public class AlertStateTracker {
+
+    /**
+     * The fraction of the threshold a reading must move back past the threshold before an active alert is cleared.
+     */
+    private final float hysteresisRatio;
+
+    /**
+     * The minimum width of the hysteresis band, in the unit of the parameter, so a threshold at or near 0 still has a band.
+     */
+    private final float hysteresisMinBand;
+
+    /**
+     * The minimum time, in milliseconds, between two notifications of an alert that stays active.
+     */
+    private final long reminderIntervalMillis;
+
+    /**
+     * The minimum time, in milliseconds, between the last notification of an alert and the notification of a new incident of the same alert.
+     */
+    private final long cooldownMillis;
+
+    /**
+     * The states of the rules, keyed by sensor ID (room ID for the composite rules) and then by rule ID.
+     */
+    private final Map<String, Map<String, AlertState>> states = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for AlertStateTracker.
+     * @param hysteresisRatio the fraction of the threshold used as hysteresis band, injected from application properties
+     * @param hysteresisMinBand the minimum width of the hysteresis band, injected from application properties
+     * @param reminderIntervalMillis the minimum time between two notifications of an active alert, injected from application properties
+     * @param cooldownMillis the minimum time between two incidents of the same alert, injected from application properties
+     */
+    public AlertStateTracker(@Value("${alerts.hysteresis-ratio}") float hysteresisRatio,
+                             @Value("${alerts.hysteresis-min-band}") float hysteresisMinBand,
+                             @Value("${alerts.reminder-interval-ms}") long reminderIntervalMillis,
+                             @Value("${alerts.cooldown-ms}") long cooldownMillis) {
+        this.hysteresisRatio = hysteresisRatio;
+        this.hysteresisMinBand = hysteresisMinBand;
+        this.reminderIntervalMillis = reminderIntervalMillis;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * Feeds a reading to the state of a rule and decides whether an alert should be raised for it.
+     * @param sensorId the ID of the sensor the reading comes from
+     * @param rule the rule watching the reading
+     * @param value the value of the parameter watched by the rule
+     * @return true if an alert should be saved and the user notified, false if the reading is suppressed
+     */
+    public boolean shouldRaise(String sensorId, AlertRule rule, float value) {
+        return shouldRaise(sensorId, rule, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Feeds a reading to the state of a rule and decides whether an alert should be raised for it.
+     * @param sensorId the ID of the sensor the reading comes from
+     * @param rule the rule watching the reading
+     * @param value the value of the parameter watched by the rule
+     * @param now the current time in milliseconds since the epoch
+     * @return true if an alert should be saved and the user notified, false if the reading is suppressed
+     */
+    public boolean shouldRaise(String sensorId, AlertRule rule, float value, long now) {
+        boolean triggered = rule.matches(value);
+        return shouldRaise(sensorId, rule, triggered, !triggered && rule.clears(value, hysteresisRatio, hysteresisMinBand), now);
+    }
+
+    /**
+     * Feeds the evaluation of a composite rule on the live state of a room to the state of the rule
+     * and decides whether an alert should be raised for it.
+     * @param roomId the ID of the room whose live state was evaluated
+     * @param rule the composite rule
+     * @param state the live state of the room
+     * @param now the timestamp of the reading that changed the live state, in seconds since the epoch
+     * @return true if an alert should be saved and the user notified, false if the evaluation is suppressed
+     */
+    public boolean shouldRaise(String roomId, CompositeAlertRule rule, RoomLiveState state, long now) {
+        boolean triggered = rule.matches(state, now);
+        return shouldRaise(roomId, rule, triggered, !triggered && rule.clears(state, now, hysteresisRatio, hysteresisMinBand), System.currentTimeMillis());
+    }
+
+    /**
+     * Drops the states of a removed rule, for every sensor or room it was evaluated for,
+     * so they are not kept for as long as the application runs, nor picked up by a new rule reusing its ID.
+     * @param ruleId the ID of the removed rule
+     */
+    public void evict(String ruleId) {
+        for (Map<String, AlertState> scopeStates : states.values()) {
+            scopeStates.remove(ruleId);
+        }
+    }
+
+    /**
+     * Feeds the evaluation of a rule to its state and decides whether an alert should be raised for it.
+     * The state is looked up, created or replaced atomically, and then moved forward under its own lock,
+     * so concurrent readings of the same sensor never raise an incident twice.
+     * @param scopeId the ID of the sensor or room the rule was evaluated for
+     * @param rule the rule
+     * @param triggered whether the rule is met
+     * @param cleared whether an active alert of the rule can be cleared
+     * @param now the current time in milliseconds since the epoch
+     * @return true if an alert should be saved and the user notified, false otherwise
+     */
+    private boolean shouldRaise(String scopeId, TrackedRule rule, boolean triggered, boolean cleared, long now) {
+        Map<String, AlertState> scopeStates = states.get(scopeId);
+        if (!triggered && scopeStates == null) {
+            // Nothing was ever raised for this sensor or room, so there is nothing to clear
+            return false;
+        }
+        if (scopeStates == null) {
+            scopeStates = states.computeIfAbsent(scopeId, id -> new ConcurrentHashMap<>());
+        }
+
+        AlertState state = scopeStates.compute(rule.getId(), (ruleId, current) -> {
+            if (current != null && current.hasSameCondition(rule)) {
+                return current;
+            }
+            // A rule without a state, or whose condition was modified, starts over with a new state once it is met
+            return triggered ? new AlertState(rule) : null;
+        });
+        return state != null && state.update(triggered, cleared, now);
+    }
+
+    /**
+     * AlertState is the state of a rule for a sensor.
+     */
+    private class AlertState {
+
+        /**
+         * The rule the state belongs to, replaced by its reloaded copy as long as its condition doesn't change.
+         */
+        private TrackedRule rule;
+
+        /**
+         * Whether an incident of the rule is currently active.
+         */
+        private boolean active;
+
+        /**
+         * The time of the last notification, in milliseconds since the epoch, or Long.MIN_VALUE if there was none.
+         */
+        private long lastNotifiedAt = Long.MIN_VALUE;
+
+        /**
+         * The number of readings suppressed since the last notification.
+         */
+        private int suppressed;
+
+        /**
+         * Constructor for AlertState.
+         * @param rule the rule the state belongs to
+         */
+        private AlertState(TrackedRule rule) {
+            this.rule = rule;
+        }
+
+        /**
+         * Checks whether a rule, possibly a reloaded copy, has the same condition as the rule of the state, in which case the state is kept.
+         * @param other the rule
+         * @return true if the conditions are the same, false otherwise
+         */
+        private synchronized boolean hasSameCondition(TrackedRule other) {
+            if (rule == other) {
+                return true;
+            }
+            boolean sameCondition = rule.hasSameCondition(other);
+            if (sameCondition) {
+                rule = other;
+            }
+            return sameCondition;
+        }
+
+        /**
+         * Moves the state machine forward with a reading.
+         * @param triggered whether the reading meets the rule
+         * @param cleared whether the reading moved back past the threshold by the hysteresis band
+         * @param now the current time in milliseconds since the epoch
+         * @return true if an alert should be raised, false otherwise
+         */
+        private synchronized boolean update(boolean triggered, boolean cleared, long now) {
+            if (!active) {
+                if (!triggered) {
+                    return false;
+                }
+                active = true;
+                // An incident starting right after the previous one was notified is treated as the same incident
+                if (lastNotifiedAt != Long.MIN_VALUE && now - lastNotifiedAt < cooldownMillis) {
+                    suppressed++;
+                    return false;
+                }
+                return notifyAt(now);
+            }
+
+            if (cleared) {
+                active = false;
+                return false;
+            }
+            if (!triggered) {
+                // The reading is inside the hysteresis band, so the incident goes on
+                return false;
+            }
+            if (now - lastNotifiedAt >= reminderIntervalMillis) {
+                return notifyAt(now);
+            }
+            suppressed++;
+            return false;
+        }
+
+        /**
+         * Records a notification.
+         * @param now the current time in milliseconds since the epoch
+         * @return always true
+         */
+        private boolean notifyAt(long now) {
+            if (suppressed > 0) {
+                System.out.println("Alert " + rule.getId() + " still active, " + suppressed + " readings suppressed since the last notification");
+            }
+            lastNotifiedAt = now;
+            suppressed = 0;
+            return true;
+        }
+    }
+}
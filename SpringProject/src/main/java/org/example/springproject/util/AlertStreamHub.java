@@ -0,0 +1,294 @@
+/**
+ * AlertStreamHub.java
+ * This class streams the alerts of the rooms to the clients as Server-Sent Events.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import jakarta.annotation.PreDestroy;
+import org.example.springproject.dto.AlertDTO;
+import org.example.springproject.service.AlertService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AlertStreamHub keeps the open event streams of every room and sends them the alerts as they are saved,
+ * so the clients download only the new alerts instead of the full list of the room.
+ * The ID of every event is the ID of its alert, so a client that reconnects with the Last-Event-ID header gets the alerts
+ * it missed: from the recent alerts kept per room, or from Firestore if its last alert is older than them.
+ * If its last alert can't be found at all, the client gets a reset event and reloads the list.
+ * Every event is sent by a single thread, so the replay of a stream and the live alerts never interleave,
+ * and a slow client never holds up the MQTT ingest.
+ */
+@Component
+public class AlertStreamHub {
+
+    /**
+     * The name of the events carrying an alert.
+     */
+    public static final String ALERT_EVENT = "alert";
+
+    /**
+     * The name of the event telling a client the alerts it missed are no longer available.
+     */
+    public static final String RESET_EVENT = "reset";
+
+    /**
+     * The AlertService used to retrieve the alerts a client missed that are no longer kept in memory.
+     */
+    private final AlertService alertService;
+
+    /**
+     * The maximum number of recent alerts kept per room for the clients that reconnect.
+     */
+    private final int replaySize;
+
+    /**
+     * The time, in milliseconds, after which a stream is closed, so the client reconnects.
+     */
+    private final long timeoutMillis;
+
+    /**
+     * The streams and the recent alerts of every room, keyed by room ID.
+     */
+    private final Map<String, RoomStream> rooms = new ConcurrentHashMap<>();
+
+    /**
+     * The thread sending the events to the clients.
+     */
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alert-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor for AlertStreamHub.
+     * @param alertService the AlertService used to retrieve the missed alerts
+     * @param replaySize the maximum number of recent alerts kept per room, injected from application properties
+     * @param timeoutMillis the time after which a stream is closed, injected from application properties
+     */
+    public AlertStreamHub(AlertService alertService,
+                          @Value("${alerts.stream.replay-size}") int replaySize,
+                          @Value("${alerts.stream.timeout-ms}") long timeoutMillis) {
+        if (replaySize < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Alert stream replay size and timeout must be positive!");
+        }
+        this.alertService = alertService;
+        this.replaySize = replaySize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Opens a stream of the alerts of a room.
+     * @param roomId the ID of the room
+     * @param lastEventId the ID of the last alert the client received, or null if it's a new client
+     * @return the emitter of the stream
+     */
+    public SseEmitter subscribe(String roomId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        register(roomId, lastEventId, emitter);
+        return emitter;
+    }
+
+    /**
+     * Registers the emitter of a stream, after sending it the alerts the client missed.
+     * If the last alert of the client is older than the recent alerts of the room, the missed alerts are read from Firestore
+     * on the calling thread, so the reads never hold up the other streams.
+     * @param roomId the ID of the room
+     * @param lastEventId the ID of the last alert the client received, or null if it's a new client
+     * @param emitter the emitter of the stream
+     */
+    public void register(String roomId, String lastEventId, SseEmitter emitter) {
+        RoomStream room = rooms.computeIfAbsent(roomId, key -> new RoomStream());
+        boolean resuming = lastEventId != null && !lastEventId.isBlank();
+        List<AlertDTO> storedAlerts = resuming && room.alertsAfter(lastEventId) == null ? missedAlerts(roomId, lastEventId) : null;
+
+        emitter.onCompletion(() -> sender.execute(() -> room.emitters.remove(emitter)));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> sender.execute(() -> room.emitters.remove(emitter)));
+
+        // The missed alerts are taken while no alert of the room is published, so every later alert is sent live instead.
+        synchronized (room) {
+            List<AlertDTO> missedAlerts = resuming ? room.missedAlerts(lastEventId, storedAlerts) : List.of();
+            sender.execute(() -> {
+                if (replay(missedAlerts, emitter)) {
+                    room.emitters.add(emitter);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends a saved alert to the streams of its room and keeps it for the clients that reconnect.
+     * @param alertDTO the alert that was just saved
+     */
+    public void publish(AlertDTO alertDTO) {
+        RoomStream room = rooms.computeIfAbsent(alertDTO.getRoomId(), key -> new RoomStream());
+        synchronized (room) {
+            room.add(alertDTO);
+            sender.execute(() -> room.emitters.removeIf(emitter -> !send(emitter, alertEvent(alertDTO))));
+        }
+    }
+
+    /**
+     * Sends a comment to every stream, so the proxies keep the idle streams open and the closed ones are found and removed.
+     */
+    @Scheduled(fixedDelayString = "${alerts.stream.heartbeat-interval-ms}")
+    public void heartbeat() {
+        sender.execute(() -> rooms.values().forEach(room ->
+                room.emitters.removeIf(emitter -> !send(emitter, SseEmitter.event().comment("heartbeat")))));
+    }
+
+    /**
+     * Closes every stream when the application shuts down, so the clients reconnect to the next instance.
+     */
+    @PreDestroy
+    public void close() {
+        sender.execute(() -> rooms.values().forEach(room -> {
+            room.emitters.forEach(SseEmitter::complete);
+            room.emitters.clear();
+        }));
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(5, TimeUnit.SECONDS)) {
+                sender.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            sender.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends a client the alerts it missed, or a reset event if they are no longer available.
+     * @param missedAlerts the missed alerts, oldest first, or null if they are no longer available
+     * @param emitter the emitter of the stream
+     * @return true if the events were sent, false if the stream is closed
+     */
+    private boolean replay(List<AlertDTO> missedAlerts, SseEmitter emitter) {
+        if (missedAlerts == null) {
+            return send(emitter, SseEmitter.event().name(RESET_EVENT).data("The missed alerts are no longer available, reload the alerts of the room."));
+        }
+        for (AlertDTO alertDTO : missedAlerts) {
+            if (!send(emitter, alertEvent(alertDTO))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the alerts a client missed from Firestore, logging the failure instead of throwing it.
+     * @param roomId the ID of the room
+     * @param lastEventId the ID of the last alert the client received
+     * @return the missed alerts, or null if they can't be read
+     */
+    private List<AlertDTO> missedAlerts(String roomId, String lastEventId) {
+        try {
+            return alertService.getAlertsAfter(roomId, lastEventId);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to read the alerts of room " + roomId + " after " + lastEventId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Builds the event of an alert.
+     * @param alertDTO the alert
+     * @return the event, identified by the ID of the alert
+     */
+    private static SseEmitter.SseEventBuilder alertEvent(AlertDTO alertDTO) {
+        return SseEmitter.event().id(alertDTO.getAlertId()).name(ALERT_EVENT).data(alertDTO);
+    }
+
+    /**
+     * Sends an event to a stream, completing the stream if it fails.
+     * @param emitter the emitter of the stream
+     * @param event the event
+     * @return true if the event was sent, false if the stream is closed
+     */
+    private static boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * RoomStream holds the open streams and the recent alerts of a room.
+     * The streams are only used by the sending thread; the recent alerts are guarded by the RoomStream itself.
+     */
+    private class RoomStream {
+
+        /**
+         * The emitters of the open streams of the room.
+         */
+        private final List<SseEmitter> emitters = new ArrayList<>();
+
+        /**
+         * The recent alerts of the room, oldest first.
+         */
+        private final Deque<AlertDTO> recentAlerts = new ArrayDeque<>();
+
+        /**
+         * Keeps an alert, forgetting the oldest one if there are too many.
+         * @param alertDTO the alert
+         */
+        private synchronized void add(AlertDTO alertDTO) {
+            recentAlerts.addLast(alertDTO);
+            if (recentAlerts.size() > replaySize) {
+                recentAlerts.removeFirst();
+            }
+        }
+
+        /**
+         * Gets the recent alerts kept after a given alert.
+         * @param alertId the ID of the alert
+         * @return the alerts after it, oldest first, or null if it's not among the recent alerts
+         */
+        private synchronized List<AlertDTO> alertsAfter(String alertId) {
+            List<AlertDTO> alerts = new ArrayList<>();
+            boolean found = false;
+            for (AlertDTO alertDTO : recentAlerts) {
+                if (found) {
+                    alerts.add(alertDTO);
+                } else if (alertId.equals(alertDTO.getAlertId())) {
+                    found = true;
+                }
+            }
+            return found ? alerts : null;
+        }
+
+        /**
+         * Gets the alerts a client missed since a given alert.
+         * @param alertId the ID of the last alert the client received
+         * @param storedAlerts the alerts after it read from Firestore, or null if they were not read
+         * @return the missed alerts, oldest first, or null if they are no longer available
+         */
+        private synchronized List<AlertDTO> missedAlerts(String alertId, List<AlertDTO> storedAlerts) {
+            List<AlertDTO> alerts = alertsAfter(alertId);
+            if (alerts != null || storedAlerts == null) {
+                return alerts;
+            }
+            // The alerts published since the read are among the recent alerts too, so the ones already read are skipped.
+            alerts = new ArrayList<>(storedAlerts);
+            Set<String> storedIds = new HashSet<>();
+            storedAlerts.forEach(alertDTO -> storedIds.add(alertDTO.getAlertId()));
+            recentAlerts.stream().filter(alertDTO -> !storedIds.contains(alertDTO.getAlertId())).forEach(alerts::add);
+            return alerts;
+        }
+    }
+}
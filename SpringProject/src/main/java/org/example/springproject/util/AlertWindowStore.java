@@ -0,0 +1,64 @@
+/**
+ * AlertWindowStore.java
+ * This class keeps the sliding windows of the windowed alert rules of every sensor.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AlertWindowStore feeds the readings watched by a windowed rule to the window of the rule for the sensor they come from,
+ * so aggregations like the average of the last minute are computed from memory, without reading the history of the sensor.
+ * A window is created on the first reading of a rule and replaced when the condition or the window of the rule changes.
+ */
+@Component
+public class AlertWindowStore {
+
+    /**
+     * The maximum number of readings a window keeps.
+     */
+    private final int maxSamples;
+
+    /**
+     * The windows, keyed by sensor ID and then by rule ID.
+     */
+    private final Map<String, Map<String, SlidingWindow>> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for AlertWindowStore.
+     * @param maxSamples the maximum number of readings a window keeps, injected from application properties
+     */
+    public AlertWindowStore(@Value("${alerts.window.max-samples}") int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Adds a reading to the window of a rule and returns the aggregation the rule compares against its threshold.
+     * @param sensorId the ID of the sensor the reading comes from
+     * @param rule the windowed rule watching the reading
+     * @param timestamp the timestamp of the reading in seconds since the epoch
+     * @param value the value of the parameter watched by the rule
+     * @return the aggregation of the window, or NaN if it is not defined yet
+     */
+    public float add(String sensorId, AlertRule rule, long timestamp, float value) {
+        Map<String, SlidingWindow> sensorWindows = windows.computeIfAbsent(sensorId, id -> new ConcurrentHashMap<>());
+        SlidingWindow window = sensorWindows.compute(rule.getId(), (ruleId, current) ->
+                current != null && current.getRule().hasSameCondition(rule) ? current : new SlidingWindow(rule, maxSamples));
+        return window.add(timestamp, value);
+    }
+
+    /**
+     * Drops the windows of a removed rule, for every sensor it watched, so their readings are not kept for as long as the application runs.
+     * @param ruleId the ID of the removed rule
+     */
+    public void evict(String ruleId) {
+        for (Map<String, SlidingWindow> sensorWindows : windows.values()) {
+            sensorWindows.remove(ruleId);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * AlertWriteBuffer.java
+ * This class is a write-behind buffer for the alerts raised by the MQTT ingest.
+ * It coalesces the alerts raised within a short window and saves them, with their notifications, with Firestore write batches.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import jakarta.annotation.PreDestroy;
+import org.example.springproject.dto.AlertDTO;
+import org.example.springproject.entity.Alert;
+import org.example.springproject.entity.Notification;
+import org.example.springproject.service.AlertService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * AlertWriteBuffer collects the alerts of the readings and writes them in micro-batches.
+ * A reading can raise several alerts at once, and an incident raises alerts in many rooms at the same time, so the alerts
+ * of one message or of a burst of messages cost a single commit instead of one synchronous round trip per alert.
+ * The notifications of the alerts are queued for delivery once they are stored, so the outbox guarantee is kept,
+ * and the saved alerts are pushed to the dashboards displaying their room.
+ * While the writes keep failing, the buffer is bounded by its capacity: once it is full, the oldest alerts are dropped,
+ * so an outage of Firestore doesn't exhaust the memory, and the dropped alerts are counted and logged by the next flush.
+ * A dropped alert is raised again by its reminder if its condition persists.
+ */
+@Component
+public class AlertWriteBuffer {
+
+    /**
+     * The AlertService used to save the alerts and their notifications.
+     */
+    private final AlertService alertService;
+
+    /**
+     * The NotificationDispatcher delivering the notifications of the saved alerts.
+     */
+    private final NotificationDispatcher notificationDispatcher;
+
+    /**
+     * The LiveUpdatePublisher pushing the saved alerts to the dashboards.
+     */
+    private final LiveUpdatePublisher liveUpdatePublisher;
+
+    /**
+     * The number of buffered alerts that triggers a write before the flush interval elapses.
+     */
+    private final int maxAlerts;
+
+    /**
+     * The maximum number of buffered alerts, beyond which the oldest ones are dropped.
+     */
+    private final int capacity;
+
+    /**
+     * Lock guarding the buffered alerts.
+     */
+    private final Object bufferLock = new Object();
+
+    /**
+     * Lock ensuring that the batches are written one at a time, in the order they were collected.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * The alerts waiting to be written with their notifications, in the order they were raised.
+     * The alerts are compared by identity, so two equal alerts are still both written.
+     */
+    private Map<Alert, List<Notification>> buffer = new LinkedHashMap<>();
+
+    /**
+     * Whether the last write failed, in which case only the scheduled flush retries, so the ingest doesn't wait on a failing write.
+     */
+    private boolean retrying;
+
+    /**
+     * The number of alerts dropped since the last flush, guarded by the buffer lock.
+     */
+    private int droppedSinceFlush;
+
+    /**
+     * The total number of alerts dropped because the buffer was full, guarded by the buffer lock.
+     */
+    private long droppedAlerts;
+
+    /**
+     * Constructor for AlertWriteBuffer.
+     * @param alertService the AlertService used to save the alerts and their notifications
+     * @param notificationDispatcher the NotificationDispatcher delivering the notifications of the saved alerts
+     * @param liveUpdatePublisher the LiveUpdatePublisher pushing the saved alerts to the dashboards
+     * @param maxAlerts the number of buffered alerts that triggers a write, injected from application properties
+     * @param capacity the maximum number of buffered alerts, injected from application properties
+     */
+    public AlertWriteBuffer(AlertService alertService, NotificationDispatcher notificationDispatcher, LiveUpdatePublisher liveUpdatePublisher,
+                            @Value("${alerts.write-buffer.max-alerts}") int maxAlerts,
+                            @Value("${alerts.write-buffer.capacity}") int capacity) {
+        this.alertService = alertService;
+        this.notificationDispatcher = notificationDispatcher;
+        this.liveUpdatePublisher = liveUpdatePublisher;
+        this.maxAlerts = maxAlerts;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an alert and its notifications to the buffer.
+     * If the buffer reached the number of alerts that triggers a write, the buffered alerts are written on the calling thread,
+     * unless the last write failed. If it reached its capacity, the oldest alert is dropped.
+     * @param alert the alert to be saved
+     * @param notifications the notifications of the alert
+     */
+    public void add(Alert alert, List<Notification> notifications) {
+        boolean full;
+        synchronized (bufferLock) {
+            buffer.put(alert, notifications);
+            dropOverflow();
+            full = buffer.size() >= maxAlerts && !retrying;
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all the buffered alerts and queues their notifications.
+     * This method is annotated with @Scheduled, so it is called periodically with the configured flush interval.
+     */
+    @Scheduled(fixedDelayString = "${alerts.write-buffer.flush-interval-ms}")
+    public void flush() {
+        synchronized (writeLock) {
+            Map<Alert, List<Notification>> alerts;
+            synchronized (bufferLock) {
+                if (droppedSinceFlush > 0) {
+                    System.err.println("Alert write buffer full, dropped the " + droppedSinceFlush + " oldest alerts (" + droppedAlerts + " in total)");
+                    droppedSinceFlush = 0;
+                }
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                alerts = buffer;
+                buffer = new LinkedHashMap<>();
+            }
+
+            boolean written = write(alerts);
+            synchronized (bufferLock) {
+                retrying = !written;
+                if (!written) {
+                    // The failed alerts go back ahead of the ones raised meanwhile, so they are retried first and in order
+                    alerts.putAll(buffer);
+                    buffer = alerts;
+                    dropOverflow();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the total number of alerts dropped because the buffer was full.
+     * @return the number of dropped alerts
+     */
+    public long getDroppedAlerts() {
+        synchronized (bufferLock) {
+            return droppedAlerts;
+        }
+    }
+
+    /**
+     * Drops the oldest buffered alerts beyond the capacity of the buffer.
+     * It must be called while holding the buffer lock.
+     */
+    private void dropOverflow() {
+        Iterator<Alert> oldest = buffer.keySet().iterator();
+        while (buffer.size() > capacity) {
+            oldest.next();
+            oldest.remove();
+            droppedSinceFlush++;
+            droppedAlerts++;
+        }
+    }
+
+    /**
+     * Writes the remaining alerts when the application is shutting down.
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Saves a batch of alerts with their notifications, then queues the notifications for delivery and pushes the alerts to the dashboards.
+     * The alert states are already active when the alerts are buffered, so a batch that fails to save is kept and retried
+     * instead of being dropped, which would hide the alerts until their reminder.
+     * @param alerts the notifications of every alert, in the order the alerts were raised
+     * @return true if the alerts were saved, false if they have to be retried
+     */
+    private boolean write(Map<Alert, List<Notification>> alerts) {
+        List<AlertDTO> savedAlerts;
+        try {
+            savedAlerts = alertService.saveAlerts(alerts);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to save a batch of " + alerts.size() + " alerts, retrying with the next flush: " + e.getMessage());
+            return false;
+        }
+
+        // The alerts already stored by a save that failed after committing are left out, their notifications are delivered by the outbox replay
+        Set<String> savedAlertIds = new HashSet<>();
+        savedAlerts.forEach(alertDTO -> savedAlertIds.add(alertDTO.getAlertId()));
+        List<Notification> notifications = new ArrayList<>();
+        alerts.forEach((alert, alertNotifications) -> {
+            if (savedAlertIds.contains(alert.getAlertId()) && alertNotifications != null) {
+                notifications.addAll(alertNotifications);
+            }
+        });
+        notificationDispatcher.enqueue(notifications);
+        savedAlerts.forEach(liveUpdatePublisher::publishAlert);
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * ComparisonOperator.java
+ * This enum represents the conditions a reading can be compared against a threshold with.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+/**
+ * ComparisonOperator resolves the condition of an alert rule (">", "<", ">=", "<=", "==") once,
+ * so checking a reading against the rule is a primitive comparison instead of a switch on a string.
+ */
+public enum ComparisonOperator {
+
+    /**
+     * The reading is strictly greater than the threshold.
+     */
+    GREATER_THAN(">") {
+        @Override
+        public boolean test(float value, float threshold) {
+            return value > threshold;
+        }
+
+        @Override
+        public boolean clears(float value, float threshold, float band) {
+            return value < threshold - band;
+        }
+    },
+
+    /**
+     * The reading is strictly less than the threshold.
+     */
+    LESS_THAN("<") {
+        @Override
+        public boolean test(float value, float threshold) {
+            return value < threshold;
+        }
+
+        @Override
+        public boolean clears(float value, float threshold, float band) {
+            return value > threshold + band;
+        }
+    },
+
+    /**
+     * The reading is greater than or equal to the threshold.
+     */
+    GREATER_THAN_OR_EQUAL(">=") {
+        @Override
+        public boolean test(float value, float threshold) {
+            return value >= threshold;
+        }
+
+        @Override
+        public boolean clears(float value, float threshold, float band) {
+            return value < threshold - band;
+        }
+    },
+
+    /**
+     * The reading is less than or equal to the threshold.
+     */
+    LESS_THAN_OR_EQUAL("<=") {
+        @Override
+        public boolean test(float value, float threshold) {
+            return value <= threshold;
+        }
+
+        @Override
+        public boolean clears(float value, float threshold, float band) {
+            return value > threshold + band;
+        }
+    },
+
+    /**
+     * The reading is equal to the threshold.
+     */
+    EQUAL("==") {
+        @Override
+        public boolean test(float value, float threshold) {
+            return value == threshold;
+        }
+
+        @Override
+        public boolean clears(float value, float threshold, float band) {
+            return value != threshold;
+        }
+    };
+
+    /**
+     * The symbol of the operator, as stored in the condition of an alert.
+     */
+    private final String symbol;
+
+    /**
+     * Constructor for ComparisonOperator.
+     * @param symbol the symbol of the operator
+     */
+    ComparisonOperator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Gets the symbol of the operator.
+     * @return the symbol of the operator, for example ">="
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Compares a reading against a threshold.
+     * @param value the value of the reading
+     * @param threshold the threshold of the rule
+     * @return true if the condition is met, false otherwise
+     */
+    public abstract boolean test(float value, float threshold);
+
+    /**
+     * Checks whether a reading moved back far enough from the threshold for an active alert to be cleared.
+     * The band keeps an alert active while the readings hover around the threshold, so it isn't raised again for every crossing.
+     * @param value the value of the reading
+     * @param threshold the threshold of the rule
+     * @param band the distance the reading must move back past the threshold
+     * @return true if the alert can be cleared, false otherwise
+     */
+    public abstract boolean clears(float value, float threshold, float band);
+
+    /**
+     * Resolves the operator of a condition.
+     * @param symbol the condition of an alert, for example ">"
+     * @return the operator, or null if the condition is not supported
+     */
+    public static ComparisonOperator fromSymbol(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        for (ComparisonOperator operator : values()) {
+            if (operator.symbol.equals(symbol.trim())) {
+                return operator;
+            }
+        }
+        return null;
+    }
+}
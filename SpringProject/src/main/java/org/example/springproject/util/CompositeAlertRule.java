@@ -0,0 +1,246 @@
+/**
+ * CompositeAlertRule.java
+ * This class is the compiled form of a composite custom alert, combining conditions on several sensors of a room.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.example.springproject.entity.AlertClause;
+import org.example.springproject.entity.CustomAlert;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CompositeAlertRule combines clauses on the channels of the sensors of a room with AND or OR,
+ * for example "temperature > 40 AND gas > 500 within 30 seconds".
+ * The clauses are evaluated against the latest readings held by the live state of the room;
+ * a reading older than the window of the rule, relative to the reading being processed, doesn't meet its clause.
+ */
+public class CompositeAlertRule implements TrackedRule {
+
+    /**
+     * The ID of the custom alert document.
+     */
+    private final String id;
+
+    /**
+     * The ID of the room the rule was defined for.
+     */
+    private final String roomId;
+
+    /**
+     * The clauses of the rule, each compiled into a rule on a single channel.
+     */
+    private final AlertRule[] clauses;
+
+    /**
+     * Whether all the clauses must be met (AND) or any of them (OR).
+     */
+    private final boolean requiresAll;
+
+    /**
+     * The maximum age, in seconds, of the readings the clauses are evaluated on, or 0 for no limit.
+     */
+    private final int withinSeconds;
+
+    /**
+     * The message of the alerts raised by the rule, which may contain the room and value placeholders.
+     */
+    private final String message;
+
+    /**
+     * Constructor for CompositeAlertRule.
+     * @param id the ID of the custom alert document
+     * @param roomId the ID of the room the rule was defined for
+     * @param clauses the clauses of the rule
+     * @param requiresAll true if all the clauses must be met, false if any of them is enough
+     * @param withinSeconds the maximum age of the readings the clauses are evaluated on, or 0 for no limit
+     * @param message the message of the alerts raised by the rule
+     */
+    public CompositeAlertRule(String id, String roomId, AlertRule[] clauses, boolean requiresAll, int withinSeconds, String message) {
+        this.id = id;
+        this.roomId = roomId;
+        this.clauses = clauses;
+        this.requiresAll = requiresAll;
+        this.withinSeconds = withinSeconds;
+        this.message = message;
+    }
+
+    /**
+     * Compiles a composite custom alert into a rule.
+     * @param alertId the ID of the custom alert document
+     * @param customAlert the custom alert, which must have clauses
+     * @return the compiled rule, or null if the alert has no room, an unsupported combinator or an invalid clause
+     */
+    public static CompositeAlertRule compile(String alertId, CustomAlert customAlert) {
+        List<AlertClause> conditions = customAlert.getConditions();
+        if (customAlert.getRoomId() == null || conditions == null || conditions.isEmpty() || customAlert.getWithinSeconds() < 0) {
+            return null;
+        }
+
+        String combinator = customAlert.getCombinator() != null ? customAlert.getCombinator().trim() : "AND";
+        if (!combinator.equalsIgnoreCase("AND") && !combinator.equalsIgnoreCase("OR")) {
+            return null;
+        }
+
+        AlertRule[] clauses = new AlertRule[conditions.size()];
+        for (int i = 0; i < clauses.length; i++) {
+            AlertClause clause = conditions.get(i);
+            ComparisonOperator operator = clause != null ? ComparisonOperator.fromSymbol(clause.getCondition()) : null;
+            if (operator == null || clause.getSensorId() == null || clause.getParameter() == null) {
+                return null;
+            }
+            clauses[i] = new AlertRule(alertId + "#" + i, customAlert.getRoomId(), clause.getSensorId(), clause.getParameter(),
+                    operator, clause.getThreshold(), null);
+        }
+        return new CompositeAlertRule(alertId, customAlert.getRoomId(), clauses, combinator.equalsIgnoreCase("AND"),
+                customAlert.getWithinSeconds(), customAlert.getMessage());
+    }
+
+    /**
+     * Checks whether the live state of the room meets the rule.
+     * @param state the live state of the room
+     * @param now the timestamp of the reading being processed, in seconds since the epoch
+     * @return true if an alert should be raised, false otherwise
+     */
+    public boolean matches(RoomLiveState state, long now) {
+        for (AlertRule clause : clauses) {
+            RoomLiveState.ChannelValue reading = freshReading(state, clause, now);
+            boolean met = reading != null && clause.matchesSample(reading.getValue());
+            if (met != requiresAll) {
+                // A failed clause decides an AND, a met clause decides an OR
+                return met;
+            }
+        }
+        return requiresAll;
+    }
+
+    /**
+     * Checks whether the live state of the room allows an active alert of the rule to be cleared:
+     * for AND, one of the clauses moved back past its threshold by the hysteresis band or has no fresh reading;
+     * for OR, all of them did.
+     * @param state the live state of the room
+     * @param now the timestamp of the reading being processed, in seconds since the epoch
+     * @param hysteresisRatio the fraction of the threshold a reading must move back past the threshold
+     * @param minBand the minimum distance, in the unit of the parameter, a reading must move back past the threshold
+     * @return true if the alert can be cleared, false otherwise
+     */
+    public boolean clears(RoomLiveState state, long now, float hysteresisRatio, float minBand) {
+        for (AlertRule clause : clauses) {
+            RoomLiveState.ChannelValue reading = freshReading(state, clause, now);
+            boolean cleared = reading == null || clause.clears(reading.getValue(), hysteresisRatio, minBand);
+            if (cleared == requiresAll) {
+                return cleared;
+            }
+        }
+        return !requiresAll;
+    }
+
+    /**
+     * Builds the message of an alert raised by the rule, with the latest reading of every clause as value.
+     * @param roomName the name of the room
+     * @param state the live state of the room
+     * @return the message with the placeholders replaced, or a generic message if the rule has none
+     */
+    public String formatMessage(String roomName, RoomLiveState state) {
+        StringBuilder values = new StringBuilder();
+        for (AlertRule clause : clauses) {
+            RoomLiveState.ChannelValue reading = state.get(clause.getSensorId(), clause.getParameter());
+            if (values.length() > 0) {
+                values.append(", ");
+            }
+            values.append(clause.getParameter()).append('=').append(reading != null ? String.valueOf(reading.getValue()) : "-");
+        }
+
+        if (message == null || message.isBlank()) {
+            return "Composite alert in room: " + roomName + " (" + values + ")";
+        }
+        return message.replace(AlertRule.ROOM_PLACEHOLDER, String.valueOf(roomName)).replace(AlertRule.VALUE_PLACEHOLDER, values);
+    }
+
+    /**
+     * Gets the latest reading of the channel of a clause, if it is recent enough.
+     * @param state the live state of the room
+     * @param clause the clause
+     * @param now the timestamp of the reading being processed, in seconds since the epoch
+     * @return the reading, or null if the channel never reported or its latest reading is too old
+     */
+    private RoomLiveState.ChannelValue freshReading(RoomLiveState state, AlertRule clause, long now) {
+        RoomLiveState.ChannelValue reading = state.get(clause.getSensorId(), clause.getParameter());
+        if (reading == null || (withinSeconds > 0 && reading.getTimestamp() < now - withinSeconds)) {
+            return null;
+        }
+        return reading;
+    }
+
+    /**
+     * Checks whether another rule evaluates the live state exactly like this one, so the state kept for this rule stays valid for it.
+     * @param other the other rule
+     * @return true if the clauses, the combinator and the window are the same, false otherwise
+     */
+    @Override
+    public boolean hasSameCondition(TrackedRule other) {
+        if (!(other instanceof CompositeAlertRule rule)) {
+            return false;
+        }
+        if (requiresAll != rule.requiresAll || withinSeconds != rule.withinSeconds || clauses.length != rule.clauses.length) {
+            return false;
+        }
+        for (int i = 0; i < clauses.length; i++) {
+            if (!clauses[i].getSensorId().equals(rule.clauses[i].getSensorId()) || !clauses[i].hasSameCondition(rule.clauses[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the ID of the rule.
+     * @return the ID of the custom alert document
+     */
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the ID of the room the rule was defined for.
+     * @return the ID of the room
+     */
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /**
+     * Gets the clauses of the rule.
+     * @return a copy of the clauses
+     */
+    public List<AlertRule> getClauses() {
+        return Arrays.asList(clauses.clone());
+    }
+
+    /**
+     * Checks whether all the clauses must be met.
+     * @return true for AND, false for OR
+     */
+    public boolean requiresAll() {
+        return requiresAll;
+    }
+
+    /**
+     * Gets the maximum age of the readings the clauses are evaluated on.
+     * @return the maximum age in seconds, or 0 for no limit
+     */
+    public int getWithinSeconds() {
+        return withinSeconds;
+    }
+
+    /**
+     * Gets the message of the alerts raised by the rule.
+     * @return the message, which may contain the room and value placeholders
+     */
+    public String getMessage() {
+        return message;
+    }
+}
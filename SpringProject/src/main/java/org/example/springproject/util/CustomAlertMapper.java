@@ -21,7 +21,7 @@ public class CustomAlertMapper {
      * @return a CustomAlert entity
      */
     public static CustomAlert fromDTO(CustomAlertDTO dto) {
-        return new CustomAlert(
+        CustomAlert alert = new CustomAlert(
                 dto.getUserId(),
                 dto.getRoomId(),
                 dto.getSensorId(),
@@ -31,6 +31,14 @@ public class CustomAlertMapper {
                 dto.getThreshold(),
                 dto.getMessage()
         );
+        alert.setAggregation(dto.getAggregation());
+        alert.setWindowSeconds(dto.getWindowSeconds());
+        alert.setWindowSamples(dto.getWindowSamples());
+        alert.setRequiredSamples(dto.getRequiredSamples());
+        alert.setConditions(dto.getConditions());
+        alert.setCombinator(dto.getCombinator());
+        alert.setWithinSeconds(dto.getWithinSeconds());
+        return alert;
     }
 
     /**
@@ -40,7 +48,7 @@ public class CustomAlertMapper {
      * @return a CustomAlertDTO
      */
     public static CustomAlertDTO toDTO(String id,CustomAlert alert) {
-        return new CustomAlertDTO(
+        CustomAlertDTO dto = new CustomAlertDTO(
                 id,
                 alert.getUserId(),
                 alert.getRoomId(),
@@ -51,5 +59,13 @@ public class CustomAlertMapper {
                 alert.getMessage(),
                 alert.getThreshold()
         );
+        dto.setAggregation(alert.getAggregation());
+        dto.setWindowSeconds(alert.getWindowSeconds());
+        dto.setWindowSamples(alert.getWindowSamples());
+        dto.setRequiredSamples(alert.getRequiredSamples());
+        dto.setConditions(alert.getConditions());
+        dto.setCombinator(alert.getCombinator());
+        dto.setWithinSeconds(alert.getWithinSeconds());
+        return dto;
     }
 }
@@ -0,0 +1,213 @@
+/**
+ * CustomAlertRuleIndex.java
+ * This class keeps the compiled custom alerts in memory, indexed by the sensor and the parameter they watch.
+ * Composite custom alerts are indexed by every channel their clauses reference.
+ * It is filled and kept up to date by the Firestore snapshot listener of the CustomAlertService on the custom_alerts collection:
+ * the first snapshot loads every custom alert, and the following ones apply each change, including the ones made outside the application.
+ * The CustomAlertService also applies its own writes right away, so a saved custom alert is evaluated before the listener reports it.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.example.springproject.entity.CustomAlert;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CustomAlertRuleIndex lets the MQTT pipeline evaluate the custom alerts of a reading without any I/O.
+ * The rules of a sensor are published as an immutable AlertRuleSet, rebuilt only when one of them changes,
+ * so evaluating a reading is lock-free and costs one lookup per sensor and one per channel of the reading.
+ * A composite rule is listed under every channel it references, so a reading only re-evaluates the composite rules it can change.
+ */
+@Component
+public class CustomAlertRuleIndex {
+
+    /**
+     * The published rules, keyed by sensor ID.
+     */
+    private final Map<String, AlertRuleSet> rulesBySensor = new ConcurrentHashMap<>();
+
+    /**
+     * The rules of every sensor keyed by custom alert ID, used to rebuild the published rules. Guarded by this object.
+     */
+    private final Map<String, Map<String, AlertRule>> rulesBySensorAndAlert = new HashMap<>();
+
+    /**
+     * The ID of the sensor every custom alert watches, used to find the rule to be replaced or removed. Guarded by this object.
+     */
+    private final Map<String, String> sensorByAlertId = new HashMap<>();
+
+    /**
+     * The composite rules keyed by custom alert ID, used to rebuild the published composite rules. Guarded by this object.
+     */
+    private final Map<String, CompositeAlertRule> compositeRulesByAlert = new LinkedHashMap<>();
+
+    /**
+     * The published composite rules, keyed by the ID of a sensor and then by a parameter they reference.
+     */
+    private volatile Map<String, Map<String, CompositeAlertRule[]>> compositeRulesByChannel = Map.of();
+
+    /**
+     * Replaces the content of the index with a full set of custom alerts.
+     * @param customAlerts the custom alerts keyed by their document ID
+     */
+    public synchronized void loadAll(Map<String, CustomAlert> customAlerts) {
+        rulesBySensorAndAlert.clear();
+        sensorByAlertId.clear();
+        compositeRulesByAlert.clear();
+        for (Map.Entry<String, CustomAlert> entry : customAlerts.entrySet()) {
+            addRule(entry.getKey(), entry.getValue());
+        }
+
+        // The new rules are published before the stale ones are dropped, so readings are never evaluated against an empty index
+        for (String sensorId : rulesBySensorAndAlert.keySet()) {
+            publish(sensorId);
+        }
+        rulesBySensor.keySet().retainAll(rulesBySensorAndAlert.keySet());
+        publishComposites();
+    }
+
+    /**
+     * Adds a custom alert to the index, or replaces it if it is already indexed.
+     * @param alertId the document ID of the custom alert
+     * @param customAlert the custom alert
+     */
+    public synchronized void put(String alertId, CustomAlert customAlert) {
+        boolean wasComposite = compositeRulesByAlert.remove(alertId) != null;
+        String previousSensorId = removeRule(alertId);
+        String sensorId = addRule(alertId, customAlert);
+
+        if (wasComposite || compositeRulesByAlert.containsKey(alertId)) {
+            publishComposites();
+        }
+        if (previousSensorId != null) {
+            publish(previousSensorId);
+        }
+        if (sensorId != null && !sensorId.equals(previousSensorId)) {
+            publish(sensorId);
+        }
+    }
+
+    /**
+     * Removes a custom alert from the index.
+     * @param alertId the document ID of the custom alert
+     */
+    public synchronized void remove(String alertId) {
+        if (compositeRulesByAlert.remove(alertId) != null) {
+            publishComposites();
+        }
+        String sensorId = removeRule(alertId);
+        if (sensorId != null) {
+            publish(sensorId);
+        }
+    }
+
+    /**
+     * Gets the rules of a sensor.
+     * @param sensorId the ID of the sensor
+     * @return the rules of the sensor grouped by parameter, or the empty set if the sensor has no custom alerts
+     */
+    public AlertRuleSet getRules(String sensorId) {
+        return rulesBySensor.getOrDefault(sensorId, AlertRuleSet.EMPTY);
+    }
+
+    /**
+     * Gets the composite rules referencing a channel.
+     * @param sensorId the ID of the sensor
+     * @param parameter the parameter of the channel
+     * @return the composite rules referencing the channel, or null if there are none
+     */
+    public CompositeAlertRule[] getCompositeRules(String sensorId, String parameter) {
+        Map<String, CompositeAlertRule[]> sensorRules = compositeRulesByChannel.get(sensorId);
+        return sensorRules != null ? sensorRules.get(parameter) : null;
+    }
+
+    /**
+     * Compiles a custom alert and adds it to the rules of its sensor, or to the composite rules if it has clauses, without publishing them.
+     * @param alertId the document ID of the custom alert
+     * @param customAlert the custom alert
+     * @return the ID of the sensor the rule was added to, or null if the custom alert is composite or can't be compiled
+     */
+    private String addRule(String alertId, CustomAlert customAlert) {
+        if (customAlert.getConditions() != null && !customAlert.getConditions().isEmpty()) {
+            CompositeAlertRule compositeRule = CompositeAlertRule.compile(alertId, customAlert);
+            if (compositeRule == null) {
+                System.err.println("Composite custom alert " + alertId + " can't be evaluated, invalid clause or combinator: " + customAlert.getCombinator());
+                return null;
+            }
+            compositeRulesByAlert.put(alertId, compositeRule);
+            return null;
+        }
+
+        AlertRule rule = AlertRule.compile(alertId, customAlert);
+        if (rule == null) {
+            System.err.println("Custom alert " + alertId + " can't be evaluated, unsupported condition or window: " + customAlert.getCondition() + "/" + customAlert.getAggregation());
+            return null;
+        }
+        rulesBySensorAndAlert.computeIfAbsent(rule.getSensorId(), id -> new LinkedHashMap<>()).put(alertId, rule);
+        sensorByAlertId.put(alertId, rule.getSensorId());
+        return rule.getSensorId();
+    }
+
+    /**
+     * Removes a rule from the rules of its sensor, without publishing them.
+     * @param alertId the document ID of the custom alert
+     * @return the ID of the sensor the rule was removed from, or null if the custom alert wasn't indexed
+     */
+    private String removeRule(String alertId) {
+        String sensorId = sensorByAlertId.remove(alertId);
+        if (sensorId == null) {
+            return null;
+        }
+
+        Map<String, AlertRule> sensorRules = rulesBySensorAndAlert.get(sensorId);
+        sensorRules.remove(alertId);
+        if (sensorRules.isEmpty()) {
+            rulesBySensorAndAlert.remove(sensorId);
+        }
+        return sensorId;
+    }
+
+    /**
+     * Rebuilds and publishes the rules of a sensor, grouped by the parameter they watch.
+     * @param sensorId the ID of the sensor
+     */
+    private void publish(String sensorId) {
+        Map<String, AlertRule> sensorRules = rulesBySensorAndAlert.get(sensorId);
+        if (sensorRules == null) {
+            rulesBySensor.remove(sensorId);
+            return;
+        }
+
+        rulesBySensor.put(sensorId, AlertRuleSet.of(sensorRules.values()));
+    }
+
+    /**
+     * Rebuilds and publishes the composite rules, listed under every channel they reference.
+     */
+    private void publishComposites() {
+        Map<String, Map<String, List<CompositeAlertRule>>> grouped = new HashMap<>();
+        for (CompositeAlertRule compositeRule : compositeRulesByAlert.values()) {
+            for (AlertRule clause : compositeRule.getClauses()) {
+                List<CompositeAlertRule> channelRules = grouped.computeIfAbsent(clause.getSensorId(), id -> new HashMap<>())
+                        .computeIfAbsent(clause.getParameter(), parameter -> new ArrayList<>());
+                // A rule with two clauses on the same channel is evaluated once per reading
+                if (!channelRules.contains(compositeRule)) {
+                    channelRules.add(compositeRule);
+                }
+            }
+        }
+
+        Map<String, Map<String, CompositeAlertRule[]>> published = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<CompositeAlertRule>>> sensorEntry : grouped.entrySet()) {
+            Map<String, CompositeAlertRule[]> sensorRules = new HashMap<>();
+            for (Map.Entry<String, List<CompositeAlertRule>> channelEntry : sensorEntry.getValue().entrySet()) {
+                sensorRules.put(channelEntry.getKey(), channelEntry.getValue().toArray(new CompositeAlertRule[0]));
+            }
+            published.put(sensorEntry.getKey(), sensorRules);
+        }
+        compositeRulesByChannel = published;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * JsonPayloadDecoder.java
+ * This class decodes the flat JSON payloads sent by the DHT22, MQ5 and ESP32 devices.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.example.springproject.entity.MqttRoute;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JsonPayloadDecoder reads a flat JSON object token by token, without building a tree or a map.
+ * Numbers and numeric strings are stored as fields of the reading, the "timestamp" field as its timestamp,
+ * and any other value is skipped. This covers both the devices sending numbers and the ESP32 devices sending strings.
+ */
+@Component
+public class JsonPayloadDecoder implements PayloadDecoder {
+
+    /**
+     * The name of the field holding the timestamp of the reading.
+     */
+    private static final String TIMESTAMP_FIELD = "timestamp";
+
+    /**
+     * Gets the name of the decoder.
+     * @return the name referenced by the MQTT routes sending flat JSON payloads
+     */
+    @Override
+    public String getName() {
+        return MqttRoute.JSON_DECODER;
+    }
+
+    /**
+     * Decodes a flat JSON payload into a reading.
+     * @param payload the raw payload of the message
+     * @param reading the reading to be filled with the timestamp and the numeric fields of the payload
+     * @throws IOException if the payload is not a JSON object
+     */
+    @Override
+    public void decode(byte[] payload, SensorReading reading) throws IOException {
+        reading.clear();
+
+        try (JsonReader jsonReader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8))) {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String field = jsonReader.nextName();
+                JsonToken token = jsonReader.peek();
+
+                if (token == JsonToken.NUMBER) {
+                    // Gson reads the numbers as doubles, which hold epoch timestamps exactly
+                    setValue(reading, field, jsonReader.nextDouble());
+                } else if (token == JsonToken.STRING) {
+                    String value = jsonReader.nextString();
+                    try {
+                        setValue(reading, field, Double.parseDouble(value));
+                    } catch (NumberFormatException e) {
+                        // A string that isn't a number is not a reading
+                    }
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed JSON payload: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stores a decoded value in the reading, as its timestamp or as one of its fields.
+     * @param reading the reading being filled
+     * @param field the name of the field in the payload
+     * @param value the decoded value
+     */
+    private static void setValue(SensorReading reading, String field, double value) {
+        if (TIMESTAMP_FIELD.equals(field)) {
+            reading.setTimestamp((long) value);
+        } else {
+            reading.put(field, (float) value);
+        }
+    }
+}
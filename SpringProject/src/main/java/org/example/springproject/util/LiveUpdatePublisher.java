@@ -0,0 +1,91 @@
+/**
+ * LiveUpdatePublisher.java
+ * This class pushes the readings and the alerts of the rooms to the dashboard over STOMP, and the alerts over Server-Sent Events too.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.example.springproject.dto.AlertDTO;
+import org.example.springproject.dto.SensorDTO;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * LiveUpdatePublisher sends the readings and the alerts to the topics of their room, so the clients get them as they happen
+ * instead of polling the REST API. The messages have the same shape as the responses of the REST API.
+ * The broker hands the messages over to the outbound channel of every subscriber, which sends them on its own threads,
+ * so a slow client never holds up the MQTT ingest; a failure to publish is logged and never stops it either.
+ */
+@Component
+public class LiveUpdatePublisher {
+
+    /**
+     * The SimpMessagingTemplate sending the messages to the broker.
+     */
+    private final SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * The AlertStreamHub sending the alerts to the event streams of their room.
+     */
+    private final AlertStreamHub alertStreamHub;
+
+    /**
+     * Constructor for LiveUpdatePublisher.
+     * @param messagingTemplate the SimpMessagingTemplate sending the messages to the broker
+     * @param alertStreamHub the AlertStreamHub sending the alerts to the event streams
+     */
+    public LiveUpdatePublisher(SimpMessagingTemplate messagingTemplate, AlertStreamHub alertStreamHub) {
+        this.messagingTemplate = messagingTemplate;
+        this.alertStreamHub = alertStreamHub;
+    }
+
+    /**
+     * Gets the topic of the readings of a room.
+     * @param roomId the ID of the room
+     * @return the destination the readings of the room are sent to
+     */
+    public static String readingsTopic(String roomId) {
+        return "/topic/rooms/" + roomId + "/readings";
+    }
+
+    /**
+     * Gets the topic of the alerts of a room.
+     * @param roomId the ID of the room
+     * @return the destination the alerts of the room are sent to
+     */
+    public static String alertsTopic(String roomId) {
+        return "/topic/rooms/" + roomId + "/alerts";
+    }
+
+    /**
+     * Pushes the readings of a sensor to the subscribers of its room.
+     * @param roomId the ID of the room the sensor belongs to
+     * @param sensorDTO the sensor with the readings that were just ingested
+     */
+    public void publishReadings(String roomId, SensorDTO sensorDTO) {
+        publish(readingsTopic(roomId), sensorDTO);
+    }
+
+    /**
+     * Pushes an alert to the subscribers of its room, over STOMP and over the event streams.
+     * @param alertDTO the alert that was just saved
+     */
+    public void publishAlert(AlertDTO alertDTO) {
+        publish(alertsTopic(alertDTO.getRoomId()), alertDTO);
+        alertStreamHub.publish(alertDTO);
+    }
+
+    /**
+     * Sends a message to a topic, logging the failure instead of throwing it.
+     * @param destination the topic
+     * @param payload the payload of the message
+     */
+    private void publish(String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSend(destination, payload);
+        } catch (MessagingException e) {
+            System.err.println("Failed to publish to " + destination + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,723 @@
+/**
+ * NotificationDispatcher.java
+ * This class delivers the notifications of the alerts in the background, so the MQTT pipeline never waits for SMTP or Twilio.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import jakarta.annotation.PreDestroy;
+import org.example.springproject.entity.Alert;
+import org.example.springproject.entity.Notification;
+import org.example.springproject.entity.Sensor;
+import org.example.springproject.service.NotificationOutboxService;
+import org.example.springproject.service.TwilioService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NotificationDispatcher queues the email, SMS and call of every alert and delivers them on a bounded pool of workers.
+ * A failed delivery is retried with an exponential backoff until the maximum number of attempts is reached;
+ * the channels are retried independently, so a failing SMS doesn't send the email twice.
+ * The notifications are stored in the outbox with their alert before they are queued, and their delivery state is recorded there.
+ * The pending notifications are replayed periodically, starting right after startup, so the notifications lost by a crash
+ * or left out because the queue was full are delivered anyway: delivery is at-least-once, and a notification is never queued twice at once.
+ * <p>
+ * The notifications are digested per recipient and channel: the first one is delivered right away, and the ones following it
+ * within the digest window are merged into a single email, SMS or call sent when the window closes.
+ * The email digests due at the same time are sent together, over a single SMTP connection.
+ * <p>
+ * The SMS and the call of an alert are escalations: they are held until the delay of the NotificationPolicy elapsed,
+ * and dropped if the alert was acknowledged in the meantime. The SMS and calls are rate limited per recipient and per provider.
+ */
+@Component
+public class NotificationDispatcher {
+
+    /**
+     * The AlertManager composing and sending the emails.
+     */
+    private final AlertManager alertManager;
+
+    /**
+     * The TwilioService sending the SMS and making the calls.
+     */
+    private final TwilioService twilioService;
+
+    /**
+     * The NotificationOutboxService recording the delivery state of the notifications.
+     */
+    private final NotificationOutboxService notificationOutboxService;
+
+    /**
+     * The NotificationPolicy holding the escalation delays and the rate limits.
+     */
+    private final NotificationPolicy notificationPolicy;
+
+    /**
+     * The workers delivering the notifications.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * The scheduler re-submitting the failed and rate limited notifications, releasing the escalations and flushing the digests.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * The maximum number of delivery attempts of a notification.
+     */
+    private final int maxAttempts;
+
+    /**
+     * The delay, in milliseconds, before the first retry. It doubles with every further attempt.
+     */
+    private final long initialBackoffMillis;
+
+    /**
+     * The maximum delay, in milliseconds, between two attempts.
+     */
+    private final long maxBackoffMillis;
+
+    /**
+     * The length, in milliseconds, of the digest window, or 0 to deliver every notification on its own.
+     */
+    private final long digestWindowMillis;
+
+    /**
+     * The interval, in milliseconds, between two checks for digests to be sent.
+     */
+    private final long digestFlushIntervalMillis;
+
+    /**
+     * The digests of the recipients, keyed by channel and recipient.
+     */
+    private final ConcurrentHashMap<String, Digest> digests = new ConcurrentHashMap<>();
+
+    /**
+     * The IDs of the notifications held by a digest, queued, being delivered or waiting for a retry, so a replay doesn't queue them a second time.
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The last notification read by the previous replay, from which the next replay goes on, or null to start over.
+     * It is only used by the replay, which never runs concurrently with itself.
+     */
+    private Notification replayCursor;
+
+    /**
+     * The number of notifications left in the outbox because the queue was full.
+     */
+    private final AtomicLong deferredNotifications = new AtomicLong();
+
+    /**
+     * The number of notifications given up after the maximum number of attempts.
+     */
+    private final AtomicLong failedNotifications = new AtomicLong();
+
+    /**
+     * The number of notifications not sent because their recipient reached the rate limit of their channel.
+     */
+    private final AtomicLong suppressedNotifications = new AtomicLong();
+
+    /**
+     * Constructor for NotificationDispatcher.
+     * @param alertManager the AlertManager composing and sending the emails
+     * @param twilioService the TwilioService sending the SMS and making the calls
+     * @param notificationOutboxService the NotificationOutboxService recording the delivery state of the notifications
+     * @param notificationPolicy the NotificationPolicy holding the escalation delays and the rate limits
+     * @param workerCount the number of workers delivering the notifications, injected from application properties
+     * @param queueCapacity the maximum number of queued notifications, injected from application properties
+     * @param maxAttempts the maximum number of delivery attempts of a notification, injected from application properties
+     * @param initialBackoffMillis the delay before the first retry, injected from application properties
+     * @param maxBackoffMillis the maximum delay between two attempts, injected from application properties
+     * @param digestWindowMillis the length of the digest window, or 0 to disable digesting, injected from application properties
+     * @param digestFlushIntervalMillis the interval between two checks for digests to be sent, injected from application properties
+     */
+    public NotificationDispatcher(AlertManager alertManager, TwilioService twilioService, NotificationOutboxService notificationOutboxService,
+                                  NotificationPolicy notificationPolicy,
+                                  @Value("${notifications.workers}") int workerCount,
+                                  @Value("${notifications.queue-capacity}") int queueCapacity,
+                                  @Value("${notifications.max-attempts}") int maxAttempts,
+                                  @Value("${notifications.initial-backoff-ms}") long initialBackoffMillis,
+                                  @Value("${notifications.max-backoff-ms}") long maxBackoffMillis,
+                                  @Value("${notifications.digest.window-ms}") long digestWindowMillis,
+                                  @Value("${notifications.digest.flush-interval-ms}") long digestFlushIntervalMillis) {
+        if (workerCount < 1 || queueCapacity < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Notification workers, queue capacity and attempts must be positive!");
+        }
+        if (digestWindowMillis < 0 || (digestWindowMillis > 0 && digestFlushIntervalMillis < 1)) {
+            throw new IllegalArgumentException("Notification digest window must not be negative and its flush interval must be positive!");
+        }
+        this.alertManager = alertManager;
+        this.twilioService = twilioService;
+        this.notificationOutboxService = notificationOutboxService;
+        this.notificationPolicy = notificationPolicy;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.digestWindowMillis = digestWindowMillis;
+        this.digestFlushIntervalMillis = digestFlushIntervalMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "notification-" + threadCount.getAndIncrement()),
+                (task, executor) -> {
+                    for (Delivery delivery : ((DeliveryTask) task).deliveries) {
+                        delivery.notifications.forEach(notification -> inFlight.remove(notification.getId()));
+                        long deferred = deferredNotifications.addAndGet(delivery.notifications.size());
+                        System.err.println("Notification queue is full, leaving " + delivery + " in the outbox (" + deferred + " deferred so far)");
+                    }
+                });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "notification-scheduler"));
+        if (digestWindowMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::flushDigests, digestFlushIntervalMillis, digestFlushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Composes the notifications of an alert: an email to the owner of the room, and an SMS and a call if the owner has a phone number.
+     * The SMS and the call are given the time they are escalated at if the alert is not acknowledged.
+     * The notifications are only composed; they must be stored with the alert before they are queued.
+     * @param roomContext the context of the room, holding the owner and their phone number
+     * @param alert the alert to be notified
+     * @param sensor the sensor that raised the alert
+     * @return the notifications of the alert
+     */
+    public List<Notification> compose(RoomContext roomContext, Alert alert, Sensor sensor) {
+        List<Notification> notifications = new ArrayList<>(3);
+        String email = roomContext.getOwnerAsUser().getEmail();
+        if (email != null && !email.isBlank()) {
+            notifications.add(new Notification(Notification.Channel.EMAIL, email, alertManager.composeEmail(roomContext, alert, sensor)));
+        }
+
+        String phoneNumber = roomContext.getOwnerPhoneNumber();
+        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
+            return notifications;
+        }
+        String message = "Hello, " + roomContext.getOwner().getName() + "\n\n" + "The sensor type is: " + sensor.getSensorType() + "\n\n"+ "The room is called: "+ roomContext.getRoomName()+"\n\n" + "Alert: " + alert.getMessage();
+        notifications.add(escalation(new Notification(Notification.Channel.SMS, phoneNumber, message)));
+        notifications.add(escalation(new Notification(Notification.Channel.CALL, phoneNumber, null)));
+        return notifications;
+    }
+
+    /**
+     * Sets the time a notification is escalated at, from the escalation delay of its channel.
+     * @param notification the notification
+     * @return the same notification
+     */
+    private Notification escalation(Notification notification) {
+        long delay = notificationPolicy.escalationDelayMillis(notification.getChannel());
+        if (delay > 0) {
+            notification.setEscalateAt(System.currentTimeMillis() + delay);
+        }
+        return notification;
+    }
+
+    /**
+     * Queues stored notifications for delivery.
+     * An escalation is held until its escalation time. Then a notification is queued right away if its recipient got nothing
+     * on its channel during the last digest window, otherwise it is held by the digest of the recipient until the window closes.
+     * A notification that is already held, queued, being delivered or waiting for a retry is skipped.
+     * @param notifications the notifications to be delivered, with their IDs set
+     */
+    public void enqueue(List<Notification> notifications) {
+        for (Notification notification : notifications) {
+            if (workers.isShutdown()) {
+                System.err.println("Notification dispatcher is shut down, leaving " + notification + " in the outbox");
+                return;
+            }
+            if (!inFlight.add(notification.getId())) {
+                continue;
+            }
+
+            long delay = notification.getEscalateAt() - System.currentTimeMillis();
+            if (delay <= 0) {
+                offer(notification);
+                continue;
+            }
+            try {
+                scheduler.schedule(() -> offer(notification), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException shutdown) {
+                inFlight.remove(notification.getId());
+                System.err.println("Notification dispatcher is shut down, leaving " + notification + " in the outbox");
+            }
+        }
+    }
+
+    /**
+     * Queues a notification right away, or holds it in the digest of its recipient if the digest window is open.
+     * @param notification the notification to be delivered
+     */
+    private void offer(Notification notification) {
+        if (digestWindowMillis == 0) {
+            submit(List.of(new Delivery(notification.getChannel(), notification.getRecipient(), List.of(notification))));
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Delivery[] immediate = new Delivery[1];
+        digests.compute(notification.getChannel() + ":" + notification.getRecipient(), (key, digest) -> {
+            Digest current = digest != null ? digest : new Digest();
+            immediate[0] = current.offer(notification, now);
+            return current;
+        });
+        if (immediate[0] != null) {
+            submit(List.of(immediate[0]));
+        }
+    }
+
+    /**
+     * Sends the digests whose window closes before the next check and forgets the recipients that got nothing for a whole window.
+     * The email digests are queued as a single task, so they are sent over one SMTP connection.
+     */
+    private void flushDigests() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Delivery> emails = new ArrayList<>();
+            for (String key : digests.keySet()) {
+                Delivery[] due = new Delivery[1];
+                digests.computeIfPresent(key, (k, digest) -> {
+                    due[0] = digest.drainIfDue(now);
+                    return due[0] == null && digest.isIdle(now) ? null : digest;
+                });
+                if (due[0] == null) {
+                    continue;
+                }
+                if (due[0].channel == Notification.Channel.EMAIL) {
+                    emails.add(due[0]);
+                } else {
+                    submit(List.of(due[0]));
+                }
+            }
+            if (!emails.isEmpty()) {
+                submit(emails);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error while flushing notification digests: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues a delivery task, unless the dispatcher is shut down.
+     * @param deliveries the deliveries of the task, all on the same channel
+     */
+    private void submit(List<Delivery> deliveries) {
+        if (workers.isShutdown()) {
+            deliveries.forEach(delivery -> delivery.notifications.forEach(notification -> inFlight.remove(notification.getId())));
+            return;
+        }
+        workers.execute(new DeliveryTask(deliveries));
+    }
+
+    /**
+     * Queues the pending notifications of the outbox that are not queued yet.
+     * It runs right after startup, replaying the notifications a crash interrupted, and then periodically,
+     * picking up the notifications left out because the queue was full. It only reads the notifications that are due,
+     * and only as many as the queue can take. Each replay goes on after the last notification read by the previous one,
+     * so the notifications already queued are not read again, and starts over once it read the last due notification.
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.replay-interval-ms}")
+    public void replayPending() {
+        int room = workers.getQueue().remainingCapacity();
+        if (room == 0 || workers.isShutdown()) {
+            return;
+        }
+
+        try {
+            List<Notification> pending = notificationOutboxService.getDueNotifications(System.currentTimeMillis(), replayCursor, room);
+            replayCursor = pending.size() < room ? null : pending.get(pending.size() - 1);
+            pending.removeIf(notification -> inFlight.contains(notification.getId()));
+            if (!pending.isEmpty()) {
+                System.out.println("Replaying " + pending.size() + " pending notifications from the outbox");
+                enqueue(pending);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error while replaying pending notifications: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tries to deliver a task once, records the outcome of every notification in the outbox and schedules a retry of the failed deliveries.
+     * @param deliveries the deliveries of the task
+     */
+    private void attempt(List<Delivery> deliveries) {
+        long now = System.currentTimeMillis();
+        List<Delivery> allowed = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            Delivery unacknowledged = withoutAcknowledged(delivery);
+            if (unacknowledged == null) {
+                continue;
+            }
+            switch (notificationPolicy.tryAcquire(unacknowledged.channel, unacknowledged.recipient, now)) {
+                case ALLOWED -> allowed.add(unacknowledged);
+                case RECIPIENT_LIMITED -> suppress(unacknowledged);
+                case PROVIDER_LIMITED -> {
+                    long wait = notificationPolicy.providerWaitMillis(unacknowledged.channel, now);
+                    System.err.println("Rate limit of " + unacknowledged.channel + " reached, delaying " + unacknowledged + " by " + wait + " ms");
+                    schedule(unacknowledged, wait);
+                }
+            }
+        }
+        if (allowed.isEmpty()) {
+            return;
+        }
+
+        for (Delivery delivery : allowed) {
+            delivery.attempts++;
+            delivery.notifications.forEach(notification -> notification.setAttempts(notification.getAttempts() + 1));
+        }
+
+        Map<Delivery, String> errors = deliver(allowed);
+        for (Delivery delivery : allowed) {
+            if (errors.containsKey(delivery)) {
+                failed(delivery, errors.get(delivery));
+                continue;
+            }
+            for (Notification notification : delivery.notifications) {
+                notification.setState(Notification.State.DELIVERED);
+                notificationOutboxService.markDelivered(notification);
+                inFlight.remove(notification.getId());
+            }
+        }
+    }
+
+    /**
+     * Records a failed delivery: the notifications that reached the maximum number of attempts are given up,
+     * the other ones are retried together once the backoff elapsed.
+     * @param delivery the failed delivery
+     * @param error the error of the delivery
+     */
+    private void failed(Delivery delivery, String error) {
+        List<Notification> retried = new ArrayList<>(delivery.notifications.size());
+        for (Notification notification : delivery.notifications) {
+            notification.setLastError(error);
+            if (notification.getAttempts() < maxAttempts) {
+                retried.add(notification);
+                continue;
+            }
+            notification.setState(Notification.State.FAILED);
+            notificationOutboxService.markFailed(notification);
+            inFlight.remove(notification.getId());
+            long failed = failedNotifications.incrementAndGet();
+            System.err.println("Giving up " + notification + " after " + notification.getAttempts() + " attempts (" + failed + " failed so far): " + error);
+        }
+        if (retried.isEmpty()) {
+            return;
+        }
+
+        long backoff = backoffMillis(delivery.attempts);
+        long nextAttemptAt = System.currentTimeMillis() + backoff;
+        for (Notification notification : retried) {
+            notification.setNextAttemptAt(nextAttemptAt);
+            notificationOutboxService.markAttemptFailed(notification);
+        }
+        Delivery retry = new Delivery(delivery.channel, delivery.recipient, retried);
+        retry.attempts = delivery.attempts;
+        System.err.println("Delivering " + retry + " failed, retrying in " + backoff + " ms: " + error);
+        schedule(retry, backoff);
+    }
+
+    /**
+     * Queues a delivery again once a delay elapsed. Its notifications are still in flight, so it bypasses the check of enqueue.
+     * @param delivery the delivery
+     * @param delayMillis the delay in milliseconds
+     */
+    private void schedule(Delivery delivery, long delayMillis) {
+        try {
+            scheduler.schedule(() -> submit(List.of(delivery)), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shutdown) {
+            delivery.notifications.forEach(notification -> inFlight.remove(notification.getId()));
+            System.err.println("Notification dispatcher is shut down, leaving " + delivery + " in the outbox");
+        }
+    }
+
+    /**
+     * Drops the escalations of a delivery whose alert was acknowledged, which cancelled them in the outbox.
+     * @param delivery the delivery
+     * @return the delivery of the notifications still to be sent, or null if there are none
+     */
+    private Delivery withoutAcknowledged(Delivery delivery) {
+        List<Notification> pending = new ArrayList<>(delivery.notifications.size());
+        for (Notification notification : delivery.notifications) {
+            if (notification.getEscalateAt() > 0 && !notificationOutboxService.isPending(notification.getId())) {
+                inFlight.remove(notification.getId());
+                System.out.println("Alert of " + notification + " was acknowledged, not escalating");
+                continue;
+            }
+            pending.add(notification);
+        }
+        if (pending.size() == delivery.notifications.size()) {
+            return delivery;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        Delivery unacknowledged = new Delivery(delivery.channel, delivery.recipient, pending);
+        unacknowledged.attempts = delivery.attempts;
+        return unacknowledged;
+    }
+
+    /**
+     * Records that the notifications of a delivery are not sent because their recipient reached the rate limit of their channel.
+     * @param delivery the suppressed delivery
+     */
+    private void suppress(Delivery delivery) {
+        for (Notification notification : delivery.notifications) {
+            notification.setState(Notification.State.SUPPRESSED);
+            notificationOutboxService.markSuppressed(notification);
+            inFlight.remove(notification.getId());
+        }
+        long suppressed = suppressedNotifications.addAndGet(delivery.notifications.size());
+        System.err.println("Rate limit of " + delivery.recipient + " on " + delivery.channel + " reached, not sending "
+                + delivery + " (" + suppressed + " suppressed so far)");
+    }
+
+    /**
+     * Delivers the deliveries of a task through their channel. Several emails are sent over a single SMTP connection.
+     * @param deliveries the deliveries of the task, all on the same channel
+     * @return the error of every delivery that failed, empty if all of them succeeded
+     */
+    private Map<Delivery, String> deliver(List<Delivery> deliveries) {
+        Map<Delivery, String> errors = new HashMap<>();
+        Delivery first = deliveries.get(0);
+        try {
+            switch (first.channel) {
+                case EMAIL -> {
+                    if (deliveries.size() == 1) {
+                        alertManager.deliverEmail(first.recipient, first.body());
+                        break;
+                    }
+                    Map<String, String> textByEmail = new LinkedHashMap<>();
+                    deliveries.forEach(delivery -> textByEmail.put(delivery.recipient, delivery.body()));
+                    Map<String, String> failed = alertManager.deliverEmails(textByEmail);
+                    deliveries.stream().filter(delivery -> failed.containsKey(delivery.recipient))
+                            .forEach(delivery -> errors.put(delivery, failed.get(delivery.recipient)));
+                }
+                case SMS -> twilioService.deliverSms(first.recipient, first.body());
+                case CALL -> twilioService.deliverCall(first.recipient);
+            }
+        } catch (RuntimeException e) {
+            deliveries.forEach(delivery -> errors.put(delivery, String.valueOf(e.getMessage())));
+        }
+        return errors;
+    }
+
+    /**
+     * Computes the delay before the next attempt: the initial backoff doubled for every failed attempt, capped by the maximum backoff,
+     * with up to 20% of random jitter so the retries of a burst of alerts don't hit the provider at the same time.
+     * @param attempt the number of attempts made so far
+     * @return the delay in milliseconds
+     */
+    private long backoffMillis(int attempt) {
+        long backoff = initialBackoffMillis << Math.min(attempt - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoffMillis) {
+            backoff = maxBackoffMillis;
+        }
+        return backoff + ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+    }
+
+    /**
+     * Gets the number of notifications left in the outbox because the queue was full.
+     * @return the number of deferred notifications
+     */
+    public long getDeferredNotifications() {
+        return deferredNotifications.get();
+    }
+
+    /**
+     * Gets the number of notifications given up after the maximum number of attempts.
+     * @return the number of failed notifications
+     */
+    public long getFailedNotifications() {
+        return failedNotifications.get();
+    }
+
+    /**
+     * Gets the number of notifications not sent because their recipient reached the rate limit of their channel.
+     * @return the number of suppressed notifications
+     */
+    public long getSuppressedNotifications() {
+        return suppressedNotifications.get();
+    }
+
+    /**
+     * Stops scheduling retries and waits for the queued notifications to be delivered.
+     * The notifications still held by a digest or waiting for their escalation stay pending in the outbox and are replayed after the next startup.
+     * This method is called by Spring when the application context is closed.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Delivery is a message sent to a recipient on a channel, covering one or more notifications.
+     */
+    private static class Delivery {
+
+        /**
+         * The maximum length of an SMS, longer messages are rejected by Twilio.
+         */
+        private static final int MAX_SMS_LENGTH = 1600;
+
+        /**
+         * The channel of the delivery.
+         */
+        private final Notification.Channel channel;
+
+        /**
+         * The recipient of the delivery, an email address or a phone number.
+         */
+        private final String recipient;
+
+        /**
+         * The notifications covered by the delivery.
+         */
+        private final List<Notification> notifications;
+
+        /**
+         * The number of attempts made to deliver the message, which drives the backoff of its retries.
+         */
+        private int attempts;
+
+        /**
+         * Constructor for Delivery.
+         * @param channel the channel of the delivery
+         * @param recipient the recipient of the delivery
+         * @param notifications the notifications covered by the delivery
+         */
+        private Delivery(Notification.Channel channel, String recipient, List<Notification> notifications) {
+            this.channel = channel;
+            this.recipient = recipient;
+            this.notifications = notifications;
+        }
+
+        /**
+         * Builds the body of the message: the body of the notification, or the bodies of all the notifications for a digest.
+         * @return the body of the message, or null for a call
+         */
+        private String body() {
+            if (notifications.size() == 1 || channel == Notification.Channel.CALL) {
+                return notifications.get(0).getBody();
+            }
+
+            StringBuilder body = new StringBuilder(notifications.size() + " alerts were raised in your rooms:");
+            for (Notification notification : notifications) {
+                body.append("\n\n----------\n\n").append(notification.getBody());
+            }
+            if (channel == Notification.Channel.SMS && body.length() > MAX_SMS_LENGTH) {
+                body.setLength(MAX_SMS_LENGTH - 3);
+                body.append("...");
+            }
+            return body.toString();
+        }
+
+        /**
+         * Returns a string representation of the delivery.
+         * @return the channel, the recipient and the number of notifications covered
+         */
+        @Override
+        public String toString() {
+            return notifications.size() == 1 ? notifications.get(0).toString()
+                    : channel + " digest of " + notifications.size() + " notifications to " + recipient;
+        }
+    }
+
+    /**
+     * Digest is the state of the digest window of a recipient on a channel.
+     * It is only accessed inside the compute methods of the digest map, which serialize the access to it.
+     */
+    private class Digest {
+
+        /**
+         * The notifications held until the window closes.
+         */
+        private final List<Notification> pending = new ArrayList<>();
+
+        /**
+         * The time, in milliseconds since the epoch, the current window closes at.
+         */
+        private long windowEndsAt;
+
+        /**
+         * Offers a notification to the digest.
+         * @param notification the notification
+         * @param now the current time in milliseconds since the epoch
+         * @return the delivery of the notification if the window was closed, so it is delivered right away, or null if it is held
+         */
+        private Delivery offer(Notification notification, long now) {
+            if (pending.isEmpty() && now >= windowEndsAt) {
+                windowEndsAt = now + digestWindowMillis;
+                return new Delivery(notification.getChannel(), notification.getRecipient(), List.of(notification));
+            }
+            pending.add(notification);
+            return null;
+        }
+
+        /**
+         * Takes the held notifications if the window closes before the next check, and opens a new window.
+         * Sending at the last check before the window closes keeps the notifications from waiting longer than the window,
+         * and lets the digests of windows closing a few milliseconds apart be sent together.
+         * @param now the current time in milliseconds since the epoch
+         * @return the delivery of the held notifications, or null if there are none or the window stays open after the next check
+         */
+        private Delivery drainIfDue(long now) {
+            if (pending.isEmpty() || now + digestFlushIntervalMillis < windowEndsAt) {
+                return null;
+            }
+            windowEndsAt = now + digestWindowMillis;
+            Notification first = pending.get(0);
+            Delivery delivery = new Delivery(first.getChannel(), first.getRecipient(), new ArrayList<>(pending));
+            pending.clear();
+            return delivery;
+        }
+
+        /**
+         * Checks whether the recipient got nothing for a whole window, so the digest can be forgotten.
+         * @param now the current time in milliseconds since the epoch
+         * @return true if the digest holds nothing and its window closed a window ago, false otherwise
+         */
+        private boolean isIdle(long now) {
+            return pending.isEmpty() && now >= windowEndsAt + digestWindowMillis;
+        }
+    }
+
+    /**
+     * DeliveryTask is a queued delivery attempt of one or more messages on the same channel.
+     * It is a named class, so the rejection handler can tell which notifications were left out of a full queue.
+     */
+    private class DeliveryTask implements Runnable {
+
+        /**
+         * The deliveries to be attempted.
+         */
+        private final List<Delivery> deliveries;
+
+        /**
+         * Constructor for DeliveryTask.
+         * @param deliveries the deliveries to be attempted
+         */
+        private DeliveryTask(List<Delivery> deliveries) {
+            this.deliveries = deliveries;
+        }
+
+        /**
+         * Makes the delivery attempt.
+         */
+        @Override
+        public void run() {
+            attempt(deliveries);
+        }
+    }
+}
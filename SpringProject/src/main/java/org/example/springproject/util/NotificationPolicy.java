@@ -0,0 +1,191 @@
+/**
+ * NotificationPolicy.java
+ * This class holds the escalation ladder and the rate limits of the notifications sent through Twilio.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.example.springproject.entity.Notification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NotificationPolicy decides when and how often the notifications of the alerts are sent.
+ * The email of an alert is sent right away; the SMS and the call are escalations, only sent if the alert is still not
+ * acknowledged after their delay. The SMS and calls are limited by a token bucket per recipient, so an incident can't
+ * flood a phone, and by a token bucket per Twilio API, so the outbound calls and messages stay bounded whatever the alert volume.
+ */
+@Component
+public class NotificationPolicy {
+
+    /**
+     * The period, in milliseconds, of the rate limits per recipient.
+     */
+    private static final long RECIPIENT_PERIOD_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * The period, in milliseconds, of the rate limits per provider.
+     */
+    private static final long PROVIDER_PERIOD_MILLIS = 60 * 1000L;
+
+    /**
+     * Decision is the outcome of the rate limits for a notification.
+     */
+    public enum Decision {
+        /**
+         * The notification can be sent.
+         */
+        ALLOWED,
+
+        /**
+         * The recipient reached its limit, so the notification is not sent.
+         */
+        RECIPIENT_LIMITED,
+
+        /**
+         * The provider reached its limit, so the notification is sent later.
+         */
+        PROVIDER_LIMITED
+    }
+
+    /**
+     * The delay, in milliseconds, after which the SMS of an unacknowledged alert is sent.
+     */
+    private final long smsEscalationMillis;
+
+    /**
+     * The delay, in milliseconds, after which the call of an unacknowledged alert is made.
+     */
+    private final long callEscalationMillis;
+
+    /**
+     * The maximum number of SMS sent to a recipient per hour.
+     */
+    private final int recipientSmsPerHour;
+
+    /**
+     * The maximum number of calls made to a recipient per hour.
+     */
+    private final int recipientCallsPerHour;
+
+    /**
+     * The bucket limiting the SMS sent through Twilio.
+     */
+    private final TokenBucket providerSms;
+
+    /**
+     * The bucket limiting the calls made through Twilio.
+     */
+    private final TokenBucket providerCalls;
+
+    /**
+     * The buckets of the recipients, keyed by channel and recipient.
+     */
+    private final ConcurrentHashMap<String, TokenBucket> recipientBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for NotificationPolicy.
+     * @param smsEscalationMillis the delay after which the SMS of an unacknowledged alert is sent, 0 to send it right away, injected from application properties
+     * @param callEscalationMillis the delay after which the call of an unacknowledged alert is made, 0 to make it right away, injected from application properties
+     * @param recipientSmsPerHour the maximum number of SMS sent to a recipient per hour, injected from application properties
+     * @param recipientCallsPerHour the maximum number of calls made to a recipient per hour, injected from application properties
+     * @param providerSmsPerMinute the maximum number of SMS sent through Twilio per minute, injected from application properties
+     * @param providerCallsPerMinute the maximum number of calls made through Twilio per minute, injected from application properties
+     */
+    public NotificationPolicy(@Value("${notifications.escalation.sms-after-ms}") long smsEscalationMillis,
+                              @Value("${notifications.escalation.call-after-ms}") long callEscalationMillis,
+                              @Value("${notifications.rate-limit.recipient-sms-per-hour}") int recipientSmsPerHour,
+                              @Value("${notifications.rate-limit.recipient-calls-per-hour}") int recipientCallsPerHour,
+                              @Value("${notifications.rate-limit.provider-sms-per-minute}") int providerSmsPerMinute,
+                              @Value("${notifications.rate-limit.provider-calls-per-minute}") int providerCallsPerMinute) {
+        if (smsEscalationMillis < 0 || callEscalationMillis < 0) {
+            throw new IllegalArgumentException("Notification escalation delays must not be negative!");
+        }
+        if (recipientSmsPerHour < 1 || recipientCallsPerHour < 1) {
+            throw new IllegalArgumentException("Notification rate limits must be positive!");
+        }
+        long now = System.currentTimeMillis();
+        this.smsEscalationMillis = smsEscalationMillis;
+        this.callEscalationMillis = callEscalationMillis;
+        this.recipientSmsPerHour = recipientSmsPerHour;
+        this.recipientCallsPerHour = recipientCallsPerHour;
+        this.providerSms = new TokenBucket(providerSmsPerMinute, PROVIDER_PERIOD_MILLIS, now);
+        this.providerCalls = new TokenBucket(providerCallsPerMinute, PROVIDER_PERIOD_MILLIS, now);
+    }
+
+    /**
+     * Gets the delay after which a notification of an unacknowledged alert is sent.
+     * @param channel the channel of the notification
+     * @return the delay in milliseconds, 0 if the notification is sent right away
+     */
+    public long escalationDelayMillis(Notification.Channel channel) {
+        return switch (channel) {
+            case EMAIL -> 0;
+            case SMS -> smsEscalationMillis;
+            case CALL -> callEscalationMillis;
+        };
+    }
+
+    /**
+     * Takes a token from the buckets of the provider and the recipient of a notification.
+     * The bucket of the provider is checked first, so a notification delayed by the provider doesn't use a token of the recipient.
+     * @param channel the channel of the notification
+     * @param recipient the recipient of the notification
+     * @param now the current time in milliseconds since the epoch
+     * @return whether the notification can be sent, is not sent or is sent later
+     */
+    public Decision tryAcquire(Notification.Channel channel, String recipient, long now) {
+        TokenBucket provider = providerBucket(channel);
+        if (provider == null) {
+            return Decision.ALLOWED;
+        }
+        if (!provider.tryAcquire(now)) {
+            return Decision.PROVIDER_LIMITED;
+        }
+
+        int perHour = channel == Notification.Channel.SMS ? recipientSmsPerHour : recipientCallsPerHour;
+        TokenBucket bucket = recipientBuckets.computeIfAbsent(channel + ":" + recipient, key -> new TokenBucket(perHour, RECIPIENT_PERIOD_MILLIS, now));
+        if (!bucket.tryAcquire(now)) {
+            provider.refund();
+            return Decision.RECIPIENT_LIMITED;
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Computes how long it takes until the provider of a channel can send a notification again.
+     * @param channel the channel of the notification
+     * @param now the current time in milliseconds since the epoch
+     * @return the time in milliseconds, 0 if the provider can send a notification now
+     */
+    public long providerWaitMillis(Notification.Channel channel, long now) {
+        TokenBucket provider = providerBucket(channel);
+        return provider != null ? provider.millisUntilAvailable(now) : 0;
+    }
+
+    /**
+     * Forgets the buckets of the recipients that are full again, so the buckets of past recipients don't pile up.
+     * It runs once per period of the rate limits per recipient.
+     */
+    @Scheduled(fixedDelay = RECIPIENT_PERIOD_MILLIS)
+    public void evictIdleRecipients() {
+        long now = System.currentTimeMillis();
+        recipientBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * Gets the bucket of the provider of a channel.
+     * @param channel the channel
+     * @return the bucket, or null if the channel is not rate limited
+     */
+    private TokenBucket providerBucket(Notification.Channel channel) {
+        return switch (channel) {
+            case EMAIL -> null;
+            case SMS -> providerSms;
+            case CALL -> providerCalls;
+        };
+    }
+}
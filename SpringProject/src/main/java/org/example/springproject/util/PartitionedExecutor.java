@@ -0,0 +1,153 @@
+/**
+ * PartitionedExecutor.java
+ * This class is a bounded executor that runs tasks on a fixed number of single-threaded partitions.
+ * It is used to process incoming MQTT messages in parallel while keeping the order of the messages that share a partition key.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PartitionedExecutor dispatches every task to one of its partitions, each one backed by a single worker thread and a bounded queue.
+ * Tasks are routed by their partition key, so tasks with the same key are always executed in order by the same worker.
+ * When the queue of a partition is full, the configured overflow policy decides whether the caller waits or a task is dropped.
+ */
+public class PartitionedExecutor implements DisposableBean {
+
+    /**
+     * OverflowPolicy defines what happens when a task is submitted to a partition whose queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The submitting thread waits until there is room in the queue, slowing down the producer.
+         */
+        BLOCK,
+
+        /**
+         * The submitted task is dropped.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The oldest queued task of the partition is dropped to make room for the submitted one.
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * The single-threaded executors backing the partitions.
+     */
+    private final ThreadPoolExecutor[] partitions;
+
+    /**
+     * The number of tasks dropped because of a full queue.
+     */
+    private final AtomicLong droppedTasks = new AtomicLong();
+
+    /**
+     * Constructor for PartitionedExecutor.
+     * @param name the name of the executor, used as a prefix for the worker thread names
+     * @param partitionCount the number of partitions (worker threads)
+     * @param queueCapacity the maximum number of queued tasks per partition
+     * @param overflowPolicy the policy applied when the queue of a partition is full
+     */
+    public PartitionedExecutor(String name, int partitionCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+        if (partitionCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Partition count and queue capacity must be positive!");
+        }
+
+        this.partitions = new ThreadPoolExecutor[partitionCount];
+
+        for (int i = 0; i < partitionCount; i++) {
+            String threadName = name + "-" + i;
+            ThreadPoolExecutor partition = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> new Thread(runnable, threadName),
+                    rejectionHandler(overflowPolicy, threadName));
+            partition.prestartAllCoreThreads();
+            partitions[i] = partition;
+        }
+    }
+
+    /**
+     * Creates the handler applied when the queue of a partition is full.
+     * @param overflowPolicy the configured overflow policy
+     * @param partitionName the name of the partition, used for logging
+     * @return the RejectedExecutionHandler implementing the overflow policy
+     */
+    private RejectedExecutionHandler rejectionHandler(OverflowPolicy overflowPolicy, String partitionName) {
+        return (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Partition " + partitionName + " is shut down!");
+            }
+
+            switch (overflowPolicy) {
+                case BLOCK -> {
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for partition " + partitionName, e);
+                    }
+                }
+                case DROP_NEWEST -> {
+                    long dropped = droppedTasks.incrementAndGet();
+                    System.err.println("Partition " + partitionName + " is full, dropping the newest task (" + dropped + " dropped so far)");
+                }
+                case DROP_OLDEST -> {
+                    if (executor.getQueue().poll() != null) {
+                        long dropped = droppedTasks.incrementAndGet();
+                        System.err.println("Partition " + partitionName + " is full, dropping the oldest task (" + dropped + " dropped so far)");
+                    }
+                    executor.execute(task);
+                }
+            }
+        };
+    }
+
+    /**
+     * Submits a task to the partition selected by its partition key.
+     * Exceptions thrown by the task are logged, so a failing task doesn't affect the next ones of the same partition.
+     * @param partitionKey the key selecting the partition, tasks with equal keys are executed in submission order
+     * @param task the task to be executed
+     */
+    public void execute(Object partitionKey, Runnable task) {
+        int index = Math.floorMod(partitionKey.hashCode(), partitions.length);
+        partitions[index].execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Task for partition key " + partitionKey + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Gets the number of tasks dropped because of a full queue.
+     * @return the number of dropped tasks
+     */
+    public long getDroppedTasks() {
+        return droppedTasks.get();
+    }
+
+    /**
+     * Stops accepting tasks and waits for the queued ones to be processed.
+     * This method is called by Spring when the application context is closed.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+        for (ThreadPoolExecutor partition : partitions) {
+            if (!partition.awaitTermination(10, TimeUnit.SECONDS)) {
+                partition.shutdownNow();
+            }
+        }
+    }
+}
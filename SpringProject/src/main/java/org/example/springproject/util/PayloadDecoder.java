@@ -0,0 +1,31 @@
+/**
+ * PayloadDecoder.java
+ * This interface defines the contract for decoding the payload of the MQTT messages sent by the devices.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import java.io.IOException;
+
+/**
+ * PayloadDecoder reads the raw payload of a device message into a SensorReading.
+ * Implementations are Spring beans selected by name through the decoder of an MQTT route,
+ * so a new device format (for example CBOR or a binary layout) is added by registering a new bean.
+ */
+public interface PayloadDecoder {
+
+    /**
+     * Gets the name of the decoder, referenced by the decoder field of the MQTT routes.
+     * @return the name of the decoder
+     */
+    String getName();
+
+    /**
+     * Decodes a payload into a reading.
+     * The reading is cleared before it is filled, so the same instance can be reused for every message.
+     * @param payload the raw payload of the message
+     * @param reading the reading to be filled with the timestamp and the numeric fields of the payload
+     * @throws IOException if the payload is malformed
+     */
+    void decode(byte[] payload, SensorReading reading) throws IOException;
+}
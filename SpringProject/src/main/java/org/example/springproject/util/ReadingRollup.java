@@ -0,0 +1,316 @@
+/**
+ * ReadingRollup.java
+ * This class is the pre-aggregated form of the readings of a sensor over a time bucket.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import com.google.cloud.Timestamp;
+import org.example.springproject.dto.ReadingBucketDTO;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ReadingRollup holds the minimum, maximum, sum and count of every channel of the readings of a sensor over a bucket
+ * of one of the resolutions. Two rollups of the same bucket merge into the rollup of all their readings,
+ * so the rollups are built incrementally at ingest and merged into the stored ones.
+ * It is not thread-safe: a rollup is built by one thread at a time.
+ */
+public class ReadingRollup {
+
+    /**
+     * Resolution is the width of the buckets of a rollup.
+     */
+    public enum Resolution {
+        /**
+         * Buckets of one minute.
+         */
+        MINUTE("1m", 60),
+
+        /**
+         * Buckets of one hour.
+         */
+        HOUR("1h", 60 * 60),
+
+        /**
+         * Buckets of one day, aligned on the start of the day in the time zone of the server, like the daily readings.
+         */
+        DAY("1d", 24 * 60 * 60);
+
+        /**
+         * The short name of the resolution, used in the URLs and the names of the collections.
+         */
+        private final String label;
+
+        /**
+         * The width of a bucket in seconds.
+         */
+        private final long seconds;
+
+        /**
+         * Constructor for Resolution.
+         * @param label the short name of the resolution
+         * @param seconds the width of a bucket in seconds
+         */
+        Resolution(String label, long seconds) {
+            this.label = label;
+            this.seconds = seconds;
+        }
+
+        /**
+         * Gets the short name of the resolution.
+         * @return the short name, such as "1h"
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Gets the width of a bucket.
+         * @return the width in seconds, the length of a day without a daylight saving change for DAY
+         */
+        public long getSeconds() {
+            return seconds;
+        }
+
+        /**
+         * Gets the name of the subcollection of a sensor holding its rollups of this resolution.
+         * @return the name of the collection
+         */
+        public String collection() {
+            return "rollups_" + label;
+        }
+
+        /**
+         * Computes the start of the bucket holding a time.
+         * @param epochSeconds the time in seconds since the epoch
+         * @return the start of its bucket in seconds since the epoch
+         */
+        public long bucketStart(long epochSeconds) {
+            if (this == DAY) {
+                ZoneId zone = ZoneId.systemDefault();
+                return LocalDate.ofInstant(Instant.ofEpochSecond(epochSeconds), zone).atStartOfDay(zone).toEpochSecond();
+            }
+            return Math.floorDiv(epochSeconds, seconds) * seconds;
+        }
+
+        /**
+         * Finds a resolution by its short name.
+         * @param label the short name, such as "1h"
+         * @return the resolution, or null if there is none with this name
+         */
+        public static Resolution fromLabel(String label) {
+            for (Resolution resolution : values()) {
+                if (resolution.label.equals(label)) {
+                    return resolution;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The ID of the sensor.
+     */
+    private final String sensorId;
+
+    /**
+     * The resolution of the bucket.
+     */
+    private final Resolution resolution;
+
+    /**
+     * The start of the bucket in seconds since the epoch.
+     */
+    private final long startSeconds;
+
+    /**
+     * The number of readings in the bucket.
+     */
+    private long count;
+
+    /**
+     * The statistics of every channel, keyed by channel name.
+     */
+    private final Map<String, ChannelRollup> channels = new HashMap<>();
+
+    /**
+     * Constructor for ReadingRollup.
+     * @param sensorId the ID of the sensor
+     * @param resolution the resolution of the bucket
+     * @param startSeconds the start of the bucket in seconds since the epoch
+     */
+    public ReadingRollup(String sensorId, Resolution resolution, long startSeconds) {
+        this.sensorId = sensorId;
+        this.resolution = resolution;
+        this.startSeconds = startSeconds;
+    }
+
+    /**
+     * Adds a reading to the rollup.
+     * @param data the values of the channels of the reading
+     */
+    public void add(Map<String, Float> data) {
+        count++;
+        for (Map.Entry<String, Float> entry : data.entrySet()) {
+            Float value = entry.getValue();
+            if (value != null && !value.isNaN()) {
+                channels.computeIfAbsent(entry.getKey(), channel -> new ChannelRollup()).add(value);
+            }
+        }
+    }
+
+    /**
+     * Adds the readings of another rollup of the same bucket to this one.
+     * @param other the other rollup
+     */
+    public void merge(ReadingRollup other) {
+        count += other.count;
+        for (Map.Entry<String, ChannelRollup> entry : other.channels.entrySet()) {
+            channels.computeIfAbsent(entry.getKey(), channel -> new ChannelRollup()).merge(entry.getValue());
+        }
+    }
+
+    /**
+     * Sets the statistics of a channel, used when a stored rollup is read.
+     * @param channel the name of the channel
+     * @param min the minimum value of the channel
+     * @param max the maximum value of the channel
+     * @param sum the sum of the values of the channel
+     * @param channelCount the number of values of the channel
+     */
+    public void setChannel(String channel, float min, float max, double sum, long channelCount) {
+        ChannelRollup channelRollup = new ChannelRollup();
+        channelRollup.min = min;
+        channelRollup.max = max;
+        channelRollup.sum = sum;
+        channelRollup.count = channelCount;
+        channels.put(channel, channelRollup);
+    }
+
+    /**
+     * Gets the key of the bucket, identifying it among the rollups of all the sensors and resolutions.
+     * @return the key of the bucket
+     */
+    public String key() {
+        return sensorId + "/" + resolution.collection() + "/" + startSeconds;
+    }
+
+    /**
+     * Gets the ID of the sensor.
+     * @return the ID of the sensor
+     */
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    /**
+     * Gets the resolution of the bucket.
+     * @return the resolution
+     */
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Gets the start of the bucket.
+     * @return the start of the bucket in seconds since the epoch
+     */
+    public long getStartSeconds() {
+        return startSeconds;
+    }
+
+    /**
+     * Gets the number of readings in the bucket.
+     * @return the number of readings
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Sets the number of readings in the bucket, used when a stored rollup is read.
+     * @param count the number of readings
+     */
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    /**
+     * Converts the rollup into the document stored in Firestore.
+     * @return the fields of the document
+     */
+    public Map<String, Object> toDocument() {
+        Map<String, Object> channelFields = new HashMap<>();
+        for (Map.Entry<String, ChannelRollup> entry : channels.entrySet()) {
+            ChannelRollup channel = entry.getValue();
+            channelFields.put(entry.getKey(), Map.of("min", (double) channel.min, "max", (double) channel.max, "sum", channel.sum, "count", channel.count));
+        }
+        return Map.of("start", Timestamp.ofTimeSecondsAndNanos(startSeconds, 0), "count", count, "channels", channelFields);
+    }
+
+    /**
+     * Converts the rollup into a bucket, the shape returned by the REST API.
+     * @return the bucket with the minimum, maximum, average and count of every channel
+     */
+    public ReadingBucketDTO toBucket() {
+        Map<String, ReadingBucketDTO.ChannelStats> stats = new HashMap<>();
+        for (Map.Entry<String, ChannelRollup> entry : channels.entrySet()) {
+            ChannelRollup channel = entry.getValue();
+            stats.put(entry.getKey(), new ReadingBucketDTO.ChannelStats(channel.min, channel.max, (float) (channel.sum / channel.count), (int) channel.count));
+        }
+        return new ReadingBucketDTO(Timestamp.ofTimeSecondsAndNanos(startSeconds, 0), (int) count, stats);
+    }
+
+    /**
+     * ChannelRollup holds the minimum, maximum, sum and count of the values of a channel.
+     */
+    private static class ChannelRollup {
+
+        /**
+         * The minimum value of the channel.
+         */
+        private float min = Float.POSITIVE_INFINITY;
+
+        /**
+         * The maximum value of the channel.
+         */
+        private float max = Float.NEGATIVE_INFINITY;
+
+        /**
+         * The sum of the values of the channel.
+         */
+        private double sum;
+
+        /**
+         * The number of values of the channel.
+         */
+        private long count;
+
+        /**
+         * Adds a value of the channel.
+         * @param value the value
+         */
+        private void add(float value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+        }
+
+        /**
+         * Adds the values of another rollup of the channel.
+         * @param other the other rollup
+         */
+        private void merge(ChannelRollup other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+        }
+    }
+}
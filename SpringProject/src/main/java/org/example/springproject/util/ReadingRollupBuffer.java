@@ -0,0 +1,122 @@
+/**
+ * ReadingRollupBuffer.java
+ * This class maintains the rollups of the sensor readings received over MQTT.
+ * It aggregates the readings in memory and merges them into the stored rollups periodically.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import jakarta.annotation.PreDestroy;
+import org.example.springproject.dto.SensorDTO;
+import org.example.springproject.entity.Details;
+import org.example.springproject.service.ReadingRollupService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * ReadingRollupBuffer adds every reading to the rollups of its buckets at every resolution, as it is ingested.
+ * A bucket costs one write per flush however many readings it received, so a sensor reporting every second
+ * writes a handful of rollups per flush instead of making the history queries scan every reading.
+ * If a flush fails, the rollups it didn't save are kept and merged again by the next flush.
+ */
+@Component
+public class ReadingRollupBuffer {
+
+    /**
+     * The ReadingRollupService used to merge the rollups into the stored ones.
+     */
+    private final ReadingRollupService readingRollupService;
+
+    /**
+     * Lock guarding the rollups waiting to be merged.
+     */
+    private final Object bufferLock = new Object();
+
+    /**
+     * Lock ensuring that the rollups are merged one flush at a time.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * The rollups of the readings received since the last flush, keyed by bucket.
+     */
+    private Map<String, ReadingRollup> rollups = new HashMap<>();
+
+    /**
+     * Constructor for ReadingRollupBuffer.
+     * @param readingRollupService the ReadingRollupService used to merge the rollups into the stored ones
+     */
+    public ReadingRollupBuffer(ReadingRollupService readingRollupService) {
+        this.readingRollupService = readingRollupService;
+    }
+
+    /**
+     * Adds the readings of a sensor to the rollups of their buckets.
+     * @param sensorDTO the sensor data containing the readings
+     */
+    public void add(SensorDTO sensorDTO) {
+        if (sensorDTO.getDetails() == null) {
+            return;
+        }
+        synchronized (bufferLock) {
+            for (Details details : sensorDTO.getDetails()) {
+                if (details.getTimestamp() == null || details.getData() == null) {
+                    continue;
+                }
+                long epochSeconds = details.getTimestamp().getSeconds();
+                for (ReadingRollup.Resolution resolution : ReadingRollup.Resolution.values()) {
+                    ReadingRollup rollup = new ReadingRollup(sensorDTO.getId(), resolution, resolution.bucketStart(epochSeconds));
+                    rollups.computeIfAbsent(rollup.key(), key -> rollup).add(details.getData());
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the rollups of the readings received since the last flush into the stored rollups.
+     * This method is annotated with @Scheduled, so it is called periodically with the configured flush interval.
+     */
+    @Scheduled(fixedDelayString = "${sensors.rollups.flush-interval-ms}")
+    public void flush() {
+        synchronized (writeLock) {
+            Map<String, ReadingRollup> pending;
+            synchronized (bufferLock) {
+                if (rollups.isEmpty()) {
+                    return;
+                }
+                pending = rollups;
+                rollups = new HashMap<>();
+            }
+
+            List<ReadingRollup> unsaved = readingRollupService.saveRollups(new ArrayList<>(pending.values()));
+            if (unsaved.isEmpty()) {
+                return;
+            }
+            System.err.println("Failed to save " + unsaved.size() + " of " + pending.size() + " reading rollups, retrying with the next flush");
+            synchronized (bufferLock) {
+                // Only the rollups that were not saved are kept, the readings received meanwhile are merged into them
+                Map<String, ReadingRollup> retry = new HashMap<>();
+                for (ReadingRollup rollup : unsaved) {
+                    retry.put(rollup.key(), rollup);
+                }
+                for (ReadingRollup rollup : rollups.values()) {
+                    retry.merge(rollup.key(), rollup, (failed, received) -> {
+                        failed.merge(received);
+                        return failed;
+                    });
+                }
+                rollups = retry;
+            }
+        }
+    }
+
+    /**
+     * Merges the remaining rollups when the application is shutting down.
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+}
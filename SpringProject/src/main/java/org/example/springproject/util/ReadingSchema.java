@@ -0,0 +1,99 @@
+/**
+ * ReadingSchema.java
+ * This class describes the float channels of the readings of a sensor type.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * ReadingSchema is an immutable, ordered list of channel names.
+ * A ReadingSeries stores the value of a channel at the index of the channel in its schema,
+ * so a reading costs a slot in a float array instead of a map entry with a boxed Float.
+ */
+public final class ReadingSchema {
+
+    /**
+     * The schema of a sensor whose type is unknown, extended with the channels found in its readings.
+     */
+    public static final ReadingSchema EMPTY = new ReadingSchema();
+
+    /**
+     * The fixed schemas of the known sensor types.
+     */
+    private static final Map<String, ReadingSchema> SENSOR_TYPE_SCHEMAS = Map.of(
+            "DHT22", new ReadingSchema("temperature", "humidity"),
+            "MQ5", new ReadingSchema("gas"),
+            "MQ2", new ReadingSchema("mq2Value")
+    );
+
+    /**
+     * The names of the channels, in storage order.
+     */
+    private final String[] channels;
+
+    /**
+     * Constructor for ReadingSchema.
+     * @param channels the names of the channels, in storage order
+     */
+    private ReadingSchema(String... channels) {
+        this.channels = channels;
+    }
+
+    /**
+     * Gets the schema of a sensor type.
+     * @param sensorType the type of the sensor, for example "DHT22"
+     * @return the fixed schema of the sensor type, or the empty schema if the type is unknown
+     */
+    public static ReadingSchema forSensorType(String sensorType) {
+        if (sensorType == null) {
+            return EMPTY;
+        }
+        return SENSOR_TYPE_SCHEMAS.getOrDefault(sensorType, EMPTY);
+    }
+
+    /**
+     * Gets the number of channels of the schema.
+     * @return the number of channels
+     */
+    public int size() {
+        return channels.length;
+    }
+
+    /**
+     * Gets the name of the channel at an index.
+     * @param index the index of the channel
+     * @return the name of the channel
+     */
+    public String channel(int index) {
+        return channels[index];
+    }
+
+    /**
+     * Finds the index of a channel.
+     * Schemas have a handful of channels, so a linear scan is cheaper than hashing.
+     * @param channel the name of the channel
+     * @return the index of the channel, or -1 if the schema doesn't contain it
+     */
+    public int indexOf(String channel) {
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i].equals(channel)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a schema with an additional channel appended after the existing ones.
+     * @param channel the name of the new channel
+     * @return a new schema containing the channels of this schema and the new channel
+     */
+    public ReadingSchema with(String channel) {
+        String[] extended = Arrays.copyOf(channels, channels.length + 1);
+        extended[channels.length] = channel;
+        return new ReadingSchema(extended);
+    }
+}
@@ -0,0 +1,361 @@
+/**
+ * ReadingSeries.java
+ * This class is the compact, in-memory representation of the readings of a sensor.
+ * It is used by the services and converted into Details objects only when the readings are returned by the REST API.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import com.google.cloud.Timestamp;
+import org.example.springproject.dto.ReadingBucketDTO;
+import org.example.springproject.entity.Details;
+
+import java.util.*;
+
+/**
+ * ReadingSeries stores the readings of a sensor column by column: a long epoch timestamp per reading
+ * and a row of float channels per reading, laid out according to a ReadingSchema.
+ * A channel missing from a reading is stored as NaN.
+ * It is not thread-safe: a series is built by one thread and only read afterwards.
+ */
+public class ReadingSeries {
+
+    /**
+     * The number of readings a series can hold before its arrays are grown, unless specified otherwise.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The number of microseconds in a second.
+     */
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    /**
+     * The schema of the channels, extended when a reading contains a channel it doesn't know.
+     */
+    private ReadingSchema schema;
+
+    /**
+     * The timestamps of the readings, in microseconds since the epoch.
+     */
+    private long[] timestamps;
+
+    /**
+     * The values of the readings, one row of schema.size() channels per reading.
+     */
+    private float[] values;
+
+    /**
+     * The number of readings in the series.
+     */
+    private int size;
+
+    /**
+     * Constructor for ReadingSeries.
+     * @param schema the schema of the channels
+     */
+    public ReadingSeries(ReadingSchema schema) {
+        this(schema, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for ReadingSeries.
+     * @param schema the schema of the channels
+     * @param capacity the number of readings the series can hold before its arrays are grown
+     */
+    public ReadingSeries(ReadingSchema schema, int capacity) {
+        this.schema = schema;
+        this.timestamps = new long[Math.max(capacity, 1)];
+        this.values = new float[Math.max(capacity, 1) * schema.size()];
+    }
+
+    /**
+     * Creates a series holding a single reading.
+     * @param schema the schema of the channels
+     * @param details the reading
+     * @return a series containing the reading
+     */
+    public static ReadingSeries of(ReadingSchema schema, Details details) {
+        ReadingSeries series = new ReadingSeries(schema, 1);
+        series.add(details);
+        return series;
+    }
+
+    /**
+     * Converts a Firestore timestamp into microseconds since the epoch.
+     * @param timestamp the Firestore timestamp
+     * @return the timestamp in microseconds since the epoch
+     */
+    public static long toEpochMicros(Timestamp timestamp) {
+        return timestamp.getSeconds() * MICROS_PER_SECOND + timestamp.getNanos() / 1_000;
+    }
+
+    /**
+     * Appends a reading with no values yet; its channels are NaN until they are set.
+     * @param epochMicros the timestamp of the reading in microseconds since the epoch
+     * @return the row of the new reading
+     */
+    public int addRow(long epochMicros) {
+        int stride = schema.size();
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2 * stride);
+        }
+        timestamps[size] = epochMicros;
+        Arrays.fill(values, size * stride, (size + 1) * stride, Float.NaN);
+        return size++;
+    }
+
+    /**
+     * Appends a reading given as a Details object.
+     * @param details the reading
+     * @return the row of the new reading
+     */
+    public int add(Details details) {
+        int row = addRow(toEpochMicros(details.getTimestamp()));
+        if (details.getData() != null) {
+            for (Map.Entry<String, Float> entry : details.getData().entrySet()) {
+                if (entry.getValue() != null) {
+                    set(row, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Sets the value of a channel of a reading, extending the schema if the channel is unknown.
+     * @param row the row of the reading
+     * @param channel the name of the channel
+     * @param value the value of the channel
+     */
+    public void set(int row, String channel, float value) {
+        int index = schema.indexOf(channel);
+        if (index < 0) {
+            index = addChannel(channel);
+        }
+        values[row * schema.size() + index] = value;
+    }
+
+    /**
+     * Extends the schema with a new channel and moves the existing values to the wider rows.
+     * This only happens when the readings of a sensor don't match the schema of its type.
+     * @param channel the name of the new channel
+     * @return the index of the new channel
+     */
+    private int addChannel(String channel) {
+        int oldStride = schema.size();
+        schema = schema.with(channel);
+        int newStride = schema.size();
+
+        float[] widened = new float[timestamps.length * newStride];
+        Arrays.fill(widened, Float.NaN);
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(values, row * oldStride, widened, row * newStride, oldStride);
+        }
+        values = widened;
+        return newStride - 1;
+    }
+
+    /**
+     * Gets the schema of the channels.
+     * @return the schema
+     */
+    public ReadingSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Gets the number of readings in the series.
+     * @return the number of readings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the series contains no readings.
+     * @return true if the series is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the timestamp of a reading.
+     * @param row the row of the reading
+     * @return the timestamp in microseconds since the epoch
+     */
+    public long getEpochMicros(int row) {
+        return timestamps[row];
+    }
+
+    /**
+     * Gets the value of a channel of a reading.
+     * @param row the row of the reading
+     * @param channel the index of the channel in the schema
+     * @return the value of the channel, or NaN if the reading doesn't have it
+     */
+    public float getValue(int row, int channel) {
+        return values[row * schema.size() + channel];
+    }
+
+    /**
+     * Finds the row of the newest reading.
+     * @return the row of the reading with the latest timestamp, or -1 if the series is empty
+     */
+    public int indexOfLatest() {
+        int latest = -1;
+        for (int row = 0; row < size; row++) {
+            if (latest < 0 || timestamps[row] >= timestamps[latest]) {
+                latest = row;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Creates a series holding a copy of a single reading of this series.
+     * @param row the row of the reading
+     * @return a new series containing only the reading
+     */
+    public ReadingSeries copyRow(int row) {
+        ReadingSeries copy = new ReadingSeries(schema, 1);
+        copy.addRow(timestamps[row]);
+        System.arraycopy(values, row * schema.size(), copy.values, 0, schema.size());
+        return copy;
+    }
+
+    /**
+     * Sorts the readings by timestamp.
+     * The readings are usually loaded in chronological order already, in which case nothing is moved.
+     */
+    public void sortByTimestamp() {
+        boolean sorted = true;
+        for (int row = 1; row < size && sorted; row++) {
+            sorted = timestamps[row - 1] <= timestamps[row];
+        }
+        if (sorted) {
+            return;
+        }
+
+        Integer[] order = new Integer[size];
+        for (int row = 0; row < size; row++) {
+            order[row] = row;
+        }
+        Arrays.sort(order, Comparator.comparingLong(row -> timestamps[row]));
+
+        int stride = schema.size();
+        long[] sortedTimestamps = new long[timestamps.length];
+        float[] sortedValues = new float[values.length];
+        for (int row = 0; row < size; row++) {
+            sortedTimestamps[row] = timestamps[order[row]];
+            System.arraycopy(values, order[row] * stride, sortedValues, row * stride, stride);
+        }
+        timestamps = sortedTimestamps;
+        values = sortedValues;
+    }
+
+    /**
+     * Converts a reading into a Details object, the shape returned by the REST API.
+     * @param row the row of the reading
+     * @return a Details object holding the timestamp and the channels the reading has
+     */
+    public Details toDetails(int row) {
+        Map<String, Float> data = new HashMap<>();
+        for (int channel = 0; channel < schema.size(); channel++) {
+            float value = getValue(row, channel);
+            if (!Float.isNaN(value)) {
+                data.put(schema.channel(channel), value);
+            }
+        }
+        long epochMicros = timestamps[row];
+        return new Details(Timestamp.ofTimeMicroseconds(epochMicros), data);
+    }
+
+    /**
+     * Converts all the readings into Details objects, the shape returned by the REST API.
+     * @return a list of Details objects in the order of the series
+     */
+    public List<Details> toDetailsList() {
+        List<Details> details = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            details.add(toDetails(row));
+        }
+        return details;
+    }
+
+    /**
+     * Aggregates the readings into time buckets, in a single pass over the series.
+     * The series must be sorted by timestamp; only the buckets holding readings are returned.
+     * @param originMicros the start of the first bucket, in microseconds since the epoch; the readings before it fall in earlier buckets
+     * @param resolutionMicros the width of a bucket in microseconds
+     * @return the buckets in chronological order, with the minimum, maximum, average and count of every channel
+     */
+    public List<ReadingBucketDTO> toBuckets(long originMicros, long resolutionMicros) {
+        if (resolutionMicros < 1) {
+            throw new IllegalArgumentException("Bucket resolution must be positive!");
+        }
+        int stride = schema.size();
+        float[] mins = new float[stride];
+        float[] maxs = new float[stride];
+        double[] sums = new double[stride];
+        int[] counts = new int[stride];
+
+        List<ReadingBucketDTO> buckets = new ArrayList<>();
+        long bucketStart = 0;
+        int readings = 0;
+        for (int row = 0; row < size; row++) {
+            long start = originMicros + Math.floorDiv(timestamps[row] - originMicros, resolutionMicros) * resolutionMicros;
+            if (readings > 0 && start != bucketStart) {
+                buckets.add(toBucket(bucketStart, readings, mins, maxs, sums, counts));
+                Arrays.fill(sums, 0);
+                Arrays.fill(counts, 0);
+                readings = 0;
+            }
+            bucketStart = start;
+            readings++;
+
+            for (int channel = 0; channel < stride; channel++) {
+                float value = values[row * stride + channel];
+                if (Float.isNaN(value)) {
+                    continue;
+                }
+                if (counts[channel] == 0) {
+                    mins[channel] = value;
+                    maxs[channel] = value;
+                } else {
+                    mins[channel] = Math.min(mins[channel], value);
+                    maxs[channel] = Math.max(maxs[channel], value);
+                }
+                sums[channel] += value;
+                counts[channel]++;
+            }
+        }
+        if (readings > 0) {
+            buckets.add(toBucket(bucketStart, readings, mins, maxs, sums, counts));
+        }
+        return buckets;
+    }
+
+    /**
+     * Builds a bucket from the statistics accumulated for its channels.
+     * @param startMicros the start of the bucket in microseconds since the epoch
+     * @param readings the number of readings in the bucket
+     * @param mins the minimum value of every channel
+     * @param maxs the maximum value of every channel
+     * @param sums the sum of the values of every channel
+     * @param counts the number of values of every channel, 0 for the channels missing from the bucket
+     * @return the bucket, holding the channels having values
+     */
+    private ReadingBucketDTO toBucket(long startMicros, int readings, float[] mins, float[] maxs, double[] sums, int[] counts) {
+        Map<String, ReadingBucketDTO.ChannelStats> channels = new HashMap<>();
+        for (int channel = 0; channel < counts.length; channel++) {
+            if (counts[channel] > 0) {
+                channels.put(schema.channel(channel), new ReadingBucketDTO.ChannelStats(
+                        mins[channel], maxs[channel], (float) (sums[channel] / counts[channel]), counts[channel]));
+            }
+        }
+        return new ReadingBucketDTO(Timestamp.ofTimeMicroseconds(startMicros), readings, channels);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * RoomContext.java
+ * This class holds everything the MQTT pipeline needs to know about a room to raise and deliver alerts.
+ * It is resolved once per room and shared by all the alert checks of a message.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.example.springproject.dto.UserDTO;
+import org.example.springproject.entity.User;
+
+/**
+ * RoomContext is an immutable snapshot of a room and its owner.
+ */
+public class RoomContext {
+
+    /**
+     * The ID of the room.
+     */
+    private final String roomId;
+
+    /**
+     * The name of the room, used in the alert messages.
+     */
+    private final String roomName;
+
+    /**
+     * The user the room is assigned to.
+     */
+    private final UserDTO owner;
+
+    /**
+     * The owner of the room as a User entity, mapped once for the AlertManager.
+     */
+    private final User ownerUser;
+
+    /**
+     * The decrypted phone number of the owner, or null if the owner has no phone number.
+     */
+    private final String ownerPhoneNumber;
+
+    /**
+     * Constructor for RoomContext.
+     * @param roomId the ID of the room
+     * @param roomName the name of the room
+     * @param owner the user the room is assigned to
+     * @param ownerPhoneNumber the decrypted phone number of the owner, or null if the owner has no phone number
+     */
+    public RoomContext(String roomId, String roomName, UserDTO owner, String ownerPhoneNumber) {
+        this.roomId = roomId;
+        this.roomName = roomName;
+        this.owner = owner;
+        this.ownerUser = UserMapper.toEntity(owner);
+        this.ownerPhoneNumber = ownerPhoneNumber;
+    }
+
+    /**
+     * Gets the ID of the room.
+     * @return the ID of the room
+     */
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /**
+     * Gets the name of the room.
+     * @return the name of the room
+     */
+    public String getRoomName() {
+        return roomName;
+    }
+
+    /**
+     * Gets the user the room is assigned to.
+     * @return the owner of the room
+     */
+    public UserDTO getOwner() {
+        return owner;
+    }
+
+    /**
+     * Gets the owner of the room as a User entity, as expected by the AlertManager.
+     * @return the owner of the room as a User entity
+     */
+    public User getOwnerAsUser() {
+        return ownerUser;
+    }
+
+    /**
+     * Gets the decrypted phone number of the owner.
+     * @return the phone number of the owner, or null if the owner has no phone number
+     */
+    public String getOwnerPhoneNumber() {
+        return ownerPhoneNumber;
+    }
+}
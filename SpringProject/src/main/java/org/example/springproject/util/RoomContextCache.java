@@ -0,0 +1,122 @@
+/**
+ * RoomContextCache.java
+ * This class caches the RoomContext of the rooms receiving sensor data.
+ * The entries expire after a configurable time and are invalidated by the services when a room or a user changes.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * RoomContextCache keeps a RoomContext per room ID, so the room and its owner are not read from Firestore for every message.
+ * It doesn't depend on the services itself: the loader is passed by the caller, which lets the services invalidate entries without a circular dependency.
+ */
+@Component
+public class RoomContextCache {
+
+    /**
+     * The time, in milliseconds, after which a cached context is loaded again.
+     */
+    private final long ttlMillis;
+
+    /**
+     * The cached contexts, keyed by room ID.
+     */
+    private final Map<String, CachedRoomContext> contexts = new ConcurrentHashMap<>();
+
+    /**
+     * Counter incremented on every invalidation, used to discard contexts that were loaded while an invalidation happened.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Constructor for RoomContextCache.
+     * @param ttlMillis the time to live of a cached context in milliseconds, injected from application properties
+     */
+    public RoomContextCache(@Value("${mqtt.room-context.ttl-ms}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Gets the context of a room, loading it if it isn't cached or has expired.
+     * @param roomId the ID of the room
+     * @param loader the function loading the context of a room from the database
+     * @return the context of the room
+     * @throws RuntimeException if the context isn't cached and the loader fails
+     */
+    public RoomContext get(String roomId, Function<String, RoomContext> loader) throws RuntimeException {
+        long now = System.currentTimeMillis();
+        CachedRoomContext cached = contexts.get(roomId);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.context;
+        }
+
+        long invalidationsBeforeLoad = invalidations.get();
+        RoomContext context = loader.apply(roomId);
+
+        // A context loaded while something was invalidated may already be stale, so it is used once but not cached
+        if (invalidations.get() == invalidationsBeforeLoad) {
+            contexts.put(roomId, new CachedRoomContext(context, now + ttlMillis));
+        }
+        return context;
+    }
+
+    /**
+     * Removes the context of a room from the cache.
+     * It is called when the room is modified.
+     * @param roomId the ID of the room
+     */
+    public void invalidate(String roomId) {
+        if (roomId == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        contexts.remove(roomId);
+    }
+
+    /**
+     * Removes the contexts of all the rooms owned by a user from the cache.
+     * It is called when the user, including their phone number, is modified.
+     * @param userId the ID of the user
+     */
+    public void invalidateUser(String userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        contexts.values().removeIf(cached -> cached.context.getOwner() != null && userId.equals(cached.context.getOwner().getId()));
+    }
+
+    /**
+     * CachedRoomContext holds a cached context together with its expiration time.
+     */
+    private static class CachedRoomContext {
+
+        /**
+         * The cached context.
+         */
+        private final RoomContext context;
+
+        /**
+         * The time, in milliseconds since the epoch, at which the context expires.
+         */
+        private final long expiresAt;
+
+        /**
+         * Constructor for CachedRoomContext.
+         * @param context the cached context
+         * @param expiresAt the time at which the context expires
+         */
+        private CachedRoomContext(RoomContext context, long expiresAt) {
+            this.context = context;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
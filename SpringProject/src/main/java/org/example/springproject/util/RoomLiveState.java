@@ -0,0 +1,87 @@
+/**
+ * RoomLiveState.java
+ * This class holds the latest reading of every channel of every sensor of a room.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RoomLiveState is the live state of a room: for every sensor and parameter, the latest value and when it was measured.
+ * Composite alert rules are evaluated against it, so a rule on several sensors doesn't read the history of any of them.
+ * Every channel value is replaced as a whole, so a reader never sees the value of one reading with the timestamp of another.
+ */
+public class RoomLiveState {
+
+    /**
+     * The latest values, keyed by sensor ID and then by parameter.
+     */
+    private final Map<String, Map<String, ChannelValue>> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Records a reading of a channel, unless the channel already holds a newer one.
+     * @param sensorId the ID of the sensor the reading comes from
+     * @param parameter the parameter of the reading, for example "temperature"
+     * @param timestamp the timestamp of the reading in seconds since the epoch
+     * @param value the value of the reading
+     */
+    public void update(String sensorId, String parameter, long timestamp, float value) {
+        channels.computeIfAbsent(sensorId, id -> new ConcurrentHashMap<>())
+                .merge(parameter, new ChannelValue(timestamp, value), (current, reading) -> reading.timestamp >= current.timestamp ? reading : current);
+    }
+
+    /**
+     * Gets the latest reading of a channel.
+     * @param sensorId the ID of the sensor
+     * @param parameter the parameter of the channel
+     * @return the latest reading, or null if the channel never reported
+     */
+    public ChannelValue get(String sensorId, String parameter) {
+        Map<String, ChannelValue> sensorChannels = channels.get(sensorId);
+        return sensorChannels != null ? sensorChannels.get(parameter) : null;
+    }
+
+    /**
+     * ChannelValue is an immutable reading of a channel.
+     */
+    public static final class ChannelValue {
+
+        /**
+         * The timestamp of the reading in seconds since the epoch.
+         */
+        private final long timestamp;
+
+        /**
+         * The value of the reading.
+         */
+        private final float value;
+
+        /**
+         * Constructor for ChannelValue.
+         * @param timestamp the timestamp of the reading in seconds since the epoch
+         * @param value the value of the reading
+         */
+        public ChannelValue(long timestamp, float value) {
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        /**
+         * Gets the timestamp of the reading.
+         * @return the timestamp in seconds since the epoch
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Gets the value of the reading.
+         * @return the value
+         */
+        public float getValue() {
+            return value;
+        }
+    }
+}
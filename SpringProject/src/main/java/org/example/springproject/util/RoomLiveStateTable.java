@@ -0,0 +1,33 @@
+/**
+ * RoomLiveStateTable.java
+ * This class keeps the live state of every room receiving readings.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RoomLiveStateTable maps every room to its live state, filled by the MQTT pipeline as the readings of its sensors arrive.
+ * The state only lives in memory: after a restart, a composite rule matches again once all of its channels reported.
+ */
+@Component
+public class RoomLiveStateTable {
+
+    /**
+     * The live states, keyed by room ID.
+     */
+    private final Map<String, RoomLiveState> rooms = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the live state of a room, creating it on the first reading of the room.
+     * @param roomId the ID of the room
+     * @return the live state of the room
+     */
+    public RoomLiveState getRoom(String roomId) {
+        return rooms.computeIfAbsent(roomId, id -> new RoomLiveState());
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * SensorDataWriteBuffer.java
+ * This class is a write-behind buffer for the sensor readings received over MQTT.
+ * It coalesces the readings that arrive within a short window and saves them with Firestore write batches.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import jakarta.annotation.PreDestroy;
+import org.example.springproject.dto.SensorDTO;
+import org.example.springproject.service.RoomService;
+import org.example.springproject.service.SensorService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * SensorDataWriteBuffer collects the readings of the sensors and writes them in micro-batches.
+ * A batch is written when the flush interval elapses or when the maximum number of buffered readings is reached,
+ * so a burst of readings costs a handful of commits instead of two synchronous round trips per reading.
+ * If a batch fails to save, it is kept and written again by the next flush.
+ * While the writes keep failing, the buffer is bounded by its capacity: once it is full, the oldest readings are dropped,
+ * so an outage of Firestore doesn't exhaust the memory, and the dropped readings are counted and logged by the next flush.
+ */
+@Component
+public class SensorDataWriteBuffer {
+
+    /**
+     * The SensorService used to save the readings of the sensors.
+     */
+    private final SensorService sensorService;
+
+    /**
+     * The RoomService used to update the rooms with the latest reading of their sensors.
+     */
+    private final RoomService roomService;
+
+    /**
+     * The number of buffered readings that triggers a write before the flush interval elapses.
+     */
+    private final int maxReadings;
+
+    /**
+     * The maximum number of buffered readings, beyond which the oldest ones are dropped.
+     */
+    private final int capacity;
+
+    /**
+     * Lock guarding the list of buffered readings.
+     */
+    private final Object bufferLock = new Object();
+
+    /**
+     * Lock ensuring that the batches are written one at a time, in the order they were collected.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * The readings waiting to be written, in the order they were received.
+     */
+    private List<BufferedReading> buffer = new ArrayList<>();
+
+    /**
+     * Whether the last write failed, in which case only the scheduled flush retries, so the ingest doesn't wait on a failing write.
+     */
+    private boolean retrying;
+
+    /**
+     * The number of readings dropped since the last flush, guarded by the buffer lock.
+     */
+    private int droppedSinceFlush;
+
+    /**
+     * The total number of readings dropped because the buffer was full, guarded by the buffer lock.
+     */
+    private long droppedReadings;
+
+    /**
+     * Constructor for SensorDataWriteBuffer.
+     * @param sensorService the SensorService used to save the readings of the sensors
+     * @param roomService the RoomService used to update the rooms with the latest reading of their sensors
+     * @param maxReadings the number of buffered readings that triggers a write, injected from application properties
+     * @param capacity the maximum number of buffered readings, injected from application properties
+     */
+    public SensorDataWriteBuffer(SensorService sensorService, RoomService roomService,
+                                 @Value("${mqtt.write-buffer.max-readings}") int maxReadings,
+                                 @Value("${mqtt.write-buffer.capacity}") int capacity) {
+        this.sensorService = sensorService;
+        this.roomService = roomService;
+        this.maxReadings = maxReadings;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds the reading of a sensor to the buffer.
+     * If the buffer reached the number of readings that triggers a write, the buffered readings are written on the calling thread,
+     * unless the last write failed. If it reached its capacity, the oldest reading is dropped.
+     * @param roomId the ID of the room the sensor belongs to
+     * @param sensorDTO the sensor data containing the reading
+     */
+    public void add(String roomId, SensorDTO sensorDTO) {
+        boolean full;
+        synchronized (bufferLock) {
+            buffer.add(new BufferedReading(roomId, sensorDTO));
+            dropOverflow();
+            full = buffer.size() >= maxReadings && !retrying;
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all the buffered readings.
+     * This method is annotated with @Scheduled, so it is called periodically with the configured flush interval.
+     */
+    @Scheduled(fixedDelayString = "${mqtt.write-buffer.flush-interval-ms}")
+    public void flush() {
+        synchronized (writeLock) {
+            List<BufferedReading> readings;
+            synchronized (bufferLock) {
+                if (droppedSinceFlush > 0) {
+                    System.err.println("Write buffer full, dropped the " + droppedSinceFlush + " oldest readings (" + droppedReadings + " in total)");
+                    droppedSinceFlush = 0;
+                }
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                readings = buffer;
+                buffer = new ArrayList<>();
+            }
+
+            boolean written = write(readings);
+            synchronized (bufferLock) {
+                retrying = !written;
+                if (!written) {
+                    // The failed readings go back ahead of the ones received meanwhile, so they are retried first and in order
+                    readings.addAll(buffer);
+                    buffer = readings;
+                    dropOverflow();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the total number of readings dropped because the buffer was full.
+     * @return the number of dropped readings
+     */
+    public long getDroppedReadings() {
+        synchronized (bufferLock) {
+            return droppedReadings;
+        }
+    }
+
+    /**
+     * Drops the oldest buffered readings beyond the capacity of the buffer.
+     * It must be called while holding the buffer lock.
+     */
+    private void dropOverflow() {
+        int overflow = buffer.size() - capacity;
+        if (overflow > 0) {
+            buffer.subList(0, overflow).clear();
+            droppedSinceFlush += overflow;
+            droppedReadings += overflow;
+        }
+    }
+
+    /**
+     * Writes the remaining readings when the application is shutting down.
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Saves a batch of readings and updates the rooms of their sensors.
+     * The readings are added to their buckets with an array union, so saving again a batch that was partly committed doesn't duplicate them.
+     * @param readings the readings to be written, in the order they were received
+     * @return true if the readings were saved, false if they have to be retried
+     */
+    private boolean write(List<BufferedReading> readings) {
+        List<SensorDTO> sensorData = new ArrayList<>(readings.size());
+        Map<String, List<SensorDTO>> sensorDataByRoom = new LinkedHashMap<>();
+        for (BufferedReading reading : readings) {
+            sensorData.add(reading.sensorDTO);
+            sensorDataByRoom.computeIfAbsent(reading.roomId, roomId -> new ArrayList<>()).add(reading.sensorDTO);
+        }
+
+        try {
+            sensorService.saveSensorDataBatch(sensorData);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to save a batch of " + sensorData.size() + " readings, retrying with the next flush: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            roomService.updateRoomsWithSensorData(sensorDataByRoom);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to update " + sensorDataByRoom.size() + " rooms with sensor data: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * BufferedReading holds a reading waiting to be written together with the room of its sensor.
+     */
+    private static class BufferedReading {
+
+        /**
+         * The ID of the room the sensor belongs to.
+         */
+        private final String roomId;
+
+        /**
+         * The sensor data containing the reading.
+         */
+        private final SensorDTO sensorDTO;
+
+        /**
+         * Constructor for BufferedReading.
+         * @param roomId the ID of the room the sensor belongs to
+         * @param sensorDTO the sensor data containing the reading
+         */
+        private BufferedReading(String roomId, SensorDTO sensorDTO) {
+            this.roomId = roomId;
+            this.sensorDTO = sensorDTO;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * SensorReading.java
+ * This class is a reusable holder for the values decoded from the payload of an MQTT message.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+import java.util.Arrays;
+
+/**
+ * SensorReading stores the timestamp and the numeric fields of a decoded payload in primitive arrays.
+ * An instance is cleared and refilled for every message, so decoding a payload doesn't allocate a map or box its values.
+ * It is not thread-safe: every ingest worker uses its own instance.
+ */
+public class SensorReading {
+
+    /**
+     * The initial number of fields a reading can hold before its arrays are grown.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * The timestamp of the reading, in seconds since the epoch.
+     */
+    private long timestamp;
+
+    /**
+     * Whether the payload contained a timestamp.
+     */
+    private boolean hasTimestamp;
+
+    /**
+     * The names of the decoded fields, as they appear in the payload.
+     */
+    private String[] fields = new String[INITIAL_CAPACITY];
+
+    /**
+     * The values of the decoded fields, at the same index as their names.
+     */
+    private float[] values = new float[INITIAL_CAPACITY];
+
+    /**
+     * The number of decoded fields.
+     */
+    private int size;
+
+    /**
+     * Clears the reading, so it can be filled with the values of the next payload.
+     */
+    public void clear() {
+        Arrays.fill(fields, 0, size, null);
+        size = 0;
+        timestamp = 0;
+        hasTimestamp = false;
+    }
+
+    /**
+     * Sets the timestamp of the reading.
+     * @param timestamp the timestamp in seconds since the epoch
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        this.hasTimestamp = true;
+    }
+
+    /**
+     * Gets the timestamp of the reading.
+     * @return the timestamp in seconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Checks whether the payload contained a timestamp.
+     * @return true if a timestamp was set since the last clear, false otherwise
+     */
+    public boolean hasTimestamp() {
+        return hasTimestamp;
+    }
+
+    /**
+     * Adds the value of a field to the reading.
+     * @param field the name of the field in the payload
+     * @param value the value of the field
+     */
+    public void put(String field, float value) {
+        if (size == fields.length) {
+            fields = Arrays.copyOf(fields, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        fields[size] = field;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Finds the index of a field in the reading.
+     * Payloads have a handful of fields, so a linear scan is cheaper than hashing.
+     * @param field the name of the field in the payload
+     * @return the index of the field, or -1 if the payload didn't contain it
+     */
+    public int indexOf(String field) {
+        for (int i = 0; i < size; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value of the field at an index.
+     * @param index the index returned by indexOf
+     * @return the value of the field
+     */
+    public float valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * Gets the number of decoded fields.
+     * @return the number of fields
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * SlidingWindow.java
+ * This class keeps the latest readings of a sensor channel for a windowed alert rule and maintains their aggregation incrementally.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+/**
+ * SlidingWindow is a ring buffer of the latest readings watched by a windowed rule.
+ * Adding a reading updates the aggregation of the rule in amortized O(1), without looking at the rest of the window:
+ * the average keeps a running sum, min and max keep a monotonic deque of the candidate extremes,
+ * the rate only needs the oldest and the latest reading, and the count keeps the number of readings meeting the condition.
+ * The ring buffer has a fixed capacity; when a time window holds more readings than that, the oldest ones are dropped early.
+ */
+public class SlidingWindow {
+
+    /**
+     * The rule the window belongs to.
+     */
+    private final AlertRule rule;
+
+    /**
+     * The timestamps of the readings in seconds since the epoch, indexed by sequence number modulo the capacity.
+     */
+    private final long[] timestamps;
+
+    /**
+     * The values of the readings, indexed by sequence number modulo the capacity.
+     */
+    private final float[] values;
+
+    /**
+     * Whether every reading met the condition of the rule, only kept for the count aggregation.
+     */
+    private final boolean[] matched;
+
+    /**
+     * The sequence number of the oldest reading of the window.
+     */
+    private long head;
+
+    /**
+     * The sequence number the next reading will get.
+     */
+    private long tail;
+
+    /**
+     * The sum of the values of the window, only kept for the average.
+     */
+    private double sum;
+
+    /**
+     * The number of readings of the window meeting the condition of the rule, only kept for the count aggregation.
+     */
+    private int matchedCount;
+
+    /**
+     * The sequence numbers of the candidate extremes of the window, only kept for min and max.
+     * The values of the readings they point to are monotonic from the front to the back, and the front is the current extreme.
+     */
+    private final long[] extremes;
+
+    /**
+     * The position of the front of the extremes deque.
+     */
+    private int extremesHead;
+
+    /**
+     * The number of sequence numbers in the extremes deque.
+     */
+    private int extremesSize;
+
+    /**
+     * Constructor for SlidingWindow.
+     * The count aggregation keeps exactly the last M readings, which the custom alerts are validated against maxSamples for when saved;
+     * the other aggregations keep at most maxSamples readings of their time window.
+     * @param rule the windowed rule the window belongs to
+     * @param maxSamples the maximum number of readings a time window keeps
+     */
+    public SlidingWindow(AlertRule rule, int maxSamples) {
+        this.rule = rule;
+        int capacity = rule.getAggregation() == WindowAggregation.COUNT ? rule.getWindowSamples() : maxSamples;
+        this.timestamps = new long[capacity];
+        this.values = new float[capacity];
+        this.matched = rule.getAggregation() == WindowAggregation.COUNT ? new boolean[capacity] : null;
+        this.extremes = rule.getAggregation() == WindowAggregation.MIN || rule.getAggregation() == WindowAggregation.MAX ? new long[capacity] : null;
+    }
+
+    /**
+     * Gets the rule the window belongs to.
+     * @return the rule
+     */
+    public AlertRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Adds a reading to the window, drops the readings that fell out of it and returns the new aggregation.
+     * A reading older than the latest one is treated as if it arrived at the time of the latest one, so the window stays ordered.
+     * @param timestamp the timestamp of the reading in seconds since the epoch
+     * @param value the value of the reading
+     * @return the aggregation of the window, or NaN if it is not defined yet (the rate of a single reading)
+     */
+    public synchronized float add(long timestamp, float value) {
+        if (tail > head) {
+            timestamp = Math.max(timestamp, timestamps[index(tail - 1)]);
+        }
+        if (tail - head == values.length) {
+            evictOldest();
+        }
+
+        int index = index(tail);
+        timestamps[index] = timestamp;
+        values[index] = value;
+        sum += value;
+        if (matched != null) {
+            matched[index] = rule.matchesSample(value);
+            if (matched[index]) {
+                matchedCount++;
+            }
+        }
+        if (extremes != null) {
+            pushExtreme(tail, value);
+        }
+        tail++;
+
+        if (rule.getAggregation() != WindowAggregation.COUNT) {
+            long oldestKept = timestamp - rule.getWindowSeconds();
+            while (tail - head > 1 && timestamps[index(head)] <= oldestKept) {
+                evictOldest();
+            }
+        }
+        return aggregate();
+    }
+
+    /**
+     * Computes the aggregation of the readings currently in the window.
+     * @return the aggregation, or NaN if it is not defined
+     */
+    private float aggregate() {
+        int size = (int) (tail - head);
+        switch (rule.getAggregation()) {
+            case AVG:
+                return (float) (sum / size);
+            case MIN:
+            case MAX:
+                return values[index(extremes[extremesHead])];
+            case RATE:
+                long elapsed = timestamps[index(tail - 1)] - timestamps[index(head)];
+                if (elapsed <= 0) {
+                    return Float.NaN;
+                }
+                return (values[index(tail - 1)] - values[index(head)]) / elapsed;
+            case COUNT:
+                return matchedCount;
+            default:
+                return values[index(tail - 1)];
+        }
+    }
+
+    /**
+     * Removes the oldest reading from the window.
+     */
+    private void evictOldest() {
+        int index = index(head);
+        sum -= values[index];
+        if (matched != null && matched[index]) {
+            matchedCount--;
+        }
+        if (extremes != null && extremes[extremesHead] == head) {
+            extremesHead = (extremesHead + 1) % extremes.length;
+            extremesSize--;
+        }
+        head++;
+        if (head == tail) {
+            // Resetting the sum when the window is empty keeps the rounding errors from piling up
+            sum = 0;
+        }
+    }
+
+    /**
+     * Adds a reading to the back of the extremes deque, after removing the readings it makes irrelevant:
+     * a reading that is not more extreme than a newer one can never be the extreme of the window again.
+     * @param sequence the sequence number of the reading
+     * @param value the value of the reading
+     */
+    private void pushExtreme(long sequence, float value) {
+        boolean keepsLargest = rule.getAggregation() == WindowAggregation.MAX;
+        while (extremesSize > 0) {
+            float back = values[index(extremes[(extremesHead + extremesSize - 1) % extremes.length])];
+            if (keepsLargest ? back > value : back < value) {
+                break;
+            }
+            extremesSize--;
+        }
+        extremes[(extremesHead + extremesSize) % extremes.length] = sequence;
+        extremesSize++;
+    }
+
+    /**
+     * Maps a sequence number to its position in the ring buffer.
+     * @param sequence the sequence number of a reading
+     * @return the position of the reading in the arrays
+     */
+    private int index(long sequence) {
+        return (int) (sequence % values.length);
+    }
+}
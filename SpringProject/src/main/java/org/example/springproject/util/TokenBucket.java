@@ -0,0 +1,101 @@
+/**
+ * TokenBucket.java
+ * This class is a token bucket limiting how often an action can be taken.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+/**
+ * TokenBucket holds up to a number of tokens, refilled evenly over a period, and every action takes one of them.
+ * A full bucket allows a burst of as many actions as its capacity; after that, the actions are limited to the refill rate.
+ */
+public class TokenBucket {
+
+    /**
+     * The maximum number of tokens the bucket holds.
+     */
+    private final double capacity;
+
+    /**
+     * The number of tokens added per millisecond.
+     */
+    private final double refillPerMillis;
+
+    /**
+     * The number of tokens in the bucket.
+     */
+    private double tokens;
+
+    /**
+     * The time, in milliseconds since the epoch, the tokens were last refilled at.
+     */
+    private long refilledAt;
+
+    /**
+     * Constructor for TokenBucket. The bucket starts full.
+     * @param capacity the maximum number of tokens the bucket holds, which are all refilled over the period
+     * @param periodMillis the period, in milliseconds, over which the bucket is refilled from empty to full
+     * @param now the current time in milliseconds since the epoch
+     */
+    public TokenBucket(int capacity, long periodMillis, long now) {
+        if (capacity < 1 || periodMillis < 1) {
+            throw new IllegalArgumentException("Token bucket capacity and period must be positive!");
+        }
+        this.capacity = capacity;
+        this.refillPerMillis = (double) capacity / periodMillis;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes a token from the bucket, if there is one.
+     * @param now the current time in milliseconds since the epoch
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    public synchronized boolean tryAcquire(long now) {
+        refill(now);
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Gives back a token taken for an action that was not taken after all.
+     */
+    public synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * Computes how long it takes until the bucket holds a token.
+     * @param now the current time in milliseconds since the epoch
+     * @return the time in milliseconds, 0 if the bucket holds a token
+     */
+    public synchronized long millisUntilAvailable(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / refillPerMillis);
+    }
+
+    /**
+     * Checks whether the bucket is full, so it can be forgotten.
+     * @param now the current time in milliseconds since the epoch
+     * @return true if the bucket is full, false otherwise
+     */
+    public synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    /**
+     * Adds the tokens refilled since the last refill.
+     * @param now the current time in milliseconds since the epoch
+     */
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerMillis);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * TrackedRule.java
+ * This interface defines what the AlertStateTracker needs to know about a rule to keep its state.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+/**
+ * TrackedRule is a rule whose incidents are de-duplicated by the AlertStateTracker,
+ * either a rule on a single channel or a composite rule on the live state of a room.
+ */
+public interface TrackedRule {
+
+    /**
+     * Gets the ID of the rule.
+     * @return the ID of the rule
+     */
+    String getId();
+
+    /**
+     * Checks whether another rule evaluates the readings exactly like this one, so the state kept for this rule stays valid for it.
+     * @param other the other rule
+     * @return true if the conditions are the same, false otherwise
+     */
+    boolean hasSameCondition(TrackedRule other);
+}
@@ -0,0 +1,82 @@
+/**
+ * WindowAggregation.java
+ * This enum represents how the readings of a channel are aggregated before they are compared against the threshold of an alert.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.util;
+
+/**
+ * WindowAggregation resolves the aggregation of a custom alert ("value", "avg", "min", "max", "rate", "count") once.
+ * Except for VALUE, the aggregations are computed over a sliding window of the latest readings of the sensor,
+ * so a noisy sensor crossing the threshold for a single reading doesn't raise an alert.
+ */
+public enum WindowAggregation {
+
+    /**
+     * The latest reading is compared against the threshold, without any window.
+     */
+    VALUE("value"),
+
+    /**
+     * The average of the readings of the last window seconds is compared against the threshold.
+     */
+    AVG("avg"),
+
+    /**
+     * The smallest reading of the last window seconds is compared against the threshold.
+     */
+    MIN("min"),
+
+    /**
+     * The largest reading of the last window seconds is compared against the threshold.
+     */
+    MAX("max"),
+
+    /**
+     * The change per second between the oldest and the latest reading of the last window seconds is compared against the threshold.
+     */
+    RATE("rate"),
+
+    /**
+     * Every reading is compared against the threshold, and the alert is raised when at least N of the last M readings meet it.
+     */
+    COUNT("count");
+
+    /**
+     * The name of the aggregation, as stored in the custom alert.
+     */
+    private final String name;
+
+    /**
+     * Constructor for WindowAggregation.
+     * @param name the name of the aggregation
+     */
+    WindowAggregation(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of the aggregation.
+     * @return the name, for example "avg"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Resolves the aggregation of a custom alert.
+     * @param name the aggregation of a custom alert, for example "avg", or null for the latest reading
+     * @return the aggregation, or null if it is not supported
+     */
+    public static WindowAggregation fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return VALUE;
+        }
+        for (WindowAggregation aggregation : values()) {
+            if (aggregation.name.equalsIgnoreCase(name.trim())) {
+                return aggregation;
+            }
+        }
+        return null;
+    }
+}
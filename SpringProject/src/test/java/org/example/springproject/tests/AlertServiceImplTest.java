@@ -9,10 +9,12 @@
 package org.example.springproject.tests;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 import org.example.springproject.dto.AlertDTO;
 import org.example.springproject.entity.Alert;
+import org.example.springproject.entity.Notification;
 import org.example.springproject.service.implementation.AlertServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,6 +26,9 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -102,6 +107,145 @@ public class AlertServiceImplTest {
         verify(documentReference).set(alert);
     }
 
+    /**
+     * Test method to verify that an alert and its notifications are saved in a single batch.
+     * It checks that every notification gets the ID of the alert followed by its channel, and that it is created rather than overwritten.
+     */
+    @Test
+    void shouldSaveAlertWithNotificationsInOneBatch() throws Exception {
+        // Arrange
+        Alert alert = new Alert("room123", "sensorABC", Timestamp.now(), "MQ5", Map.of("gas", 800F), "Gas level too high");
+        Notification email = new Notification(Notification.Channel.EMAIL, "owner@example.com", "Email text");
+        Notification sms = new Notification(Notification.Channel.SMS, "+40700000000", "SMS text");
+
+        CollectionReference outbox = mock(CollectionReference.class);
+        DocumentReference emailReference = mock(DocumentReference.class);
+        DocumentReference smsReference = mock(DocumentReference.class);
+        WriteBatch batch = mock(WriteBatch.class);
+        ApiFuture<List<WriteResult>> commitFuture = mock(ApiFuture.class);
+
+        when(firestore.collection("alerts")).thenReturn(collectionReference);
+        when(firestore.collection("notification_outbox")).thenReturn(outbox);
+        when(collectionReference.document()).thenReturn(documentReference);
+        when(documentReference.getId()).thenReturn("alert1");
+        when(outbox.document("alert1:EMAIL")).thenReturn(emailReference);
+        when(outbox.document("alert1:SMS")).thenReturn(smsReference);
+        when(firestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(commitFuture);
+
+        // Act
+        AlertDTO result = alertService.saveAlert(alert, List.of(email, sms));
+
+        // Assert
+        assertEquals("alert1", result.getAlertId());
+        assertEquals("alert1:EMAIL", email.getId());
+        assertEquals("alert1", sms.getAlertId());
+        verify(batch).set(documentReference, alert);
+        verify(batch).create(emailReference, email);
+        verify(batch).create(smsReference, sms);
+        verify(commitFuture).get();
+        verify(documentReference, never()).set(any());
+    }
+
+    /**
+     * Test method to verify that several alerts and their notifications are saved with a single batched write.
+     * It checks that every alert gets its own document and that its notifications are tied to it.
+     */
+    @Test
+    void shouldSaveAlertsInOneBatch() throws Exception {
+        // Arrange
+        Alert temperature = new Alert("room123", "sensorABC", Timestamp.now(), "DHT22", Map.of("temperature", 45F), "Temperature too high");
+        Alert humidity = new Alert("room123", "sensorABC", Timestamp.now(), "DHT22", Map.of("humidity", 90F), "Humidity too high");
+        Notification email = new Notification(Notification.Channel.EMAIL, "owner@example.com", "Email text");
+
+        CollectionReference outbox = mock(CollectionReference.class);
+        DocumentReference secondReference = mock(DocumentReference.class);
+        DocumentReference emailReference = mock(DocumentReference.class);
+        WriteBatch batch = mock(WriteBatch.class);
+        @SuppressWarnings("unchecked")
+        ApiFuture<List<WriteResult>> commitFuture = mock(ApiFuture.class);
+
+        when(firestore.collection("alerts")).thenReturn(collectionReference);
+        when(firestore.collection("notification_outbox")).thenReturn(outbox);
+        when(collectionReference.document()).thenReturn(documentReference, secondReference);
+        when(documentReference.getId()).thenReturn("alert1");
+        when(secondReference.getId()).thenReturn("alert2");
+        when(outbox.document("alert2:EMAIL")).thenReturn(emailReference);
+        when(firestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(commitFuture);
+
+        Map<Alert, List<Notification>> notificationsByAlert = new LinkedHashMap<>();
+        notificationsByAlert.put(temperature, List.of());
+        notificationsByAlert.put(humidity, List.of(email));
+
+        // Act
+        List<AlertDTO> result = alertService.saveAlerts(notificationsByAlert);
+
+        // Assert
+        assertEquals(List.of("alert1", "alert2"), result.stream().map(AlertDTO::getAlertId).toList());
+        assertEquals("alert2", email.getAlertId());
+        verify(batch).set(documentReference, temperature);
+        verify(batch).set(secondReference, humidity);
+        verify(batch).create(emailReference, email);
+        verify(firestore, times(1)).batch();
+        verify(batch, times(1)).commit();
+        verify(commitFuture).get();
+    }
+
+    /**
+     * Test method to verify that saving alerts again after a failure keeps their IDs,
+     * and skips the alerts whose batch was committed although the failure was reported.
+     */
+    @Test
+    void shouldSkipAlertsAlreadyStoredWhenSavingAgain() throws Exception {
+        // Arrange
+        Alert stored = new Alert("room123", "sensorABC", Timestamp.now(), "DHT22", Map.of("temperature", 45F), "Temperature too high");
+        stored.setAlertId("alert1");
+        Alert lost = new Alert("room123", "sensorABC", Timestamp.now(), "DHT22", Map.of("humidity", 90F), "Humidity too high");
+        lost.setAlertId("alert2");
+        Notification storedEmail = new Notification(Notification.Channel.EMAIL, "owner@example.com", "Email text");
+        Notification lostEmail = new Notification(Notification.Channel.EMAIL, "owner@example.com", "Email text");
+
+        CollectionReference outbox = mock(CollectionReference.class);
+        DocumentReference lostReference = mock(DocumentReference.class);
+        DocumentReference emailReference = mock(DocumentReference.class);
+        DocumentSnapshot storedSnapshot = mock(DocumentSnapshot.class);
+        DocumentSnapshot lostSnapshot = mock(DocumentSnapshot.class);
+        WriteBatch batch = mock(WriteBatch.class);
+        @SuppressWarnings("unchecked")
+        ApiFuture<List<DocumentSnapshot>> getAllFuture = mock(ApiFuture.class);
+        @SuppressWarnings("unchecked")
+        ApiFuture<List<WriteResult>> commitFuture = mock(ApiFuture.class);
+
+        when(firestore.collection("alerts")).thenReturn(collectionReference);
+        when(firestore.collection("notification_outbox")).thenReturn(outbox);
+        when(collectionReference.document("alert1")).thenReturn(documentReference);
+        when(collectionReference.document("alert2")).thenReturn(lostReference);
+        when(lostReference.getId()).thenReturn("alert2");
+        when(firestore.getAll(documentReference, lostReference)).thenReturn(getAllFuture);
+        when(getAllFuture.get()).thenReturn(List.of(storedSnapshot, lostSnapshot));
+        when(storedSnapshot.exists()).thenReturn(true);
+        when(storedSnapshot.getId()).thenReturn("alert1");
+        when(lostSnapshot.exists()).thenReturn(false);
+        when(outbox.document("alert2:EMAIL")).thenReturn(emailReference);
+        when(firestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(commitFuture);
+
+        Map<Alert, List<Notification>> notificationsByAlert = new LinkedHashMap<>();
+        notificationsByAlert.put(stored, List.of(storedEmail));
+        notificationsByAlert.put(lost, List.of(lostEmail));
+
+        // Act
+        List<AlertDTO> result = alertService.saveAlerts(notificationsByAlert);
+
+        // Assert
+        assertEquals(List.of("alert2"), result.stream().map(AlertDTO::getAlertId).toList());
+        verify(batch).set(lostReference, lost);
+        verify(batch).create(emailReference, lostEmail);
+        verify(batch, never()).set(eq(documentReference), any());
+        verify(collectionReference, never()).document();
+    }
+
     /**
      * Test method to get all alerts from the Firestore database.
      * It mocks the Firestore interactions to retrieve alerts and checks if the returned list of AlertDTOs contains the expected values.
@@ -138,10 +282,12 @@ public class AlertServiceImplTest {
 
         when(firestore.collection("alerts")).thenReturn(alertCollection);
         when(alertCollection.whereEqualTo("roomId", roomId)).thenReturn(query);
+        when(query.orderBy("timestamp", Query.Direction.DESCENDING)).thenReturn(query);
+        when(query.limit(50)).thenReturn(query);
         when(query.get()).thenReturn(future);
 
         // Act
-        List<AlertDTO> result = alertService.getAlerts(roomId);
+        List<AlertDTO> result = alertService.getAlerts(roomId, null, 50);
 
         // Assert
         assertNotNull(result);
@@ -159,6 +305,37 @@ public class AlertServiceImplTest {
         verify(query).get();
     }
 
+    /**
+     * Test method to get the next page of the alerts of a room.
+     * It checks that the page starts after the document of the cursor, and that a cursor of another room is rejected.
+     */
+    @Test
+    void shouldGetAlertsAfterCursor() throws Exception {
+        // Arrange
+        String roomId = "room123";
+        CollectionReference alertCollection = mock(CollectionReference.class);
+        Query query = mock(Query.class);
+        DocumentSnapshot cursorDocument = mock(DocumentSnapshot.class);
+        QuerySnapshot querySnapshot = mock(QuerySnapshot.class);
+
+        when(firestore.collection("alerts")).thenReturn(alertCollection);
+        when(alertCollection.whereEqualTo(eq("roomId"), anyString())).thenReturn(query);
+        when(query.orderBy("timestamp", Query.Direction.DESCENDING)).thenReturn(query);
+        when(query.limit(20)).thenReturn(query);
+        when(alertCollection.document("alert50")).thenReturn(documentReference);
+        when(documentReference.get()).thenReturn(ApiFutures.immediateFuture(cursorDocument));
+        when(cursorDocument.exists()).thenReturn(true);
+        when(cursorDocument.getString("roomId")).thenReturn(roomId);
+        when(query.startAfter(cursorDocument)).thenReturn(query);
+        when(query.get()).thenReturn(ApiFutures.immediateFuture(querySnapshot));
+        when(querySnapshot.getDocuments()).thenReturn(List.of());
+
+        // Act & Assert
+        assertEquals(List.of(), alertService.getAlerts(roomId, "alert50", 20));
+        assertNull(alertService.getAlerts("otherRoom", "alert50", 20));
+        verify(query).startAfter(cursorDocument);
+    }
+
     /**
      * Test method to get alerts by room ID and date.
      * It mocks the Firestore interactions to retrieve alerts for a specific room and date.
@@ -0,0 +1,141 @@
+/**
+ * AlertStateTrackerTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the AlertStateTracker class.
+ * The tests cover the de-duplication, hysteresis, reminders and cool-down of the alerts of a sensor, also under concurrent readings.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.util.AlertRule;
+import org.example.springproject.util.AlertStateTracker;
+import org.example.springproject.util.ComparisonOperator;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AlertStateTracker.
+ */
+public class AlertStateTrackerTest {
+
+    /**
+     * The tracker being tested: 5% hysteresis with a band of at least 0.5, a reminder every 1000 ms and a cool-down of 500 ms.
+     */
+    private final AlertStateTracker tracker = new AlertStateTracker(0.05f, 0.5f, 1000, 500);
+
+    /**
+     * A rule raised when the gas level goes over 700, cleared below 665.
+     */
+    private final AlertRule gasRule = new AlertRule("system:gas", null, null, "gas", ComparisonOperator.GREATER_THAN, 700, null);
+
+    /**
+     * Tests that a sensor stuck over the threshold raises one alert, then only a reminder after the reminder interval.
+     */
+    @Test
+    void shouldRaiseOnceAndRemindWhileActive() {
+        assertTrue(tracker.shouldRaise("sensor1", gasRule, 750, 0));
+        for (long now = 1; now < 1000; now += 100) {
+            assertFalse(tracker.shouldRaise("sensor1", gasRule, 750, now));
+        }
+        assertTrue(tracker.shouldRaise("sensor1", gasRule, 750, 1000));
+        assertFalse(tracker.shouldRaise("sensor1", gasRule, 750, 1001));
+    }
+
+    /**
+     * Tests that readings hovering around the threshold don't raise new alerts until they move back past the hysteresis band.
+     */
+    @Test
+    void shouldClearOnlyBelowHysteresisBand() {
+        assertTrue(tracker.shouldRaise("sensor1", gasRule, 710, 0));
+        assertFalse(tracker.shouldRaise("sensor1", gasRule, 690, 100));
+        assertFalse(tracker.shouldRaise("sensor1", gasRule, 705, 200));
+
+        // 660 is below 700 - 35, so the incident ends; a new one after the cool-down is raised again
+        assertFalse(tracker.shouldRaise("sensor1", gasRule, 660, 300));
+        assertFalse(tracker.shouldRaise("sensor1", gasRule, 720, 400));
+        assertFalse(tracker.shouldRaise("sensor1", gasRule, 600, 500));
+        assertTrue(tracker.shouldRaise("sensor1", gasRule, 720, 600));
+    }
+
+    /**
+     * Tests that the states of different sensors and of a modified rule are independent.
+     */
+    @Test
+    void shouldTrackSensorsAndRulesSeparately() {
+        assertTrue(tracker.shouldRaise("sensor1", gasRule, 750, 0));
+        assertTrue(tracker.shouldRaise("sensor2", gasRule, 750, 0));
+
+        AlertRule modifiedRule = new AlertRule("system:gas", null, null, "gas", ComparisonOperator.GREATER_THAN, 740, null);
+        assertTrue(tracker.shouldRaise("sensor1", modifiedRule, 750, 10));
+    }
+
+    /**
+     * Tests that an alert with a threshold of 0 is not cleared by a reading just past it, but only past the minimum band.
+     */
+    @Test
+    void shouldApplyMinimumBandAtZeroThreshold() {
+        AlertRule frostRule = new AlertRule("system:frost", null, null, "temperature", ComparisonOperator.LESS_THAN, 0, null);
+        assertTrue(tracker.shouldRaise("sensor1", frostRule, -1, 0));
+        assertFalse(tracker.shouldRaise("sensor1", frostRule, 0.1f, 100));
+        assertFalse(tracker.shouldRaise("sensor1", frostRule, -0.1f, 200));
+
+        // 0.6 is past the band of 0.5, so the incident ends and a new one after the cool-down is raised again
+        assertFalse(tracker.shouldRaise("sensor1", frostRule, 0.6f, 300));
+        assertTrue(tracker.shouldRaise("sensor1", frostRule, -1, 900));
+    }
+
+    /**
+     * Tests that the state of an evicted rule is dropped, so a rule reusing its ID starts over.
+     */
+    @Test
+    void shouldEvictStatesOfRemovedRule() {
+        assertTrue(tracker.shouldRaise("sensor1", gasRule, 750, 0));
+        assertTrue(tracker.shouldRaise("sensor2", gasRule, 750, 0));
+
+        tracker.evict("system:gas");
+
+        assertTrue(tracker.shouldRaise("sensor1", gasRule, 750, 100));
+        assertTrue(tracker.shouldRaise("sensor2", gasRule, 750, 100));
+    }
+
+    /**
+     * Tests that readings of the same sensor evaluated concurrently raise the incident only once.
+     * @throws Exception if a thread fails or is interrupted
+     */
+    @Test
+    void shouldRaiseOnceUnderConcurrentReadings() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 50; round++) {
+                String sensorId = "sensor" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger raised = new AtomicInteger();
+                Future<?>[] readings = new Future<?>[8];
+                for (int i = 0; i < readings.length; i++) {
+                    readings[i] = threads.submit(() -> {
+                        start.await();
+                        if (tracker.shouldRaise(sensorId, gasRule, 750, 0)) {
+                            raised.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+                start.countDown();
+                for (Future<?> reading : readings) {
+                    reading.get(1, TimeUnit.SECONDS);
+                }
+                assertEquals(1, raised.get());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * AlertStreamHubTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the AlertStreamHub class.
+ * The tests cover the live alerts and the resume of the streams with the Last-Event-ID header.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.dto.AlertDTO;
+import org.example.springproject.service.AlertService;
+import org.example.springproject.util.AlertStreamHub;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AlertStreamHub.
+ */
+@ExtendWith(MockitoExtension.class)
+public class AlertStreamHubTest {
+
+    /**
+     * Mocks the AlertService to provide the missed alerts stored in Firestore.
+     */
+    @Mock
+    private AlertService alertService;
+
+    /**
+     * The AlertStreamHub instance that is being tested, keeping the 2 most recent alerts per room.
+     */
+    private AlertStreamHub alertStreamHub;
+
+    /**
+     * Sets up the AlertStreamHub before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        alertStreamHub = new AlertStreamHub(alertService, 2, 60000);
+    }
+
+    /**
+     * Tests that a resuming stream gets the recent alerts it missed, then the new alerts of its room only.
+     */
+    @Test
+    void shouldReplayRecentAlertsThenStreamNewOnes() {
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        alertStreamHub.publish(alert("alert1", "room1"));
+        alertStreamHub.publish(alert("alert2", "room1"));
+        alertStreamHub.register("room1", "alert1", emitter);
+        alertStreamHub.publish(alert("alert3", "room1"));
+        alertStreamHub.publish(alert("alert4", "room2"));
+        alertStreamHub.close();
+
+        assertEquals(List.of("alert:alert2", "alert:alert3"), emitter.events);
+        verifyNoInteractions(alertService);
+    }
+
+    /**
+     * Tests that a stream resuming after an alert no longer kept in memory gets the missed alerts from Firestore,
+     * without the ones it would otherwise get twice.
+     */
+    @Test
+    void shouldReplayStoredAlertsOfOlderLastEvent() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        alertStreamHub.publish(alert("alert2", "room1"));
+        alertStreamHub.publish(alert("alert3", "room1"));
+        when(alertService.getAlertsAfter("room1", "alert1")).thenReturn(List.of(alert("alert2", "room1"), alert("alert3", "room1")));
+
+        alertStreamHub.register("room1", "alert1", emitter);
+        alertStreamHub.close();
+
+        assertEquals(List.of("alert:alert2", "alert:alert3"), emitter.events);
+    }
+
+    /**
+     * Tests that a stream resuming after an unknown alert gets a reset event, then the new alerts.
+     */
+    @Test
+    void shouldResetStreamOfUnknownLastEvent() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        when(alertService.getAlertsAfter("room1", "missing")).thenReturn(null);
+
+        alertStreamHub.register("room1", "missing", emitter);
+        alertStreamHub.publish(alert("alert1", "room1"));
+        alertStreamHub.close();
+
+        assertEquals(List.of("reset:", "alert:alert1"), emitter.events);
+    }
+
+    /**
+     * Creates an alert of a room.
+     * @param id the ID of the alert
+     * @param roomId the ID of the room
+     * @return the alert
+     */
+    private static AlertDTO alert(String id, String roomId) {
+        return new AlertDTO(id, roomId, "sensor1", null, "DHT22", Map.of("temperature", 45F), "Temperature too high");
+    }
+
+    /**
+     * RecordingEmitter records the name and the ID of the events sent to it instead of writing them to a response.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        /**
+         * The events sent, as "name:id".
+         */
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        /**
+         * Records the name and the ID of an event.
+         * @param builder the event
+         */
+        @Override
+        public void send(SseEventBuilder builder) {
+            String name = "";
+            String id = "";
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof String text) {
+                    for (String line : text.split("\n")) {
+                        if (line.startsWith("event:")) {
+                            name = line.substring("event:".length());
+                        } else if (line.startsWith("id:")) {
+                            id = line.substring("id:".length());
+                        }
+                    }
+                }
+            }
+            if (!name.isEmpty()) {
+                events.add(name + ":" + id);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * AlertWriteBufferTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the AlertWriteBuffer class.
+ * The tests cover the retry of a batch of alerts that failed to save, without queueing the notifications of the stored alerts twice,
+ * and the alerts dropped when the buffer is full.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.dto.AlertDTO;
+import org.example.springproject.entity.Alert;
+import org.example.springproject.entity.Notification;
+import org.example.springproject.service.AlertService;
+import org.example.springproject.util.AlertWriteBuffer;
+import org.example.springproject.util.LiveUpdatePublisher;
+import org.example.springproject.util.NotificationDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AlertWriteBuffer.
+ */
+@ExtendWith(MockitoExtension.class)
+public class AlertWriteBufferTest {
+
+    /**
+     * Mocks the AlertService to fail the first save.
+     */
+    @Mock
+    private AlertService alertService;
+
+    /**
+     * Mocks the NotificationDispatcher to capture the queued notifications.
+     */
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    /**
+     * Mocks the LiveUpdatePublisher to capture the published alerts.
+     */
+    @Mock
+    private LiveUpdatePublisher liveUpdatePublisher;
+
+    /**
+     * The AlertWriteBuffer instance that is being tested.
+     */
+    private AlertWriteBuffer alertWriteBuffer;
+
+    /**
+     * Sets up the AlertWriteBuffer before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        alertWriteBuffer = new AlertWriteBuffer(alertService, notificationDispatcher, liveUpdatePublisher, 100, 2);
+    }
+
+    /**
+     * Tests that a batch that failed to save is kept, and saved by the next flush ahead of the alerts raised meanwhile,
+     * with its notifications queued only once it is saved.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRetryBatchThatFailedToSave() {
+        Alert gasAlert = new Alert("room1", "sensor1", null, "MQ5", Map.of("gas", 800F), "Gas too high");
+        Alert temperatureAlert = new Alert("room2", "sensor2", null, "DHT22", Map.of("temperature", 45F), "Temperature too high");
+        Notification email = new Notification(Notification.Channel.EMAIL, "owner@example.com", "Gas too high");
+        List<List<Alert>> savedBatches = new ArrayList<>();
+        when(alertService.saveAlerts(any())).thenAnswer(invocation -> {
+            Map<Alert, List<Notification>> alerts = invocation.getArgument(0);
+            savedBatches.add(new ArrayList<>(alerts.keySet()));
+            if (savedBatches.size() == 1) {
+                throw new RuntimeException("Firestore unavailable");
+            }
+            return alerts.keySet().stream().map(AlertWriteBufferTest::saved).toList();
+        });
+
+        alertWriteBuffer.add(gasAlert, List.of(email));
+        alertWriteBuffer.flush();
+        verify(notificationDispatcher, never()).enqueue(anyList());
+
+        alertWriteBuffer.add(temperatureAlert, List.of());
+        alertWriteBuffer.flush();
+
+        assertEquals(List.of(List.of(gasAlert), List.of(gasAlert, temperatureAlert)), savedBatches);
+        verify(notificationDispatcher).enqueue(List.of(email));
+        verify(liveUpdatePublisher, times(2)).publishAlert(any());
+    }
+
+    /**
+     * Tests that the notifications of an alert stored by a save that failed after committing are not queued again when the
+     * save is retried, as the alert is skipped and its notifications are delivered by the outbox replay.
+     */
+    @Test
+    void shouldNotQueueNotificationsOfAlertsAlreadyStored() {
+        Alert gasAlert = new Alert("room1", "sensor1", null, "MQ5", Map.of("gas", 800F), "Gas too high");
+        Alert temperatureAlert = new Alert("room2", "sensor2", null, "DHT22", Map.of("temperature", 45F), "Temperature too high");
+        Notification gasEmail = new Notification(Notification.Channel.EMAIL, "owner@example.com", "Gas too high");
+        Notification temperatureEmail = new Notification(Notification.Channel.EMAIL, "owner@example.com", "Temperature too high");
+        when(alertService.saveAlerts(any()))
+                .thenAnswer(invocation -> {
+                    // The batch of the gas alert is committed, but the save fails
+                    gasAlert.setAlertId("alert1");
+                    temperatureAlert.setAlertId("alert2");
+                    throw new RuntimeException("Deadline exceeded");
+                })
+                .thenAnswer(invocation -> List.of(saved(temperatureAlert)));
+
+        alertWriteBuffer.add(gasAlert, List.of(gasEmail));
+        alertWriteBuffer.add(temperatureAlert, List.of(temperatureEmail));
+        alertWriteBuffer.flush();
+        alertWriteBuffer.flush();
+
+        verify(notificationDispatcher).enqueue(List.of(temperatureEmail));
+        verify(liveUpdatePublisher).publishAlert(any());
+    }
+
+    /**
+     * Tests that while the writes fail, the buffer keeps at most its capacity of alerts by dropping the oldest ones,
+     * and that the next successful flush writes the newest alerts in order.
+     */
+    @Test
+    void shouldDropOldestAlertsWhenBufferIsFull() {
+        Alert gasAlert = new Alert("room1", "sensor1", null, "MQ5", Map.of("gas", 800F), "Gas too high");
+        Alert temperatureAlert = new Alert("room2", "sensor2", null, "DHT22", Map.of("temperature", 45F), "Temperature too high");
+        Alert humidityAlert = new Alert("room3", "sensor3", null, "DHT22", Map.of("humidity", 95F), "Humidity too high");
+        List<List<Alert>> savedBatches = new ArrayList<>();
+        when(alertService.saveAlerts(any())).thenAnswer(invocation -> {
+            Map<Alert, List<Notification>> alerts = invocation.getArgument(0);
+            savedBatches.add(new ArrayList<>(alerts.keySet()));
+            if (savedBatches.size() == 1) {
+                throw new RuntimeException("Firestore unavailable");
+            }
+            return alerts.keySet().stream().map(AlertWriteBufferTest::saved).toList();
+        });
+
+        alertWriteBuffer.add(gasAlert, List.of());
+        alertWriteBuffer.flush();
+        alertWriteBuffer.add(temperatureAlert, List.of());
+        alertWriteBuffer.add(humidityAlert, List.of());
+        alertWriteBuffer.flush();
+
+        assertEquals(List.of(List.of(gasAlert), List.of(temperatureAlert, humidityAlert)), savedBatches);
+        assertEquals(1, alertWriteBuffer.getDroppedAlerts());
+    }
+
+    /**
+     * Creates the AlertDTO of a saved alert, giving the alert an ID if it has none yet, as the AlertService does.
+     * @param alert the saved alert
+     * @return the AlertDTO of the alert
+     */
+    private static AlertDTO saved(Alert alert) {
+        if (alert.getAlertId() == null) {
+            alert.setAlertId(UUID.randomUUID().toString());
+        }
+        return new AlertDTO(alert.getAlertId(), alert.getRoomId(), alert.getSensorId(), alert.getTimestamp(), alert.getSensorType(),
+                alert.getData(), alert.getMessage());
+    }
+}
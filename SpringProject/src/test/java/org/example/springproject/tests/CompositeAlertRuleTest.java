@@ -0,0 +1,98 @@
+/**
+ * CompositeAlertRuleTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the CompositeAlertRule class.
+ * The tests cover the AND and OR combination of the clauses over the live state of a room and the freshness window.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.entity.AlertClause;
+import org.example.springproject.entity.CustomAlert;
+import org.example.springproject.util.CompositeAlertRule;
+import org.example.springproject.util.RoomLiveState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompositeAlertRule.
+ */
+public class CompositeAlertRuleTest {
+
+    /**
+     * Creates the composite alert "temperature > 40 combined with gas > 500 within 30 seconds".
+     * @param combinator the combinator of the clauses
+     * @return the compiled rule
+     */
+    private CompositeAlertRule fireRule(String combinator) {
+        CustomAlert customAlert = new CustomAlert("user1", "room1", null, null, null, null, 0F, "Fire risk in {room}: {value}");
+        customAlert.setConditions(List.of(
+                new AlertClause("dht", "temperature", ">", 40F),
+                new AlertClause("mq5", "gas", ">", 500F)));
+        customAlert.setCombinator(combinator);
+        customAlert.setWithinSeconds(30);
+        return CompositeAlertRule.compile("alert1", customAlert);
+    }
+
+    /**
+     * Tests that an AND rule needs every clause to be met by a recent enough reading.
+     */
+    @Test
+    void shouldRequireAllClausesWithinWindow() {
+        CompositeAlertRule rule = fireRule("AND");
+        RoomLiveState state = new RoomLiveState();
+
+        state.update("dht", "temperature", 100, 45F);
+        assertFalse(rule.matches(state, 100));
+
+        state.update("mq5", "gas", 120, 600F);
+        assertTrue(rule.matches(state, 120));
+        assertEquals("Fire risk in Kitchen: temperature=45.0, gas=600.0", rule.formatMessage("Kitchen", state));
+
+        // The temperature reading is now older than 30 seconds
+        state.update("mq5", "gas", 140, 650F);
+        assertFalse(rule.matches(state, 140));
+        assertTrue(rule.clears(state, 140, 0.05f, 0.5f));
+    }
+
+    /**
+     * Tests that an OR rule is met by any clause and only cleared when every clause is.
+     */
+    @Test
+    void shouldRequireAnyClause() {
+        CompositeAlertRule rule = fireRule("or");
+        RoomLiveState state = new RoomLiveState();
+
+        state.update("dht", "temperature", 100, 20F);
+        state.update("mq5", "gas", 100, 510F);
+        assertTrue(rule.matches(state, 100));
+
+        // 490 is inside the hysteresis band of the gas clause
+        state.update("mq5", "gas", 101, 490F);
+        assertFalse(rule.matches(state, 101));
+        assertFalse(rule.clears(state, 101, 0.05f, 0.5f));
+
+        state.update("mq5", "gas", 102, 400F);
+        assertTrue(rule.clears(state, 102, 0.05f, 0.5f));
+    }
+
+    /**
+     * Tests that an older reading doesn't replace a newer one in the live state
+     * and that invalid composite alerts are rejected.
+     */
+    @Test
+    void shouldKeepLatestReadingAndRejectInvalidRules() {
+        RoomLiveState state = new RoomLiveState();
+        state.update("dht", "temperature", 100, 45F);
+        state.update("dht", "temperature", 90, 10F);
+        assertEquals(45F, state.get("dht", "temperature").getValue());
+
+        assertNull(fireRule("XOR"));
+        CustomAlert customAlert = new CustomAlert("user1", "room1", null, null, null, null, 0F, null);
+        customAlert.setConditions(List.of(new AlertClause("dht", "temperature", "above", 40F)));
+        assertNull(CompositeAlertRule.compile("alert1", customAlert));
+    }
+}
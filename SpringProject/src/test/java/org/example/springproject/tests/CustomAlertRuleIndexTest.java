@@ -0,0 +1,106 @@
+/**
+ * CustomAlertRuleIndexTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the CustomAlertRuleIndex class.
+ * The tests cover the grouping of the compiled rules, the indexing of the composite rules and the incremental updates of the index.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.entity.AlertClause;
+import org.example.springproject.entity.CustomAlert;
+import org.example.springproject.util.AlertRule;
+import org.example.springproject.util.AlertRuleSet;
+import org.example.springproject.util.CompositeAlertRule;
+import org.example.springproject.util.CustomAlertRuleIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CustomAlertRuleIndex.
+ */
+public class CustomAlertRuleIndexTest {
+
+    /**
+     * The index being tested.
+     */
+    private final CustomAlertRuleIndex index = new CustomAlertRuleIndex();
+
+    /**
+     * Tests that the rules of a sensor are grouped by parameter and that only the conditions that are met match.
+     */
+    @Test
+    void shouldGroupRulesOfSensorByParameter() {
+        index.loadAll(Map.of(
+                "alert1", new CustomAlert("user1", "room1", "sensor1", "DHT22", "temperature", ">", 30F, "Too hot"),
+                "alert2", new CustomAlert("user1", "room1", "sensor1", "DHT22", "humidity", "<=", 20F, "Too dry"),
+                "alert3", new CustomAlert("user1", "room1", "sensor2", "DHT22", "temperature", ">", 10F, "Other sensor")));
+
+        AlertRuleSet rules = index.getRules("sensor1");
+
+        AlertRule[] temperatureRules = rules.getRules("temperature");
+        assertEquals(1, temperatureRules.length);
+        assertEquals("alert1", temperatureRules[0].getId());
+        assertEquals("Too hot", temperatureRules[0].getMessage());
+        assertTrue(temperatureRules[0].matches(31F));
+        assertFalse(temperatureRules[0].matches(30F));
+        AlertRule[] humidityRules = rules.getRules("humidity");
+        assertEquals(1, humidityRules.length);
+        assertEquals("alert2", humidityRules[0].getId());
+        assertTrue(humidityRules[0].matches(20F));
+        assertNull(rules.getRules("gas"));
+        assertSame(AlertRuleSet.EMPTY, index.getRules("sensor3"));
+    }
+
+    /**
+     * Tests that updating a custom alert moves its rule to its new sensor and that deleting it removes the rule.
+     */
+    @Test
+    void shouldUpdateIndexIncrementally() {
+        index.put("alert1", new CustomAlert("user1", "room1", "sensor1", "MQ2", "gas", ">=", 500F, "Gas"));
+        assertEquals(1, index.getRules("sensor1").getRules("gas").length);
+
+        index.put("alert1", new CustomAlert("user1", "room1", "sensor2", "MQ2", "gas", ">=", 500F, "Gas"));
+        assertTrue(index.getRules("sensor1").isEmpty());
+        assertEquals("alert1", index.getRules("sensor2").getRules("gas")[0].getId());
+
+        index.remove("alert1");
+        assertTrue(index.getRules("sensor2").isEmpty());
+    }
+
+    /**
+     * Tests that a custom alert with an unsupported condition is not indexed.
+     */
+    @Test
+    void shouldSkipUnsupportedCondition() {
+        index.put("alert1", new CustomAlert("user1", "room1", "sensor1", "DHT22", "temperature", "greater", 30F, "Too hot"));
+
+        assertTrue(index.getRules("sensor1").isEmpty());
+    }
+
+    /**
+     * Tests that a composite custom alert is listed under every channel it references, and only there.
+     */
+    @Test
+    void shouldIndexCompositeRulesByChannel() {
+        CustomAlert composite = new CustomAlert("user1", "room1", null, null, null, null, 0F, "Fire risk");
+        composite.setConditions(List.of(
+                new AlertClause("sensor1", "temperature", ">", 40F),
+                new AlertClause("sensor2", "gas", ">", 500F)));
+        index.put("alert1", composite);
+
+        CompositeAlertRule[] temperatureRules = index.getCompositeRules("sensor1", "temperature");
+        assertEquals(1, temperatureRules.length);
+        assertEquals("alert1", temperatureRules[0].getId());
+        assertSame(temperatureRules[0], index.getCompositeRules("sensor2", "gas")[0]);
+        assertNull(index.getCompositeRules("sensor1", "humidity"));
+        assertTrue(index.getRules("sensor1").isEmpty());
+
+        index.remove("alert1");
+        assertNull(index.getCompositeRules("sensor1", "temperature"));
+    }
+}
@@ -13,16 +13,22 @@ import com.google.cloud.firestore.*;
 import org.example.springproject.dto.CustomAlertDTO;
 import org.example.springproject.entity.CustomAlert;
 import org.example.springproject.service.implementation.CustomAlertServiceImpl;
+import org.example.springproject.util.AlertStateTracker;
+import org.example.springproject.util.AlertWindowStore;
+import org.example.springproject.util.CustomAlertRuleIndex;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import static org.mockito.Mockito.*;
 
@@ -53,13 +59,38 @@ public class CustomAlertServiceImplTest {
     @Mock
     private DocumentReference documentReference;
 
+    /**
+     * Mocks the CustomAlertRuleIndex, which is updated when custom alerts are modified.
+     */
+    @Mock
+    private CustomAlertRuleIndex customAlertRuleIndex;
+
+    /**
+     * Mocks the AlertStateTracker, from which the states of a deleted custom alert are evicted.
+     */
+    @Mock
+    private AlertStateTracker alertStateTracker;
+
+    /**
+     * Mocks the AlertWindowStore, from which the windows of a deleted custom alert are evicted.
+     */
+    @Mock
+    private AlertWindowStore alertWindowStore;
+
     /**
      * The CustomAlertServiceImpl instance that is being tested.
      * It is injected with the mocked Firestore and DocumentReference to test its methods.
      */
-    @InjectMocks
     private CustomAlertServiceImpl customAlertService;
 
+    /**
+     * Sets up the CustomAlertServiceImpl before each test, with windows of at most 512 readings.
+     */
+    @BeforeEach
+    void setUp() {
+        customAlertService = new CustomAlertServiceImpl(firestore, customAlertRuleIndex, alertStateTracker, alertWindowStore, 512);
+    }
+
     /**
      * Tests the saveCustomAlert method of CustomAlertServiceImpl.
      * It verifies that a custom alert can be saved successfully and that the returned DTO contains the expected values.
@@ -98,6 +129,7 @@ public class CustomAlertServiceImplTest {
         verify(collectionReference).document();
         verify(documentReference).set(customAlert);
         verify(writeResultFuture).get();
+        verify(customAlertRuleIndex).put("mockAlertId123", customAlert);
     }
 
     /**
@@ -148,6 +180,9 @@ public class CustomAlertServiceImplTest {
         verify(collectionReference).document(alertId);
         verify(docRef).get();
         verify(docRef).delete();
+        verify(customAlertRuleIndex).remove(alertId);
+        verify(alertStateTracker).evict(alertId);
+        verify(alertWindowStore).evict(alertId);
     }
 
     /**
@@ -387,9 +422,91 @@ public class CustomAlertServiceImplTest {
         verify(collectionReference).document(alertId);
         verify(docRef).get();
         verify(docRef).set(any(CustomAlert.class));
+        verify(customAlertRuleIndex).put(alertId, existingAlert);
     }
 
+    /**
+     * Tests that the listener loads all the custom alerts into the rule index with the first snapshot,
+     * and then applies the added, modified and removed custom alerts to it.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldListenForCustomAlertRules() {
+        when(firestore.collection("custom_alerts")).thenReturn(collectionReference);
+        ArgumentCaptor<EventListener<QuerySnapshot>> listener = ArgumentCaptor.forClass(EventListener.class);
+        when(collectionReference.addSnapshotListener(listener.capture())).thenReturn(mock(ListenerRegistration.class));
+
+        customAlertService.listenForCustomAlertRules();
+
+        CustomAlert gasAlert = new CustomAlert("user1", "room1", "sensor1", "MQ5", "gas", ">", 500F, "Gas too high");
+        QueryDocumentSnapshot gasDocument = mock(QueryDocumentSnapshot.class);
+        when(gasDocument.getId()).thenReturn("alert1");
+        when(gasDocument.toObject(CustomAlert.class)).thenReturn(gasAlert);
+        QuerySnapshot initial = mock(QuerySnapshot.class);
+        when(initial.getDocuments()).thenReturn(List.of(gasDocument));
+
+        listener.getValue().onEvent(initial, null);
+        verify(customAlertRuleIndex).loadAll(Map.of("alert1", gasAlert));
+
+        DocumentChange modified = mock(DocumentChange.class);
+        when(modified.getDocument()).thenReturn(gasDocument);
+        when(modified.getType()).thenReturn(DocumentChange.Type.MODIFIED);
+        QueryDocumentSnapshot removedDocument = mock(QueryDocumentSnapshot.class);
+        when(removedDocument.getId()).thenReturn("alert2");
+        DocumentChange removed = mock(DocumentChange.class);
+        when(removed.getDocument()).thenReturn(removedDocument);
+        when(removed.getType()).thenReturn(DocumentChange.Type.REMOVED);
+        QuerySnapshot changes = mock(QuerySnapshot.class);
+        when(changes.getDocumentChanges()).thenReturn(List.of(modified, removed));
+
+        listener.getValue().onEvent(changes, null);
+        verify(customAlertRuleIndex).put("alert1", gasAlert);
+        verify(customAlertRuleIndex).remove("alert2");
+        verify(alertStateTracker).evict("alert2");
+        verify(alertWindowStore).evict("alert2");
+        verify(customAlertRuleIndex).loadAll(anyMap());
+    }
 
+    /**
+     * Tests that a count custom alert counting more readings than a window keeps is rejected instead of being saved,
+     * as it could never be evaluated over its whole window.
+     */
+    @Test
+    void shouldRejectCountWindowLongerThanMaxSamples() {
+        CustomAlert customAlert = new CustomAlert("user1", "room1", "sensor1", "MQ5", "gas", ">", 500F, "Gas too high");
+        customAlert.setAggregation("count");
+        customAlert.setWindowSamples(1000);
+        customAlert.setRequiredSamples(600);
+
+        assertThrows(RuntimeException.class, () -> customAlertService.saveCustomAlert(customAlert));
+        verifyNoInteractions(firestore, customAlertRuleIndex);
+    }
 
+    /**
+     * Tests that an avg, min, max or rate custom alert without a window length is rejected instead of being saved,
+     * as it would be left out of the rule index and never raise an alert.
+     */
+    @Test
+    void shouldRejectWindowedAggregationWithoutWindowSeconds() {
+        for (String aggregation : List.of("avg", "min", "max", "rate")) {
+            CustomAlert customAlert = new CustomAlert("user1", "room1", "sensor1", "DHT22", "temperature", ">", 30F, "High temp");
+            customAlert.setAggregation(aggregation);
+
+            assertThrows(RuntimeException.class, () -> customAlertService.saveCustomAlert(customAlert));
+        }
+        verifyNoInteractions(firestore, customAlertRuleIndex);
+    }
+
+    /**
+     * Tests that a custom alert with an unsupported aggregation is rejected instead of being saved.
+     */
+    @Test
+    void shouldRejectUnsupportedAggregation() {
+        CustomAlert customAlert = new CustomAlert("user1", "room1", "sensor1", "DHT22", "temperature", ">", 30F, "High temp");
+        customAlert.setAggregation("median");
+        customAlert.setWindowSeconds(60);
 
+        assertThrows(RuntimeException.class, () -> customAlertService.saveCustomAlert(customAlert));
+        verifyNoInteractions(firestore, customAlertRuleIndex);
+    }
 }
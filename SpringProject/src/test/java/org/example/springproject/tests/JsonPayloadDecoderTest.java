@@ -0,0 +1,82 @@
+/**
+ * JsonPayloadDecoderTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the JsonPayloadDecoder class.
+ * The tests cover the payloads of the DHT22 and ESP32 devices and malformed payloads.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.util.JsonPayloadDecoder;
+import org.example.springproject.util.SensorReading;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JsonPayloadDecoder.
+ */
+public class JsonPayloadDecoderTest {
+
+    /**
+     * The decoder being tested.
+     */
+    private final JsonPayloadDecoder decoder = new JsonPayloadDecoder();
+
+    /**
+     * Tests that numeric fields and a numeric timestamp are decoded.
+     */
+    @Test
+    void shouldDecodeNumericPayload() throws IOException {
+        SensorReading reading = new SensorReading();
+
+        decoder.decode(bytes("{\"temperature\":23.5,\"humidity\":40,\"timestamp\":1717171717171}"), reading);
+
+        assertTrue(reading.hasTimestamp());
+        assertEquals(1717171717171L, reading.getTimestamp());
+        assertEquals(2, reading.size());
+        assertEquals(23.5f, reading.valueAt(reading.indexOf("temperature")));
+        assertEquals(40f, reading.valueAt(reading.indexOf("humidity")));
+    }
+
+    /**
+     * Tests that numbers sent as strings are decoded, other values are skipped and the reading is cleared between payloads.
+     */
+    @Test
+    void shouldDecodeStringFieldsAndReuseReading() throws IOException {
+        SensorReading reading = new SensorReading();
+        decoder.decode(bytes("{\"temperature\":23.5,\"timestamp\":1}"), reading);
+
+        decoder.decode(bytes("{\"mq2\":312,\"mq5\":\"145\",\"device\":\"esp32x1\",\"meta\":{\"rssi\":-60},\"timestamp\":\"1717171717171\"}"), reading);
+
+        assertEquals(1717171717171L, reading.getTimestamp());
+        assertEquals(2, reading.size());
+        assertEquals(-1, reading.indexOf("temperature"));
+        assertEquals(-1, reading.indexOf("device"));
+        assertEquals(312f, reading.valueAt(reading.indexOf("mq2")));
+        assertEquals(145f, reading.valueAt(reading.indexOf("mq5")));
+    }
+
+    /**
+     * Tests that a payload which isn't a JSON object is rejected.
+     */
+    @Test
+    void shouldRejectMalformedPayload() {
+        SensorReading reading = new SensorReading();
+
+        assertThrows(IOException.class, () -> decoder.decode(bytes("[1,2,3]"), reading));
+        assertThrows(IOException.class, () -> decoder.decode(bytes("{\"temperature\":"), reading));
+    }
+
+    /**
+     * Encodes a payload as UTF-8 bytes, as received from the broker.
+     * @param payload the payload as text
+     * @return the payload as bytes
+     */
+    private static byte[] bytes(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * LiveUpdatePublisherTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the LiveUpdatePublisher class.
+ * The tests cover the topics the readings and the alerts are pushed to.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.dto.AlertDTO;
+import org.example.springproject.dto.SensorDTO;
+import org.example.springproject.util.AlertStreamHub;
+import org.example.springproject.util.LiveUpdatePublisher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LiveUpdatePublisher.
+ */
+@ExtendWith(MockitoExtension.class)
+public class LiveUpdatePublisherTest {
+
+    /**
+     * Mocks the SimpMessagingTemplate to capture the published messages.
+     */
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Mocks the AlertStreamHub to capture the streamed alerts.
+     */
+    @Mock
+    private AlertStreamHub alertStreamHub;
+
+    /**
+     * The LiveUpdatePublisher instance that is being tested.
+     */
+    @InjectMocks
+    private LiveUpdatePublisher liveUpdatePublisher;
+
+    /**
+     * Tests that the readings and the alerts are pushed to the topics of their room, and the alerts to the event streams.
+     */
+    @Test
+    void shouldPublishToTopicsOfRoom() {
+        SensorDTO sensorDTO = new SensorDTO("sensor1", "DHT22", 4, List.of(), true);
+        AlertDTO alertDTO = new AlertDTO("alert1", "room1", "sensor1", null, "DHT22", Map.of("temperature", 45F), "Temperature too high");
+
+        liveUpdatePublisher.publishReadings("room1", sensorDTO);
+        liveUpdatePublisher.publishAlert(alertDTO);
+
+        verify(messagingTemplate).convertAndSend("/topic/rooms/room1/readings", (Object) sensorDTO);
+        verify(messagingTemplate).convertAndSend("/topic/rooms/room1/alerts", (Object) alertDTO);
+        verify(alertStreamHub).publish(alertDTO);
+    }
+
+    /**
+     * Tests that a failure of the broker doesn't reach the ingest.
+     */
+    @Test
+    void shouldNotThrowWhenBrokerFails() {
+        doThrow(new MessageDeliveryException("Broker unavailable")).when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+
+        assertDoesNotThrow(() -> liveUpdatePublisher.publishReadings("room1", new SensorDTO()));
+    }
+}
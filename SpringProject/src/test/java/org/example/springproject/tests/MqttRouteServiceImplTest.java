@@ -0,0 +1,103 @@
+/**
+ * MqttRouteServiceImplTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the MqttRouteServiceImpl class.
+ * The tests cover the default routes, the reload of the routes from Firestore and the matching of MQTT wildcards.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import com.google.cloud.firestore.*;
+import org.example.springproject.entity.MqttRoute;
+import org.example.springproject.entity.MqttRouteTarget;
+import org.example.springproject.service.implementation.MqttRouteServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MqttRouteServiceImpl.
+ * It uses Mockito to capture the snapshot listener registered on the mqtt_routes collection and feed it with routes.
+ */
+@ExtendWith(MockitoExtension.class)
+public class MqttRouteServiceImplTest {
+    /**
+     * Mocks the Firestore to simulate Firestore interactions.
+     */
+    @Mock
+    private Firestore firestore;
+
+    /**
+     * Mocks the CollectionReference of the mqtt_routes collection.
+     */
+    @Mock
+    private CollectionReference collectionReference;
+
+    /**
+     * The MqttRouteServiceImpl instance that is being tested.
+     */
+    @InjectMocks
+    private MqttRouteServiceImpl mqttRouteService;
+
+    /**
+     * Tests that the default routes are used before any route is loaded from Firestore.
+     */
+    @Test
+    void shouldResolveDefaultRoutes() {
+        List<MqttRoute> routes = mqttRouteService.getRoutesForTopic("sensor/esp32x1/data");
+
+        assertEquals(1, routes.size());
+        assertEquals(2, routes.get(0).getTargets().size());
+        assertTrue(mqttRouteService.getRoutesForTopic("sensor/unknown/data").isEmpty());
+    }
+
+    /**
+     * Tests that the routes are replaced when the mqtt_routes collection changes
+     * and that wildcard patterns are matched.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReloadRoutesAndMatchWildcards() {
+        when(firestore.collection("mqtt_routes")).thenReturn(collectionReference);
+        ArgumentCaptor<EventListener<QuerySnapshot>> listener = ArgumentCaptor.forClass(EventListener.class);
+        when(collectionReference.addSnapshotListener(listener.capture())).thenReturn(mock(ListenerRegistration.class));
+
+        mqttRouteService.listenForRoutes();
+
+        MqttRoute wildcardRoute = new MqttRoute("building/+/sensors/#", MqttRoute.JSON_DECODER, List.of(
+                new MqttRouteTarget("sensor1", "room1", Map.of("temperature", "temperature"))));
+        MqttRoute invalidRoute = new MqttRoute(null, MqttRoute.JSON_DECODER, List.of());
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.toObjects(MqttRoute.class)).thenReturn(List.of(wildcardRoute, invalidRoute));
+
+        listener.getValue().onEvent(snapshot, null);
+
+        assertEquals(1, mqttRouteService.getRoutes().size());
+        assertEquals(List.of(wildcardRoute), mqttRouteService.getRoutesForTopic("building/a/sensors/dht22/data"));
+        assertEquals(List.of(wildcardRoute), mqttRouteService.getRoutesForTopic("building/b/sensors"));
+        assertTrue(mqttRouteService.getRoutesForTopic("building/a/b/sensors").isEmpty());
+        assertTrue(mqttRouteService.getRoutesForTopic("sensor/dht22/data").isEmpty());
+    }
+
+    /**
+     * Tests the matching of the single-level and multi-level MQTT wildcards.
+     */
+    @Test
+    void shouldMatchTopicPatterns() {
+        assertTrue(MqttRouteServiceImpl.topicMatches("sensor/+/data", "sensor/dht22/data"));
+        assertFalse(MqttRouteServiceImpl.topicMatches("sensor/+/data", "sensor/dht22/raw"));
+        assertFalse(MqttRouteServiceImpl.topicMatches("sensor/+", "sensor/dht22/data"));
+        assertTrue(MqttRouteServiceImpl.topicMatches("sensor/#", "sensor/dht22/data"));
+        assertTrue(MqttRouteServiceImpl.topicMatches("#", "sensor"));
+        assertFalse(MqttRouteServiceImpl.topicMatches("sensor/dht22/data", "sensor/dht22"));
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * NotificationDispatcherTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the NotificationDispatcher class.
+ * The tests cover the background delivery of the notifications, the retries of the failed ones, the replay of the outbox, the digests,
+ * the escalations and the rate limits.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.dto.UserDTO;
+import org.example.springproject.entity.Alert;
+import org.example.springproject.entity.Notification;
+import org.example.springproject.entity.Sensor;
+import org.example.springproject.service.NotificationOutboxService;
+import org.example.springproject.service.TwilioService;
+import org.example.springproject.util.AlertManager;
+import org.example.springproject.util.NotificationDispatcher;
+import org.example.springproject.util.NotificationPolicy;
+import org.example.springproject.util.RoomContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for NotificationDispatcher.
+ * The dispatcher runs with a single worker, at most 3 attempts and a backoff of a few milliseconds, and without digests unless a test enables them.
+ */
+@ExtendWith(MockitoExtension.class)
+public class NotificationDispatcherTest {
+
+    /**
+     * Mocks the AlertManager to simulate the composition and delivery of the emails.
+     */
+    @Mock
+    private AlertManager alertManager;
+
+    /**
+     * Mocks the TwilioService to simulate the delivery of the SMS and calls.
+     */
+    @Mock
+    private TwilioService twilioService;
+
+    /**
+     * Mocks the NotificationOutboxService to simulate the outbox.
+     */
+    @Mock
+    private NotificationOutboxService notificationOutboxService;
+
+    /**
+     * The policy of the dispatcher, without escalation delays and with rate limits no test reaches.
+     */
+    private NotificationPolicy policy = new NotificationPolicy(0, 0, 100, 100, 100, 100);
+
+    /**
+     * The NotificationDispatcher instance that is being tested.
+     */
+    private NotificationDispatcher notificationDispatcher;
+
+    /**
+     * The alert being notified.
+     */
+    private final Alert alert = new Alert("room1", "sensor1", null, "MQ5", null, "Gas level in room: Kitchen is too high: 750.0");
+
+    /**
+     * The sensor that raised the alert.
+     */
+    private final Sensor sensor = new Sensor("MQ5", 34, List.of(), true);
+
+    /**
+     * Creates the dispatcher before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        notificationDispatcher = new NotificationDispatcher(alertManager, twilioService, notificationOutboxService, policy, 1, 10, 3, 5, 20, 0, 0);
+    }
+
+    /**
+     * Stops the dispatcher after each test.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        notificationDispatcher.close();
+    }
+
+    /**
+     * Tests that the email, SMS and call of an alert are delivered in the background.
+     */
+    @Test
+    void shouldDeliverAllChannels() {
+        RoomContext roomContext = new RoomContext("room1", "Kitchen", new UserDTO("user1", "Ana", "ana@example.com"), "+40700000000");
+        when(alertManager.composeEmail(roomContext, alert, sensor)).thenReturn("Email text");
+
+        notificationDispatcher.enqueue(stored(notificationDispatcher.compose(roomContext, alert, sensor)));
+
+        verify(alertManager, timeout(1000)).deliverEmail("ana@example.com", "Email text");
+        verify(twilioService, timeout(1000)).deliverSms(eq("+40700000000"), contains("Gas level in room: Kitchen"));
+        verify(twilioService, timeout(1000)).deliverCall("+40700000000");
+        verify(notificationOutboxService, timeout(1000).times(3)).markDelivered(any());
+    }
+
+    /**
+     * Tests that a failed delivery is retried until it succeeds, without retrying the channels that were delivered.
+     */
+    @Test
+    void shouldRetryFailedDelivery() {
+        RoomContext roomContext = new RoomContext("room1", "Kitchen", new UserDTO("user1", "Ana", "ana@example.com"), "+40700000000");
+        when(alertManager.composeEmail(roomContext, alert, sensor)).thenReturn("Email text");
+        doThrow(new MailSendException("SMTP down")).doNothing().when(alertManager).deliverEmail(any(), any());
+
+        notificationDispatcher.enqueue(stored(notificationDispatcher.compose(roomContext, alert, sensor)));
+
+        verify(alertManager, timeout(1000).times(2)).deliverEmail("ana@example.com", "Email text");
+        verify(notificationOutboxService).markAttemptFailed(argThat(notification -> "SMTP down".equals(notification.getLastError())));
+        verify(twilioService, timeout(1000).times(1)).deliverCall("+40700000000");
+        verify(twilioService, times(1)).deliverSms(any(), any());
+        assertEquals(0, notificationDispatcher.getFailedNotifications());
+    }
+
+    /**
+     * Tests that a delivery failing every time is given up after the maximum number of attempts,
+     * and that no SMS or call is composed when the owner has no phone number.
+     */
+    @Test
+    void shouldGiveUpAfterMaxAttempts() throws InterruptedException {
+        RoomContext roomContext = new RoomContext("room1", "Kitchen", new UserDTO("user1", "Ana", "ana@example.com"), null);
+        when(alertManager.composeEmail(roomContext, alert, sensor)).thenReturn("Email text");
+        doThrow(new MailSendException("SMTP down")).when(alertManager).deliverEmail(any(), any());
+
+        List<Notification> notifications = notificationDispatcher.compose(roomContext, alert, sensor);
+        assertEquals(1, notifications.size());
+        notificationDispatcher.enqueue(stored(notifications));
+
+        verify(alertManager, timeout(1000).times(3)).deliverEmail("ana@example.com", "Email text");
+        verify(notificationOutboxService, timeout(1000)).markFailed(argThat(notification -> notification.getState() == Notification.State.FAILED));
+        Thread.sleep(100);
+        verify(alertManager, times(3)).deliverEmail(any(), any());
+        assertEquals(1, notificationDispatcher.getFailedNotifications());
+        verifyNoInteractions(twilioService);
+    }
+
+    /**
+     * Tests that the pending notifications of the outbox are replayed, and that a notification already queued is not queued twice.
+     */
+    @Test
+    void shouldReplayPendingNotifications() {
+        Notification pending = new Notification(Notification.Channel.SMS, "+40700000000", "Alert");
+        pending.setId("alert1:SMS");
+        pending.setAttempts(1);
+        when(notificationOutboxService.getDueNotifications(anyLong(), isNull(), anyInt())).thenReturn(new ArrayList<>(List.of(pending)));
+        // The delivery is held until the notification was queued a second time
+        CountDownLatch queuedTwice = new CountDownLatch(1);
+        doAnswer(invocation -> queuedTwice.await(1, TimeUnit.SECONDS)).when(twilioService).deliverSms(any(), any());
+
+        notificationDispatcher.replayPending();
+        notificationDispatcher.enqueue(List.of(pending));
+        queuedTwice.countDown();
+
+        verify(twilioService, timeout(1000)).deliverSms("+40700000000", "Alert");
+        verify(notificationOutboxService, timeout(1000)).markDelivered(argThat(notification -> notification.getAttempts() == 2));
+        verify(twilioService, times(1)).deliverSms(any(), any());
+    }
+
+    /**
+     * Tests that a replay reading a full page goes on after its last notification, and that a replay reading a shorter page
+     * makes the next one start over with the earliest due notification.
+     */
+    @Test
+    void shouldReplayFromLastNotificationRead() {
+        List<Notification> cursors = new ArrayList<>();
+        List<Notification> firstPage = new ArrayList<>();
+        when(notificationOutboxService.getDueNotifications(anyLong(), any(), anyInt())).thenAnswer(invocation -> {
+            cursors.add(invocation.getArgument(1));
+            if (cursors.size() > 1) {
+                return new ArrayList<>();
+            }
+            int limit = invocation.getArgument(2);
+            for (int i = 0; i < limit; i++) {
+                Notification notification = new Notification(Notification.Channel.SMS, "+40700000000", "Alert " + i);
+                notification.setId("alert" + i + ":SMS");
+                firstPage.add(notification);
+            }
+            return new ArrayList<>(firstPage);
+        });
+
+        notificationDispatcher.replayPending();
+        notificationDispatcher.replayPending();
+        notificationDispatcher.replayPending();
+
+        assertEquals(3, cursors.size());
+        assertNull(cursors.get(0));
+        assertSame(firstPage.get(firstPage.size() - 1), cursors.get(1));
+        assertNull(cursors.get(2));
+    }
+
+    /**
+     * Tests that the first notification of a recipient is sent right away, that the following ones are merged until the window closes,
+     * and that the email digests of several recipients are sent together.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Test
+    void shouldDigestNotificationsOfWindow() throws InterruptedException {
+        notificationDispatcher.close();
+        notificationDispatcher = new NotificationDispatcher(alertManager, twilioService, notificationOutboxService, policy, 1, 10, 3, 5, 20, 400, 300);
+
+        notificationDispatcher.enqueue(List.of(email("alert1", "ana@example.com", "First"), email("alert2", "bob@example.com", "Second")));
+        verify(alertManager, timeout(1000)).deliverEmail("ana@example.com", "First");
+        verify(alertManager, timeout(1000)).deliverEmail("bob@example.com", "Second");
+
+        notificationDispatcher.enqueue(List.of(email("alert3", "ana@example.com", "Third"), email("alert4", "ana@example.com", "Fourth"),
+                email("alert5", "bob@example.com", "Fifth"), email("alert6", "bob@example.com", "Sixth")));
+        Thread.sleep(100);
+        verify(alertManager, times(2)).deliverEmail(any(), any());
+        verify(alertManager, never()).deliverEmails(any());
+
+        verify(alertManager, timeout(1000)).deliverEmails(argThat(textByEmail -> textByEmail.size() == 2
+                && textByEmail.get("ana@example.com").startsWith("2 alerts") && textByEmail.get("ana@example.com").contains("Third")
+                && textByEmail.get("ana@example.com").contains("Fourth") && textByEmail.get("bob@example.com").contains("Sixth")));
+        verify(notificationOutboxService, timeout(1000).times(6)).markDelivered(any());
+        verify(alertManager, times(2)).deliverEmail(any(), any());
+    }
+
+    /**
+     * Tests that a recipient rejected by a bulk send is retried on its own, without sending the emails of the other recipients again.
+     */
+    @Test
+    void shouldRetryRejectedRecipientOfBulkSend() throws InterruptedException {
+        notificationDispatcher.close();
+        notificationDispatcher = new NotificationDispatcher(alertManager, twilioService, notificationOutboxService, policy, 1, 10, 3, 5, 20, 400, 300);
+        when(alertManager.deliverEmails(any())).thenReturn(Map.of("bob@example.com", "Mailbox unavailable"));
+
+        notificationDispatcher.enqueue(List.of(email("alert1", "ana@example.com", "First"), email("alert2", "bob@example.com", "Second"),
+                email("alert3", "ana@example.com", "Third"), email("alert4", "bob@example.com", "Fourth")));
+
+        verify(alertManager, timeout(1000)).deliverEmails(argThat(textByEmail -> textByEmail.size() == 2));
+        verify(alertManager, timeout(1000)).deliverEmail("bob@example.com", "Fourth");
+        verify(notificationOutboxService).markAttemptFailed(argThat(notification -> notification.getId().equals("alert4:EMAIL")));
+        verify(notificationOutboxService, timeout(1000).times(4)).markDelivered(any());
+    }
+
+    /**
+     * Tests that the SMS and the call of an alert are held until their escalation time, and that an escalation cancelled
+     * by the acknowledgement of the alert is not sent.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Test
+    void shouldOnlyEscalateUnacknowledgedAlerts() throws InterruptedException {
+        notificationDispatcher.close();
+        policy = new NotificationPolicy(150, 150, 100, 100, 100, 100);
+        notificationDispatcher = new NotificationDispatcher(alertManager, twilioService, notificationOutboxService, policy, 1, 10, 3, 5, 20, 0, 0);
+        RoomContext roomContext = new RoomContext("room1", "Kitchen", new UserDTO("user1", "Ana", "ana@example.com"), "+40700000000");
+        when(alertManager.composeEmail(roomContext, alert, sensor)).thenReturn("Email text");
+        when(notificationOutboxService.isPending("alert1:SMS")).thenReturn(false);
+        when(notificationOutboxService.isPending("alert1:CALL")).thenReturn(true);
+
+        List<Notification> notifications = notificationDispatcher.compose(roomContext, alert, sensor);
+        assertEquals(0, notifications.get(0).getEscalateAt());
+        assertTrue(notifications.get(1).getEscalateAt() > System.currentTimeMillis());
+        notificationDispatcher.enqueue(stored(notifications));
+
+        verify(alertManager, timeout(1000)).deliverEmail("ana@example.com", "Email text");
+        Thread.sleep(50);
+        verifyNoInteractions(twilioService);
+
+        verify(twilioService, timeout(1000)).deliverCall("+40700000000");
+        // The SMS escalates at the same time as the call, so its cancellation is waited for before checking it wasn't sent
+        verify(notificationOutboxService, timeout(1000)).isPending("alert1:SMS");
+        verify(twilioService, never()).deliverSms(any(), any());
+        verify(notificationOutboxService, times(2)).markDelivered(any());
+    }
+
+    /**
+     * Tests that the calls to a recipient beyond its rate limit are suppressed instead of made.
+     */
+    @Test
+    void shouldSuppressCallsBeyondRecipientLimit() throws InterruptedException {
+        notificationDispatcher.close();
+        notificationDispatcher = new NotificationDispatcher(alertManager, twilioService, notificationOutboxService,
+                new NotificationPolicy(0, 0, 100, 2, 100, 100), 1, 10, 3, 5, 20, 0, 0);
+        List<Notification> calls = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            Notification call = new Notification(Notification.Channel.CALL, "+40700000000", null);
+            call.setId("alert" + i + ":CALL");
+            calls.add(call);
+        }
+
+        notificationDispatcher.enqueue(calls);
+
+        verify(notificationOutboxService, timeout(1000).times(2)).markSuppressed(argThat(notification -> notification.getState() == Notification.State.SUPPRESSED));
+        verify(twilioService, times(2)).deliverCall("+40700000000");
+        assertEquals(2, notificationDispatcher.getSuppressedNotifications());
+    }
+
+    /**
+     * Creates a stored email notification.
+     * @param alertId the ID of the alert of the notification
+     * @param email the recipient of the notification
+     * @param body the body of the notification
+     * @return the notification
+     */
+    private Notification email(String alertId, String email, String body) {
+        Notification notification = new Notification(Notification.Channel.EMAIL, email, body);
+        notification.setId(alertId + ":EMAIL");
+        return notification;
+    }
+
+    /**
+     * Gives the notifications the IDs they get when they are stored with their alert.
+     * @param notifications the composed notifications
+     * @return the same notifications
+     */
+    private List<Notification> stored(List<Notification> notifications) {
+        notifications.forEach(notification -> notification.setId("alert1:" + notification.getChannel()));
+        return notifications;
+    }
+}
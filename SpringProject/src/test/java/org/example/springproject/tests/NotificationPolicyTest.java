@@ -0,0 +1,69 @@
+/**
+ * NotificationPolicyTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the NotificationPolicy class.
+ * The tests cover the escalation delays and the rate limits per recipient and per provider.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.entity.Notification;
+import org.example.springproject.util.NotificationPolicy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NotificationPolicy.
+ */
+public class NotificationPolicyTest {
+
+    /**
+     * Tests that the email is sent right away and the SMS and the call after their escalation delays.
+     */
+    @Test
+    void shouldEscalateSmsAndCall() {
+        NotificationPolicy policy = new NotificationPolicy(300000, 900000, 10, 3, 60, 10);
+
+        assertEquals(0, policy.escalationDelayMillis(Notification.Channel.EMAIL));
+        assertEquals(300000, policy.escalationDelayMillis(Notification.Channel.SMS));
+        assertEquals(900000, policy.escalationDelayMillis(Notification.Channel.CALL));
+    }
+
+    /**
+     * Tests that the calls to a recipient are limited per hour, without limiting the other recipients or the emails.
+     */
+    @Test
+    void shouldLimitCallsPerRecipient() {
+        NotificationPolicy policy = new NotificationPolicy(0, 0, 10, 2, 60, 10);
+        long now = System.currentTimeMillis();
+
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.CALL, "+40700000000", now));
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.CALL, "+40700000000", now));
+        assertEquals(NotificationPolicy.Decision.RECIPIENT_LIMITED, policy.tryAcquire(Notification.Channel.CALL, "+40700000000", now));
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.CALL, "+40711111111", now));
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.SMS, "+40700000000", now));
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.EMAIL, "ana@example.com", now));
+        // A bit more than half an hour refills one of the two calls of the hour
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.CALL, "+40700000000", now + 31 * 60 * 1000L));
+    }
+
+    /**
+     * Tests that the calls beyond the limit of the provider wait for it, without using the tokens of the recipients.
+     */
+    @Test
+    void shouldDelayCallsBeyondProviderLimit() {
+        NotificationPolicy policy = new NotificationPolicy(0, 0, 10, 1, 60, 2);
+        long now = System.currentTimeMillis();
+
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.CALL, "+40700000000", now));
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.CALL, "+40711111111", now));
+        assertEquals(NotificationPolicy.Decision.PROVIDER_LIMITED, policy.tryAcquire(Notification.Channel.CALL, "+40722222222", now));
+        assertEquals(30000, policy.providerWaitMillis(Notification.Channel.CALL, now));
+
+        assertEquals(NotificationPolicy.Decision.ALLOWED, policy.tryAcquire(Notification.Channel.CALL, "+40722222222", now + 30000));
+        // A recipient over its limit gives the token of the provider back
+        assertEquals(NotificationPolicy.Decision.RECIPIENT_LIMITED, policy.tryAcquire(Notification.Channel.CALL, "+40700000000", now + 60000));
+        assertEquals(0, policy.providerWaitMillis(Notification.Channel.CALL, now + 60000));
+    }
+}
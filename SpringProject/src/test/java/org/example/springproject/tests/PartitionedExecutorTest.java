@@ -0,0 +1,170 @@
+/**
+ * PartitionedExecutorTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the PartitionedExecutor class.
+ * The tests cover the ordering of the tasks sharing a partition key and the overflow policies applied when a partition is full.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.util.PartitionedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PartitionedExecutor.
+ */
+public class PartitionedExecutorTest {
+
+    /**
+     * The PartitionedExecutor instance that is being tested.
+     */
+    private PartitionedExecutor executor;
+
+    /**
+     * Released to let the task occupying the worker of a partition finish.
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * The names of the executed tasks, in execution order.
+     */
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Releases the worker and shuts the executor down after each test.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    /**
+     * Occupies the worker of the single partition of the executor until the test releases it.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private void occupyWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute("key", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Creates a task recording its name when executed.
+     * @param name the name of the task
+     * @return the task
+     */
+    private Runnable task(String name) {
+        return () -> executed.add(name);
+    }
+
+    /**
+     * Tests that the tasks of a partition key are executed in submission order, even when one of them fails.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Test
+    void shouldKeepOrderPerKey() throws InterruptedException {
+        executor = new PartitionedExecutor("test", 4, 1000, PartitionedExecutor.OverflowPolicy.BLOCK);
+        Map<String, List<Integer>> executedByKey = new HashMap<>();
+        for (String key : List.of("sensor/a", "sensor/b", "sensor/c")) {
+            List<Integer> sequence = Collections.synchronizedList(new ArrayList<>());
+            executedByKey.put(key, sequence);
+            for (int i = 0; i < 200; i++) {
+                int number = i;
+                executor.execute(key, () -> {
+                    sequence.add(number);
+                    if (number == 100) {
+                        throw new IllegalStateException("Failing task");
+                    }
+                });
+            }
+        }
+
+        executor.destroy();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            expected.add(i);
+        }
+        for (List<Integer> sequence : executedByKey.values()) {
+            assertEquals(expected, sequence);
+        }
+    }
+
+    /**
+     * Tests that with the BLOCK policy the submitting thread waits for room in a full partition and no task is dropped.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Test
+    void shouldBlockWhenPartitionIsFull() throws InterruptedException {
+        executor = new PartitionedExecutor("test", 1, 1, PartitionedExecutor.OverflowPolicy.BLOCK);
+        occupyWorker();
+        executor.execute("key", task("first"));
+
+        Thread producer = new Thread(() -> executor.execute("key", task("second")));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        release.countDown();
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        executor.destroy();
+
+        assertEquals(List.of("first", "second"), executed);
+        assertEquals(0, executor.getDroppedTasks());
+    }
+
+    /**
+     * Tests that with the DROP_NEWEST policy a task submitted to a full partition is dropped.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Test
+    void shouldDropNewestWhenPartitionIsFull() throws InterruptedException {
+        executor = new PartitionedExecutor("test", 1, 1, PartitionedExecutor.OverflowPolicy.DROP_NEWEST);
+        occupyWorker();
+        executor.execute("key", task("first"));
+        executor.execute("key", task("second"));
+
+        release.countDown();
+        executor.destroy();
+
+        assertEquals(List.of("first"), executed);
+        assertEquals(1, executor.getDroppedTasks());
+    }
+
+    /**
+     * Tests that with the DROP_OLDEST policy the oldest queued task of a full partition is dropped to make room for the submitted one.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Test
+    void shouldDropOldestWhenPartitionIsFull() throws InterruptedException {
+        executor = new PartitionedExecutor("test", 1, 1, PartitionedExecutor.OverflowPolicy.DROP_OLDEST);
+        occupyWorker();
+        executor.execute("key", task("first"));
+        executor.execute("key", task("second"));
+
+        release.countDown();
+        executor.destroy();
+
+        assertEquals(List.of("second"), executed);
+        assertEquals(1, executor.getDroppedTasks());
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * ReadingRollupBufferTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the ReadingRollupBuffer class.
+ * The tests cover the aggregation of the readings into the 1-minute, 1-hour and 1-day rollups and the retry of a failed flush.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import com.google.cloud.Timestamp;
+import org.example.springproject.dto.ReadingBucketDTO;
+import org.example.springproject.dto.SensorDTO;
+import org.example.springproject.entity.Details;
+import org.example.springproject.service.ReadingRollupService;
+import org.example.springproject.util.ReadingRollup;
+import org.example.springproject.util.ReadingRollupBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReadingRollupBuffer.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReadingRollupBufferTest {
+
+    /**
+     * Mocks the ReadingRollupService to capture the saved rollups.
+     */
+    @Mock
+    private ReadingRollupService readingRollupService;
+
+    /**
+     * The ReadingRollupBuffer instance that is being tested.
+     */
+    @InjectMocks
+    private ReadingRollupBuffer readingRollupBuffer;
+
+    /**
+     * Creates the sensor data of a reading.
+     * @param epochSeconds the time of the reading in seconds since the epoch
+     * @param temperature the temperature of the reading
+     * @return the sensor data
+     */
+    private static SensorDTO reading(long epochSeconds, float temperature) {
+        Details details = new Details(Timestamp.ofTimeSecondsAndNanos(epochSeconds, 0), Map.of("temperature", temperature));
+        return new SensorDTO("sensor1", "DHT22", 4, List.of(details), true);
+    }
+
+    /**
+     * Filters the saved rollups of a resolution.
+     * @param rollups the saved rollups
+     * @param resolution the resolution
+     * @return the rollups of the resolution
+     */
+    private static List<ReadingRollup> ofResolution(List<ReadingRollup> rollups, ReadingRollup.Resolution resolution) {
+        return rollups.stream().filter(rollup -> rollup.getResolution() == resolution).toList();
+    }
+
+    /**
+     * Tests that the readings are aggregated into one rollup per bucket of every resolution.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldAggregateReadingsPerBucket() {
+        long hour = 1_700_002_800L;
+        readingRollupBuffer.add(reading(hour, 20F));
+        readingRollupBuffer.add(reading(hour + 30, 24F));
+        readingRollupBuffer.add(reading(hour + 90, 30F));
+
+        readingRollupBuffer.flush();
+
+        ArgumentCaptor<List<ReadingRollup>> captor = ArgumentCaptor.forClass(List.class);
+        verify(readingRollupService).saveRollups(captor.capture());
+        List<ReadingRollup> rollups = captor.getValue();
+
+        assertEquals(2, ofResolution(rollups, ReadingRollup.Resolution.MINUTE).size());
+        List<ReadingRollup> hours = ofResolution(rollups, ReadingRollup.Resolution.HOUR);
+        assertEquals(1, hours.size());
+        ReadingBucketDTO bucket = hours.get(0).toBucket();
+        assertEquals(3, bucket.getCount());
+        assertEquals(20F, bucket.getChannels().get("temperature").getMin());
+        assertEquals(30F, bucket.getChannels().get("temperature").getMax());
+        assertEquals(24.666666F, bucket.getChannels().get("temperature").getAvg(), 0.0001F);
+        assertEquals(3, ofResolution(rollups, ReadingRollup.Resolution.DAY).get(0).getCount());
+    }
+
+    /**
+     * Tests that only the rollups a failed flush didn't save are merged with the new readings and saved by the next flush,
+     * so the rollups it saved are not counted twice.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRetryOnlyUnsavedRollupsOfFailedFlush() {
+        long hour = 1_700_002_800L;
+        when(readingRollupService.saveRollups(anyList()))
+                .thenAnswer(invocation -> {
+                    List<ReadingRollup> rollups = invocation.getArgument(0);
+                    return ofResolution(rollups, ReadingRollup.Resolution.MINUTE);
+                })
+                .thenReturn(List.of());
+
+        readingRollupBuffer.add(reading(hour, 20F));
+        readingRollupBuffer.flush();
+        readingRollupBuffer.add(reading(hour + 10, 22F));
+        readingRollupBuffer.flush();
+
+        ArgumentCaptor<List<ReadingRollup>> captor = ArgumentCaptor.forClass(List.class);
+        verify(readingRollupService, times(2)).saveRollups(captor.capture());
+        List<ReadingRollup> rollups = captor.getAllValues().get(1);
+        assertEquals(3, rollups.size());
+        assertEquals(2, ofResolution(rollups, ReadingRollup.Resolution.MINUTE).get(0).getCount());
+        assertEquals(1, ofResolution(rollups, ReadingRollup.Resolution.HOUR).get(0).getCount());
+        assertEquals(1, ofResolution(rollups, ReadingRollup.Resolution.DAY).get(0).getCount());
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * ReadingRollupServiceImplTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the ReadingRollupServiceImpl class.
+ * The tests cover the rollups reported as not saved when a transaction fails after others were committed.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.Firestore;
+import org.example.springproject.service.implementation.ReadingRollupServiceImpl;
+import org.example.springproject.util.ReadingRollup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReadingRollupServiceImpl.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReadingRollupServiceImplTest {
+
+    /**
+     * Mocks the Firestore instance, with deep stubs for the references of the rollups.
+     */
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private Firestore firestore;
+
+    /**
+     * The ReadingRollupServiceImpl instance that is being tested.
+     */
+    @InjectMocks
+    private ReadingRollupServiceImpl readingRollupServiceImpl;
+
+    /**
+     * Creates the 1-minute rollups of consecutive minutes of a sensor.
+     * @param size the number of rollups
+     * @return the rollups
+     */
+    private static List<ReadingRollup> minutes(int size) {
+        List<ReadingRollup> rollups = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rollups.add(new ReadingRollup("sensor1", ReadingRollup.Resolution.MINUTE, 1_700_002_800L + i * 60L));
+        }
+        return rollups;
+    }
+
+    /**
+     * Tests that all the rollups are reported as saved when every transaction is committed.
+     */
+    @Test
+    void shouldSaveRollupsByTransactions() {
+        doReturn(ApiFutures.immediateFuture(null)).when(firestore).runTransaction(any());
+
+        List<ReadingRollup> unsaved = readingRollupServiceImpl.saveRollups(minutes(1200));
+
+        assertTrue(unsaved.isEmpty());
+        verify(firestore, times(3)).runTransaction(any());
+    }
+
+    /**
+     * Tests that when a transaction fails after an earlier one was committed, only the rollups of the failed transaction
+     * and of the next ones are reported as not saved, and no further transaction is run.
+     */
+    @Test
+    void shouldReportRollupsAfterFailedTransaction() {
+        doReturn(ApiFutures.immediateFuture(null))
+                .doReturn(ApiFutures.immediateFailedFuture(new RuntimeException("Firestore unavailable")))
+                .when(firestore).runTransaction(any());
+        List<ReadingRollup> rollups = minutes(1200);
+
+        List<ReadingRollup> unsaved = readingRollupServiceImpl.saveRollups(rollups);
+
+        assertEquals(rollups.subList(500, 1200), unsaved);
+        verify(firestore, times(2)).runTransaction(any());
+    }
+}
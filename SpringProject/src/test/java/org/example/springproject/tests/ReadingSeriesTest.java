@@ -0,0 +1,62 @@
+/**
+ * ReadingSeriesTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the ReadingSeries class.
+ * The tests cover the aggregation of the readings into the time buckets of the charts.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.dto.ReadingBucketDTO;
+import org.example.springproject.util.ReadingSchema;
+import org.example.springproject.util.ReadingSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReadingSeries.
+ */
+public class ReadingSeriesTest {
+
+    /**
+     * The number of microseconds in a second.
+     */
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    /**
+     * Tests that the readings are aggregated into the buckets aligned on the origin, skipping the empty buckets,
+     * and that a channel missing from some readings is only counted where it's present.
+     */
+    @Test
+    void shouldAggregateReadingsIntoBuckets() {
+        ReadingSeries series = new ReadingSeries(ReadingSchema.forSensorType("DHT22"));
+        long origin = 1_700_000_000L * MICROS_PER_SECOND;
+        series.set(series.addRow(origin), "temperature", 20F);
+        series.set(series.addRow(origin + 30 * MICROS_PER_SECOND), "temperature", 24F);
+        int row = series.addRow(origin + 59 * MICROS_PER_SECOND);
+        series.set(row, "temperature", 22F);
+        series.set(row, "humidity", 40F);
+        series.set(series.addRow(origin + 180 * MICROS_PER_SECOND), "temperature", 30F);
+
+        List<ReadingBucketDTO> buckets = series.toBuckets(origin, 60 * MICROS_PER_SECOND);
+
+        assertEquals(2, buckets.size());
+        ReadingBucketDTO first = buckets.get(0);
+        assertEquals(origin, ReadingSeries.toEpochMicros(first.getTimestamp()));
+        assertEquals(3, first.getCount());
+        ReadingBucketDTO.ChannelStats temperature = first.getChannels().get("temperature");
+        assertEquals(20F, temperature.getMin());
+        assertEquals(24F, temperature.getMax());
+        assertEquals(22F, temperature.getAvg());
+        assertEquals(3, temperature.getCount());
+        assertEquals(1, first.getChannels().get("humidity").getCount());
+
+        ReadingBucketDTO second = buckets.get(1);
+        assertEquals(origin + 180 * MICROS_PER_SECOND, ReadingSeries.toEpochMicros(second.getTimestamp()));
+        assertEquals(1, second.getCount());
+        assertFalse(second.getChannels().containsKey("humidity"));
+    }
+}
@@ -17,6 +17,7 @@ import org.example.springproject.entity.Details;
 import org.example.springproject.entity.Room;
 import org.example.springproject.entity.Sensor;
 import org.example.springproject.service.implementation.RoomServiceImpl;
+import org.example.springproject.util.RoomContextCache;
 import org.example.springproject.service.implementation.SensorServiceImpl;
 
 import org.junit.jupiter.api.Test;
@@ -58,6 +59,12 @@ public class RoomServiceImplTest {
     @Mock
     private DocumentReference documentReference;
 
+    /**
+     * Mocks the RoomContextCache, which is invalidated when rooms are modified.
+     */
+    @Mock
+    private RoomContextCache roomContextCache;
+
     /**
      * The RoomServiceImpl instance being tested, with dependencies injected.
      * It is annotated with @InjectMocks to inject the mocked dependencies.
@@ -0,0 +1,133 @@
+/**
+ * SensorDataWriteBufferTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the SensorDataWriteBuffer class.
+ * The tests cover the retry of a batch of readings that failed to save and the readings dropped when the buffer is full.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import com.google.cloud.Timestamp;
+import org.example.springproject.dto.SensorDTO;
+import org.example.springproject.entity.Details;
+import org.example.springproject.service.RoomService;
+import org.example.springproject.service.SensorService;
+import org.example.springproject.util.SensorDataWriteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SensorDataWriteBuffer.
+ */
+@ExtendWith(MockitoExtension.class)
+public class SensorDataWriteBufferTest {
+
+    /**
+     * Mocks the SensorService to fail the first save.
+     */
+    @Mock
+    private SensorService sensorService;
+
+    /**
+     * Mocks the RoomService to capture the room updates.
+     */
+    @Mock
+    private RoomService roomService;
+
+    /**
+     * The SensorDataWriteBuffer instance that is being tested.
+     */
+    private SensorDataWriteBuffer sensorDataWriteBuffer;
+
+    /**
+     * Sets up the SensorDataWriteBuffer before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        sensorDataWriteBuffer = new SensorDataWriteBuffer(sensorService, roomService, 100, 3);
+    }
+
+    /**
+     * Creates the sensor data of a reading.
+     * @param sensorId the ID of the sensor
+     * @param temperature the temperature of the reading
+     * @return the sensor data
+     */
+    private static SensorDTO reading(String sensorId, float temperature) {
+        Details details = new Details(Timestamp.ofTimeSecondsAndNanos(1_700_002_800L, 0), Map.of("temperature", temperature));
+        return new SensorDTO(sensorId, "DHT22", 4, List.of(details), true);
+    }
+
+    /**
+     * Tests that a batch that failed to save is kept, and saved by the next flush ahead of the readings received meanwhile,
+     * with the rooms updated only once it is saved.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRetryBatchThatFailedToSave() {
+        SensorDTO first = reading("sensor1", 20F);
+        SensorDTO second = reading("sensor2", 22F);
+        List<List<SensorDTO>> savedBatches = new ArrayList<>();
+        when(sensorService.saveSensorDataBatch(anyList())).thenAnswer(invocation -> {
+            savedBatches.add(new ArrayList<>(invocation.getArgument(0)));
+            if (savedBatches.size() == 1) {
+                throw new RuntimeException("Firestore unavailable");
+            }
+            return null;
+        });
+
+        sensorDataWriteBuffer.add("room1", first);
+        sensorDataWriteBuffer.flush();
+        verify(roomService, never()).updateRoomsWithSensorData(anyMap());
+
+        sensorDataWriteBuffer.add("room2", second);
+        sensorDataWriteBuffer.flush();
+
+        assertEquals(List.of(List.of(first), List.of(first, second)), savedBatches);
+        verify(roomService).updateRoomsWithSensorData(Map.of("room1", List.of(first), "room2", List.of(second)));
+    }
+
+    /**
+     * Tests that while the writes fail, the buffer keeps at most its capacity of readings by dropping the oldest ones,
+     * and that the next successful flush writes the newest readings in order.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldDropOldestReadingsWhenBufferIsFull() {
+        List<SensorDTO> readings = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            readings.add(reading("sensor" + i, 20F + i));
+        }
+        List<List<SensorDTO>> savedBatches = new ArrayList<>();
+        when(sensorService.saveSensorDataBatch(anyList())).thenAnswer(invocation -> {
+            savedBatches.add(new ArrayList<>(invocation.getArgument(0)));
+            if (savedBatches.size() == 1) {
+                throw new RuntimeException("Firestore unavailable");
+            }
+            return null;
+        });
+
+        sensorDataWriteBuffer.add("room1", readings.get(0));
+        sensorDataWriteBuffer.add("room1", readings.get(1));
+        sensorDataWriteBuffer.flush();
+        sensorDataWriteBuffer.add("room1", readings.get(2));
+        sensorDataWriteBuffer.add("room1", readings.get(3));
+        sensorDataWriteBuffer.add("room1", readings.get(4));
+        sensorDataWriteBuffer.flush();
+
+        assertEquals(List.of(readings.subList(0, 2), readings.subList(2, 5)), savedBatches);
+        assertEquals(2, sensorDataWriteBuffer.getDroppedReadings());
+    }
+}
@@ -10,19 +10,27 @@ package org.example.springproject.tests;
 import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import org.example.springproject.dto.ReadingBucketDTO;
 import org.example.springproject.dto.SensorDTO;
 import org.example.springproject.entity.Details;
 import org.example.springproject.entity.Sensor;
+import org.example.springproject.service.ReadingRollupService;
 import org.example.springproject.service.implementation.SensorServiceImpl;
+import org.example.springproject.util.ReadingRollup;
+import org.example.springproject.util.ReadingSchema;
+import org.example.springproject.util.ReadingSeries;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -49,6 +57,12 @@ public class SensorServiceImplTest {
     @Mock
     private DocumentReference documentReference;
 
+    /**
+     * Mocked ReadingRollupService, from which the buckets of a day are merged.
+     */
+    @Mock
+    private ReadingRollupService readingRollupService;
+
     /**
      * The SensorServiceImpl instance to be tested.
      * This is the class under test that contains the business logic for sensor operations.
@@ -108,12 +122,28 @@ public class SensorServiceImplTest {
         when(snapshot.getLong("port")).thenReturn(1L);
         when(snapshot.get("details")).thenReturn(null);
 
+        CollectionReference readingsReference = mock(CollectionReference.class);
+        Query limitedQuery = mock(Query.class);
+        ApiFuture<QuerySnapshot> readingsFuture = mock(ApiFuture.class);
+        QuerySnapshot readingsSnapshot = mock(QuerySnapshot.class);
+        when(documentReference.collection(anyString())).thenReturn(readingsReference);
+        when(readingsReference.limit(500)).thenReturn(limitedQuery);
+        when(limitedQuery.get()).thenReturn(readingsFuture);
+        when(readingsFuture.get()).thenReturn(readingsSnapshot);
+        when(readingsSnapshot.getDocuments()).thenReturn(List.of());
+
         ApiFuture<WriteResult> deleteFuture = mock(ApiFuture.class);
         when(documentReference.delete()).thenReturn(deleteFuture);
         when(deleteFuture.get()).thenReturn(mock(WriteResult.class));
 
         SensorDTO result = sensorServiceImpl.deleteSensorById(sensorId);
 
+        // The readings and their 1-minute, 1-hour and 1-day rollups are deleted with the sensor
+        verify(documentReference).collection("readingBuckets");
+        verify(documentReference).collection("rollups_1m");
+        verify(documentReference).collection("rollups_1h");
+        verify(documentReference).collection("rollups_1d");
+
         assertNotNull(result);
         assertEquals(sensorId, result.getId());
         assertEquals("Temperature", result.getSensorType());
@@ -127,7 +157,7 @@ public class SensorServiceImplTest {
     @Test
     void shouldUpdateSensorSuccessfully() throws Exception {
         String sensorId = "sensor123";
-        Sensor updatedSensor = new Sensor("Humidity", 3, new ArrayList<>());
+        Sensor updatedSensor = new Sensor("Humidity", 3, new ArrayList<>(), false);
 
         when(firestore.collection("sensors")).thenReturn(collectionReference);
         when(collectionReference.document(sensorId)).thenReturn(documentReference);
@@ -150,6 +180,54 @@ public class SensorServiceImplTest {
         assertEquals(3, result.getPort());
     }
 
+    /**
+     * Test method to verify that the metadata of a sensor is read once, served from memory afterwards
+     * and read again after the sensor is updated.
+     */
+    @Test
+    void shouldServeSensorMetadataFromMemoryUntilSensorIsUpdated() throws Exception {
+        String sensorId = "sensor123";
+        Sensor updatedSensor = new Sensor("DHT22", 2, new ArrayList<>(), false);
+
+        when(firestore.collection("sensors")).thenReturn(collectionReference);
+        when(collectionReference.document(sensorId)).thenReturn(documentReference);
+
+        ApiFuture<DocumentSnapshot> metadataFuture = mock(ApiFuture.class);
+        DocumentSnapshot metadataSnapshot = mock(DocumentSnapshot.class);
+        when(documentReference.get(any(FieldMask.class))).thenReturn(metadataFuture);
+        when(metadataFuture.get()).thenReturn(metadataSnapshot);
+        when(metadataSnapshot.exists()).thenReturn(true);
+        when(metadataSnapshot.getString("sensorType")).thenReturn("DHT22");
+        when(metadataSnapshot.getLong("port")).thenReturn(2L);
+        when(metadataSnapshot.getBoolean("active")).thenReturn(true, false);
+
+        ApiFuture<DocumentSnapshot> future = mock(ApiFuture.class);
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(documentReference.get()).thenReturn(future);
+        when(future.get()).thenReturn(snapshot);
+        when(snapshot.exists()).thenReturn(true);
+
+        ApiFuture<WriteResult> writeFuture = mock(ApiFuture.class);
+        when(documentReference.set(updatedSensor)).thenReturn(writeFuture);
+        when(writeFuture.get()).thenReturn(mock(WriteResult.class));
+
+        SensorDTO first = sensorServiceImpl.getSensorMetadata(sensorId);
+        first.setDetails(List.of(new Details()));
+        SensorDTO second = sensorServiceImpl.getSensorMetadata(sensorId);
+
+        assertEquals("DHT22", second.getSensorType());
+        assertEquals(2, second.getPort());
+        assertTrue(second.isActive());
+        assertTrue(second.getDetails().isEmpty());
+        verify(documentReference, times(1)).get(any(FieldMask.class));
+
+        sensorServiceImpl.updateSensor(sensorId, updatedSensor);
+        SensorDTO afterUpdate = sensorServiceImpl.getSensorMetadata(sensorId);
+
+        assertFalse(afterUpdate.isActive());
+        verify(documentReference, times(2)).get(any(FieldMask.class));
+    }
+
     /**
      * Test method to verify that all sensors can be retrieved successfully.
      * It mocks the Firestore interactions and verifies the expected behavior.
@@ -199,24 +277,73 @@ public class SensorServiceImplTest {
 
         sensorDTO.setDetails(List.of(detail));
 
-        DocumentReference documentReference = mock(DocumentReference.class);
-        DocumentSnapshot documentSnapshot = mock(DocumentSnapshot.class);
-        ApiFuture<DocumentSnapshot> future = mock(ApiFuture.class);
+        CollectionReference readingsReference = mock(CollectionReference.class);
+        DocumentReference readingReference = mock(DocumentReference.class);
         ApiFuture<WriteResult> writeResultFuture = mock(ApiFuture.class);
         WriteResult writeResult = mock(WriteResult.class);
 
         when(firestore.collection("sensors")).thenReturn(collectionReference);
         when(collectionReference.document(sensorId)).thenReturn(documentReference);
-        when(documentReference.get()).thenReturn(future);
-        when(future.get()).thenReturn(documentSnapshot);
-        when(documentSnapshot.exists()).thenReturn(false); // No existing data
-        when(documentReference.set(any(SensorDTO.class))).thenReturn(writeResultFuture);
+        when(documentReference.collection("readingBuckets")).thenReturn(readingsReference);
+        when(readingsReference.document(anyString())).thenReturn(readingReference);
+        when(readingReference.set(anyMap(), any(SetOptions.class))).thenReturn(writeResultFuture);
         when(writeResultFuture.get()).thenReturn(writeResult);
         when(writeResult.getUpdateTime()).thenReturn(Timestamp.now());
 
         String result = sensorServiceImpl.saveSensorData(sensorDTO);
 
         assertNotNull(result);
+        verify(readingReference).set(anyMap(), any(SetOptions.class));
+        verify(readingReference, never()).get();
+    }
+
+    /**
+     * Test method to verify that a batch of sensor readings is saved with a single write batch.
+     * Readings of the same sensor and hour are merged into one write of their bucket.
+     */
+    @Test
+    void shouldSaveSensorDataBatchSuccessfully() throws Exception {
+        String sensorId = "sensor123";
+        Timestamp now = Timestamp.now();
+
+        List<SensorDTO> sensorData = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Details detail = new Details();
+            detail.setTimestamp(now);
+            Map<String, Float> data = new HashMap<>();
+            data.put("temperature", 25.5f + i);
+            detail.setData(data);
+
+            SensorDTO sensorDTO = new SensorDTO();
+            sensorDTO.setId(sensorId);
+            sensorDTO.setSensorType("Temperature");
+            sensorDTO.setPort(1);
+            sensorDTO.setDetails(List.of(detail));
+            sensorData.add(sensorDTO);
+        }
+
+        CollectionReference readingsReference = mock(CollectionReference.class);
+        DocumentReference readingReference = mock(DocumentReference.class);
+        WriteBatch writeBatch = mock(WriteBatch.class);
+        ApiFuture<List<WriteResult>> commitFuture = mock(ApiFuture.class);
+        WriteResult writeResult = mock(WriteResult.class);
+
+        when(firestore.collection("sensors")).thenReturn(collectionReference);
+        when(collectionReference.document(sensorId)).thenReturn(documentReference);
+        when(documentReference.collection("readingBuckets")).thenReturn(readingsReference);
+        when(readingsReference.document(anyString())).thenReturn(readingReference);
+        when(firestore.batch()).thenReturn(writeBatch);
+        when(writeBatch.commit()).thenReturn(commitFuture);
+        when(commitFuture.get()).thenReturn(List.of(writeResult));
+        when(writeResult.getUpdateTime()).thenReturn(now);
+
+        String result = sensorServiceImpl.saveSensorDataBatch(sensorData);
+
+        assertNotNull(result);
+        verify(writeBatch, times(1)).set(eq(readingReference), anyMap(), any(SetOptions.class));
+        verify(writeBatch, times(1)).commit();
+        verify(readingReference, never()).set(anyMap(), any(SetOptions.class));
+        assertEquals(27.5f, sensorServiceImpl.getLastDetailForSensor(sensorId).toDetails(0).getData().get("temperature"));
     }
 
     /**
@@ -264,23 +391,23 @@ public class SensorServiceImplTest {
         Timestamp timestamp = Timestamp.ofTimeSecondsAndNanos(selectedDate.getTime() / 1000, 0);
         Map<String, Float> data = new HashMap<>();
         data.put("temperature", 25.5f);
-        Details detail = new Details(timestamp, data);
-
-        SensorDTO sensorDTO = new SensorDTO();
-        sensorDTO.setDetails(List.of(detail));
 
-        DocumentReference documentReference = mock(DocumentReference.class);
-        ApiFuture<DocumentSnapshot> future = mock(ApiFuture.class);
-        DocumentSnapshot documentSnapshot = mock(DocumentSnapshot.class);
+        CollectionReference readingsReference = mock(CollectionReference.class);
+        Query dayQuery = mock(Query.class);
+        ApiFuture<QuerySnapshot> future = mock(ApiFuture.class);
+        QuerySnapshot querySnapshot = mock(QuerySnapshot.class);
+        QueryDocumentSnapshot bucket = mock(QueryDocumentSnapshot.class);
 
         when(firestore.collection("sensors")).thenReturn(collectionReference);
         when(collectionReference.document(sensorId)).thenReturn(documentReference);
-        when(documentReference.get()).thenReturn(future);
-        when(future.get()).thenReturn(documentSnapshot);
-        when(documentSnapshot.exists()).thenReturn(true);
-        when(documentSnapshot.toObject(SensorDTO.class)).thenReturn(sensorDTO);
+        when(documentReference.collection("readingBuckets")).thenReturn(readingsReference);
+        when(readingsReference.whereEqualTo(eq("day"), anyString())).thenReturn(dayQuery);
+        when(dayQuery.get()).thenReturn(future);
+        when(future.get()).thenReturn(querySnapshot);
+        when(querySnapshot.getDocuments()).thenReturn(List.of(bucket));
+        when(bucket.get("readings")).thenReturn(List.of(Map.of("timestamp", timestamp, "data", Map.of("temperature", 25.5))));
 
-        List<Details> result = sensorServiceImpl.getSensorDataByDate(sensorId, selectedDate);
+        List<Details> result = sensorServiceImpl.getSensorDataByDate(sensorId, selectedDate).toDetailsList();
 
         assertNotNull(result);
         assertEquals(1, result.size());
@@ -298,33 +425,112 @@ public class SensorServiceImplTest {
         Timestamp timestamp1 = Timestamp.ofTimeSecondsAndNanos(1716720000, 0);
         Timestamp timestamp2 = Timestamp.ofTimeSecondsAndNanos(1716800000, 0);
 
-        Map<String, Float> data1 = new HashMap<>();
-        data1.put("temperature", 23.0f);
         Map<String, Float> data2 = new HashMap<>();
         data2.put("temperature", 26.0f);
 
-        Details detail1 = new Details(timestamp1, data1);
-        Details detail2 = new Details(timestamp2, data2);
+        CollectionReference readingsReference = mock(CollectionReference.class);
+        Query orderedQuery = mock(Query.class);
+        ApiFuture<QuerySnapshot> future = mock(ApiFuture.class);
+        QuerySnapshot querySnapshot = mock(QuerySnapshot.class);
+        QueryDocumentSnapshot bucket = mock(QueryDocumentSnapshot.class);
 
-        SensorDTO sensorDTO = new SensorDTO();
-        sensorDTO.setDetails(List.of(detail1, detail2));
+        when(firestore.collection("sensors")).thenReturn(collectionReference);
+        when(collectionReference.document(sensorId)).thenReturn(documentReference);
+        when(documentReference.collection("readingBuckets")).thenReturn(readingsReference);
+        when(readingsReference.orderBy(any(FieldPath.class), eq(Query.Direction.DESCENDING))).thenReturn(orderedQuery);
+        when(orderedQuery.limit(1)).thenReturn(orderedQuery);
+        when(orderedQuery.get()).thenReturn(future);
+        when(future.get()).thenReturn(querySnapshot);
+        when(querySnapshot.getDocuments()).thenReturn(List.of(bucket));
+        when(bucket.get("readings")).thenReturn(List.of(
+                Map.of("timestamp", timestamp1, "data", Map.of("temperature", 23.0)),
+                Map.of("timestamp", timestamp2, "data", Map.of("temperature", 26.0))));
+
+        ReadingSeries lastReading = sensorServiceImpl.getLastDetailForSensor(sensorId);
+
+        assertNotNull(lastReading);
+        assertEquals(1, lastReading.size());
+        Details result = lastReading.toDetails(0);
+        assertEquals(timestamp2, result.getTimestamp());
+        assertEquals(data2, result.getData());
+    }
 
-        DocumentReference documentReference = mock(DocumentReference.class);
-        ApiFuture<DocumentSnapshot> future = mock(ApiFuture.class);
-        DocumentSnapshot documentSnapshot = mock(DocumentSnapshot.class);
+    /**
+     * Test method to verify that the last detail of a sensor is served from memory after a reading was saved.
+     * It mocks the Firestore write and verifies that no query is made when the last detail is requested.
+     */
+    @Test
+    void shouldServeLastDetailFromMemoryAfterSave() throws Exception {
+        String sensorId = "sensor123";
+
+        Details detail = new Details(Timestamp.ofTimeSecondsAndNanos(1716800000, 0), Map.of("temperature", 26.0f));
+        SensorDTO sensorDTO = new SensorDTO(sensorId, "DHT22", 1, List.of(detail), true);
+
+        CollectionReference readingsReference = mock(CollectionReference.class);
+        DocumentReference bucketReference = mock(DocumentReference.class);
+        ApiFuture<WriteResult> writeResultFuture = mock(ApiFuture.class);
+        WriteResult writeResult = mock(WriteResult.class);
 
         when(firestore.collection("sensors")).thenReturn(collectionReference);
         when(collectionReference.document(sensorId)).thenReturn(documentReference);
-        when(documentReference.get()).thenReturn(future);
-        when(future.get()).thenReturn(documentSnapshot);
-        when(documentSnapshot.exists()).thenReturn(true);
-        when(documentSnapshot.toObject(SensorDTO.class)).thenReturn(sensorDTO);
+        when(documentReference.collection("readingBuckets")).thenReturn(readingsReference);
+        when(readingsReference.document(anyString())).thenReturn(bucketReference);
+        when(bucketReference.set(anyMap(), any(SetOptions.class))).thenReturn(writeResultFuture);
+        when(writeResultFuture.get()).thenReturn(writeResult);
+        when(writeResult.getUpdateTime()).thenReturn(Timestamp.now());
 
-        Details result = sensorServiceImpl.getLastDetailForSensor(sensorId);
+        sensorServiceImpl.saveSensorData(sensorDTO);
+        ReadingSeries lastReading = sensorServiceImpl.getLastDetailForSensor(sensorId);
 
-        assertNotNull(result);
-        assertEquals(timestamp2, result.getTimestamp());
-        assertEquals(data2, result.getData());
+        assertSame(ReadingSchema.forSensorType("DHT22"), lastReading.getSchema());
+        assertEquals(detail.getTimestamp(), lastReading.toDetails(0).getTimestamp());
+        assertEquals(detail.getData(), lastReading.toDetails(0).getData());
+        verify(readingsReference, never()).orderBy(any(FieldPath.class), any(Query.Direction.class));
     }
 
+
+    /**
+     * Tests that the buckets of a day with a resolution of whole hours are merged from the hourly rollups,
+     * with the average of every channel weighted by the count of every rollup, without reading the readings of the day.
+     */
+    @Test
+    void shouldMergeHourlyRollupsIntoBuckets() {
+        Date selectedDate = Date.from(LocalDate.of(2025, 6, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        long dayStart = selectedDate.getTime() / 1000L;
+        List<ReadingBucketDTO> rollups = List.of(
+                rollup(dayStart, 20F, 22F, 21F, 10),
+                rollup(dayStart + 3600, 18F, 24F, 24F, 30),
+                rollup(dayStart + 7200, 25F, 26F, 25.5F, 5));
+        when(readingRollupService.getRollups(eq("sensor1"), eq(ReadingRollup.Resolution.HOUR), eq(selectedDate), any(Date.class), anyInt()))
+                .thenReturn(rollups);
+
+        List<ReadingBucketDTO> buckets = sensorServiceImpl.getSensorDataBuckets("sensor1", selectedDate, 7200);
+
+        assertEquals(2, buckets.size());
+        ReadingBucketDTO first = buckets.get(0);
+        assertEquals(dayStart, first.getTimestamp().getSeconds());
+        assertEquals(40, first.getCount());
+        ReadingBucketDTO.ChannelStats temperature = first.getChannels().get("temperature");
+        assertEquals(18F, temperature.getMin());
+        assertEquals(24F, temperature.getMax());
+        assertEquals(23.25F, temperature.getAvg(), 0.001F);
+        assertEquals(40, temperature.getCount());
+        assertEquals(dayStart + 7200, buckets.get(1).getTimestamp().getSeconds());
+        assertEquals(5, buckets.get(1).getCount());
+        verifyNoInteractions(firestore);
+    }
+
+    /**
+     * Creates the bucket of an hourly rollup holding the temperature readings of a sensor.
+     * @param startSeconds the start of the rollup, in seconds since the epoch
+     * @param min the minimum temperature
+     * @param max the maximum temperature
+     * @param avg the average temperature
+     * @param count the number of readings
+     * @return the bucket of the rollup
+     */
+    private static ReadingBucketDTO rollup(long startSeconds, float min, float max, float avg, int count) {
+        return new ReadingBucketDTO(Timestamp.ofTimeSecondsAndNanos(startSeconds, 0), count,
+                Map.of("temperature", new ReadingBucketDTO.ChannelStats(min, max, avg, count)));
+    }
 }
@@ -0,0 +1,149 @@
+/**
+ * SlidingWindowTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the SlidingWindow class.
+ * The tests cover the incremental average, min, max, rate and N-of-M aggregations of the windowed alert rules.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import org.example.springproject.entity.CustomAlert;
+import org.example.springproject.util.AlertRule;
+import org.example.springproject.util.SlidingWindow;
+import org.example.springproject.util.WindowAggregation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SlidingWindow.
+ */
+public class SlidingWindowTest {
+
+    /**
+     * Creates a rule comparing an aggregation of the gas level over a window against 700.
+     * @param aggregation the aggregation of the rule
+     * @param windowSeconds the length of the window in seconds
+     * @return the compiled rule
+     */
+    private AlertRule gasRule(String aggregation, int windowSeconds) {
+        CustomAlert customAlert = new CustomAlert("user1", "room1", "sensor1", "MQ5", "gas", ">", 700F, "Gas: {value}");
+        customAlert.setAggregation(aggregation);
+        customAlert.setWindowSeconds(windowSeconds);
+        return AlertRule.compile("alert1", customAlert);
+    }
+
+    /**
+     * Tests that the average only covers the readings of the last window seconds.
+     */
+    @Test
+    void shouldAverageReadingsOfWindow() {
+        SlidingWindow window = new SlidingWindow(gasRule("avg", 10), 512);
+
+        assertEquals(600F, window.add(100, 600F));
+        assertEquals(700F, window.add(105, 800F));
+        assertEquals(900F, window.add(110, 1000F));
+        // An out-of-order reading is added at the time of the latest one
+        assertEquals(800F, window.add(90, 600F));
+    }
+
+    /**
+     * Tests that min and max follow the readings entering and leaving the window.
+     */
+    @Test
+    void shouldTrackExtremesOfWindow() {
+        SlidingWindow max = new SlidingWindow(gasRule("max", 3), 512);
+        SlidingWindow min = new SlidingWindow(gasRule("min", 3), 512);
+        float[] readings = {500F, 900F, 700F, 600F, 800F, 300F};
+        float[] expectedMax = {500F, 900F, 900F, 900F, 800F, 800F};
+        float[] expectedMin = {500F, 500F, 500F, 600F, 600F, 300F};
+
+        for (int i = 0; i < readings.length; i++) {
+            assertEquals(expectedMax[i], max.add(i, readings[i]), "max at " + i);
+            assertEquals(expectedMin[i], min.add(i, readings[i]), "min at " + i);
+        }
+    }
+
+    /**
+     * Tests that the capacity bounds the readings kept by a time window.
+     */
+    @Test
+    void shouldDropOldestReadingsWhenFull() {
+        SlidingWindow window = new SlidingWindow(gasRule("max", 60), 2);
+
+        window.add(0, 900F);
+        window.add(1, 500F);
+
+        assertEquals(600F, window.add(2, 600F));
+    }
+
+    /**
+     * Tests that the rate is the change per second over the window and is not defined for a single reading.
+     */
+    @Test
+    void shouldComputeRateOfChange() {
+        SlidingWindow window = new SlidingWindow(gasRule("rate", 10), 512);
+
+        assertTrue(Float.isNaN(window.add(0, 100F)));
+        assertEquals(10F, window.add(5, 150F));
+        // The first reading is exactly 10 seconds old, so it left the window
+        assertEquals(30F, window.add(10, 300F));
+    }
+
+    /**
+     * Tests that the count rule matches once N of the last M readings meet the condition.
+     */
+    @Test
+    void shouldCountMatchingSamples() {
+        CustomAlert customAlert = new CustomAlert("user1", "room1", "sensor1", "MQ2", "mq2Value", ">", 800F, null);
+        customAlert.setAggregation("count");
+        customAlert.setWindowSamples(4);
+        customAlert.setRequiredSamples(3);
+        AlertRule rule = AlertRule.compile("alert1", customAlert);
+        SlidingWindow window = new SlidingWindow(rule, 512);
+
+        assertEquals(WindowAggregation.COUNT, rule.getAggregation());
+        assertEquals(1F, window.add(0, 900F));
+        assertEquals(1F, window.add(1, 100F));
+        assertEquals(2F, window.add(2, 900F));
+        assertFalse(rule.matches(2F));
+        assertEquals(3F, window.add(3, 950F));
+        assertTrue(rule.matches(3F));
+        // The first reading leaves the window
+        assertEquals(2F, window.add(4, 100F));
+        assertTrue(rule.clears(2F, 0.05f, 0.5f));
+    }
+
+    /**
+     * Tests that a count window keeps all the readings it looks at even when they are more than the time windows keep,
+     * so a rule requiring more matching readings than that can still fire.
+     */
+    @Test
+    void shouldKeepWholeCountWindow() {
+        CustomAlert customAlert = new CustomAlert("user1", "room1", "sensor1", "MQ2", "mq2Value", ">", 800F, null);
+        customAlert.setAggregation("count");
+        customAlert.setWindowSamples(4);
+        customAlert.setRequiredSamples(3);
+        SlidingWindow window = new SlidingWindow(AlertRule.compile("alert1", customAlert), 2);
+
+        window.add(0, 900F);
+        window.add(1, 900F);
+        assertEquals(3F, window.add(2, 900F));
+        assertEquals(3F, window.add(3, 100F));
+    }
+
+    /**
+     * Tests that windows without a length and count rules requiring more readings than they look at are rejected.
+     */
+    @Test
+    void shouldRejectInvalidWindows() {
+        assertNull(gasRule("avg", 0));
+        assertNull(gasRule("median", 10));
+
+        CustomAlert customAlert = new CustomAlert("user1", "room1", "sensor1", "MQ2", "mq2Value", ">", 800F, null);
+        customAlert.setAggregation("count");
+        customAlert.setWindowSamples(2);
+        customAlert.setRequiredSamples(3);
+        assertNull(AlertRule.compile("alert1", customAlert));
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * SystemThresholdServiceImplTest.java
+ * This file is part of the Spring Project.
+ * It contains unit tests for the SystemThresholdServiceImpl class.
+ * The tests cover the default thresholds and the global and room overrides loaded from Firestore.
+ * @author Ilea Robert-Ioan
+ */
+package org.example.springproject.tests;
+
+import com.google.cloud.firestore.*;
+import org.example.springproject.entity.SystemThreshold;
+import org.example.springproject.service.implementation.SystemThresholdServiceImpl;
+import org.example.springproject.util.AlertRule;
+import org.example.springproject.util.AlertRuleSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SystemThresholdServiceImpl.
+ * It uses Mockito to capture the snapshot listener registered on the system_thresholds collection and feed it with thresholds.
+ */
+@ExtendWith(MockitoExtension.class)
+public class SystemThresholdServiceImplTest {
+    /**
+     * Mocks the Firestore to simulate Firestore interactions.
+     */
+    @Mock
+    private Firestore firestore;
+
+    /**
+     * Mocks the CollectionReference of the system_thresholds collection.
+     */
+    @Mock
+    private CollectionReference collectionReference;
+
+    /**
+     * The SystemThresholdServiceImpl instance that is being tested.
+     */
+    @InjectMocks
+    private SystemThresholdServiceImpl systemThresholdService;
+
+    /**
+     * Tests that the default thresholds are used before any threshold is loaded from Firestore.
+     */
+    @Test
+    void shouldResolveDefaultThresholds() {
+        AlertRuleSet rules = systemThresholdService.getRules("DHT22", "room1");
+
+        assertEquals(2, rules.getRules("temperature").length);
+        assertEquals(2, rules.getRules("humidity").length);
+        assertEquals("Gas level in room: Kitchen is too high: 750.0",
+                systemThresholdService.getRules("MQ5", "room1").getRules("gas")[0].formatMessage("Kitchen", 750F));
+        assertTrue(systemThresholdService.getRules("MQ2", null).getRules("mq2Value")[0].matches(801F));
+        assertTrue(systemThresholdService.getRules("BME280", "room1").isEmpty());
+    }
+
+    /**
+     * Tests that a stored global threshold replaces its default everywhere
+     * and that a room override replaces or disables a threshold for its room only.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldApplyGlobalAndRoomOverrides() {
+        when(firestore.collection("system_thresholds")).thenReturn(collectionReference);
+        ArgumentCaptor<EventListener<QuerySnapshot>> listener = ArgumentCaptor.forClass(EventListener.class);
+        when(collectionReference.addSnapshotListener(listener.capture())).thenReturn(mock(ListenerRegistration.class));
+
+        systemThresholdService.listenForThresholds();
+
+        SystemThreshold globalGas = new SystemThreshold("gas-too-high", "MQ5", "gas", ">", 600, "Gas: {value}");
+        SystemThreshold coldRoom = new SystemThreshold("temperature-too-low", "DHT22", "temperature", "<", -30, "Freezer: {value}");
+        coldRoom.setRoomId("freezer");
+        SystemThreshold noHumidity = new SystemThreshold("humidity-too-low", "DHT22", "humidity", "<", 10, null);
+        noHumidity.setRoomId("freezer");
+        noHumidity.setEnabled(false);
+        SystemThreshold invalid = new SystemThreshold("broken", "DHT22", "temperature", "above", 10, null);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.toObjects(SystemThreshold.class)).thenReturn(List.of(globalGas, coldRoom, noHumidity, invalid));
+
+        listener.getValue().onEvent(snapshot, null);
+
+        assertEquals(8, systemThresholdService.getThresholds().size());
+        AlertRule[] gasRules = systemThresholdService.getRules("MQ5", "room1").getRules("gas");
+        assertEquals(1, gasRules.length);
+        assertEquals(600, gasRules[0].getThreshold());
+
+        AlertRuleSet freezer = systemThresholdService.getRules("DHT22", "freezer");
+        assertTrue(List.of(freezer.getRules("temperature")).stream().anyMatch(rule -> rule.getThreshold() == -30));
+        assertEquals(1, freezer.getRules("humidity").length);
+        assertEquals(">", freezer.getRules("humidity")[0].getOperator().getSymbol());
+
+        AlertRuleSet office = systemThresholdService.getRules("DHT22", "office");
+        assertTrue(List.of(office.getRules("temperature")).stream().anyMatch(rule -> rule.getThreshold() == -15));
+        assertEquals(2, office.getRules("humidity").length);
+    }
+}
@@ -14,6 +14,7 @@ import org.example.springproject.dto.UserDTO;
 import org.example.springproject.entity.User;
 import org.example.springproject.service.implementation.UserServiceImpl;
 import org.example.springproject.util.EncryptionService;
+import org.example.springproject.util.RoomContextCache;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -63,6 +64,12 @@ public class UserServiceImplTest {
     @Mock
     private EncryptionService encryptionService;
 
+    /**
+     * Mocks the RoomContextCache, which is invalidated when users are modified.
+     */
+    @Mock
+    private RoomContextCache roomContextCache;
+
     /**
      * The UserServiceImpl instance that is being tested.
      * It is annotated with @InjectMocks to inject the mocked dependencies.